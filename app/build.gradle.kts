@@ -14,9 +14,20 @@ android {
         versionName = "1.0"
 
         testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+        // 推理服务地址只在构建时指定，其他应用无法通过 Intent 改写；为空时只在本地推理
+        buildConfigField("String", "INFERENCE_SERVER", "\"\"")
+    }
+
+    buildFeatures {
+        buildConfig = true
     }
 
     buildTypes {
+        debug {
+            // 开发时用 -PinferenceServer=http://localhost:8080 指定（真机配合 adb reverse tcp:8080 tcp:8080）
+            val server = (project.findProperty("inferenceServer") as String?).orEmpty()
+            buildConfigField("String", "INFERENCE_SERVER", "\"$server\"")
+        }
         release {
             isMinifyEnabled = false
             proguardFiles(
@@ -25,6 +36,10 @@ android {
             )
         }
     }
+    androidResources {
+        // 二进制模型需要保持不压缩，才能通过 openFd 内存映射
+        noCompress += "bin"
+    }
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
@@ -33,10 +48,14 @@ android {
 
 dependencies {
 
+    implementation(project(":core"))
     implementation(libs.appcompat)
     implementation(libs.material)
     implementation(libs.activity)
     implementation(libs.constraintlayout)
+    implementation(libs.camera.camera2)
+    implementation(libs.camera.lifecycle)
+    implementation(libs.camera.view)
     testImplementation(libs.junit)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
@@ -0,0 +1,262 @@
+package com.example.skinrecognition;
+
+import android.Manifest;
+import android.content.ClipData;
+import android.content.ContentResolver;
+import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Environment;
+import android.util.Log;
+import android.view.View;
+import android.widget.Button;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.annotation.Nullable;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.app.ActivityCompat;
+import androidx.core.content.ContextCompat;
+
+import com.example.skinrecognition.core.batch.BatchAnalyzer;
+import com.example.skinrecognition.core.batch.BatchProgress;
+import com.example.skinrecognition.core.batch.BatchResultsFile;
+import com.example.skinrecognition.core.exec.CancellationToken;
+import com.example.skinrecognition.core.feature.AnalysisResolution;
+import com.example.skinrecognition.core.image.ArgbImage;
+import com.example.skinrecognition.core.model.TreeModel;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量分析页：把拍照目录 Pictures/SkinRecognition 或多选的图片逐张分析，
+ * 结果写入 batch_results.tsv。中途退出或进程被杀后再次分析会跳过已完成的图片。
+ */
+public class BatchAnalysisActivity extends AppCompatActivity {
+
+    private static final String TAG = "BatchAnalysis";
+    private static final int REQUEST_SELECT_IMAGES = 200;
+    private static final int REQUEST_STORAGE_PERMISSION = 201;
+    private static final String RESULTS_FILE = "batch_results.tsv";
+    private static final long MODEL_WAIT_SECONDS = 10;
+    // 读文件和解码的线程数；计算线程数与 CPU 核数相同
+    private static final int READ_THREADS = 2;
+    // 与单张分析的默认分辨率相同，解码和缩放也走同一路径（ImageDecodePipeline），结果可以直接比较
+    private static final AnalysisResolution RESOLUTION = AnalysisResolution.SIZE_200;
+
+    private Button btnAnalyseFolder, btnSelectImages, btnStop;
+    private ProgressBar progressBar;
+    private TextView tvStatus;
+    private final ImageDecodePipeline decodePipeline = new ImageDecodePipeline();
+    // 当前批次的取消标记，只在主线程访问
+    private CancellationToken runningToken;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_batch);
+
+        btnAnalyseFolder = findViewById(R.id.btnAnalyseFolder);
+        btnSelectImages = findViewById(R.id.btnSelectImages);
+        btnStop = findViewById(R.id.btnStopBatch);
+        progressBar = findViewById(R.id.progressBatch);
+        tvStatus = findViewById(R.id.tvBatchStatus);
+
+        btnAnalyseFolder.setOnClickListener(v -> {
+            String permission = Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU
+                    ? Manifest.permission.READ_MEDIA_IMAGES : Manifest.permission.READ_EXTERNAL_STORAGE;
+            if (ContextCompat.checkSelfPermission(this, permission) != PackageManager.PERMISSION_GRANTED) {
+                ActivityCompat.requestPermissions(this, new String[]{permission}, REQUEST_STORAGE_PERMISSION);
+            } else {
+                analyseFolder();
+            }
+        });
+        btnSelectImages.setOnClickListener(v -> {
+            Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT);
+            intent.addCategory(Intent.CATEGORY_OPENABLE);
+            intent.setType("image/*");
+            intent.putExtra(Intent.EXTRA_ALLOW_MULTIPLE, true);
+            startActivityForResult(Intent.createChooser(intent, "选择皮肤照片"), REQUEST_SELECT_IMAGES);
+        });
+        btnStop.setOnClickListener(v -> {
+            if (runningToken != null) {
+                runningToken.cancel();
+                tvStatus.setText("正在停止...");
+            }
+        });
+    }
+
+    // 分析拍照保存目录中的所有图片
+    private void analyseFolder() {
+        File dir = new File(Environment.getExternalStoragePublicDirectory(
+                Environment.DIRECTORY_PICTURES), "SkinRecognition");
+        File[] files = dir.listFiles((d, name) -> {
+            String lower = name.toLowerCase(Locale.ROOT);
+            return lower.endsWith(".jpg") || lower.endsWith(".jpeg") || lower.endsWith(".png");
+        });
+        if (files == null || files.length == 0) {
+            Toast.makeText(this, "拍照目录中没有图片", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        Arrays.sort(files);
+        List<BatchAnalyzer.Item> items = new ArrayList<>();
+        for (File file : files) {
+            items.add(BatchAnalyzer.fileItem(file));
+        }
+        startBatch(items);
+    }
+
+    @Override
+    protected void onActivityResult(int requestCode, int resultCode, @Nullable Intent data) {
+        super.onActivityResult(requestCode, resultCode, data);
+        if (requestCode != REQUEST_SELECT_IMAGES || resultCode != RESULT_OK || data == null) {
+            return;
+        }
+        List<Uri> uris = new ArrayList<>();
+        ClipData clip = data.getClipData();
+        if (clip != null) {
+            for (int i = 0; i < clip.getItemCount(); i++) {
+                uris.add(clip.getItemAt(i).getUri());
+            }
+        } else if (data.getData() != null) {
+            uris.add(data.getData());
+        }
+        ContentResolver resolver = getContentResolver();
+        List<BatchAnalyzer.Item> items = new ArrayList<>();
+        for (Uri uri : uris) {
+            ImageDecodePipeline.StreamOpener opener = ImageDecodePipeline.opener(resolver, uri);
+            items.add(new BatchAnalyzer.Item() {
+                @Override
+                public String getId() {
+                    return uri.toString();
+                }
+
+                @Override
+                public InputStream open() throws IOException {
+                    return opener.open();
+                }
+            });
+        }
+        if (!items.isEmpty()) {
+            startBatch(items);
+        }
+    }
+
+    private void startBatch(List<BatchAnalyzer.Item> items) {
+        if (runningToken != null) {
+            Toast.makeText(this, "批量分析正在进行", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        CancellationToken token = new CancellationToken();
+        runningToken = token;
+        setRunning(true);
+        tvStatus.setText("准备中...");
+        progressBar.setProgress(0);
+
+        File dir = getExternalFilesDir(null);
+        File resultsFile = new File(dir != null ? dir : getFilesDir(), RESULTS_FILE);
+        SkinApplication app = SkinApplication.from(this);
+        Thread thread = new Thread(() -> {
+            String message;
+            try (BatchResultsFile results = BatchResultsFile.open(resultsFile)) {
+                TreeModel model = app.getModelRegistry().await(app.getSkinTypeModel(),
+                        MODEL_WAIT_SECONDS, TimeUnit.SECONDS);
+                int workers = Runtime.getRuntime().availableProcessors();
+                BatchAnalyzer analyzer = new BatchAnalyzer(model, this::decodeForAnalysis,
+                        READ_THREADS, workers, workers * 2);
+                BatchProgress progress = analyzer.run(items, results, new BatchAnalyzer.Listener() {
+                    @Override
+                    public void onProgress(BatchProgress progress) {
+                        runOnUiThread(() -> showProgress(progress));
+                    }
+
+                    @Override
+                    public void onItemFailed(String id, Exception error) {
+                        Log.w(TAG, "分析失败: " + id, error);
+                    }
+                }, token);
+                Log.i(TAG, "批量分析结束: " + progress + "，结果文件 " + resultsFile);
+                message = (progress.isCancelled() ? "已停止：" : "完成：") + progress;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                message = "批量分析被中断";
+            } catch (IllegalArgumentException e) {
+                // 模型的特征布局不受支持
+                Log.w(TAG, "批量分析失败", e);
+                message = e.getMessage();
+            } catch (Exception e) {
+                Log.e(TAG, "批量分析失败", e);
+                message = "批量分析失败";
+            }
+            String finalMessage = message;
+            runOnUiThread(() -> {
+                runningToken = null;
+                if (!isDestroyed()) {
+                    setRunning(false);
+                    tvStatus.setText(finalMessage);
+                }
+            });
+        }, "batch-analysis");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // 在读取线程中调用：与单张分析相同，先按 targetSize 采样解码，再缩放到分析分辨率取出像素
+    private ArgbImage decodeForAnalysis(byte[] data) throws IOException {
+        int target = ImageDecodePipeline.targetSize(RESOLUTION);
+        Bitmap decoded = decodePipeline.decode(data, target, target);
+        if (decoded == null) {
+            return null;
+        }
+        ArgbImage image = ImageDecodePipeline.toArgbImage(decoded, RESOLUTION.getSize());
+        decodePipeline.release(decoded);
+        return image;
+    }
+
+    private void showProgress(BatchProgress progress) {
+        if (isDestroyed()) {
+            return;
+        }
+        progressBar.setMax(Math.max(progress.getTotal(), 1));
+        progressBar.setProgress(progress.getCompleted() + progress.getFailed());
+        tvStatus.setText(progress.toString());
+    }
+
+    private void setRunning(boolean running) {
+        btnAnalyseFolder.setEnabled(!running);
+        btnSelectImages.setEnabled(!running);
+        btnStop.setVisibility(running ? View.VISIBLE : View.GONE);
+    }
+
+    @Override
+    public void onRequestPermissionsResult(int requestCode, String[] permissions, int[] grantResults) {
+        super.onRequestPermissionsResult(requestCode, permissions, grantResults);
+        if (requestCode == REQUEST_STORAGE_PERMISSION) {
+            if (grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
+                analyseFolder();
+            } else {
+                Toast.makeText(this, "需要读取图片权限", Toast.LENGTH_SHORT).show();
+            }
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        // 已写入结果文件的图片下次会跳过，所以这里直接停止
+        if (runningToken != null) {
+            runningToken.cancel();
+        }
+        super.onDestroy();
+    }
+}
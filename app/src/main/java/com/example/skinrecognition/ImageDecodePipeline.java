@@ -0,0 +1,212 @@
+package com.example.skinrecognition;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.media.ExifInterface;
+import android.net.Uri;
+import android.util.Log;
+
+import com.example.skinrecognition.core.feature.AnalysisResolution;
+import com.example.skinrecognition.core.image.ArgbImage;
+import com.example.skinrecognition.core.image.DecodeSizing;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * 有内存上限的图片解码：先读尺寸，再按需要的尺寸选择 2 的幂次 inSampleSize 解码，
+ * 按 EXIF 方向旋转，并通过 inBitmap 复用之前分析用过的位图内存。
+ * <p>
+ * 例如 4000x3000 的照片按 720 的目标边长解码为 1000x750（约 3 MB），
+ * 不再先解出约 48 MB 的原图再缩放。
+ */
+final class ImageDecodePipeline {
+
+    private static final String TAG = "ImageDecode";
+    // 可复用位图的最大数量
+    private static final int POOL_SIZE = 2;
+    // 显示用的解码目标边长，分析图由它再缩放得到
+    static final int DISPLAY_SIZE = 720;
+
+    /** 打开图片输入流，解码过程中会调用多次。 */
+    interface StreamOpener {
+        InputStream open() throws IOException;
+    }
+
+    private final ArrayDeque<Bitmap> pool = new ArrayDeque<>();
+
+    /**
+     * 分析用的解码目标边长：满足显示和分析分辨率，NATIVE 时为 0（不缩小）。
+     * 单张分析和批量分析都按它解码再 {@link #toArgbImage} 缩放，同一张图的特征相同。
+     */
+    static int targetSize(AnalysisResolution resolution) {
+        return resolution.isNative() ? 0 : Math.max(DISPLAY_SIZE, resolution.getSize());
+    }
+
+    // 按分析边长缩放，并一次性读出全部像素（避免逐像素 getPixel）；边长为 0 时直接使用原图
+    static ArgbImage toArgbImage(Bitmap bitmap, int size) {
+        Bitmap resizedBitmap = size == 0 ? bitmap : Bitmap.createScaledBitmap(bitmap, size, size, true);
+        int width = resizedBitmap.getWidth();
+        int height = resizedBitmap.getHeight();
+        int[] pixels = new int[width * height];
+        resizedBitmap.getPixels(pixels, 0, width, 0, 0, width, height);
+        if (resizedBitmap != bitmap) {
+            resizedBitmap.recycle();
+        }
+        return new ArgbImage(pixels, width, height);
+    }
+
+    // content Uri 的输入流，打不开时抛出 IOException 而不是返回 null
+    static StreamOpener opener(ContentResolver resolver, Uri uri) {
+        return () -> {
+            InputStream in = resolver.openInputStream(uri);
+            if (in == null) {
+                throw new IOException("无法打开图片: " + uri);
+            }
+            return in;
+        };
+    }
+
+    // 从 content Uri 解码
+    Bitmap decode(ContentResolver resolver, Uri uri, int reqWidth, int reqHeight) throws IOException {
+        return decode(opener(resolver, uri), reqWidth, reqHeight);
+    }
+
+    // 从文件路径解码
+    Bitmap decode(String path, int reqWidth, int reqHeight) throws IOException {
+        return decode(() -> new FileInputStream(path), reqWidth, reqHeight);
+    }
+
+    // 从内存中的文件内容解码
+    Bitmap decode(byte[] data, int reqWidth, int reqHeight) throws IOException {
+        return decode(() -> new ByteArrayInputStream(data), reqWidth, reqHeight);
+    }
+
+    /**
+     * 解码图片，结果的宽高不小于 reqWidth x reqHeight（原图更小时除外）；
+     * reqWidth 或 reqHeight 不大于 0 时按原尺寸解码。解码失败返回 null。
+     */
+    Bitmap decode(StreamOpener opener, int reqWidth, int reqHeight) throws IOException {
+        // 1. 只读尺寸，不分配像素内存
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        try (InputStream in = opener.open()) {
+            BitmapFactory.decodeStream(in, null, options);
+        }
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        // 2. EXIF 旋转 90/270 度时宽高互换，采样率按旋转后的方向计算
+        int orientation = readOrientation(opener);
+        boolean swap = orientation == ExifInterface.ORIENTATION_ROTATE_90
+                || orientation == ExifInterface.ORIENTATION_ROTATE_270
+                || orientation == ExifInterface.ORIENTATION_TRANSPOSE
+                || orientation == ExifInterface.ORIENTATION_TRANSVERSE;
+        int srcWidth = swap ? options.outHeight : options.outWidth;
+        int srcHeight = swap ? options.outWidth : options.outHeight;
+        int sampleSize = DecodeSizing.computeSampleSize(srcWidth, srcHeight, reqWidth, reqHeight);
+
+        // 3. 按采样率解码，尽量复用池中的位图
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        options.inMutable = true;
+        long needed = DecodeSizing.decodedBytes(options.outWidth, options.outHeight, sampleSize);
+        options.inBitmap = takeReusable(needed);
+        Bitmap bitmap;
+        try (InputStream in = opener.open()) {
+            bitmap = BitmapFactory.decodeStream(in, null, options);
+        } catch (IllegalArgumentException e) {
+            // inBitmap 不满足解码要求时不复用，放回池中后重新解码
+            Log.w(TAG, "无法复用位图，重新分配", e);
+            release(options.inBitmap);
+            options.inBitmap = null;
+            try (InputStream in = opener.open()) {
+                bitmap = BitmapFactory.decodeStream(in, null, options);
+            }
+        }
+        if (bitmap == null) {
+            // 解码失败时取出的位图没有用上
+            release(options.inBitmap);
+            return null;
+        }
+        return applyOrientation(bitmap, orientation);
+    }
+
+    // 位图不再显示或分析时归还，供下次解码复用
+    synchronized void release(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable() || pool.contains(bitmap)) {
+            return;
+        }
+        if (pool.size() >= POOL_SIZE) {
+            pool.pollFirst().recycle();
+        }
+        pool.addLast(bitmap);
+    }
+
+    private synchronized Bitmap takeReusable(long neededBytes) {
+        Iterator<Bitmap> it = pool.iterator();
+        while (it.hasNext()) {
+            Bitmap candidate = it.next();
+            if (candidate.getAllocationByteCount() >= neededBytes) {
+                it.remove();
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private static int readOrientation(StreamOpener opener) {
+        try (InputStream in = opener.open()) {
+            return new ExifInterface(in).getAttributeInt(
+                    ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
+        } catch (IOException e) {
+            Log.w(TAG, "读取 EXIF 失败", e);
+            return ExifInterface.ORIENTATION_NORMAL;
+        }
+    }
+
+    private Bitmap applyOrientation(Bitmap bitmap, int orientation) {
+        Matrix matrix = new Matrix();
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_ROTATE_90:
+                matrix.postRotate(90);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_180:
+                matrix.postRotate(180);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_270:
+                matrix.postRotate(270);
+                break;
+            case ExifInterface.ORIENTATION_FLIP_HORIZONTAL:
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+                matrix.postScale(1, -1);
+                break;
+            case ExifInterface.ORIENTATION_TRANSPOSE:
+                matrix.postRotate(90);
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_TRANSVERSE:
+                matrix.postRotate(270);
+                matrix.postScale(-1, 1);
+                break;
+            default:
+                return bitmap;
+        }
+        Bitmap rotated = Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix, true);
+        if (rotated != bitmap) {
+            // 旋转前的位图已经不用了，放回池中
+            release(bitmap);
+        }
+        return rotated;
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.skinrecognition;
+
+import android.Manifest;
+import android.content.pm.PackageManager;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.Size;
+import android.widget.Button;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.camera.core.CameraSelector;
+import androidx.camera.core.ImageAnalysis;
+import androidx.camera.core.ImageProxy;
+import androidx.camera.core.Preview;
+import androidx.camera.core.resolutionselector.ResolutionSelector;
+import androidx.camera.core.resolutionselector.ResolutionStrategy;
+import androidx.camera.lifecycle.ProcessCameraProvider;
+import androidx.camera.view.PreviewView;
+import androidx.core.app.ActivityCompat;
+import androidx.core.content.ContextCompat;
+
+import com.example.skinrecognition.core.feature.FeatureExtractor;
+import com.example.skinrecognition.core.feature.FeatureLayout;
+import com.example.skinrecognition.core.feature.YuvFrameAnalyzer;
+import com.example.skinrecognition.core.model.TreeModel;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 实时分析页：直接读取相机预览的 YUV 帧计算特征，不保存照片也不解码 JPEG。
+ * <p>
+ * ImageAnalysis 使用 STRATEGY_KEEP_ONLY_LATEST，分析跟不上时相机只保留最新一帧，
+ * 旧帧直接丢弃；另外按 {@link #FRAME_INTERVAL_MS} 限制分析帧率，耗电和发热可控。
+ * 特征在帧之间指数平滑，结果不会随每一帧跳动。
+ */
+public class LiveAnalysisActivity extends AppCompatActivity {
+
+    private static final String TAG = "LiveAnalysis";
+    private static final int REQUEST_CAMERA_PERMISSION = 300;
+    // 分析帧间隔（约 10 帧/秒）
+    private static final long FRAME_INTERVAL_MS = 100;
+    // 新帧在平滑统计中的权重
+    private static final double SMOOTHING = 0.3;
+    // 预览分析分辨率，取样网格为 200x200，不需要更高
+    private static final Size ANALYSIS_SIZE = new Size(640, 480);
+
+    private final String[] skinTypes = {"油性", "干性", "中性"};
+    private PreviewView previewView;
+    private TextView tvResult;
+    // 分析线程，YuvFrameAnalyzer 只在这个线程访问
+    private ExecutorService analysisExecutor;
+    private final YuvFrameAnalyzer frameAnalyzer =
+            new YuvFrameAnalyzer(YuvFrameAnalyzer.DEFAULT_GRID_SIZE, SMOOTHING);
+    private final float[] features = new float[FeatureExtractor.FEATURE_COUNT];
+    private volatile boolean resetRequested;
+    private long lastFrameMs;
+    private int analysedFrames;
+    private int skippedFrames;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_live);
+
+        previewView = findViewById(R.id.previewView);
+        tvResult = findViewById(R.id.tvLiveResult);
+        Button btnReset = findViewById(R.id.btnResetLive);
+        btnReset.setOnClickListener(v -> resetRequested = true);
+
+        analysisExecutor = Executors.newSingleThreadExecutor(r -> new Thread(r, "live-analysis"));
+        // 提前加载模型
+        SkinApplication app = SkinApplication.from(this);
+        app.getModelRegistry().preload(app.getSkinTypeModel());
+
+        if (ContextCompat.checkSelfPermission(this, Manifest.permission.CAMERA)
+                != PackageManager.PERMISSION_GRANTED) {
+            ActivityCompat.requestPermissions(this,
+                    new String[]{Manifest.permission.CAMERA}, REQUEST_CAMERA_PERMISSION);
+        } else {
+            startCamera();
+        }
+    }
+
+    private void startCamera() {
+        ListenableFuture<ProcessCameraProvider> future = ProcessCameraProvider.getInstance(this);
+        future.addListener(() -> {
+            ProcessCameraProvider provider;
+            try {
+                provider = future.get();
+            } catch (ExecutionException | InterruptedException e) {
+                Log.e(TAG, "相机初始化失败", e);
+                Toast.makeText(this, "相机初始化失败", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            Preview preview = new Preview.Builder().build();
+            preview.setSurfaceProvider(previewView.getSurfaceProvider());
+
+            ImageAnalysis analysis = new ImageAnalysis.Builder()
+                    .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
+                    .setOutputImageFormat(ImageAnalysis.OUTPUT_IMAGE_FORMAT_YUV_420_888)
+                    .setResolutionSelector(new ResolutionSelector.Builder()
+                            .setResolutionStrategy(new ResolutionStrategy(ANALYSIS_SIZE,
+                                    ResolutionStrategy.FALLBACK_RULE_CLOSEST_HIGHER_THEN_LOWER))
+                            .build())
+                    .build();
+            analysis.setAnalyzer(analysisExecutor, image -> {
+                try {
+                    analyseFrame(image);
+                } catch (RuntimeException e) {
+                    Log.w(TAG, "帧分析失败", e);
+                } finally {
+                    image.close();
+                }
+            });
+
+            provider.unbindAll();
+            provider.bindToLifecycle(this, CameraSelector.DEFAULT_BACK_CAMERA, preview, analysis);
+        }, ContextCompat.getMainExecutor(this));
+    }
+
+    // 在分析线程中调用
+    private void analyseFrame(ImageProxy image) {
+        long now = SystemClock.elapsedRealtime();
+        if (now - lastFrameMs < FRAME_INTERVAL_MS) {
+            skippedFrames++;
+            return;
+        }
+        lastFrameMs = now;
+        if (resetRequested) {
+            resetRequested = false;
+            frameAnalyzer.reset();
+        }
+
+        ImageProxy.PlaneProxy[] planes = image.getPlanes();
+        frameAnalyzer.addFrame(planes[0].getBuffer(), planes[0].getRowStride(),
+                planes[1].getBuffer(), planes[2].getBuffer(),
+                planes[1].getRowStride(), planes[1].getPixelStride(),
+                image.getWidth(), image.getHeight(), image.getImageInfo().getRotationDegrees());
+        analysedFrames++;
+
+        // 模型还没加载完时只累积统计，不阻塞分析线程
+        SkinApplication app = SkinApplication.from(this);
+        TreeModel model = app.getModelRegistry().getIfReady(app.getSkinTypeModel());
+        if (model == null) {
+            return;
+        }
+        if (model.getLayout() != FeatureLayout.BASIC) {
+            // 预览流只累积 7 维统计，与 PatchClassifier 一样不支持其它布局的模型
+            runOnUiThread(() -> tvResult.setText("实时分析只支持 " + FeatureLayout.BASIC.getId() + " 特征布局的模型"));
+            return;
+        }
+        if (!frameAnalyzer.getFeatures(features)) {
+            return;
+        }
+        String text = String.format(Locale.getDefault(), "%s\nH=%.1f S=%.2f V=%.2f（%d 帧）",
+                skinTypes[model.predict(features)], features[0], features[2], features[4],
+                frameAnalyzer.getFrameCount());
+        runOnUiThread(() -> tvResult.setText(text));
+    }
+
+    @Override
+    public void onRequestPermissionsResult(int requestCode, String[] permissions, int[] grantResults) {
+        super.onRequestPermissionsResult(requestCode, permissions, grantResults);
+        if (requestCode == REQUEST_CAMERA_PERMISSION) {
+            if (grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
+                startCamera();
+            } else {
+                Toast.makeText(this, "需要相机权限才能实时分析", Toast.LENGTH_SHORT).show();
+                finish();
+            }
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // 相机随生命周期解绑后再停止分析线程
+        analysisExecutor.execute(() ->
+                Log.i(TAG, "实时分析结束: 分析 " + analysedFrames + " 帧, 跳过 " + skippedFrames + " 帧"));
+        analysisExecutor.shutdown();
+    }
+}
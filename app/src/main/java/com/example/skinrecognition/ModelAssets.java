@@ -0,0 +1,101 @@
+package com.example.skinrecognition;
+
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.skinrecognition.core.classify.QuantizedCnn;
+import com.example.skinrecognition.core.model.BinaryModelFormat;
+import com.example.skinrecognition.core.model.EnsembleModel;
+import com.example.skinrecognition.core.model.ModelConverter;
+import com.example.skinrecognition.core.model.ModelFormatException;
+import com.example.skinrecognition.core.model.TextModelReader;
+import com.example.skinrecognition.core.model.TreeModel;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+// 从 assets 加载决策树模型：优先内存映射 skin_model.bin，不可用时退回文本模型；
+// 另外可选加载 ensemble_model.txt 中的集成模型和 skin_cnn.bin 中的量化 CNN
+final class ModelAssets {
+
+    private static final String TAG = "ModelAssets";
+
+    private ModelAssets() {
+    }
+
+    static TreeModel load(AssetManager assets, int classCount) throws IOException {
+        long start = SystemClock.elapsedRealtimeNanos();
+        TreeModel model;
+        try {
+            model = loadBinary(assets, classCount);
+        } catch (IOException e) {
+            Log.w(TAG, "二进制模型不可用，改用文本模型", e);
+            model = loadText(assets, classCount);
+        }
+        Log.i(TAG, "模型加载耗时 " + (SystemClock.elapsedRealtimeNanos() - start) / 1000 + " us");
+        return model;
+    }
+
+    // skin_model.bin 在打包时不压缩（见 build.gradle.kts 的 noCompress），可以直接映射
+    static TreeModel loadBinary(AssetManager assets, int classCount) throws IOException {
+        try (AssetFileDescriptor afd = assets.openFd(ModelConverter.BINARY_FILE);
+             FileInputStream in = afd.createInputStream();
+             FileChannel channel = in.getChannel()) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+                    afd.getStartOffset(), afd.getLength());
+            TreeModel model = BinaryModelFormat.read(buffer);
+            if (model.getClassCount() != classCount) {
+                throw new ModelFormatException("类别数不符: " + model.getClassCount());
+            }
+            return model;
+        }
+    }
+
+    static TreeModel loadText(AssetManager assets, int classCount) throws IOException {
+        try (InputStream tree = assets.open(ModelConverter.TREE_FILE);
+             InputStream mean = assets.open(ModelConverter.MEAN_FILE);
+             InputStream std = assets.open(ModelConverter.STD_FILE)) {
+            return TextModelReader.read(tree, mean, std, classCount);
+        }
+    }
+
+    // 集成模型和 CNN 是可选的 asset，没有打包时返回 false
+    static boolean has(AssetManager assets, String name) throws IOException {
+        String[] names = assets.list("");
+        return names != null && Arrays.asList(names).contains(name);
+    }
+
+    // 集成模型与单棵树共用 scaler_mean.txt / scaler_std.txt
+    static EnsembleModel loadEnsemble(AssetManager assets) throws IOException {
+        long start = SystemClock.elapsedRealtimeNanos();
+        EnsembleModel model;
+        try (InputStream ensemble = assets.open(ModelConverter.ENSEMBLE_FILE);
+             InputStream mean = assets.open(ModelConverter.MEAN_FILE);
+             InputStream std = assets.open(ModelConverter.STD_FILE)) {
+            model = TextModelReader.readEnsemble(ensemble, mean, std);
+        }
+        Log.i(TAG, "集成模型加载耗时 " + (SystemClock.elapsedRealtimeNanos() - start) / 1000 + " us，"
+                + model.getTreeCount() + " 棵树，" + model.getNodeCount() + " 个节点");
+        return model;
+    }
+
+    // skin_cnn.bin 与 skin_model.bin 一样不压缩，直接映射后读取
+    static QuantizedCnn loadCnn(AssetManager assets) throws IOException {
+        long start = SystemClock.elapsedRealtimeNanos();
+        QuantizedCnn model;
+        try (AssetFileDescriptor afd = assets.openFd(ModelConverter.CNN_FILE);
+             FileInputStream in = afd.createInputStream();
+             FileChannel channel = in.getChannel()) {
+            model = QuantizedCnn.read(channel.map(FileChannel.MapMode.READ_ONLY,
+                    afd.getStartOffset(), afd.getLength()));
+        }
+        Log.i(TAG, "CNN 加载耗时 " + (SystemClock.elapsedRealtimeNanos() - start) / 1000 + " us，" + model);
+        return model;
+    }
+}
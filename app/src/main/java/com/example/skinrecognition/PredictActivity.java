@@ -4,13 +4,14 @@ import android.Manifest;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.graphics.Color;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Environment;
 import android.provider.MediaStore;
+import android.util.Log;
 import android.view.View;
 import android.widget.Button;
 import android.widget.ImageView;
@@ -24,34 +25,109 @@ import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 import androidx.core.content.FileProvider;
 
+import com.example.skinrecognition.core.cache.ContentHash;
+import com.example.skinrecognition.core.cache.NearDuplicateIndex;
+import com.example.skinrecognition.core.cache.PerceptualHash;
+import com.example.skinrecognition.core.cache.PredictionCache;
+import com.example.skinrecognition.core.classify.AdaptiveTreeClassifier;
+import com.example.skinrecognition.core.classify.Classification;
+import com.example.skinrecognition.core.classify.Classifier;
+import com.example.skinrecognition.core.classify.ClassifierBackend;
+import com.example.skinrecognition.core.classify.CnnClassifier;
+import com.example.skinrecognition.core.classify.PatchAnalysis;
+import com.example.skinrecognition.core.classify.PatchClassifier;
+import com.example.skinrecognition.core.classify.TreeClassifier;
+import com.example.skinrecognition.core.exec.CancellationToken;
+import com.example.skinrecognition.core.exec.InferenceScheduler;
+import com.example.skinrecognition.core.feature.AnalysisResolution;
+import com.example.skinrecognition.core.feature.FeatureExtractor;
+import com.example.skinrecognition.core.feature.PatchFeatureExtractor;
+import com.example.skinrecognition.core.feature.PatchGrid;
+import com.example.skinrecognition.core.feature.TiledFeatureExtractor;
+import com.example.skinrecognition.core.history.AnalysisRecord;
+import com.example.skinrecognition.core.image.ArgbImage;
+import com.example.skinrecognition.core.image.QualityScreen;
+import com.example.skinrecognition.core.metrics.PipelineMetrics;
+import com.example.skinrecognition.core.metrics.PipelineMetrics.Failure;
+import com.example.skinrecognition.core.metrics.PipelineMetrics.Stage;
+import com.example.skinrecognition.core.model.EnsembleModel;
+import com.example.skinrecognition.core.model.ModelFormatException;
+import com.example.skinrecognition.core.model.ModelRegistry;
+import com.example.skinrecognition.core.model.TreeModel;
+import com.example.skinrecognition.core.remote.InferenceClient;
+
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Date;
-import java.util.List;
+import java.util.HashSet;
 import java.util.Locale;
-import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class PredictActivity extends AppCompatActivity {
 
+    private static final String TAG = "PredictActivity";
     private static final int REQUEST_CAMERA_PERMISSION = 100;
     private static final int REQUEST_STORAGE_PERMISSION = 101;
     private static final int REQUEST_TAKE_PHOTO = 102;
     private static final int REQUEST_SELECT_IMAGE = 103;
 
-    private ImageView ivPhoto;
+    private ImageView ivPhoto, ivHeatMap;
     private Button btnTakePhoto, btnSelectImage;
     private TextView tvResult;
     private Uri imageURI;
     private String currentPhotoPath;
 
     // 模型相关变量
-    private List<TreeNode> treeNodes = new ArrayList<>();
-    private float[] scalerMean;
-    private float[] scalerStd;
+    private static final long MODEL_WAIT_SECONDS = 10;
+    // 推理调度通道，同一通道内新请求会取消旧请求
+    private static final String INFERENCE_CHANNEL = "predict";
+    // 分块并行提取器，无状态，所有分析共用
+    private static final TiledFeatureExtractor TILED_EXTRACTOR =
+            new TiledFeatureExtractor(ForkJoinPool.commonPool());
+    // 分区块提取器，同样无状态
+    private static final PatchFeatureExtractor PATCH_EXTRACTOR =
+            new PatchFeatureExtractor(ForkJoinPool.commonPool());
+    // 热力图的长边，只用于显示，不需要和照片一样清晰
+    private static final int HEAT_MAP_SIZE = 256;
+    private static final int HEAT_MAP_ALPHA = 0x99;
+    // 热力图中各类别的颜色：油性橙色、干性蓝色、中性绿色
+    private static final int[] HEAT_MAP_COLORS = {0xFF8F00, 0x1E88E5, 0x43A047};
+    // 分析分辨率，可通过 Intent 参数 analysis_resolution 指定（SIZE_200 / SIZE_512 / NATIVE）
+    private AnalysisResolution analysisResolution = AnalysisResolution.SIZE_200;
+    // 分类后端，可通过 Intent 参数 classifier_backend 指定（TREE / CNN）
+    private ClassifierBackend classifierBackend = ClassifierBackend.TREE;
+    // 推理服务，只由构建参数 BuildConfig.INFERENCE_SERVER 指定（上传的是原图，不接受 Intent 参数），为 null 时只在本地推理
+    private InferenceClient inferenceClient;
+    // 分区块分析的网格和 ROI，Intent 参数 analysis_mode 为 patch 时启用，否则为 null（整图分析）
+    private PatchGrid patchGrid;
+    private PatchClassifier.Combine patchCombine = PatchClassifier.Combine.VOTE;
+    // 由粗到细的自适应推理，Intent 参数 adaptive_inference 为 true 时启用（只用于整图的树后端）
+    private boolean adaptiveInference;
+    // 连拍的近似重复照片沿用之前的结果：感知哈希相差不超过这么多位（共 64 位），
+    // 可通过 Intent 参数 near_duplicate_distance 指定，负数表示不查找
+    private static final int DEFAULT_NEAR_DUPLICATE_DISTANCE = 6;
+    private int nearDuplicateDistance = DEFAULT_NEAR_DUPLICATE_DISTANCE;
+    // 拍照质量预检，Intent 参数 quality_screen 为 off 时为 null（不检查）
+    private QualityScreen qualityScreen = new QualityScreen(QualityScreen.Thresholds.DEFAULT);
+
+    // 按需采样解码，并复用用过的位图内存
+    private final ImageDecodePipeline decodePipeline = new ImageDecodePipeline();
+    // 当前显示的位图，以及正在分析中的位图（只在主线程访问）
+    private Bitmap displayedBitmap;
+    private final Set<Bitmap> analysingBitmaps = new HashSet<>();
     private final String[] skinTypes = {"油性", "干性", "中性"};
+    // 最近一次结果的类别和置信度，只在主线程访问
+    private String lastLabel;
+    private float lastConfidence = Float.NaN;
     private Button btnShare;
 
 
@@ -62,11 +138,44 @@ public class PredictActivity extends AppCompatActivity {
 
         // 初始化控件
         ivPhoto = findViewById(R.id.ivPhoto);
+        ivHeatMap = findViewById(R.id.ivHeatMap);
         btnTakePhoto = findViewById(R.id.btnTakePhoto);
         btnSelectImage = findViewById(R.id.btnSelectImage);
         tvResult = findViewById(R.id.tvResult);
         btnShare = findViewById(R.id.btnShare);
 
+        // 分析分辨率，未指定时使用 200x200
+        analysisResolution = AnalysisResolution.fromName(getIntent().getStringExtra("analysis_resolution"));
+        // 分类后端，未指定时使用手工特征 + 决策树
+        classifierBackend = ClassifierBackend.fromName(getIntent().getStringExtra("classifier_backend"));
+        adaptiveInference = getIntent().getBooleanExtra("adaptive_inference", false);
+        nearDuplicateDistance = getIntent().getIntExtra("near_duplicate_distance", DEFAULT_NEAR_DUPLICATE_DISTANCE);
+        // 质量预检的阈值可以用 quality_thresholds 覆盖，例如 "min_sharpness=8,min_skin=0.4"
+        if ("off".equalsIgnoreCase(getIntent().getStringExtra("quality_screen"))) {
+            qualityScreen = null;
+        } else {
+            try {
+                qualityScreen = new QualityScreen(
+                        QualityScreen.Thresholds.parse(getIntent().getStringExtra("quality_thresholds")));
+            } catch (IllegalArgumentException e) {
+                Log.w(TAG, "质量阈值无效，使用默认值", e);
+            }
+        }
+        if (!BuildConfig.INFERENCE_SERVER.isEmpty()) {
+            inferenceClient = new InferenceClient(BuildConfig.INFERENCE_SERVER);
+        }
+        // 分区块分析：patch_grid 为 "行x列"（默认 4x4），patch_roi 为相对坐标 "x,y,w,h"（默认整图），
+        // patch_combine 为 VOTE / AVERAGE
+        if ("patch".equalsIgnoreCase(getIntent().getStringExtra("analysis_mode"))) {
+            try {
+                String grid = getIntent().getStringExtra("patch_grid");
+                patchGrid = PatchGrid.parse(grid != null ? grid : "4x4", getIntent().getStringExtra("patch_roi"));
+                patchCombine = PatchClassifier.Combine.fromName(getIntent().getStringExtra("patch_combine"));
+            } catch (IllegalArgumentException e) {
+                Log.w(TAG, "分区块参数无效，改为整图分析", e);
+            }
+        }
+
         // 加载模型参数
         loadModelParams();
 
@@ -92,6 +201,12 @@ public class PredictActivity extends AppCompatActivity {
             Intent intent = new Intent(PredictActivity.this, ShareResultActivity.class);
             // 传递识别结果文字
             intent.putExtra("result_text", tvResult.getText().toString());
+            if (lastLabel != null) {
+                intent.putExtra("result_label", lastLabel);
+            }
+            if (!Float.isNaN(lastConfidence)) {
+                intent.putExtra("result_confidence", lastConfidence);
+            }
 
             // 传递当前显示的图片路径
             if (currentPhotoPath != null) {
@@ -102,245 +217,456 @@ public class PredictActivity extends AppCompatActivity {
 
             startActivity(intent);
         });
+
+        // 实时分析和批量分析入口
+        findViewById(R.id.tvLive).setOnClickListener(v ->
+                startActivity(new Intent(this, LiveAnalysisActivity.class)));
+        findViewById(R.id.tvBatch).setOnClickListener(v ->
+                startActivity(new Intent(this, BatchAnalysisActivity.class)));
     }
 
-    // 加载模型参数
+    // 加载模型参数：模型由 SkinApplication 的注册表在后台加载，所有页面共享同一份
     private void loadModelParams() {
-        try {
-            // 1. 加载归一化参数
-            scalerMean = loadFloatArrayFromAssets("scaler_mean.txt");
-            scalerStd = loadFloatArrayFromAssets("scaler_std.txt");
-
-            // 2. 加载决策树模型
-            InputStream is = getAssets().open("tree_model.txt");
-            Scanner scanner = new Scanner(is);
-            int lineNum = 0;
-            while (scanner.hasNextLine()) {
-                String line = scanner.nextLine().trim();
-                if (lineNum == 0) {
-                    lineNum++;
-                    continue;
-                }
-                if (line.isEmpty()) {
-                    continue;
-                }
-                String[] parts = line.split(",");
-                if (parts.length != 6) {
-                    continue;
-                }
-                TreeNode node = new TreeNode(
-                        Integer.parseInt(parts[0]),
-                        Integer.parseInt(parts[1]),
-                        Float.parseFloat(parts[2]),
-                        Integer.parseInt(parts[3]),
-                        Integer.parseInt(parts[4]),
-                        Integer.parseInt(parts[5])
-                );
-                treeNodes.add(node);
-                lineNum++;
-            }
-            scanner.close();
-            is.close();
+        SkinApplication app = SkinApplication.from(this);
+        app.getModelRegistry().get(app.getSkinTypeModel()).whenComplete((model, error) ->
+                runOnUiThread(() -> {
+                    if (isDestroyed()) {
+                        return;
+                    }
+                    if (error == null) {
+                        Toast.makeText(this, "模型加载成功，节点数: " + model.getNodeCount(), Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+                    Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                    Log.e(TAG, "模型加载失败", cause);
+                    if (cause instanceof ModelFormatException) {
+                        Toast.makeText(this, "模型数据格式错误", Toast.LENGTH_SHORT).show();
+                    } else {
+                        Toast.makeText(this, "模型文件读取失败", Toast.LENGTH_SHORT).show();
+                    }
+                }));
+    }
 
-            if (treeNodes.isEmpty()) {
-                Toast.makeText(this, "模型节点数据为空", Toast.LENGTH_SHORT).show();
-            } else {
-                Toast.makeText(this, "模型加载成功，节点数: " + treeNodes.size(), Toast.LENGTH_SHORT).show();
-            }
+    // 按分类器的输入边长缩放并读出像素，记为缩放耗时
+    private static ArgbImage toArgbImage(Bitmap bitmap, int size, PipelineMetrics metrics) {
+        long start = System.nanoTime();
+        ArgbImage image = ImageDecodePipeline.toArgbImage(bitmap, size);
+        metrics.lap(Stage.RESIZE, start);
+        return image;
+    }
 
-        } catch (IOException e) {
-            e.printStackTrace();
-            Toast.makeText(this, "模型文件读取失败", Toast.LENGTH_SHORT).show();
-        } catch (NumberFormatException e) {
-            e.printStackTrace();
-            Toast.makeText(this, "模型数据格式错误", Toast.LENGTH_SHORT).show();
+    /**
+     * 拍照质量预检（在推理线程调用）。与分析图一样用 createScaledBitmap 缩小，长边为预检尺寸，
+     * 保持比例；不合格时按原因记录拒绝次数。
+     */
+    private static QualityScreen.Result screenQuality(QualityScreen quality, Bitmap bitmap, PipelineMetrics metrics) {
+        long start = System.nanoTime();
+        int maxSide = quality.getThresholds().getMaxSide();
+        float scale = Math.min(1f, (float) maxSide / Math.max(bitmap.getWidth(), bitmap.getHeight()));
+        int width = Math.max(1, Math.round(bitmap.getWidth() * scale));
+        int height = Math.max(1, Math.round(bitmap.getHeight() * scale));
+        Bitmap small = scale < 1 ? Bitmap.createScaledBitmap(bitmap, width, height, true) : bitmap;
+        int[] pixels = new int[width * height];
+        small.getPixels(pixels, 0, width, 0, 0, width, height);
+        if (small != bitmap) {
+            small.recycle();
+        }
+        QualityScreen.Result result = quality.screen(pixels, width, height);
+        metrics.lap(Stage.QUALITY_SCREEN, start);
+        if (!result.isAcceptable()) {
+            Log.d(TAG, "质量预检不合格: " + result);
+            metrics.recordFailure(rejection(result.getReason()));
         }
+        return result;
     }
 
-    // 从assets读取浮点数组
-    private float[] loadFloatArrayFromAssets(String filename) throws IOException {
-        InputStream is = getAssets().open(filename);
-        Scanner scanner = new Scanner(is);
-        List<Float> list = new ArrayList<>();
-        while (scanner.hasNextFloat()) {
-            list.add(scanner.nextFloat());
-        }
-        scanner.close();
-        is.close();
-        float[] arr = new float[list.size()];
-        for (int i = 0; i < arr.length; i++) {
-            arr[i] = list.get(i);
-        }
-        return arr;
+    private static Failure rejection(QualityScreen.Reason reason) {
+        switch (reason) {
+            case TOO_DARK:
+                return Failure.REJECTED_TOO_DARK;
+            case OVEREXPOSED:
+                return Failure.REJECTED_OVEREXPOSED;
+            case NO_SKIN:
+                return Failure.REJECTED_NO_SKIN;
+            default:
+                return Failure.REJECTED_BLURRY;
+        }
     }
 
-    // 提取图像特征
-    private float[] extractFeatures(Bitmap bitmap) {
-        // 为了性能，可以缩放图片
-        Bitmap resizedBitmap = Bitmap.createScaledBitmap(bitmap, 200, 200, true);
-
-        int width = resizedBitmap.getWidth();
-        int height = resizedBitmap.getHeight();
-
-        // 1. 计算HSV特征
-        float hSum = 0, sSum = 0, vSum = 0;
-        float hSqSum = 0, sSqSum = 0, vSqSum = 0;
-        int pixelCount = 0;
-
-        // 2. 计算LBP特征
-        int lbpSum = 0;
-        int lbpCount = 0;
-
-        for (int i = 1; i < height - 1; i++) {
-            for (int j = 1; j < width - 1; j++) {
-                // 获取RGB值
-                int pixel = resizedBitmap.getPixel(j, i);
-                int r = Color.red(pixel);
-                int g = Color.green(pixel);
-                int b = Color.blue(pixel);
-
-                // 转换为HSV
-                float[] hsv = new float[3];
-                Color.RGBToHSV(r, g, b, hsv);
-                float h = hsv[0];
-                float s = hsv[1];
-                float v = hsv[2];
-
-                hSum += h;
-                sSum += s;
-                vSum += v;
-                hSqSum += h * h;
-                sSqSum += s * s;
-                vSqSum += v * v;
-                pixelCount++;
-
-                // 计算LBP值
-                int center = (r + g + b) / 3;
-                int code = 0;
-
-                int p1 = (Color.red(resizedBitmap.getPixel(j-1, i-1)) + Color.green(resizedBitmap.getPixel(j-1, i-1)) + Color.blue(resizedBitmap.getPixel(j-1, i-1))) / 3;
-                code |= (p1 >= center) ? 1 << 7 : 0;
-
-                int p2 = (Color.red(resizedBitmap.getPixel(j, i-1)) + Color.green(resizedBitmap.getPixel(j, i-1)) + Color.blue(resizedBitmap.getPixel(j, i-1))) / 3;
-                code |= (p2 >= center) ? 1 << 6 : 0;
+    // 等待模型加载完成（在后台线程调用），失败时返回 null
+    private <T> T awaitModel(ModelRegistry.Key<T> key) {
+        try {
+            return SkinApplication.from(this).getModelRegistry().await(key, MODEL_WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (IOException | TimeoutException e) {
+            Log.w(TAG, "模型不可用: " + key, e);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
 
-                int p3 = (Color.red(resizedBitmap.getPixel(j+1, i-1)) + Color.green(resizedBitmap.getPixel(j+1, i-1)) + Color.blue(resizedBitmap.getPixel(j+1, i-1))) / 3;
-                code |= (p3 >= center) ? 1 << 5 : 0;
+    /**
+     * 按所选后端准备分类器（在推理线程调用），模型加载失败时返回 null。
+     * 选择 CNN 但没有打包 skin_cnn.bin 或加载失败时退回树模型；有集成模型时树后端使用它的类别概率。
+     * grid 不为 null 时树后端按区块分析。
+     */
+    private Classifier awaitClassifier(ClassifierBackend backend, AnalysisResolution resolution,
+                                       PatchGrid grid, PatchClassifier.Combine combine) {
+        SkinApplication app = SkinApplication.from(this);
+        if (backend == ClassifierBackend.CNN && app.getSkinTypeCnn() != null) {
+            CnnClassifier cnn = awaitModel(app.getSkinTypeCnn());
+            if (cnn != null && cnn.getClassCount() == skinTypes.length) {
+                return cnn;
+            }
+            Log.w(TAG, "CNN 不可用，改用树模型");
+        }
+        TreeModel model = awaitModel(app.getSkinTypeModel());
+        if (model == null) {
+            return null;
+        }
+        EnsembleModel ensemble = app.getSkinTypeEnsemble() != null ? awaitModel(app.getSkinTypeEnsemble()) : null;
+        if (grid != null) {
+            return new PatchClassifier(model, ensemble, PATCH_EXTRACTOR, resolution, grid, combine);
+        }
+        TreeClassifier tree = new TreeClassifier(model, ensemble, TILED_EXTRACTOR, resolution, app.getPipelineMetrics());
+        if (!adaptiveInference) {
+            return tree;
+        }
+        return app.getAdaptiveClassifier(tree);
+    }
 
-                int p4 = (Color.red(resizedBitmap.getPixel(j+1, i)) + Color.green(resizedBitmap.getPixel(j+1, i)) + Color.blue(resizedBitmap.getPixel(j+1, i))) / 3;
-                code |= (p4 >= center) ? 1 << 4 : 0;
+    // 缓存键的 variant：分析分辨率和后端的推理设置，完整推理时与只按分辨率区分的旧条目相同
+    private static int cacheVariant(Classifier classifier, AnalysisResolution resolution) {
+        return resolution.ordinal() + 31 * classifier.getVariant();
+    }
 
-                int p5 = (Color.red(resizedBitmap.getPixel(j+1, i+1)) + Color.green(resizedBitmap.getPixel(j+1, i+1)) + Color.blue(resizedBitmap.getPixel(j+1, i+1))) / 3;
-                code |= (p5 >= center) ? 1 << 3 : 0;
+    // 树后端（包括自适应推理内部的完整推理），其他后端返回 null
+    private static TreeClassifier treeOf(Classifier classifier) {
+        if (classifier instanceof AdaptiveTreeClassifier) {
+            return ((AdaptiveTreeClassifier) classifier).getFull();
+        }
+        return classifier instanceof TreeClassifier ? (TreeClassifier) classifier : null;
+    }
 
-                int p6 = (Color.red(resizedBitmap.getPixel(j, i+1)) + Color.green(resizedBitmap.getPixel(j, i+1)) + Color.blue(resizedBitmap.getPixel(j, i+1))) / 3;
-                code |= (p6 >= center) ? 1 << 2 : 0;
+    // 上传原图给推理服务，服务不可用或出错时返回 null，由调用方在本地推理
+    private Analysis analyseRemote(InferenceClient client, ImageDecodePipeline.StreamOpener source,
+                                   long imageHash, PipelineMetrics metrics) {
+        long start = System.nanoTime();
+        try (InputStream in = source.open()) {
+            Classification result = client.predictImage(in, skinTypes.length);
+            metrics.lap(Stage.REMOTE, start);
+            // 服务端不返回模型版本，历史中记为 0
+            AnalysisRecord record = new AnalysisRecord(System.currentTimeMillis(), imageHash, 0,
+                    result.getLabel(), result.getFeatures(), null);
+            return new Analysis(result.getFeatures(), result.getLabel(), skinTypes[result.getLabel()] + "（服务端）",
+                    Float.NaN, record);
+        } catch (IOException e) {
+            Log.w(TAG, "推理服务不可用，改为本地推理: " + client.getBaseUrl(), e);
+            metrics.recordFailure(Failure.REMOTE_FAILED);
+            return null;
+        }
+    }
 
-                int p7 = (Color.red(resizedBitmap.getPixel(j-1, i+1)) + Color.green(resizedBitmap.getPixel(j-1, i+1)) + Color.blue(resizedBitmap.getPixel(j-1, i+1))) / 3;
-                code |= (p7 >= center) ? 1 << 1 : 0;
+    // 近似重复索引，打不开时返回 null，分析照常进行
+    private NearDuplicateIndex nearDuplicateIndex() {
+        try {
+            return SkinApplication.from(this).getNearDuplicateIndex();
+        } catch (IOException e) {
+            Log.w(TAG, "打开近似重复索引失败", e);
+            return null;
+        }
+    }
 
-                int p8 = (Color.red(resizedBitmap.getPixel(j-1, i)) + Color.green(resizedBitmap.getPixel(j-1, i)) + Color.blue(resizedBitmap.getPixel(j-1, i))) / 3;
-                code |= (p8 >= center) ? 1 << 0 : 0;
+    // 图片文件的内容哈希，读不到原文件时返回 0
+    private static long hashSource(ImageDecodePipeline.StreamOpener source) {
+        if (source == null) {
+            return 0;
+        }
+        try (InputStream in = source.open()) {
+            return ContentHash.of(in);
+        } catch (IOException e) {
+            Log.w(TAG, "计算图片哈希失败", e);
+            return 0;
+        }
+    }
 
-                lbpSum += code;
-                lbpCount++;
+    /**
+     * 分析一张图片（在推理线程调用）。先做质量预检，不合格时直接返回重拍提示，不上传、不查缓存也不提取特征。
+     * 树后端先按图片文件内容、模型指纹和分析分辨率查缓存，命中时直接用缓存的特征预测，不再缩放和提取特征；
+     * 没有命中时在缩放后的分析图上计算感知哈希，与之前分析过的照片相差不超过 duplicateDistance 位时沿用它的特征。
+     */
+    private Analysis analyse(Bitmap bitmap, ImageDecodePipeline.StreamOpener source,
+                             AnalysisResolution resolution, ClassifierBackend backend,
+                             PatchGrid grid, PatchClassifier.Combine combine,
+                             InferenceClient client, QualityScreen quality, int duplicateDistance,
+                             CancellationToken token) {
+        PipelineMetrics metrics = SkinApplication.from(this).getPipelineMetrics();
+        if (quality != null) {
+            QualityScreen.Result check = screenQuality(quality, bitmap, metrics);
+            if (!check.isAcceptable()) {
+                return Analysis.retake(check.getReason().getMessage());
             }
+            token.throwIfCancelled();
+        }
+        // 内容哈希同时用作缓存键和历史记录中的图片标识
+        long hashStart = System.nanoTime();
+        long imageHash = hashSource(source);
+        long hashNanos = System.nanoTime() - hashStart;
+        // 配置了推理服务时优先使用服务端；失败后客户端退避一段时间，期间直接本地推理
+        if (client != null && client.isAvailable() && source != null) {
+            Analysis remote = analyseRemote(client, source, imageHash, metrics);
+            if (remote != null) {
+                return remote;
+            }
+            token.throwIfCancelled();
+        }
+        Classifier classifier = awaitClassifier(backend, resolution, grid, combine);
+        if (classifier == null) {
+            // 模型加载失败时仍然给出特征
+            metrics.recordFailure(Failure.MODEL_UNAVAILABLE);
+            float[] features = new float[FeatureExtractor.FEATURE_COUNT];
+            ArgbImage image = toArgbImage(bitmap, resolution.getSize(), metrics);
+            long start = System.nanoTime();
+            TILED_EXTRACTOR.extract(image.getPixels(), image.getWidth(), image.getHeight(), features, token);
+            metrics.lap(Stage.EXTRACT, start);
+            return new Analysis(features, Analysis.NO_LABEL, "模型未加载", Float.NaN, null);
         }
 
-        // 计算HSV均值和标准差
-        float hMean = hSum / pixelCount;
-        float sMean = sSum / pixelCount;
-        float vMean = vSum / pixelCount;
-        float hStd = (float) Math.sqrt((hSqSum / pixelCount) - hMean * hMean);
-        float sStd = (float) Math.sqrt((sSqSum / pixelCount) - sMean * sMean);
-        float vStd = (float) Math.sqrt((vSqSum / pixelCount) - vMean * vMean);
-
-        // 计算LBP均值
-        float lbpMean = (float) lbpSum / lbpCount;
-
-        return new float[]{hMean, hStd, sMean, sStd, vMean, vStd, lbpMean};
-    }
+        if (classifier instanceof PatchClassifier) {
+            return analysePatches((PatchClassifier) classifier, bitmap, imageHash, metrics, token);
+        }
 
-    // 特征归一化
-    private float[] normalizeFeatures(float[] features) {
-        float[] normalized = new float[features.length];
-        for (int i = 0; i < features.length; i++) {
-            normalized[i] = (features[i] - scalerMean[i]) / scalerStd[i];
+        TreeClassifier tree = treeOf(classifier);
+        PredictionCache cache = SkinApplication.from(this).getPredictionCache();
+        // 读不到原文件时不使用缓存；自适应推理的 variant 不同，缓存的估计特征不会与完整提取的混用
+        int variant = cacheVariant(classifier, resolution);
+        PredictionCache.Key key = tree != null && imageHash != 0
+                ? new PredictionCache.Key(imageHash, classifier.getVersion(), variant) : null;
+        if (key != null) {
+            long lookupStart = System.nanoTime();
+            PredictionCache.Entry cached = cache.get(key);
+            // 查缓存的耗时包括前面计算哈希的时间，不含等待模型
+            metrics.record(Stage.CACHE_LOOKUP, hashNanos + System.nanoTime() - lookupStart);
+            if (cached != null) {
+                Log.d(TAG, "命中缓存: " + cache);
+                return toAnalysis(classifier, tree.classifyFeatures(cached.getFeatures()), imageHash);
+            }
         }
-        return normalized;
-    }
 
-    // 预测皮肤类型
-    private String predict(float[] features) {
-        if (treeNodes.isEmpty() || scalerMean == null || scalerStd == null) {
-            return "模型未加载";
+        token.throwIfCancelled();
+        // 200x200 的树后端走单线程特征提取（与原结果逐位一致），更大的图分块并行；
+        // 树后端自己分段记录提取、归一化和预测耗时，CNN 整体记为预测耗时
+        ArgbImage image = toArgbImage(bitmap, classifier.getInputSize(), metrics);
+        // 连拍中几乎相同的照片字节不同，内容哈希不会命中；感知哈希只用于树后端，与缓存相同
+        NearDuplicateIndex duplicates = tree != null && duplicateDistance >= 0 ? nearDuplicateIndex() : null;
+        PerceptualHash perceptual = null;
+        if (duplicates != null) {
+            long dedupStart = System.nanoTime();
+            perceptual = PerceptualHash.of(image);
+            NearDuplicateIndex.Match match = duplicates.find(perceptual, classifier.getVersion(), variant,
+                    duplicateDistance);
+            metrics.lap(Stage.NEAR_DUPLICATE, dedupStart);
+            if (match != null) {
+                Log.d(TAG, "近似重复，相差 " + match.getDistance() + " 位: " + duplicates);
+                if (key != null) {
+                    cache.put(key, new PredictionCache.Entry(match.getFeatures(), match.getLabel()));
+                }
+                return toAnalysis(classifier, tree.classifyFeatures(match.getFeatures()), imageHash);
+            }
+        }
+        long start = System.nanoTime();
+        Classification result = classifier.classify(image, token);
+        if (tree == null) {
+            metrics.lap(Stage.PREDICT, start);
+        }
+        token.throwIfCancelled();
+        if (key != null) {
+            cache.put(key, new PredictionCache.Entry(result.getFeatures(), result.getLabel()));
         }
+        if (perceptual != null) {
+            try {
+                duplicates.add(perceptual, classifier.getVersion(), variant, result.getFeatures(),
+                        result.getLabel());
+            } catch (IOException e) {
+                Log.w(TAG, "写入近似重复索引失败", e);
+            }
+        }
+        return toAnalysis(classifier, result, imageHash);
+    }
 
-        try {
-            float[] normalized = normalizeFeatures(features);
-            int currentNodeIdx = 0;
-
-            while (true) {
-                TreeNode node = treeNodes.get(currentNodeIdx);
-                if (node.type == 0) {
-                    return skinTypes[node.label];
-                } else {
-                    if (normalized[node.featureIndex] <= node.threshold) {
-                        currentNodeIdx = node.leftChild;
-                    } else {
-                        currentNodeIdx = node.rightChild;
-                    }
+    /**
+     * 分区块分析并生成热力图（在推理线程调用）。结果与网格和 ROI 有关，不使用预测缓存；
+     * 提取和预测一起记为提取耗时。
+     */
+    private Analysis analysePatches(PatchClassifier classifier, Bitmap bitmap, long imageHash,
+                                    PipelineMetrics metrics, CancellationToken token) {
+        ArgbImage image = toArgbImage(bitmap, classifier.getInputSize(), metrics);
+        long start = System.nanoTime();
+        PatchAnalysis patches = classifier.analyze(image, token);
+        metrics.lap(Stage.EXTRACT, start);
+        token.throwIfCancelled();
+
+        // 热力图按照片比例生成，叠加层与照片使用相同的缩放方式
+        float scale = (float) HEAT_MAP_SIZE / Math.max(bitmap.getWidth(), bitmap.getHeight());
+        int width = Math.max(1, Math.round(bitmap.getWidth() * scale));
+        int height = Math.max(1, Math.round(bitmap.getHeight() * scale));
+        int[] pixels = patches.renderHeatMap(width, height, HEAT_MAP_COLORS, HEAT_MAP_ALPHA);
+        Bitmap heatMap = Bitmap.createBitmap(pixels, width, height, Bitmap.Config.ARGB_8888);
+
+        Classification result = patches.getCombined();
+        AnalysisRecord record = new AnalysisRecord(System.currentTimeMillis(), imageHash, classifier.getVersion(),
+                result.getLabel(), result.getFeatures(), null);
+        int agree = 0;
+        for (int r = 0; r < classifier.getGrid().getRows(); r++) {
+            for (int c = 0; c < classifier.getGrid().getCols(); c++) {
+                if (patches.getPatchLabel(r, c) == result.getLabel()) {
+                    agree++;
                 }
             }
-        } catch (Exception e) {
-            e.printStackTrace();
-            return "预测失败";
         }
+        String text = String.format(Locale.getDefault(), "%s（%d/%d 区块）",
+                skinTypes[result.getLabel()], agree, patches.getPatchCount());
+        return new Analysis(result.getFeatures(), result.getLabel(), text, result.getConfidence(), record, heatMap);
+    }
+
+    // 单棵树的概率是 one-hot，不显示置信度
+    private Analysis toAnalysis(Classifier classifier, Classification result, long imageHash) {
+        TreeClassifier tree = treeOf(classifier);
+        boolean calibrated = tree == null || tree.hasEnsemble();
+        float[] features = result.getFeatures();
+        float[] normalized = tree != null && features != null ? tree.normalize(features) : null;
+        AnalysisRecord record = new AnalysisRecord(System.currentTimeMillis(), imageHash, classifier.getVersion(),
+                result.getLabel(), features, normalized);
+        return new Analysis(features, result.getLabel(), skinTypes[result.getLabel()],
+                calibrated ? result.getConfidence() : Float.NaN, record);
     }
 
     // 处理图片并显示结果
-    private void processAndDisplayImage(Bitmap bitmap) {
+    private void processAndDisplayImage(Bitmap bitmap, ImageDecodePipeline.StreamOpener source) {
         if (bitmap == null) {
             tvResult.setText("图片加载失败");
             return;
         }
 
-        try {
-            // 显示处理中状态
-            tvResult.setText("分析中...");
+        // 显示处理中状态
+        tvResult.setText("分析中...");
+        analysingBitmaps.add(bitmap);
+        AnalysisResolution resolution = analysisResolution;
+        ClassifierBackend backend = classifierBackend;
+        PatchGrid grid = patchGrid;
+        PatchClassifier.Combine combine = patchCombine;
+        InferenceClient client = inferenceClient;
+        QualityScreen quality = qualityScreen;
+        int duplicateDistance = nearDuplicateDistance;
+
+        // 交给有界的推理线程池；新图片提交时会取消上一张图还没完成的分析
+        PipelineMetrics metrics = SkinApplication.from(this).getPipelineMetrics();
+        long submitted = System.nanoTime();
+        InferenceScheduler scheduler = SkinApplication.from(this).getInferenceScheduler();
+        scheduler.submit(INFERENCE_CHANNEL, token -> analyse(bitmap, source, resolution, backend, grid, combine, client, quality,
+                duplicateDistance, token),
+                new InferenceScheduler.Callback<Analysis>() {
+            @Override
+            public void onResult(long requestId, Analysis analysis) {
+                metrics.record(Stage.UI_POST, System.nanoTime() - analysis.createdNanos);
+                finishAnalysis(bitmap);
+                // 写入分析历史（在后台线程追加）
+                if (analysis.record != null) {
+                    SkinApplication.from(PredictActivity.this).recordAnalysis(analysis.record);
+                }
+                showHeatMap(analysis.heatMap);
+                if (analysis.retake) {
+                    // 预检不合格，只提示重拍；不计入总耗时，以免拉低正常分析的统计
+                    tvResult.setText(analysis.result);
+                    lastLabel = null;
+                    lastConfidence = Float.NaN;
+                    btnShare.setVisibility(View.GONE);
+                    return;
+                }
+                tvResult.setText("识别结果：" + analysis.result);
+                // 分享卡片只印类别名，不带“服务端”或区块数等说明
+                lastLabel = analysis.label != Analysis.NO_LABEL ? skinTypes[analysis.label] : null;
+                lastConfidence = analysis.confidence;
+                if (!Float.isNaN(analysis.confidence)) {
+                    tvResult.append(String.format(Locale.getDefault(), "（置信度 %.0f%%）",
+                            analysis.confidence * 100));
+                }
 
-            // 在后台线程处理以避免界面卡顿
-            new Thread(() -> {
-                try {
-                    // 提取特征
-                    float[] features = extractFeatures(bitmap);
-
-                    // 在主线程更新UI
-                    runOnUiThread(() -> {
-                        String result = predict(features);
-                        tvResult.setText("识别结果：" + result);
-
-                        // 显示特征值（可选，用于调试）
-                        String featureText = String.format(
-                                "\nHSV均值: H=%.1f S=%.2f V=%.1f",
-                                features[0], features[2], features[4]
-                        );
-                        tvResult.append(featureText);
-//                        显示分享按钮
-                        btnShare.setVisibility(View.VISIBLE);
-                    });
-                } catch (Exception e) {
-                    e.printStackTrace();
-                    runOnUiThread(() -> tvResult.setText("特征提取失败"));
+                // 显示特征值（可选，用于调试）；CNN 后端没有手工特征
+                if (analysis.features != null) {
+                    String featureText = String.format(
+                            "\nHSV均值: H=%.1f S=%.2f V=%.1f",
+                            analysis.features[0], analysis.features[2], analysis.features[4]
+                    );
+                    tvResult.append(featureText);
                 }
-            }).start();
+//                显示分享按钮
+                btnShare.setVisibility(View.VISIBLE);
+                metrics.lap(Stage.TOTAL, submitted);
+            }
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            tvResult.setText("处理失败");
+            @Override
+            public void onError(long requestId, Throwable error) {
+                finishAnalysis(bitmap);
+                if (error instanceof CancellationException) {
+                    // 已被新的图片取代，不更新界面
+                    metrics.recordFailure(Failure.CANCELLED);
+                    return;
+                }
+                if (error instanceof RejectedExecutionException) {
+                    Log.w(TAG, "推理队列已满: " + scheduler);
+                    metrics.recordFailure(Failure.QUEUE_FULL);
+                    tvResult.setText("分析任务过多，请稍后重试");
+                    return;
+                }
+                Log.e(TAG, "分析失败", error);
+                metrics.recordFailure(Failure.ANALYSIS_FAILED);
+                tvResult.setText("特征提取失败");
+            }
+        });
+    }
+
+    // 显示新的热力图，没有时隐藏叠加层
+    private void showHeatMap(Bitmap heatMap) {
+        Drawable previous = ivHeatMap.getDrawable();
+        ivHeatMap.setImageBitmap(heatMap);
+        ivHeatMap.setVisibility(heatMap != null ? View.VISIBLE : View.GONE);
+        if (previous instanceof BitmapDrawable) {
+            ((BitmapDrawable) previous).getBitmap().recycle();
+        }
+    }
+
+    private PipelineMetrics metrics() {
+        return SkinApplication.from(this).getPipelineMetrics();
+    }
+
+    private void finishAnalysis(Bitmap bitmap) {
+        analysingBitmaps.remove(bitmap);
+        releaseIfUnused(bitmap);
+    }
+
+    // 显示新解码的图片，之前的位图不再使用时交给解码器复用
+    private void showBitmap(Bitmap bitmap) {
+        Bitmap previous = displayedBitmap;
+        displayedBitmap = bitmap;
+        ivPhoto.setImageBitmap(bitmap);
+        // 旧照片的热力图不再对应新照片
+        showHeatMap(null);
+        releaseIfUnused(previous);
+    }
+
+    private void releaseIfUnused(Bitmap bitmap) {
+        if (bitmap != null && bitmap != displayedBitmap && !analysingBitmaps.contains(bitmap)) {
+            decodePipeline.release(bitmap);
         }
     }
 
+    // 解码目标尺寸：满足显示和分析分辨率，NATIVE 时不缩小
+    private int decodeTargetSize() {
+        return ImageDecodePipeline.targetSize(analysisResolution);
+    }
+
     @Override
     protected void onActivityResult(int requestCode, int resultCode, @Nullable Intent data) {
         super.onActivityResult(requestCode, resultCode, data);
@@ -370,20 +696,28 @@ public class PredictActivity extends AppCompatActivity {
 
 
                 try {
-                    // 使用更安全的方式加载图片
-                    InputStream inputStream = getContentResolver().openInputStream(selectedImageUri);
-                    Bitmap bitmap = BitmapFactory.decodeStream(inputStream);
-                    inputStream.close();
+                    // 先读尺寸再按需采样解码，避免解出完整大小的原图
+                    int size = decodeTargetSize();
+                    long start = System.nanoTime();
+                    Bitmap bitmap = decodePipeline.decode(getContentResolver(), selectedImageUri, size, size);
+                    if (bitmap == null) {
+                        metrics().recordFailure(Failure.DECODE_FAILED);
+                        tvResult.setText("加载相册图片失败");
+                        return;
+                    }
 
-                    ivPhoto.setImageURI(selectedImageUri);
+                    metrics().lap(Stage.DECODE, start);
+                    showBitmap(bitmap);
                     imageURI = selectedImageUri;
                     currentPhotoPath = null;
 
                     // 调用分析预测
-                    processAndDisplayImage(bitmap);
+                    processAndDisplayImage(bitmap,
+                            ImageDecodePipeline.opener(getContentResolver(), selectedImageUri));
 
                 } catch (IOException e) {
-                    e.printStackTrace();
+                    Log.e(TAG, "加载相册图片失败", e);
+                    metrics().recordFailure(Failure.DECODE_FAILED);
                     tvResult.setText("加载相册图片失败");
                 }
             }
@@ -393,10 +727,14 @@ public class PredictActivity extends AppCompatActivity {
     // 单独封装拍照结果处理（更清晰）
     private void handleCapturedPhoto() {
         try {
-            Bitmap bitmap = BitmapFactory.decodeFile(currentPhotoPath);
+            int size = decodeTargetSize();
+            long start = System.nanoTime();
+            Bitmap bitmap = decodePipeline.decode(currentPhotoPath, size, size);
             if (bitmap != null) {
-                ivPhoto.setImageBitmap(bitmap);
-                processAndDisplayImage(bitmap);
+                metrics().lap(Stage.DECODE, start);
+                showBitmap(bitmap);
+                String path = currentPhotoPath;
+                processAndDisplayImage(bitmap, () -> new FileInputStream(path));
 
                 // 通知系统扫描图片，让它显示在相册中
                 Intent mediaScanIntent = new Intent(Intent.ACTION_MEDIA_SCANNER_SCAN_FILE);
@@ -404,10 +742,12 @@ public class PredictActivity extends AppCompatActivity {
                 mediaScanIntent.setData(contentUri);
                 sendBroadcast(mediaScanIntent);
             } else {
+                metrics().recordFailure(Failure.DECODE_FAILED);
                 tvResult.setText("拍照图片加载失败");
             }
         } catch (Exception e) {
-            e.printStackTrace();
+            Log.e(TAG, "处理拍照图片失败", e);
+            metrics().recordFailure(Failure.DECODE_FAILED);
             tvResult.setText("处理拍照图片失败");
         }
     }
@@ -464,6 +804,22 @@ public class PredictActivity extends AppCompatActivity {
         startActivityForResult(Intent.createChooser(intent, "选择皮肤照片"), REQUEST_SELECT_IMAGE);
     }
 
+    @Override
+    protected void onPause() {
+        super.onPause();
+        // 离开页面时导出耗时统计
+        if (metrics().get(Stage.TOTAL).getCount() > 0) {
+            SkinApplication.from(this).exportPipelineMetrics();
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        // 页面销毁时取消还在进行的分析
+        SkinApplication.from(this).getInferenceScheduler().cancel(INFERENCE_CHANNEL);
+        super.onDestroy();
+    }
+
     @Override
     public void onRequestPermissionsResult(int requestCode, String[] permissions, int[] grantResults) {
         super.onRequestPermissionsResult(requestCode, permissions, grantResults);
@@ -477,22 +833,50 @@ public class PredictActivity extends AppCompatActivity {
         }
     }
 
-    // 决策树节点类
-    private static class TreeNode {
-        int type;
-        int featureIndex;
-        float threshold;
-        int leftChild;
-        int rightChild;
-        int label;
-
-        TreeNode(int type, int featureIndex, float threshold, int leftChild, int rightChild, int label) {
-            this.type = type;
-            this.featureIndex = featureIndex;
-            this.threshold = threshold;
-            this.leftChild = leftChild;
-            this.rightChild = rightChild;
+    // 一次分析的特征和预测结果
+    private static final class Analysis {
+        // 没有得到分类结果（模型未加载、需要重拍）
+        static final int NO_LABEL = -1;
+
+        // 树后端的原始特征，CNN 后端为 null
+        final float[] features;
+        // 结果类别的下标，没有分类结果时为 NO_LABEL
+        final int label;
+        // 显示给用户的结果文字
+        final String result;
+        // 结果类别的概率，单棵树时为 NaN
+        final float confidence;
+        // 写入分析历史的记录，没有得到分类结果时为 null
+        final AnalysisRecord record;
+        // 分区块分析的热力图，整图分析时为 null
+        final Bitmap heatMap;
+        // 质量预检不合格，result 为重拍提示
+        final boolean retake;
+        // 在推理线程上生成结果的时刻，用于统计投递到主线程的等待
+        final long createdNanos = System.nanoTime();
+
+        Analysis(float[] features, int label, String result, float confidence, AnalysisRecord record) {
+            this(features, label, result, confidence, record, null);
+        }
+
+        Analysis(float[] features, int label, String result, float confidence, AnalysisRecord record,
+                 Bitmap heatMap) {
+            this(features, label, result, confidence, record, heatMap, false);
+        }
+
+        private Analysis(float[] features, int label, String result, float confidence, AnalysisRecord record,
+                         Bitmap heatMap, boolean retake) {
+            this.features = features;
             this.label = label;
+            this.result = result;
+            this.confidence = confidence;
+            this.record = record;
+            this.heatMap = heatMap;
+            this.retake = retake;
+        }
+
+        static Analysis retake(String message) {
+            return new Analysis(null, NO_LABEL, message, Float.NaN, null, null, true);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,179 @@
+package com.example.skinrecognition;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+import android.os.Build;
+
+import com.example.skinrecognition.core.io.DirectBufferPool;
+import com.example.skinrecognition.core.io.EncodedBuffer;
+
+import java.util.Locale;
+
+/**
+ * 分享卡片：上方是缩小并居中裁剪的照片，下方是识别类别、置信度和低置信度提示。
+ * <p>
+ * 卡片位图和 Canvas 只分配一次，之后每次渲染都在原位图上重画；渲染后立即按 {@link Format}
+ * 编码一次，结果放在池化的直接缓冲区中，保存和分享都用 NIO 通道直接写出这份数据。
+ * 只在一个后台线程上调用 {@link #render}，返回的卡片在下次渲染前保持不变。
+ */
+final class ShareCardRenderer {
+
+    // 卡片是正方形，与分享页的图片区域比例一致
+    static final int CARD_SIZE = 720;
+    // 照片区域的高度，其余部分显示文字
+    static final int PHOTO_HEIGHT = 540;
+    // 低于这个置信度时在卡片上提示结果仅供参考
+    static final float LOW_CONFIDENCE = 0.6f;
+    private static final int MARGIN = 40;
+    // 720x720 的卡片编码后一般在 100KB 以内，不够时自动扩容
+    private static final int INITIAL_BUFFER = 128 * 1024;
+    // 所有分享页共用，页面关闭后缓冲区留给下一次分享
+    private static final DirectBufferPool BUFFERS = new DirectBufferPool(1);
+
+    /** 编码格式和质量。 */
+    static final class Format {
+        static final Format DEFAULT = new Format(false, 90);
+
+        final boolean webp;
+        final int quality;
+
+        Format(boolean webp, int quality) {
+            this.webp = webp;
+            this.quality = Math.max(0, Math.min(100, quality));
+        }
+
+        /**
+         * 按 Intent 参数解析：name 为 "webp" 时用有损 WebP，其它为 JPEG；quality 不在 [0, 100] 时用默认值。
+         */
+        static Format parse(String name, int quality) {
+            boolean webp = "webp".equalsIgnoreCase(name);
+            return new Format(webp, quality >= 0 && quality <= 100 ? quality : DEFAULT.quality);
+        }
+
+        @SuppressWarnings("deprecation")
+        Bitmap.CompressFormat compressFormat() {
+            if (!webp) {
+                return Bitmap.CompressFormat.JPEG;
+            }
+            return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                    ? Bitmap.CompressFormat.WEBP_LOSSY : Bitmap.CompressFormat.WEBP;
+        }
+
+        String mimeType() {
+            return webp ? "image/webp" : "image/jpeg";
+        }
+
+        String extension() {
+            return webp ? ".webp" : ".jpg";
+        }
+
+        @Override
+        public String toString() {
+            return (webp ? "webp" : "jpeg") + "@" + quality;
+        }
+    }
+
+    /** 一次渲染的结果：显示用的位图和编码好的数据，version 每次渲染递增。 */
+    static final class Card {
+        final Bitmap bitmap;
+        final EncodedBuffer encoded;
+        final Format format;
+        final long version;
+
+        Card(Bitmap bitmap, EncodedBuffer encoded, Format format, long version) {
+            this.bitmap = bitmap;
+            this.encoded = encoded;
+            this.format = format;
+            this.version = version;
+        }
+    }
+
+    private Bitmap card;
+    private Canvas canvas;
+    private final Paint photoPaint = new Paint(Paint.FILTER_BITMAP_FLAG | Paint.DITHER_FLAG);
+    private final Paint placeholderPaint = new Paint();
+    private final Paint labelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint detailPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint warningPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Rect src = new Rect();
+    private final Rect dst = new Rect(0, 0, CARD_SIZE, PHOTO_HEIGHT);
+    private EncodedBuffer encoded;
+    private long version;
+
+    ShareCardRenderer() {
+        placeholderPaint.setColor(0xFFF5F5F5);
+        labelPaint.setColor(0xFF333333);
+        labelPaint.setTextSize(44);
+        labelPaint.setTypeface(Typeface.DEFAULT_BOLD);
+        detailPaint.setColor(0xFF666666);
+        detailPaint.setTextSize(32);
+        warningPaint.setColor(0xFFD84315);
+        warningPaint.setTextSize(28);
+    }
+
+    /**
+     * 渲染并编码卡片（在后台线程调用）。
+     *
+     * @param photo      识别的照片，为 null 时照片区域留空
+     * @param label      识别类别
+     * @param confidence 类别概率，NaN 表示没有校准过的置信度（单棵树），不显示
+     */
+    Card render(Bitmap photo, String label, float confidence, Format format) {
+        if (card == null) {
+            card = Bitmap.createBitmap(CARD_SIZE, CARD_SIZE, Bitmap.Config.ARGB_8888);
+            canvas = new Canvas(card);
+        }
+        canvas.drawColor(Color.WHITE);
+        if (photo != null) {
+            centerCrop(photo.getWidth(), photo.getHeight());
+            canvas.drawBitmap(photo, src, dst, photoPaint);
+        } else {
+            canvas.drawRect(dst, placeholderPaint);
+        }
+
+        float y = PHOTO_HEIGHT + 70;
+        canvas.drawText("皮肤类型：" + label, MARGIN, y, labelPaint);
+        if (!Float.isNaN(confidence)) {
+            y += 52;
+            canvas.drawText(String.format(Locale.getDefault(), "置信度 %.0f%%", confidence * 100),
+                    MARGIN, y, detailPaint);
+            if (confidence < LOW_CONFIDENCE) {
+                y += 46;
+                canvas.drawText("置信度较低，建议在自然光下重新拍摄", MARGIN, y, warningPaint);
+            }
+        }
+
+        if (encoded == null) {
+            encoded = new EncodedBuffer(BUFFERS, INITIAL_BUFFER);
+        }
+        encoded.reset();
+        card.compress(format.compressFormat(), format.quality, encoded);
+        return new Card(card, encoded, format, ++version);
+    }
+
+    // 取照片中心与照片区域比例相同的部分
+    private void centerCrop(int width, int height) {
+        float scale = Math.max((float) CARD_SIZE / width, (float) PHOTO_HEIGHT / height);
+        int cropWidth = Math.min(width, Math.round(CARD_SIZE / scale));
+        int cropHeight = Math.min(height, Math.round(PHOTO_HEIGHT / scale));
+        int left = (width - cropWidth) / 2;
+        int top = (height - cropHeight) / 2;
+        src.set(left, top, left + cropWidth, top + cropHeight);
+    }
+
+    void release() {
+        if (encoded != null) {
+            encoded.close();
+            encoded = null;
+        }
+        if (card != null) {
+            card.recycle();
+            card = null;
+            canvas = null;
+        }
+    }
+}
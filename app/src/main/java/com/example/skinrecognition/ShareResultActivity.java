@@ -1,27 +1,44 @@
 package com.example.skinrecognition;
 
-import android.Manifest;
 import android.content.*;
-import android.database.Cursor;
 import android.graphics.*;
 import android.net.Uri;
 import android.os.*;
 import android.provider.MediaStore;
 import android.util.Log;
 import android.widget.*;
-import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
-import androidx.core.app.ActivityCompat;
-import androidx.core.content.ContextCompat;
 import androidx.core.content.FileProvider;
+import com.example.skinrecognition.core.metrics.PipelineMetrics;
+import com.example.skinrecognition.core.metrics.PipelineMetrics.Failure;
+import com.example.skinrecognition.core.metrics.PipelineMetrics.Stage;
 import java.io.*;
-import android.content.pm.PackageManager;
+import java.nio.channels.FileChannel;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class ShareResultActivity extends AppCompatActivity {
 
-    private static final int REQ_READ_STORAGE = 100;
+    private static final String TAG = "ShareResult";
+    private static final String RESULT_PREFIX = "识别结果：";
+    // 分享用的缓存文件名（不含扩展名），同一张卡片多次分享时不重复写入
+    private static final String SHARE_FILE = "share_card";
+
     private ImageView ivResult;
-    private Bitmap  currentBitmap;
+    private Button btnSave, btnShare;
+    // 解码、渲染和写文件都在这个线程上进行，渲染器只在这里访问
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "share-card");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ShareCardRenderer renderer = new ShareCardRenderer();
+    // 渲染好的卡片，保存和分享共用同一份编码结果；字段只在主线程访问，编码数据只在 worker 上读
+    private ShareCardRenderer.Card card;
+    // 缓存文件中已经写入的卡片版本，只在 worker 上访问
+    private long sharedVersion;
+    private PipelineMetrics metrics;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -29,101 +46,178 @@ public class ShareResultActivity extends AppCompatActivity {
         setContentView(R.layout.activity_share);   // 你的布局文件名
 
         ivResult = findViewById(R.id.iv_result);
-        Button btnSave  = findViewById(R.id.btn_save);
-        Button btnShare = findViewById(R.id.btn_share);
+        TextView tvResult = findViewById(R.id.tvResult);
+        btnSave  = findViewById(R.id.btn_save);
+        btnShare = findViewById(R.id.btn_share);
 
-        /* 加载相册第一张图 */
-        loadFirstPhotoFromGallery();
+        /* 识别页传来的结果和图片 */
+        Intent intent = getIntent();
+        String text = intent.getStringExtra("result_text");
+        String label = intent.getStringExtra("result_label");
+        if (label == null) {
+            label = labelFromText(text);
+        }
+        float confidence = intent.getFloatExtra("result_confidence", Float.NaN);
+        String path = intent.getStringExtra("result_image_path");
+        String uri = intent.getStringExtra("result_image_uri");
+        // 编码格式和质量，可通过 Intent 参数 share_format（jpeg / webp）和 share_quality 指定
+        ShareCardRenderer.Format format = ShareCardRenderer.Format.parse(
+                intent.getStringExtra("share_format"), intent.getIntExtra("share_quality", -1));
+        metrics = SkinApplication.from(this).getPipelineMetrics();
+        if (text != null) {
+            tvResult.setText(text);
+        }
+
+        /* 卡片渲染好之前不能保存和分享 */
+        btnSave.setEnabled(false);
+        btnShare.setEnabled(false);
+        renderCard(path, uri != null ? Uri.parse(uri) : null, label, confidence, format);
 
         /* 保存 & 分享 */
         btnSave.setOnClickListener(v  -> saveImageToGallery());
         btnShare.setOnClickListener(v -> shareImage());
     }
 
-    /* 读取系统相册第一张图 */
-    private void loadFirstPhotoFromGallery() {
-        if (ContextCompat.checkSelfPermission(this, Manifest.permission.READ_EXTERNAL_STORAGE)
-                != PackageManager.PERMISSION_GRANTED) {
-            ActivityCompat.requestPermissions(this,
-                    new String[]{Manifest.permission.READ_EXTERNAL_STORAGE}, REQ_READ_STORAGE);
-            return;
+    // 旧版本只传了整段结果文字，取第一行去掉前缀作为类别
+    private static String labelFromText(String text) {
+        if (text == null || text.isEmpty()) {
+            return "未知";
         }
-        queryFirstPhoto();
-    }
-
-    private void queryFirstPhoto() {
-        Uri uri = MediaStore.Images.Media.EXTERNAL_CONTENT_URI;
-        String[] proj = {MediaStore.Images.Media.DATA};
-        Cursor cursor = getContentResolver().query(uri, proj, null, null,
-                MediaStore.Images.Media.DATE_ADDED + " DESC LIMIT 1");
-        if (cursor != null && cursor.moveToFirst()) {
-            int idx  = cursor.getColumnIndexOrThrow(MediaStore.Images.Media.DATA);
-            String path = cursor.getString(idx);
-            cursor.close();
-            currentBitmap = BitmapFactory.decodeFile(path);
-            if (currentBitmap != null) ivResult.setImageBitmap(currentBitmap);
-            else showEmpty();
-        } else {
-            showEmpty();
+        String line = text.split("\n", 2)[0];
+        int paren = line.indexOf('（');
+        if (paren > 0) {
+            line = line.substring(0, paren);
         }
+        return line.startsWith(RESULT_PREFIX) ? line.substring(RESULT_PREFIX.length()) : line;
     }
 
-    private void showEmpty() {
-        currentBitmap = Bitmap.createBitmap(1, 1, Bitmap.Config.ARGB_8888);
-        ivResult.setImageBitmap(currentBitmap);
-        Toast.makeText(this, "相册为空", Toast.LENGTH_SHORT).show();
-    }
-
-    @Override
-    public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions,
-                                           @NonNull int[] grantResults) {
-        super.onRequestPermissionsResult(requestCode, permissions, grantResults);
-        if (requestCode == REQ_READ_STORAGE && grantResults.length > 0
-                && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
-            queryFirstPhoto();
-        } else {
-            Toast.makeText(this, "需要存储权限", Toast.LENGTH_SHORT).show();
-            showEmpty();
-        }
+    /* 在后台线程按卡片尺寸解码照片、绘制并编码 */
+    private void renderCard(String path, Uri uri, String label, float confidence,
+                            ShareCardRenderer.Format format) {
+        worker.execute(() -> {
+            Bitmap photo = null;
+            try {
+                // 按卡片上照片区域的尺寸采样解码，不解出完整大小的原图
+                ImageDecodePipeline decoder = new ImageDecodePipeline();
+                if (path != null) {
+                    photo = decoder.decode(path, ShareCardRenderer.CARD_SIZE, ShareCardRenderer.PHOTO_HEIGHT);
+                } else if (uri != null) {
+                    photo = decoder.decode(getContentResolver(), uri,
+                            ShareCardRenderer.CARD_SIZE, ShareCardRenderer.PHOTO_HEIGHT);
+                }
+            } catch (IOException | SecurityException e) {
+                Log.e(TAG, "decode error", e);
+            }
+            long start = System.nanoTime();
+            ShareCardRenderer.Card rendered = renderer.render(photo, label, confidence, format);
+            long nanos = System.nanoTime() - start;
+            metrics.record(Stage.SHARE_ENCODE, nanos);
+            Log.i(TAG, String.format(Locale.ROOT, "卡片编码 %s: %d 字节, %.1f ms",
+                    format, rendered.encoded.size(), nanos / 1e6));
+            if (photo != null) {
+                photo.recycle();
+            }
+            runOnUiThread(() -> {
+                if (isDestroyed()) {
+                    return;
+                }
+                card = rendered;
+                ivResult.setImageBitmap(rendered.bitmap);
+                btnSave.setEnabled(true);
+                btnShare.setEnabled(true);
+            });
+        });
     }
 
     /* ---------- 保存 ---------- */
     private void saveImageToGallery() {
-        if (currentBitmap == null) return;
-        String fileName = "SkinResult_" + System.currentTimeMillis() + ".jpg";
-        ContentValues values = new ContentValues();
-        values.put(MediaStore.Images.Media.DISPLAY_NAME, fileName);
-        values.put(MediaStore.Images.Media.MIME_TYPE, "image/jpeg");
-        values.put(MediaStore.Images.Media.RELATIVE_PATH, Environment.DIRECTORY_PICTURES);
-
-        Uri uri = getContentResolver().insert(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, values);
-        if (uri == null) return;
-        try (OutputStream out = getContentResolver().openOutputStream(uri)) {
-            if (out == null) return;
-            currentBitmap.compress(Bitmap.CompressFormat.JPEG, 100, out);
-            Toast.makeText(this, "已保存到相册", Toast.LENGTH_SHORT).show();
-        } catch (IOException e) {
-            Log.e("ShareResult", "save error", e);
-            Toast.makeText(this, "保存失败", Toast.LENGTH_SHORT).show();
-        }
+        if (card == null) return;
+        ShareCardRenderer.Card saving = card;
+        worker.execute(() -> {
+            long start = System.nanoTime();
+            String fileName = "SkinResult_" + System.currentTimeMillis() + saving.format.extension();
+            ContentValues values = new ContentValues();
+            values.put(MediaStore.Images.Media.DISPLAY_NAME, fileName);
+            values.put(MediaStore.Images.Media.MIME_TYPE, saving.format.mimeType());
+            values.put(MediaStore.Images.Media.RELATIVE_PATH, Environment.DIRECTORY_PICTURES);
+
+            Uri uri = getContentResolver().insert(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, values);
+            boolean saved = false;
+            if (uri != null) {
+                // 通过文件描述符拿到 FileChannel，直接从直接缓冲区写出
+                try (ParcelFileDescriptor fd = getContentResolver().openFileDescriptor(uri, "w")) {
+                    if (fd != null) {
+                        try (FileChannel channel = new FileOutputStream(fd.getFileDescriptor()).getChannel()) {
+                            saving.encoded.writeTo(channel);
+                            saved = true;
+                        }
+                    }
+                } catch (IOException e) {
+                    Log.e(TAG, "save error", e);
+                }
+                if (!saved) {
+                    getContentResolver().delete(uri, null, null);
+                }
+            }
+            recordWrite("保存", saved, start, saving);
+            boolean success = saved;
+            runOnUiThread(() -> Toast.makeText(this, success ? "已保存到相册" : "保存失败",
+                    Toast.LENGTH_SHORT).show());
+        });
     }
 
     /* ---------- 分享 ---------- */
     private void shareImage() {
-        if (currentBitmap == null) return;
-        File cacheFile = new File(getCacheDir(), "share_temp.jpg");
-        try (FileOutputStream out = new FileOutputStream(cacheFile)) {
-            currentBitmap.compress(Bitmap.CompressFormat.JPEG, 100, out);
-        } catch (IOException e) {
-            Log.e("ShareResult", "share error", e);
-            return;
+        if (card == null) return;
+        ShareCardRenderer.Card sharing = card;
+        worker.execute(() -> {
+            File cacheFile = new File(getCacheDir(), SHARE_FILE + sharing.format.extension());
+            // 同一张卡片已经写过时直接复用缓存文件
+            if (sharedVersion != sharing.version || !cacheFile.exists()) {
+                long start = System.nanoTime();
+                try {
+                    sharing.encoded.writeTo(cacheFile);
+                } catch (IOException e) {
+                    Log.e(TAG, "share error", e);
+                    recordWrite("分享", false, start, sharing);
+                    runOnUiThread(() -> Toast.makeText(this, "分享失败", Toast.LENGTH_SHORT).show());
+                    return;
+                }
+                sharedVersion = sharing.version;
+                recordWrite("分享", true, start, sharing);
+            }
+            runOnUiThread(() -> {
+                if (isDestroyed()) {
+                    return;
+                }
+                Uri contentUri = FileProvider.getUriForFile(
+                        this, getPackageName() + ".fileprovider", cacheFile);
+                Intent share = new Intent(Intent.ACTION_SEND);
+                share.setType(sharing.format.mimeType());
+                share.putExtra(Intent.EXTRA_STREAM, contentUri);
+                share.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+                startActivity(Intent.createChooser(share, "分享结果"));
+            });
+        });
+    }
+
+    // 记录写出耗时（worker 线程）
+    private void recordWrite(String action, boolean success, long start, ShareCardRenderer.Card written) {
+        long nanos = System.nanoTime() - start;
+        if (success) {
+            metrics.record(Stage.SHARE_WRITE, nanos);
+            Log.i(TAG, String.format(Locale.ROOT, "%s写入 %d 字节, %.1f ms",
+                    action, written.encoded.size(), nanos / 1e6));
+        } else {
+            metrics.recordFailure(Failure.SHARE_FAILED);
         }
-        Uri contentUri = FileProvider.getUriForFile(
-                this, getPackageName() + ".fileprovider", cacheFile);
-        Intent share = new Intent(Intent.ACTION_SEND);
-        share.setType("image/jpeg");
-        share.putExtra(Intent.EXTRA_STREAM, contentUri);
-        share.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
-        startActivity(Intent.createChooser(share, "分享结果"));
     }
-}
\ No newline at end of file
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // 等排队的保存写完再回收卡片位图
+        worker.execute(renderer::release);
+        worker.shutdown();
+    }
+}
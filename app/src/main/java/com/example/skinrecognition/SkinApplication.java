@@ -0,0 +1,228 @@
+package com.example.skinrecognition;
+
+import android.app.Application;
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.skinrecognition.core.cache.NearDuplicateIndex;
+import com.example.skinrecognition.core.cache.PredictionCache;
+import com.example.skinrecognition.core.classify.AdaptiveTreeClassifier;
+import com.example.skinrecognition.core.classify.CnnClassifier;
+import com.example.skinrecognition.core.classify.TreeClassifier;
+import com.example.skinrecognition.core.exec.InferenceScheduler;
+import com.example.skinrecognition.core.history.AnalysisHistory;
+import com.example.skinrecognition.core.history.AnalysisRecord;
+import com.example.skinrecognition.core.metrics.PipelineMetrics;
+import com.example.skinrecognition.core.model.EnsembleModel;
+import com.example.skinrecognition.core.model.ModelConverter;
+import com.example.skinrecognition.core.model.ModelRegistry;
+import com.example.skinrecognition.core.model.TreeModel;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class SkinApplication extends Application {
+
+    private static final String TAG = "SkinApplication";
+
+    // 皮肤类型模型的类别数（油性、干性、中性）
+    public static final int SKIN_TYPE_CLASS_COUNT = 3;
+    // 所有模型合计的内存上限
+    private static final long MODEL_MEMORY_LIMIT = 16L * 1024 * 1024;
+    // 推理线程数和排队上限
+    private static final int INFERENCE_WORKERS = 2;
+    private static final int INFERENCE_QUEUE_CAPACITY = 4;
+    // 预测结果缓存：内存上限和磁盘条目数
+    private static final long PREDICTION_CACHE_MEMORY = 256L * 1024;
+    private static final int PREDICTION_CACHE_DISK_ENTRIES = 1000;
+    // CNN 卷积使用的线程数（含调用线程），只在 CPU 上计算
+    private static final int CNN_THREADS = 2;
+    // 流水线耗时统计的导出位置（应用专属外部目录下，可以用 adb pull 取出）
+    private static final String METRICS_FILE = "metrics/pipeline_metrics.tsv";
+    // 分析历史文件（应用私有目录）
+    private static final String HISTORY_FILE = "history/analysis.log";
+    // 近似重复照片的索引（应用私有目录，重启后仍然有效）：条目上限和平均颜色的容差
+    private static final String NEAR_DUPLICATE_FILE = "dedup/near_duplicates.idx";
+    private static final int NEAR_DUPLICATE_MAX_ENTRIES = 20000;
+    private static final int NEAR_DUPLICATE_MAX_COLOUR_DIFFERENCE = 12;
+
+    private ModelRegistry modelRegistry;
+    private ModelRegistry.Key<TreeModel> skinTypeModel;
+    private ModelRegistry.Key<EnsembleModel> skinTypeEnsemble;
+    private ModelRegistry.Key<CnnClassifier> skinTypeCnn;
+    private InferenceScheduler inferenceScheduler;
+    private PredictionCache predictionCache;
+    private final PipelineMetrics pipelineMetrics = new PipelineMetrics();
+    // 自适应推理在进程内共用一个实例，抽查的一致率和调整后的 confidence 不随页面重建丢失
+    private AdaptiveTreeClassifier adaptiveClassifier;
+    // 分析历史的打开和追加都在这个线程上执行，主线程只提交任务
+    private final ExecutorService historyWriter = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "history-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private AnalysisHistory analysisHistory;
+    private NearDuplicateIndex nearDuplicateIndex;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        // 模型在单独的后台线程加载，不占用主线程
+        ExecutorService loader = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "model-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        predictionCache = new PredictionCache(PREDICTION_CACHE_MEMORY,
+                new File(getCacheDir(), "prediction_cache"), PREDICTION_CACHE_DISK_ENTRIES);
+        modelRegistry = new ModelRegistry(loader, MODEL_MEMORY_LIMIT);
+        skinTypeModel = new ModelRegistry.Key<>("skin_type", timed(() -> {
+            TreeModel model = ModelAssets.load(getAssets(), SKIN_TYPE_CLASS_COUNT);
+            // 模型更新后，旧模型算出的缓存结果全部作废
+            predictionCache.retainModel(model.getFingerprint());
+            return model;
+        }), TreeModel::getSizeInBytes);
+        // 打包了集成模型时优先使用它输出的类别概率，没有时只用单棵树
+        if (hasAsset(ModelConverter.ENSEMBLE_FILE)) {
+            skinTypeEnsemble = new ModelRegistry.Key<>("skin_type_ensemble",
+                    timed(() -> ModelAssets.loadEnsemble(getAssets())), EnsembleModel::getSizeInBytes);
+        }
+        // CNN 后端：执行器持有预分配的缓冲区和线程，与模型一起缓存，被注册表释放时关闭线程
+        if (hasAsset(ModelConverter.CNN_FILE)) {
+            skinTypeCnn = new ModelRegistry.Key<>("skin_type_cnn",
+                    timed(() -> new CnnClassifier(ModelAssets.loadCnn(getAssets()), CNN_THREADS)),
+                    CnnClassifier::getSizeInBytes);
+        }
+
+        // 推理结果投递到主线程
+        Handler mainHandler = new Handler(Looper.getMainLooper());
+        inferenceScheduler = new InferenceScheduler(INFERENCE_WORKERS, INFERENCE_QUEUE_CAPACITY,
+                mainHandler::post);
+    }
+
+    // 记录模型加载耗时和失败次数
+    private <T> ModelRegistry.Loader<T> timed(ModelRegistry.Loader<T> loader) {
+        return () -> {
+            long start = System.nanoTime();
+            try {
+                T model = loader.load();
+                pipelineMetrics.lap(PipelineMetrics.Stage.MODEL_LOAD, start);
+                return model;
+            } catch (IOException | RuntimeException e) {
+                pipelineMetrics.recordFailure(PipelineMetrics.Failure.MODEL_LOAD_FAILED);
+                throw e;
+            }
+        };
+    }
+
+    public static SkinApplication from(Context context) {
+        return (SkinApplication) context.getApplicationContext();
+    }
+
+    public ModelRegistry getModelRegistry() {
+        return modelRegistry;
+    }
+
+    public ModelRegistry.Key<TreeModel> getSkinTypeModel() {
+        return skinTypeModel;
+    }
+
+    // 没有打包集成模型时返回 null
+    public ModelRegistry.Key<EnsembleModel> getSkinTypeEnsemble() {
+        return skinTypeEnsemble;
+    }
+
+    // 没有打包 CNN 时返回 null
+    public ModelRegistry.Key<CnnClassifier> getSkinTypeCnn() {
+        return skinTypeCnn;
+    }
+
+    public InferenceScheduler getInferenceScheduler() {
+        return inferenceScheduler;
+    }
+
+    public PredictionCache getPredictionCache() {
+        return predictionCache;
+    }
+
+    public PipelineMetrics getPipelineMetrics() {
+        return pipelineMetrics;
+    }
+
+    /**
+     * 包装 full 的自适应推理，模型、集成模型或分析分辨率与现有实例不同时才重建（统计从头开始）。
+     * 各级次数和抽查结果记入 {@link #getPipelineMetrics()}。
+     */
+    public synchronized AdaptiveTreeClassifier getAdaptiveClassifier(TreeClassifier full) {
+        AdaptiveTreeClassifier adaptive = adaptiveClassifier;
+        if (adaptive == null || adaptive.getFull().getVersion() != full.getVersion()
+                || adaptive.getInputSize() != full.getInputSize()
+                || adaptive.getFull().hasEnsemble() != full.hasEnsemble()) {
+            adaptive = new AdaptiveTreeClassifier(full, pipelineMetrics);
+            adaptiveClassifier = adaptive;
+        }
+        return adaptive;
+    }
+
+    /** 在后台线程把耗时统计写入文件，同时输出到日志。 */
+    public void exportPipelineMetrics() {
+        File dir = getExternalFilesDir(null);
+        File file = new File(dir != null ? dir : getFilesDir(), METRICS_FILE);
+        Thread thread = new Thread(() -> {
+            try {
+                pipelineMetrics.writeTo(file);
+                Log.i(TAG, "耗时统计已导出: " + file + "\n" + pipelineMetrics.toText());
+            } catch (IOException e) {
+                Log.w(TAG, "导出耗时统计失败", e);
+            }
+        }, "metrics-export");
+        thread.start();
+    }
+
+    /** 在后台线程追加一条分析历史，可以在主线程调用。 */
+    public void recordAnalysis(AnalysisRecord record) {
+        historyWriter.execute(() -> {
+            try {
+                AnalysisHistory history = getAnalysisHistory();
+                history.append(record);
+                history.flush();
+            } catch (IOException e) {
+                Log.w(TAG, "写入分析历史失败", e);
+            }
+        });
+    }
+
+    /**
+     * 分析历史，第一次调用时打开文件。查询会读文件，不要在主线程调用。
+     */
+    public synchronized AnalysisHistory getAnalysisHistory() throws IOException {
+        if (analysisHistory == null) {
+            analysisHistory = AnalysisHistory.open(new File(getFilesDir(), HISTORY_FILE));
+        }
+        return analysisHistory;
+    }
+
+    /**
+     * 近似重复照片的索引，第一次调用时读入整个文件，不要在主线程调用。
+     */
+    public synchronized NearDuplicateIndex getNearDuplicateIndex() throws IOException {
+        if (nearDuplicateIndex == null) {
+            nearDuplicateIndex = NearDuplicateIndex.open(new File(getFilesDir(), NEAR_DUPLICATE_FILE),
+                    NEAR_DUPLICATE_MAX_ENTRIES, NEAR_DUPLICATE_MAX_COLOUR_DIFFERENCE);
+        }
+        return nearDuplicateIndex;
+    }
+
+    private boolean hasAsset(String name) {
+        try {
+            return ModelAssets.has(getAssets(), name);
+        } catch (IOException e) {
+            Log.w(TAG, "读取 assets 目录失败", e);
+            return false;
+        }
+    }
+}
@@ -14,6 +14,10 @@ public class SplashActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_splash);
 
+        // 在启动页等待期间后台加载模型
+        SkinApplication app = SkinApplication.from(this);
+        app.getModelRegistry().preload(app.getSkinTypeModel());
+
         // 延迟1秒后跳转到登录页面
         new Handler().postDelayed(() -> {
             Intent intent = new Intent(SplashActivity.this, LoginActivity.class);
@@ -0,0 +1,34 @@
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+    // vector 模块是 Java 17 字节码，只在运行时加载
+    disableAutoTargetJvm()
+}
+
+dependencies {
+    jmh(project(":core"))
+    // SIMD 行内核，RowKernelBenchmark 的 preferred 使用
+    jmhRuntimeOnly(project(":vector"))
+}
+
+// 运行：./gradlew :benchmark:jmh，只跑部分基准：-PjmhInclude=FeatureExtraction
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    // 每张图的分配字节数（gc.alloc.rate.norm）
+    profilers.add("gc")
+    resultFormat.set("JSON")
+    findProperty("jmhInclude")?.let { includes.add(it.toString()) }
+    // 基准进程在运行 Gradle 的 JDK 上启动，只在 JDK 17 及以上添加 Vector API 模块
+    if (JavaVersion.current().isCompatibleWith(JavaVersion.VERSION_17)) {
+        jvmArgs.addAll("--add-modules", "jdk.incubator.vector")
+    }
+    jvmArgs.addAll(
+        "-Dskin.assets=" + rootProject.file("app/src/main/assets").absolutePath,
+        "-Dskin.fixture=" + rootProject.file("app/src/main/res/drawable/app_icon.png").absolutePath,
+    )
+}
@@ -0,0 +1,145 @@
+package com.example.skinrecognition.benchmark;
+
+/**
+ * 原 PredictActivity.extractFeatures 的逐像素实现，作为所有优化的对照组。
+ * <p>
+ * 保留原来的访问方式：每个像素通过 {@link PixelSource#getPixel} 读取（对应 Bitmap.getPixel，
+ * 带坐标检查），每个像素分配一个 float[3] 做 RGBToHSV，LBP 的 8 个邻居各调用 3 次 getPixel。
+ */
+final class BaselineExtractor {
+
+    /** 模拟 Bitmap.getPixel 的逐像素访问。 */
+    interface PixelSource {
+        int getWidth();
+
+        int getHeight();
+
+        int getPixel(int x, int y);
+    }
+
+    // 用像素数组模拟位图，getPixel 与 Bitmap 一样检查坐标
+    static PixelSource bitmap(int[] argb, int width, int height) {
+        return new PixelSource() {
+            @Override
+            public int getWidth() {
+                return width;
+            }
+
+            @Override
+            public int getHeight() {
+                return height;
+            }
+
+            @Override
+            public int getPixel(int x, int y) {
+                if (x < 0 || x >= width || y < 0 || y >= height) {
+                    throw new IllegalArgumentException("x/y 超出范围");
+                }
+                return argb[y * width + x];
+            }
+        };
+    }
+
+    private BaselineExtractor() {
+    }
+
+    static float[] extract(PixelSource bitmap) {
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+
+        float hSum = 0, sSum = 0, vSum = 0;
+        float hSqSum = 0, sSqSum = 0, vSqSum = 0;
+        int pixelCount = 0;
+        int lbpSum = 0;
+        int lbpCount = 0;
+
+        for (int i = 1; i < height - 1; i++) {
+            for (int j = 1; j < width - 1; j++) {
+                int pixel = bitmap.getPixel(j, i);
+                int r = red(pixel);
+                int g = green(pixel);
+                int b = blue(pixel);
+
+                float[] hsv = new float[3];
+                rgbToHsv(r, g, b, hsv);
+                float h = hsv[0];
+                float s = hsv[1];
+                float v = hsv[2];
+
+                hSum += h;
+                sSum += s;
+                vSum += v;
+                hSqSum += h * h;
+                sSqSum += s * s;
+                vSqSum += v * v;
+                pixelCount++;
+
+                int center = (r + g + b) / 3;
+                int code = 0;
+                code |= (gray(bitmap, j - 1, i - 1) >= center) ? 1 << 7 : 0;
+                code |= (gray(bitmap, j, i - 1) >= center) ? 1 << 6 : 0;
+                code |= (gray(bitmap, j + 1, i - 1) >= center) ? 1 << 5 : 0;
+                code |= (gray(bitmap, j + 1, i) >= center) ? 1 << 4 : 0;
+                code |= (gray(bitmap, j + 1, i + 1) >= center) ? 1 << 3 : 0;
+                code |= (gray(bitmap, j, i + 1) >= center) ? 1 << 2 : 0;
+                code |= (gray(bitmap, j - 1, i + 1) >= center) ? 1 << 1 : 0;
+                code |= (gray(bitmap, j - 1, i) >= center) ? 1 : 0;
+                lbpSum += code;
+                lbpCount++;
+            }
+        }
+
+        float hMean = hSum / pixelCount;
+        float sMean = sSum / pixelCount;
+        float vMean = vSum / pixelCount;
+        float hStd = (float) Math.sqrt((hSqSum / pixelCount) - hMean * hMean);
+        float sStd = (float) Math.sqrt((sSqSum / pixelCount) - sMean * sMean);
+        float vStd = (float) Math.sqrt((vSqSum / pixelCount) - vMean * vMean);
+        float lbpMean = (float) lbpSum / lbpCount;
+        return new float[]{hMean, hStd, sMean, sStd, vMean, vStd, lbpMean};
+    }
+
+    // 原实现对每个邻居分别调用三次 getPixel
+    private static int gray(PixelSource bitmap, int x, int y) {
+        return (red(bitmap.getPixel(x, y)) + green(bitmap.getPixel(x, y)) + blue(bitmap.getPixel(x, y))) / 3;
+    }
+
+    private static int red(int color) {
+        return (color >> 16) & 0xFF;
+    }
+
+    private static int green(int color) {
+        return (color >> 8) & 0xFF;
+    }
+
+    private static int blue(int color) {
+        return color & 0xFF;
+    }
+
+    // 与 Color.RGBToHSV（Skia SkRGBToHSV）相同的计算
+    private static void rgbToHsv(int r, int g, int b, float[] hsv) {
+        int max = Math.max(r, Math.max(g, b));
+        int min = Math.min(r, Math.min(g, b));
+        int delta = max - min;
+        hsv[2] = max / 255f;
+        if (delta == 0) {
+            hsv[0] = 0;
+            hsv[1] = 0;
+            return;
+        }
+        hsv[1] = (float) delta / max;
+        float h;
+        if (r == max) {
+            h = (float) (g - b) / delta;
+        } else if (g == max) {
+            h = 2 + (float) (b - r) / delta;
+        } else {
+            h = 4 + (float) (r - g) / delta;
+        }
+        h *= 60;
+        if (h < 0) {
+            h += 360;
+        }
+        hsv[0] = h;
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.skinrecognition.benchmark;
+
+import com.example.skinrecognition.core.model.TextModelReader;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+
+/**
+ * 原 PredictActivity 的决策树推理：ArrayList 中的 TreeNode 对象，
+ * 每次预测先分配一个归一化数组，再逐节点 get() 遍历。
+ */
+final class BaselineTree {
+
+    private static final class TreeNode {
+        final int type;
+        final int featureIndex;
+        final float threshold;
+        final int leftChild;
+        final int rightChild;
+        final int label;
+
+        TreeNode(int type, int featureIndex, float threshold, int leftChild, int rightChild, int label) {
+            this.type = type;
+            this.featureIndex = featureIndex;
+            this.threshold = threshold;
+            this.leftChild = leftChild;
+            this.rightChild = rightChild;
+            this.label = label;
+        }
+    }
+
+    private final List<TreeNode> treeNodes = new ArrayList<>();
+    private final float[] scalerMean;
+    private final float[] scalerStd;
+
+    // 与原 loadModelParams 相同的解析方式
+    BaselineTree(File assets) throws IOException {
+        try (InputStream mean = new FileInputStream(new File(assets, "scaler_mean.txt"));
+             InputStream std = new FileInputStream(new File(assets, "scaler_std.txt"))) {
+            scalerMean = TextModelReader.readFloats(mean);
+            scalerStd = TextModelReader.readFloats(std);
+        }
+        try (Scanner scanner = new Scanner(new File(assets, "tree_model.txt"), "UTF-8")) {
+            int lineNum = 0;
+            while (scanner.hasNextLine()) {
+                String line = scanner.nextLine().trim();
+                if (lineNum == 0) {
+                    lineNum++;
+                    continue;
+                }
+                if (line.isEmpty()) {
+                    continue;
+                }
+                String[] parts = line.split(",");
+                if (parts.length != 6) {
+                    continue;
+                }
+                treeNodes.add(new TreeNode(
+                        Integer.parseInt(parts[0]),
+                        Integer.parseInt(parts[1]),
+                        Float.parseFloat(parts[2]),
+                        Integer.parseInt(parts[3]),
+                        Integer.parseInt(parts[4]),
+                        Integer.parseInt(parts[5])));
+                lineNum++;
+            }
+        }
+    }
+
+    int predict(float[] features) {
+        float[] normalized = new float[features.length];
+        for (int i = 0; i < features.length; i++) {
+            normalized[i] = (features[i] - scalerMean[i]) / scalerStd[i];
+        }
+        int currentNodeIdx = 0;
+        while (true) {
+            TreeNode node = treeNodes.get(currentNodeIdx);
+            if (node.type == 0) {
+                return node.label;
+            }
+            if (normalized[node.featureIndex] <= node.threshold) {
+                currentNodeIdx = node.leftChild;
+            } else {
+                currentNodeIdx = node.rightChild;
+            }
+        }
+    }
+}
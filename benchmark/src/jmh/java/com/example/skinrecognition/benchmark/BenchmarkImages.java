@@ -0,0 +1,68 @@
+package com.example.skinrecognition.benchmark;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+/**
+ * 基准测试用的输入图片：随机的类肤色像素，或者把仓库中的图片缩放到指定尺寸。
+ */
+final class BenchmarkImages {
+
+    static final File ASSETS = new File(System.getProperty("skin.assets", "../app/src/main/assets"));
+    static final File FIXTURE = new File(System.getProperty("skin.fixture",
+            "../app/src/main/res/drawable/app_icon.png"));
+
+    private BenchmarkImages() {
+    }
+
+    /**
+     * @param source synthetic 或 fixture
+     */
+    static int[] load(String source, int size) throws IOException {
+        switch (source) {
+            case "synthetic":
+                return synthetic(size, 42);
+            case "fixture":
+                return fixture(size);
+            default:
+                throw new IllegalArgumentException("未知的图片来源: " + source);
+        }
+    }
+
+    // 以肤色为中心加噪声，H/S/V 分布与真实照片接近
+    static int[] synthetic(int size, long seed) {
+        Random random = new Random(seed);
+        int[] pixels = new int[size * size];
+        for (int i = 0; i < pixels.length; i++) {
+            int r = clamp(200 + (int) (random.nextGaussian() * 25));
+            int g = clamp(150 + (int) (random.nextGaussian() * 25));
+            int b = clamp(120 + (int) (random.nextGaussian() * 25));
+            pixels[i] = 0xFF000000 | (r << 16) | (g << 8) | b;
+        }
+        return pixels;
+    }
+
+    // 双线性缩放到 size x size，与 createScaledBitmap(filter = true) 类似
+    static int[] fixture(int size) throws IOException {
+        BufferedImage source = ImageIO.read(FIXTURE);
+        if (source == null) {
+            throw new IOException("无法读取图片: " + FIXTURE);
+        }
+        BufferedImage scaled = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = scaled.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(source, 0, 0, size, size, null);
+        g.dispose();
+        return scaled.getRGB(0, 0, size, size, null, 0, size);
+    }
+
+    private static int clamp(int v) {
+        return Math.max(0, Math.min(255, v));
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.skinrecognition.benchmark;
+
+import com.example.skinrecognition.core.feature.FeatureExtractor;
+import com.example.skinrecognition.core.model.EnsembleModel;
+import com.example.skinrecognition.core.model.ModelConverter;
+import com.example.skinrecognition.core.model.TextModelReader;
+import com.example.skinrecognition.core.model.TreeModel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 集成模型每张图的推理耗时（ns/张），与现在的单棵树对比。
+ * 森林由与 assets 中单棵树规模相近的随机树组成（深度上限 12）。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EnsembleInferenceBenchmark {
+
+    private static final int SAMPLES = 256;
+    private static final int MAX_DEPTH = 12;
+
+    @Param({"50", "200"})
+    public int trees;
+
+    private TreeModel single;
+    private EnsembleModel forest;
+    private float[][] samples;
+    private float[] packed;
+    private final float[] proba = new float[3];
+    private float[] batchProba;
+    private final int[] labels = new int[SAMPLES];
+
+    @Setup
+    public void setUp() throws IOException {
+        single = ModelConverter.readText(BenchmarkImages.ASSETS, ModelConverter.DEFAULT_CLASS_COUNT);
+        forest = randomForest(trees, new Random(1));
+        FeatureExtractor extractor = new FeatureExtractor();
+        int n = FeatureExtractor.FEATURE_COUNT;
+        samples = new float[SAMPLES][];
+        packed = new float[SAMPLES * n];
+        batchProba = new float[SAMPLES * 3];
+        for (int i = 0; i < SAMPLES; i++) {
+            samples[i] = extractor.extract(BenchmarkImages.synthetic(32, i), 32, 32);
+            System.arraycopy(samples[i], 0, packed, i * n, n);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public void singleTree(Blackhole bh) {
+        for (float[] features : samples) {
+            bh.consume(single.predict(features));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public void forestSingle(Blackhole bh) {
+        for (float[] features : samples) {
+            bh.consume(forest.predictProba(features, proba));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public int[] forestBatch() {
+        forest.predictProbaBatch(packed, SAMPLES, batchProba, labels);
+        return labels;
+    }
+
+    // 随机森林：归一化参数取自 assets，阈值服从标准正态分布，与归一化后的特征同一量级
+    private static EnsembleModel randomForest(int count, Random random) throws IOException {
+        float[] mean;
+        float[] std;
+        try (InputStream in = new FileInputStream(new File(BenchmarkImages.ASSETS, ModelConverter.MEAN_FILE))) {
+            mean = TextModelReader.readFloats(in);
+        }
+        try (InputStream in = new FileInputStream(new File(BenchmarkImages.ASSETS, ModelConverter.STD_FILE))) {
+            std = TextModelReader.readFloats(in);
+        }
+        int capacity = count * ((1 << (MAX_DEPTH + 1)) - 1);
+        int[] type = new int[capacity];
+        int[] feature = new int[capacity];
+        float[] threshold = new float[capacity];
+        int[] left = new int[capacity];
+        int[] right = new int[capacity];
+        int[] label = new int[capacity];
+        int[] sizes = new int[count];
+        int[] next = {0};
+        for (int t = 0; t < count; t++) {
+            int base = next[0];
+            grow(random, MAX_DEPTH, base, next, type, feature, threshold, left, right, label);
+            sizes[t] = next[0] - base;
+        }
+        int n = next[0];
+        return EnsembleModel.compile(EnsembleModel.Kind.FOREST, sizes, Arrays.copyOf(type, n),
+                Arrays.copyOf(feature, n), Arrays.copyOf(threshold, n), Arrays.copyOf(left, n),
+                Arrays.copyOf(right, n), Arrays.copyOf(label, n), mean, std, 3, 1f, null);
+    }
+
+    private static int grow(Random random, int depth, int base, int[] next, int[] type, int[] feature,
+                            float[] threshold, int[] left, int[] right, int[] label) {
+        int index = next[0]++;
+        if (depth == 0 || random.nextInt(6) == 0) {
+            type[index] = 0;
+            label[index] = random.nextInt(3);
+            return index - base;
+        }
+        type[index] = 1;
+        feature[index] = random.nextInt(FeatureExtractor.FEATURE_COUNT);
+        threshold[index] = (float) random.nextGaussian();
+        left[index] = grow(random, depth - 1, base, next, type, feature, threshold, left, right, label);
+        right[index] = grow(random, depth - 1, base, next, type, feature, threshold, left, right, label);
+        return index - base;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.skinrecognition.benchmark;
+
+import com.example.skinrecognition.core.feature.FeatureExtractor;
+import com.example.skinrecognition.core.feature.TiledFeatureExtractor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单张图片特征提取耗时（ns/张）。配合 -prof gc 查看每张图的分配字节数。
+ * <ul>
+ * <li>baseline：原来逐像素 getPixel 的实现</li>
+ * <li>bulk：一次取出像素数组后单线程提取（FeatureExtractor，复用缓冲区）</li>
+ * <li>tiled：按行分块在 ForkJoinPool.commonPool 上并行（TiledFeatureExtractor）</li>
+ * </ul>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FeatureExtractionBenchmark {
+
+    @Param({"200", "512", "1024"})
+    public int size;
+
+    @Param({"synthetic", "fixture"})
+    public String source;
+
+    private int[] pixels;
+    private BaselineExtractor.PixelSource bitmap;
+    private final FeatureExtractor extractor = new FeatureExtractor();
+    private final TiledFeatureExtractor tiled = new TiledFeatureExtractor(ForkJoinPool.commonPool());
+    private final float[] out = new float[FeatureExtractor.FEATURE_COUNT];
+
+    @Setup
+    public void setUp() throws IOException {
+        pixels = BenchmarkImages.load(source, size);
+        bitmap = BaselineExtractor.bitmap(pixels, size, size);
+    }
+
+    @Benchmark
+    public float[] baseline() {
+        return BaselineExtractor.extract(bitmap);
+    }
+
+    @Benchmark
+    public float[] bulk() {
+        extractor.extract(pixels, size, size, out);
+        return out;
+    }
+
+    @Benchmark
+    public float[] tiled() {
+        tiled.extract(pixels, size, size, out);
+        return out;
+    }
+}
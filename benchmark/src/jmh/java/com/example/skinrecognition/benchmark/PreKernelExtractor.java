@@ -0,0 +1,97 @@
+package com.example.skinrecognition.benchmark;
+
+/**
+ * 引入 {@code RowKernel} 之前的 FeatureExtractor：int 灰度平面，HSV 用 float 除法，
+ * LBP 与 HSV 在同一个内循环中计算。作为查表和 SIMD 内核的对照组。
+ */
+final class PreKernelExtractor {
+
+    private int[] gray = new int[0];
+
+    void extract(int[] argb, int width, int height, float[] out) {
+        int size = width * height;
+        if (gray.length < size) {
+            gray = new int[size];
+        }
+        int[] g8 = gray;
+        for (int k = 0; k < size; k++) {
+            int p = argb[k];
+            g8[k] = (((p >> 16) & 0xFF) + ((p >> 8) & 0xFF) + (p & 0xFF)) / 3;
+        }
+
+        float hSum = 0, sSum = 0, vSum = 0;
+        float hSqSum = 0, sSqSum = 0, vSqSum = 0;
+        int pixelCount = 0;
+        int lbpSum = 0;
+
+        for (int i = 1; i < height - 1; i++) {
+            int row = i * width;
+            int up = row - width;
+            int down = row + width;
+            for (int j = 1; j < width - 1; j++) {
+                int pixel = argb[row + j];
+                int r = (pixel >> 16) & 0xFF;
+                int g = (pixel >> 8) & 0xFF;
+                int b = pixel & 0xFF;
+
+                // RGB -> HSV，与 Color.RGBToHSV 的计算方式一致
+                int max = Math.max(r, Math.max(g, b));
+                int min = Math.min(r, Math.min(g, b));
+                int delta = max - min;
+                float h, s;
+                float v = max / 255f;
+                if (delta == 0) {
+                    h = 0;
+                    s = 0;
+                } else {
+                    s = (float) delta / max;
+                    if (r == max) {
+                        h = (float) (g - b) / delta;
+                    } else if (g == max) {
+                        h = 2 + (float) (b - r) / delta;
+                    } else {
+                        h = 4 + (float) (r - g) / delta;
+                    }
+                    h *= 60;
+                    if (h < 0) {
+                        h += 360;
+                    }
+                }
+
+                hSum += h;
+                sSum += s;
+                vSum += v;
+                hSqSum += h * h;
+                sSqSum += s * s;
+                vSqSum += v * v;
+                pixelCount++;
+
+                // LBP编码，位顺序与原实现相同（左上为最高位，顺时针）
+                int center = g8[row + j];
+                int code = 0;
+                code |= (g8[up + j - 1] >= center) ? 1 << 7 : 0;
+                code |= (g8[up + j] >= center) ? 1 << 6 : 0;
+                code |= (g8[up + j + 1] >= center) ? 1 << 5 : 0;
+                code |= (g8[row + j + 1] >= center) ? 1 << 4 : 0;
+                code |= (g8[down + j + 1] >= center) ? 1 << 3 : 0;
+                code |= (g8[down + j] >= center) ? 1 << 2 : 0;
+                code |= (g8[down + j - 1] >= center) ? 1 << 1 : 0;
+                code |= (g8[row + j - 1] >= center) ? 1 : 0;
+                lbpSum += code;
+            }
+        }
+
+        // 计算HSV均值和标准差
+        float hMean = hSum / pixelCount;
+        float sMean = sSum / pixelCount;
+        float vMean = vSum / pixelCount;
+        out[0] = hMean;
+        out[1] = (float) Math.sqrt((hSqSum / pixelCount) - hMean * hMean);
+        out[2] = sMean;
+        out[3] = (float) Math.sqrt((sSqSum / pixelCount) - sMean * sMean);
+        out[4] = vMean;
+        out[5] = (float) Math.sqrt((vSqSum / pixelCount) - vMean * vMean);
+        // LBP均值（每个内部像素一个编码）
+        out[6] = (float) lbpSum / pixelCount;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.skinrecognition.benchmark;
+
+import com.example.skinrecognition.core.feature.FeatureExtractor;
+import com.example.skinrecognition.core.feature.RowKernels;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HSV/LBP 内核对单线程特征提取的影响（ns/张，除以像素数即为每百万像素耗时）。
+ * <ul>
+ * <li>division：引入内核之前的实现（float 除法、int 灰度平面）</li>
+ * <li>scalar：HSV 查表 + 标量行内核</li>
+ * <li>preferred：HSV 查表 + ServiceLoader 选出的内核（加载了 vector 模块时为 SIMD）</li>
+ * </ul>
+ * 三者结果逐位相同，只比较耗时。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowKernelBenchmark {
+
+    @Param({"512", "1024"})
+    public int size;
+
+    @Param({"synthetic", "fixture"})
+    public String source;
+
+    private int[] pixels;
+    private final PreKernelExtractor division = new PreKernelExtractor();
+    private final FeatureExtractor scalar = new FeatureExtractor(RowKernels.scalar());
+    private final FeatureExtractor preferred = new FeatureExtractor(RowKernels.preferred());
+    private final float[] out = new float[FeatureExtractor.FEATURE_COUNT];
+
+    @Setup
+    public void setUp() throws IOException {
+        pixels = BenchmarkImages.load(source, size);
+    }
+
+    @Benchmark
+    public float[] division() {
+        division.extract(pixels, size, size, out);
+        return out;
+    }
+
+    @Benchmark
+    public float[] scalar() {
+        scalar.extract(pixels, size, size, out);
+        return out;
+    }
+
+    @Benchmark
+    public float[] preferred() {
+        preferred.extract(pixels, size, size, out);
+        return out;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.skinrecognition.benchmark;
+
+import com.example.skinrecognition.core.feature.FeatureExtractor;
+import com.example.skinrecognition.core.feature.TiledFeatureExtractor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分块并行提取随线程数的扩展性：每个 threads 取值使用独立的 ForkJoinPool，
+ * 对比 1 线程的耗时即可得到加速比。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TiledScalingBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"1024", "2048"})
+    public int size;
+
+    private ForkJoinPool pool;
+    private TiledFeatureExtractor extractor;
+    private int[] pixels;
+    private final float[] out = new float[FeatureExtractor.FEATURE_COUNT];
+
+    @Setup
+    public void setUp() {
+        pool = new ForkJoinPool(threads);
+        extractor = new TiledFeatureExtractor(pool);
+        pixels = BenchmarkImages.synthetic(size, 7);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public float[] extractTiled() {
+        extractor.extractTiled(pixels, size, size, out);
+        return out;
+    }
+}
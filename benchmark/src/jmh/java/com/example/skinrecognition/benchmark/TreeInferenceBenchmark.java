@@ -0,0 +1,78 @@
+package com.example.skinrecognition.benchmark;
+
+import com.example.skinrecognition.core.feature.FeatureExtractor;
+import com.example.skinrecognition.core.model.ModelConverter;
+import com.example.skinrecognition.core.model.TreeModel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 决策树推理耗时（ns/张），特征取自随机图片，覆盖树中不同的路径。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TreeInferenceBenchmark {
+
+    private static final int SAMPLES = 256;
+
+    private BaselineTree baseline;
+    private TreeModel model;
+    private float[][] samples;
+    private float[] packed;
+    private final int[] labels = new int[SAMPLES];
+
+    @Setup
+    public void setUp() throws IOException {
+        baseline = new BaselineTree(BenchmarkImages.ASSETS);
+        model = ModelConverter.readText(BenchmarkImages.ASSETS, ModelConverter.DEFAULT_CLASS_COUNT);
+        FeatureExtractor extractor = new FeatureExtractor();
+        int n = FeatureExtractor.FEATURE_COUNT;
+        samples = new float[SAMPLES][];
+        packed = new float[SAMPLES * n];
+        for (int i = 0; i < SAMPLES; i++) {
+            samples[i] = extractor.extract(BenchmarkImages.synthetic(32, i), 32, 32);
+            System.arraycopy(samples[i], 0, packed, i * n, n);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public void baseline(Blackhole bh) {
+        for (float[] features : samples) {
+            bh.consume(baseline.predict(features));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public void compiled(Blackhole bh) {
+        for (float[] features : samples) {
+            bh.consume(model.predict(features));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public int[] batch() {
+        model.predictBatch(packed, SAMPLES, labels);
+        return labels;
+    }
+}
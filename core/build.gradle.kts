@@ -0,0 +1,21 @@
+plugins {
+    `java-library`
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+dependencies {
+    testImplementation(libs.junit)
+}
+
+// 把 app 的文本模型转换成二进制 skin_model.bin（修改文本模型后需要重新执行）
+tasks.register<JavaExec>("convertModelAssets") {
+    group = "model"
+    description = "Converts tree_model.txt and scaler files into skin_model.bin"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("com.example.skinrecognition.core.model.ModelConverter")
+    args(rootProject.file("app/src/main/assets").absolutePath)
+}
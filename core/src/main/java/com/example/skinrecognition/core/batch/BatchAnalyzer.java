@@ -0,0 +1,246 @@
+package com.example.skinrecognition.core.batch;
+
+import com.example.skinrecognition.core.cache.ContentHash;
+import com.example.skinrecognition.core.exec.CancellationToken;
+import com.example.skinrecognition.core.feature.FeatureExtractor;
+import com.example.skinrecognition.core.feature.FeatureLayout;
+import com.example.skinrecognition.core.image.ArgbImage;
+import com.example.skinrecognition.core.model.TreeModel;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 批量分析：读文件 → 解码 → 提取特征 → 预测，分成读取/解码和计算两级线程池流水线执行。
+ * <p>
+ * 同时在处理中的图片数（已读入字节但还没写出结果）不超过 maxInFlight，
+ * 读取比计算快时提交线程会阻塞，内存占用有上限。结果逐条写入 {@link BatchResultsFile}，
+ * 文件中已有的图片直接跳过，所以中断后用同一个结果文件再次运行即可续跑。
+ */
+public final class BatchAnalyzer {
+
+    /** 待分析的图片。 */
+    public interface Item {
+        // 写入结果文件的标识，续跑时按它判断是否已完成
+        String getId();
+
+        InputStream open() throws IOException;
+    }
+
+    /** 把图片文件内容解码成分析用的像素，无法解码时返回 null。 */
+    public interface Decoder {
+        ArgbImage decode(byte[] data) throws IOException;
+    }
+
+    /** 进度回调，在工作线程中调用。 */
+    public interface Listener {
+        void onProgress(BatchProgress progress);
+
+        void onItemFailed(String id, Exception error);
+    }
+
+    private final TreeModel model;
+    private final Decoder decoder;
+    private final int readers;
+    private final int workers;
+    private final int maxInFlight;
+
+    /**
+     * @param model       只支持 {@link FeatureLayout#BASIC} 布局的模型，结果文件只保存 7 维特征
+     * @param readers     读取和解码线程数
+     * @param workers     特征提取和预测线程数，一般取 CPU 核数
+     * @param maxInFlight 同时在处理中的图片数上限
+     */
+    public BatchAnalyzer(TreeModel model, Decoder decoder, int readers, int workers, int maxInFlight) {
+        if (readers <= 0 || workers <= 0 || maxInFlight <= 0) {
+            throw new IllegalArgumentException("线程数和并发上限必须大于 0");
+        }
+        if (model.getLayout() != FeatureLayout.BASIC) {
+            throw new IllegalArgumentException("批量分析只支持 " + FeatureLayout.BASIC.getId() + " 特征布局的模型");
+        }
+        this.model = model;
+        this.decoder = decoder;
+        this.readers = readers;
+        this.workers = workers;
+        this.maxInFlight = maxInFlight;
+    }
+
+    // 文件形式的图片，以绝对路径为标识
+    public static Item fileItem(File file) {
+        return new Item() {
+            @Override
+            public String getId() {
+                return file.getAbsolutePath();
+            }
+
+            @Override
+            public InputStream open() throws IOException {
+                return new FileInputStream(file);
+            }
+        };
+    }
+
+    /**
+     * 分析所有尚未出现在结果文件中的图片，阻塞到全部完成或被取消。
+     *
+     * @return 最终进度；被取消时 {@link BatchProgress#isCancelled()} 为 true
+     */
+    public BatchProgress run(List<? extends Item> items, BatchResultsFile results,
+                             Listener listener, CancellationToken token) throws InterruptedException {
+        List<Item> pending = new ArrayList<>();
+        for (Item item : items) {
+            if (!results.isCompleted(item.getId())) {
+                pending.add(item);
+            }
+        }
+        Run run = new Run(pending.size(), items.size() - pending.size(), results, listener, token);
+        ExecutorService readPool = Executors.newFixedThreadPool(readers, threadFactory("batch-read"));
+        ExecutorService computePool = Executors.newFixedThreadPool(workers, threadFactory("batch-compute"));
+        ThreadLocal<FeatureExtractor> extractors = ThreadLocal.withInitial(FeatureExtractor::new);
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        try {
+            for (Item item : pending) {
+                inFlight.acquire();
+                if (token.isCancelled()) {
+                    inFlight.release();
+                    break;
+                }
+                readPool.execute(() -> {
+                    Decoded decoded = run.read(item);
+                    if (decoded == null) {
+                        inFlight.release();
+                        return;
+                    }
+                    computePool.execute(() -> {
+                        try {
+                            run.compute(decoded, extractors.get());
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                });
+            }
+            // 拿回全部许可即所有已提交的图片都已处理完
+            inFlight.acquire(maxInFlight);
+        } finally {
+            readPool.shutdownNow();
+            computePool.shutdownNow();
+        }
+        return run.progress();
+    }
+
+    private static ThreadFactory threadFactory(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // 读取和解码完成、等待计算的图片
+    private static final class Decoded {
+        final String id;
+        final long hash;
+        final ArgbImage image;
+
+        Decoded(String id, long hash, ArgbImage image) {
+            this.id = id;
+            this.hash = hash;
+            this.image = image;
+        }
+    }
+
+    // 一次运行的状态和计数
+    private final class Run {
+        final int total;
+        final int skipped;
+        final BatchResultsFile results;
+        final Listener listener;
+        final CancellationToken token;
+        final long startNanos = System.nanoTime();
+        final AtomicInteger completed = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+
+        Run(int total, int skipped, BatchResultsFile results, Listener listener, CancellationToken token) {
+            this.total = total;
+            this.skipped = skipped;
+            this.results = results;
+            this.listener = listener;
+            this.token = token;
+        }
+
+        // 一次读入整个文件，哈希和解码共用同一份字节
+        Decoded read(Item item) {
+            if (token.isCancelled()) {
+                return null;
+            }
+            try {
+                byte[] data;
+                try (InputStream in = item.open()) {
+                    data = readFully(in);
+                }
+                ArgbImage image = decoder.decode(data);
+                if (image == null) {
+                    throw new IOException("无法解码图片");
+                }
+                return new Decoded(item.getId(), ContentHash.of(data), image);
+            } catch (IOException | RuntimeException e) {
+                fail(item.getId(), e);
+                return null;
+            }
+        }
+
+        void compute(Decoded decoded, FeatureExtractor extractor) {
+            if (token.isCancelled()) {
+                return;
+            }
+            try {
+                ArgbImage image = decoded.image;
+                float[] features = extractor.extract(image.getPixels(), image.getWidth(), image.getHeight());
+                int label = model.predict(features);
+                results.append(new BatchResult(decoded.id, decoded.hash, features, label,
+                        System.currentTimeMillis()));
+                completed.incrementAndGet();
+                if (listener != null) {
+                    listener.onProgress(progress());
+                }
+            } catch (IOException | RuntimeException e) {
+                fail(decoded.id, e);
+            }
+        }
+
+        void fail(String id, Exception e) {
+            failed.incrementAndGet();
+            if (listener != null) {
+                listener.onItemFailed(id, e);
+                listener.onProgress(progress());
+            }
+        }
+
+        BatchProgress progress() {
+            return new BatchProgress(total, skipped, completed.get(), failed.get(),
+                    System.nanoTime() - startNanos, token.isCancelled());
+        }
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(in.available(), 8192));
+        byte[] buffer = new byte[64 * 1024];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+}
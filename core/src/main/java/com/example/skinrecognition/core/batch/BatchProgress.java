@@ -0,0 +1,66 @@
+package com.example.skinrecognition.core.batch;
+
+import java.util.Locale;
+
+/**
+ * 批量分析的进度快照。
+ */
+public final class BatchProgress {
+
+    private final int total;
+    private final int skipped;
+    private final int completed;
+    private final int failed;
+    private final long elapsedNanos;
+    private final boolean cancelled;
+
+    BatchProgress(int total, int skipped, int completed, int failed, long elapsedNanos, boolean cancelled) {
+        this.total = total;
+        this.skipped = skipped;
+        this.completed = completed;
+        this.failed = failed;
+        this.elapsedNanos = elapsedNanos;
+        this.cancelled = cancelled;
+    }
+
+    // 本次需要分析的图片数（不含已跳过的）
+    public int getTotal() {
+        return total;
+    }
+
+    // 结果文件中已有、本次跳过的图片数
+    public int getSkipped() {
+        return skipped;
+    }
+
+    public int getCompleted() {
+        return completed;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    // 本次运行的吞吐量（张/秒）
+    public double getImagesPerSecond() {
+        return elapsedNanos == 0 ? 0 : completed * 1e9 / elapsedNanos;
+    }
+
+    public boolean isFinished() {
+        return completed + failed >= total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%d/%d 完成, %d 失败, %d 跳过, %.1f 张/秒",
+                completed, total, failed, skipped, getImagesPerSecond());
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.skinrecognition.core.batch;
+
+/**
+ * 批量分析中一张图片的结果。
+ */
+public final class BatchResult {
+
+    private final String id;
+    private final long contentHash;
+    private final float[] features;
+    private final int label;
+    private final long timestamp;
+
+    /**
+     * @param id        图片标识（文件路径或 content Uri）
+     * @param timestamp 分析完成时间（毫秒）
+     */
+    public BatchResult(String id, long contentHash, float[] features, int label, long timestamp) {
+        this.id = id;
+        this.contentHash = contentHash;
+        this.features = features.clone();
+        this.label = label;
+        this.timestamp = timestamp;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public long getContentHash() {
+        return contentHash;
+    }
+
+    public float[] getFeatures() {
+        return features.clone();
+    }
+
+    public int getLabel() {
+        return label;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    float[] features() {
+        return features;
+    }
+}
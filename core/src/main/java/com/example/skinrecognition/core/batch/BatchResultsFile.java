@@ -0,0 +1,167 @@
+package com.example.skinrecognition.core.batch;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 批量分析结果文件，每张图片一行，制表符分隔：
+ * <pre>
+ * 路径  内容哈希(16位十六进制)  类别  时间戳(毫秒)  特征1,特征2,...
+ * </pre>
+ * 每行写完立即 flush，进程被杀后重新打开时丢弃最后不完整的一行，
+ * 已写入的图片在续跑时跳过。
+ */
+public final class BatchResultsFile implements Closeable {
+
+    private final File file;
+    private final Set<String> completed = new HashSet<>();
+    private final Writer writer;
+
+    private BatchResultsFile(File file, List<BatchResult> existing) throws IOException {
+        this.file = file;
+        for (BatchResult result : existing) {
+            completed.add(result.getId());
+        }
+        writer = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(file, true), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 打开结果文件用于追加，文件不存在时创建。
+     */
+    public static BatchResultsFile open(File file) throws IOException {
+        List<BatchResult> existing = new ArrayList<>();
+        if (file.exists()) {
+            long validLength = read(file, existing);
+            if (validLength < file.length()) {
+                // 截掉上次中断时写了一半的行
+                try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                    raf.setLength(validLength);
+                }
+            }
+        }
+        return new BatchResultsFile(file, existing);
+    }
+
+    // 读取文件中所有完整的结果行
+    public static List<BatchResult> readAll(File file) throws IOException {
+        List<BatchResult> results = new ArrayList<>();
+        if (file.exists()) {
+            read(file, results);
+        }
+        return results;
+    }
+
+    // 返回完整行的总字节数；最后一行没有换行符或无法解析时视为不完整
+    private static long read(File file, List<BatchResult> out) throws IOException {
+        long valid = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(file), StandardCharsets.UTF_8))) {
+            StringBuilder line = new StringBuilder();
+            int c;
+            while ((c = reader.read()) != -1) {
+                if (c != '\n') {
+                    line.append((char) c);
+                    continue;
+                }
+                BatchResult result = parse(line.toString());
+                if (result == null) {
+                    break;
+                }
+                out.add(result);
+                valid += line.toString().getBytes(StandardCharsets.UTF_8).length + 1;
+                line.setLength(0);
+            }
+        }
+        return valid;
+    }
+
+    private static BatchResult parse(String line) {
+        String[] parts = line.split("\t", -1);
+        if (parts.length != 5) {
+            return null;
+        }
+        try {
+            String[] values = parts[4].split(",");
+            float[] features = new float[values.length];
+            for (int i = 0; i < values.length; i++) {
+                features[i] = Float.parseFloat(values[i]);
+            }
+            return new BatchResult(unescape(parts[0]), Long.parseUnsignedLong(parts[1], 16),
+                    features, Integer.parseInt(parts[2]), Long.parseLong(parts[3]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public synchronized boolean isCompleted(String id) {
+        return completed.contains(id);
+    }
+
+    public synchronized int getCompletedCount() {
+        return completed.size();
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    // 追加一行并立即写出
+    public synchronized void append(BatchResult result) throws IOException {
+        StringBuilder sb = new StringBuilder(128);
+        sb.append(escape(result.getId())).append('\t')
+                .append(String.format(Locale.ROOT, "%016x", result.getContentHash())).append('\t')
+                .append(result.getLabel()).append('\t')
+                .append(result.getTimestamp()).append('\t');
+        float[] features = result.features();
+        for (int i = 0; i < features.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(features[i]);
+        }
+        sb.append('\n');
+        writer.write(sb.toString());
+        writer.flush();
+        completed.add(result.getId());
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    // 路径中的反斜杠、制表符和换行需要转义
+    private static String escape(String s) {
+        return s.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n");
+    }
+
+    private static String unescape(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\\' && i + 1 < s.length()) {
+                char next = s.charAt(++i);
+                sb.append(next == 't' ? '\t' : next == 'n' ? '\n' : next);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
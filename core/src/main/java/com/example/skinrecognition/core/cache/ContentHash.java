@@ -0,0 +1,84 @@
+package com.example.skinrecognition.core.cache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 64 位内容哈希，按 8 字节一组处理，用于按图片字节内容做缓存键。
+ * 不是加密哈希，只用于区分不同的图片文件。
+ */
+public final class ContentHash {
+
+    private static final long SEED = 0x27D4EB2F165667C5L;
+    private static final long PRIME_1 = 0x9E3779B97F4A7C15L;
+    private static final long PRIME_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private ContentHash() {
+    }
+
+    public static long of(byte[] data) {
+        return of(data, 0, data.length);
+    }
+
+    public static long of(byte[] data, int offset, int length) {
+        ByteBuffer buf = ByteBuffer.wrap(data, offset, length).order(ByteOrder.LITTLE_ENDIAN);
+        long h = SEED;
+        int end = offset + length;
+        int i = offset;
+        for (; i + 8 <= end; i += 8) {
+            h = round(h, buf.getLong(i));
+        }
+        for (; i < end; i++) {
+            h = round(h, data[i] & 0xFFL);
+        }
+        return finish(h, length);
+    }
+
+    // 读完整个流并计算哈希，结果与 of(byte[]) 相同；不会关闭流
+    public static long of(InputStream in) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        ByteBuffer buf = ByteBuffer.wrap(buffer).order(ByteOrder.LITTLE_ENDIAN);
+        long h = SEED;
+        long total = 0;
+        while (true) {
+            // 尽量读满缓冲区，只有最后一块可能不足 8 字节的整数倍
+            int filled = 0;
+            int n;
+            while (filled < buffer.length && (n = in.read(buffer, filled, buffer.length - filled)) > 0) {
+                filled += n;
+            }
+            int i = 0;
+            for (; i + 8 <= filled; i += 8) {
+                h = round(h, buf.getLong(i));
+            }
+            for (; i < filled; i++) {
+                h = round(h, buffer[i] & 0xFFL);
+            }
+            total += filled;
+            if (filled < buffer.length) {
+                return finish(h, total);
+            }
+        }
+    }
+
+    private static long round(long h, long k) {
+        k *= PRIME_2;
+        k = Long.rotateLeft(k, 31);
+        k *= PRIME_1;
+        h ^= k;
+        return Long.rotateLeft(h, 27) * PRIME_1 + 0x52DCE729L;
+    }
+
+    private static long finish(long h, long length) {
+        h ^= length;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
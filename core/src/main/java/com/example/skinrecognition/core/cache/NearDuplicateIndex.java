@@ -0,0 +1,416 @@
+package com.example.skinrecognition.core.cache;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * 近似重复照片的索引：按 {@link PerceptualHash} 的汉明距离找到之前分析过的相似照片，直接复用它的特征和类别。
+ * <p>
+ * 内存中按多索引哈希组织：64 位哈希分成 4 段，每段 16 位各建一张桶表。两个哈希相差不超过 r 位时，
+ * 至少有一段相差不超过 r / 4 位，所以查找只需在每张表中探查与查询那一段相差这么多位以内的桶，
+ * 再对桶里的条目计算完整的距离。r / 4 超过 {@value #MAX_CHUNK_RADIUS} 时探查的桶太多，改为逐条比较。
+ * 模型版本和 variant（例如分析分辨率）不同的条目不会命中，平均颜色相差超过
+ * maxColourDifference 的也不会命中。
+ * <p>
+ * 条目追加写入单个文件（小端）：8 字节文件头（魔数 "SKND"、版本），之后每条记录依次为
+ * 哈希位、平均颜色、模型版本、variant、类别、特征数、特征，最后是前面内容的 CRC32。
+ * 打开时读入全部记录重建桶表，末尾写了一半或校验失败的记录会被截掉。条目数达到上限时重写文件，
+ * 只保留较新的一半。
+ * <p>
+ * 所有方法线程安全；打开、添加会读写文件，不要在主线程调用。
+ */
+public final class NearDuplicateIndex implements Closeable {
+
+    static final int MAGIC = 0x444E4B53; // "SKND"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    // 记录中特征之前的定长部分
+    private static final int FIXED_SIZE = 8 + 4 + 8 + 4 + 4 + 4;
+    private static final int MAX_FEATURES = 4096;
+    private static final int NONE = -1;
+    private static final int CHUNKS = 4;
+    private static final int CHUNK_BITS = 16;
+    private static final int MAX_CHUNK_RADIUS = 3;
+    // 16 位内不超过 MAX_CHUNK_RADIUS 位的所有掩码，按位数从小到大排列；PROBES[s] 为不超过 s 位的掩码个数
+    private static final int[] MASKS;
+    private static final int[] PROBES = new int[MAX_CHUNK_RADIUS + 1];
+
+    static {
+        int[] masks = new int[1 << CHUNK_BITS];
+        int n = 0;
+        for (int bits = 0; bits <= MAX_CHUNK_RADIUS; bits++) {
+            for (int mask = 0; mask < masks.length; mask++) {
+                if (Integer.bitCount(mask) == bits) {
+                    masks[n++] = mask;
+                }
+            }
+            PROBES[bits] = n;
+        }
+        MASKS = Arrays.copyOf(masks, n);
+    }
+
+    /** 查找结果：最相近的条目。 */
+    public static final class Match {
+        private final float[] features;
+        private final int label;
+        private final int distance;
+
+        Match(float[] features, int label, int distance) {
+            this.features = features;
+            this.label = label;
+            this.distance = distance;
+        }
+
+        public float[] getFeatures() {
+            return features.clone();
+        }
+
+        public int getLabel() {
+            return label;
+        }
+
+        // 与查询的汉明距离
+        public int getDistance() {
+            return distance;
+        }
+    }
+
+    private final File file;
+    private FileChannel channel;
+    private final int maxEntries;
+    private final int maxColourDifference;
+    private final CRC32 crc = new CRC32();
+
+    private int size;
+    private long[] hashes = new long[16];
+    private int[] colours = new int[16];
+    private long[] versions = new long[16];
+    private int[] variants = new int[16];
+    private int[] labels = new int[16];
+    private float[][] features = new float[16][];
+    // 每段的桶表：heads[c][段的值] 为最新的条目，next[c][i] 为同一桶中更早的条目
+    private final int[][] heads = new int[CHUNKS][1 << CHUNK_BITS];
+    private int[][] next = new int[CHUNKS][16];
+
+    private long hits;
+    private long misses;
+    private long compactions;
+    private boolean closed;
+
+    private NearDuplicateIndex(File file, FileChannel channel, int maxEntries, int maxColourDifference) {
+        this.file = file;
+        this.channel = channel;
+        this.maxEntries = maxEntries;
+        this.maxColourDifference = maxColourDifference;
+        for (int[] table : heads) {
+            Arrays.fill(table, NONE);
+        }
+    }
+
+    /**
+     * 打开或新建索引文件。
+     *
+     * @param maxEntries          条目数上限，达到后只保留较新的一半
+     * @param maxColourDifference 平均颜色各通道之差的上限（0..255）
+     */
+    public static NearDuplicateIndex open(File file, int maxEntries, int maxColourDifference) throws IOException {
+        if (maxEntries < 2 || maxColourDifference < 0) {
+            throw new IllegalArgumentException("参数无效: maxEntries=" + maxEntries
+                    + ", maxColourDifference=" + maxColourDifference);
+        }
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("无法创建目录: " + dir);
+        }
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        NearDuplicateIndex index = new NearDuplicateIndex(file, channel, maxEntries, maxColourDifference);
+        try {
+            index.load();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return index;
+    }
+
+    private void load() throws IOException {
+        long length = channel.size();
+        if (length < HEADER_SIZE) {
+            // 新文件，或者文件头都没写完
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).flip();
+            channel.truncate(0);
+            writeFully(header, 0);
+            return;
+        }
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("索引文件过大: " + file);
+        }
+        ByteBuffer buf = ByteBuffer.allocate((int) length).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(buf, 0);
+        buf.flip();
+        if (buf.getInt() != MAGIC) {
+            throw new IOException("不是近似重复索引文件: " + file);
+        }
+        int version = buf.getInt();
+        if (version != VERSION) {
+            throw new IOException("不支持的索引文件版本: " + version);
+        }
+        int end = HEADER_SIZE;
+        while (buf.remaining() >= FIXED_SIZE + 4) {
+            int start = buf.position();
+            long bits = buf.getLong();
+            int colour = buf.getInt();
+            long modelVersion = buf.getLong();
+            int variant = buf.getInt();
+            int label = buf.getInt();
+            int count = buf.getInt();
+            if (count < 0 || count > MAX_FEATURES || buf.remaining() < 4 * count + 4) {
+                break;
+            }
+            float[] values = new float[count];
+            for (int i = 0; i < count; i++) {
+                values[i] = buf.getFloat();
+            }
+            crc.reset();
+            crc.update(buf.array(), start, FIXED_SIZE + 4 * count);
+            if ((int) crc.getValue() != buf.getInt()) {
+                break;
+            }
+            insert(bits, colour, modelVersion, variant, label, values);
+            end = buf.position();
+        }
+        if (length != end) {
+            channel.truncate(end);
+        }
+    }
+
+    /**
+     * 查找 maxDistance 位以内、模型版本和 variant 相同、颜色也接近的最相近条目，没有时返回 null。
+     * 距离相同时返回较新的条目。
+     */
+    public synchronized Match find(PerceptualHash hash, long modelVersion, int variant, int maxDistance) {
+        long bits = hash.getBits();
+        int colour = hash.getColour();
+        int best = NONE;
+        int bestDistance = Integer.MAX_VALUE;
+        int chunkRadius = maxDistance / CHUNKS;
+        if (maxDistance < 0) {
+            misses++;
+            return null;
+        }
+        if (chunkRadius > MAX_CHUNK_RADIUS) {
+            for (int i = 0; i < size; i++) {
+                int d = Long.bitCount(bits ^ hashes[i]);
+                if (d <= maxDistance && (d < bestDistance || d == bestDistance && i > best)
+                        && matches(i, modelVersion, variant, colour)) {
+                    best = i;
+                    bestDistance = d;
+                }
+            }
+        } else {
+            int probes = PROBES[chunkRadius];
+            for (int c = 0; c < CHUNKS; c++) {
+                int key = (int) (bits >>> (c * CHUNK_BITS)) & 0xFFFF;
+                int[] table = heads[c];
+                int[] chain = next[c];
+                for (int p = 0; p < probes; p++) {
+                    // 同一条目可能从几段都被找到，重复比较不影响结果
+                    for (int i = table[key ^ MASKS[p]]; i != NONE; i = chain[i]) {
+                        int d = Long.bitCount(bits ^ hashes[i]);
+                        if (d <= maxDistance && (d < bestDistance || d == bestDistance && i > best)
+                                && matches(i, modelVersion, variant, colour)) {
+                            best = i;
+                            bestDistance = d;
+                        }
+                    }
+                }
+            }
+        }
+        if (best == NONE) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return new Match(features[best].clone(), labels[best], bestDistance);
+    }
+
+    private boolean matches(int i, long modelVersion, int variant, int colour) {
+        return versions[i] == modelVersion && variants[i] == variant
+                && PerceptualHash.colourDifference(colours[i], colour) <= maxColourDifference;
+    }
+
+    /** 添加一张已分析的照片，同时追加到文件。 */
+    public synchronized void add(PerceptualHash hash, long modelVersion, int variant, float[] values, int label)
+            throws IOException {
+        checkOpen();
+        if (values.length > MAX_FEATURES) {
+            throw new IllegalArgumentException("特征数过多: " + values.length);
+        }
+        if (size >= maxEntries) {
+            compact(maxEntries / 2);
+        }
+        float[] copy = values.clone();
+        ByteBuffer buf = ByteBuffer.allocate(FIXED_SIZE + 4 * copy.length + 4).order(ByteOrder.LITTLE_ENDIAN);
+        encode(buf, hash.getBits(), hash.getColour(), modelVersion, variant, label, copy);
+        buf.flip();
+        writeFully(buf, channel.size());
+        insert(hash.getBits(), hash.getColour(), modelVersion, variant, label, copy);
+    }
+
+    private void encode(ByteBuffer buf, long bits, int colour, long modelVersion, int variant, int label,
+                        float[] values) {
+        int start = buf.position();
+        buf.putLong(bits).putInt(colour).putLong(modelVersion).putInt(variant).putInt(label).putInt(values.length);
+        for (float v : values) {
+            buf.putFloat(v);
+        }
+        crc.reset();
+        crc.update(buf.array(), start, buf.position() - start);
+        buf.putInt((int) crc.getValue());
+    }
+
+    // 只保留最新的 keep 条：写入临时文件后改名，再按原来的顺序重建桶表
+    private void compact(int keep) throws IOException {
+        int from = size - keep;
+        int bytes = HEADER_SIZE;
+        for (int i = from; i < size; i++) {
+            bytes += FIXED_SIZE + 4 * features[i].length + 4;
+        }
+        ByteBuffer buf = ByteBuffer.allocate(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        buf.putInt(MAGIC).putInt(VERSION);
+        for (int i = from; i < size; i++) {
+            encode(buf, hashes[i], colours[i], versions[i], variants[i], labels[i], features[i]);
+        }
+        buf.flip();
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buf.hasRemaining()) {
+                out.write(buf);
+            }
+            out.force(false);
+        }
+        channel.close();
+        if (!tmp.renameTo(file) && (!file.delete() || !tmp.renameTo(file))) {
+            // 部分文件系统不能覆盖已有文件；改名失败时保留原文件，条目照旧
+            tmp.delete();
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            throw new IOException("无法重写索引文件: " + file);
+        }
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        long[] oldHashes = hashes;
+        int[] oldColours = colours;
+        long[] oldVersions = versions;
+        int[] oldVariants = variants;
+        int[] oldLabels = labels;
+        float[][] oldFeatures = features;
+        int oldSize = size;
+        size = 0;
+        hashes = new long[oldHashes.length];
+        colours = new int[oldHashes.length];
+        versions = new long[oldHashes.length];
+        variants = new int[oldHashes.length];
+        labels = new int[oldHashes.length];
+        features = new float[oldHashes.length][];
+        for (int[] table : heads) {
+            Arrays.fill(table, NONE);
+        }
+        for (int i = from; i < oldSize; i++) {
+            insert(oldHashes[i], oldColours[i], oldVersions[i], oldVariants[i], oldLabels[i], oldFeatures[i]);
+        }
+        compactions++;
+    }
+
+    // 把一个条目加入各段的桶表
+    private void insert(long bits, int colour, long modelVersion, int variant, int label, float[] values) {
+        if (size == hashes.length) {
+            int capacity = size * 2;
+            hashes = Arrays.copyOf(hashes, capacity);
+            colours = Arrays.copyOf(colours, capacity);
+            versions = Arrays.copyOf(versions, capacity);
+            variants = Arrays.copyOf(variants, capacity);
+            labels = Arrays.copyOf(labels, capacity);
+            features = Arrays.copyOf(features, capacity);
+            for (int c = 0; c < CHUNKS; c++) {
+                next[c] = Arrays.copyOf(next[c], capacity);
+            }
+        }
+        int n = size++;
+        hashes[n] = bits;
+        colours[n] = colour;
+        versions[n] = modelVersion;
+        variants[n] = variant;
+        labels[n] = label;
+        features[n] = values;
+        for (int c = 0; c < CHUNKS; c++) {
+            int key = (int) (bits >>> (c * CHUNK_BITS)) & 0xFFFF;
+            next[c][n] = heads[c][key];
+            heads[c][key] = n;
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    // 因条目数达到上限而重写文件的次数
+    public synchronized long getCompactionCount() {
+        return compactions;
+    }
+
+    private void checkOpen() throws IOException {
+        if (closed) {
+            throw new IOException("索引已关闭: " + file);
+        }
+    }
+
+    private void readFully(ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = channel.read(buf, position);
+            if (n < 0) {
+                throw new IOException("文件意外结束: " + file);
+            }
+            position += n;
+        }
+    }
+
+    private void writeFully(ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            position += channel.write(buf, position);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            channel.close();
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "NearDuplicateIndex{size=" + size
+                + ", hits=" + hits
+                + ", misses=" + misses
+                + ", compactions=" + compactions + "}";
+    }
+}
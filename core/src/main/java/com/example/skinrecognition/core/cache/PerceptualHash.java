@@ -0,0 +1,128 @@
+package com.example.skinrecognition.core.cache;
+
+import com.example.skinrecognition.core.image.ArgbImage;
+
+import java.util.Locale;
+
+/**
+ * 感知哈希：按内容而不是字节区分图片，连拍中几乎相同的照片哈希只差几位。
+ * <p>
+ * 位为 64 位 dHash：把亮度按 9x8 的格子平均，每行相邻两格比较明暗，左边更亮时置位。
+ * 皮肤特写大多明暗平缓，亮度梯度很小的格子在不同照片之间容易碰巧相同，
+ * 所以同时记下整图的平均颜色，查找时两者都接近才算近似重复。
+ */
+public final class PerceptualHash {
+
+    public static final int BITS = 64;
+    private static final int COLS = 9;
+    private static final int ROWS = 8;
+
+    private final long bits;
+    private final int colour;
+
+    public PerceptualHash(long bits, int colour) {
+        this.bits = bits;
+        this.colour = colour & 0xFFFFFF;
+    }
+
+    public static PerceptualHash of(ArgbImage image) {
+        return of(image.getPixels(), image.getWidth(), image.getHeight());
+    }
+
+    /** 一次遍历像素，同时累加各格亮度和整图 RGB。 */
+    public static PerceptualHash of(int[] argb, int width, int height) {
+        if (width <= 0 || height <= 0 || argb.length < width * height) {
+            throw new IllegalArgumentException("图像尺寸无效: " + width + "x" + height);
+        }
+        // 各格子列的起点；图比格子还小时有的格子没有像素，与它相邻的位不置位
+        int[] columnStart = new int[COLS + 1];
+        for (int c = 0; c <= COLS; c++) {
+            columnStart[c] = (int) ((long) c * width / COLS);
+        }
+        long[] sums = new long[COLS * ROWS];
+        long[] counts = new long[COLS * ROWS];
+        long red = 0;
+        long green = 0;
+        long blue = 0;
+        for (int y = 0; y < height; y++) {
+            int row = (int) ((long) y * ROWS / height) * COLS;
+            for (int c = 0; c < COLS; c++) {
+                // 每个格子在这一行上是连续的一段，分段累加
+                int r = 0;
+                int g = 0;
+                int b = 0;
+                for (int k = y * width + columnStart[c], end = y * width + columnStart[c + 1]; k < end; k++) {
+                    int p = argb[k];
+                    r += (p >> 16) & 0xFF;
+                    g += (p >> 8) & 0xFF;
+                    b += p & 0xFF;
+                }
+                red += r;
+                green += g;
+                blue += b;
+                // BT.601 亮度，整数近似（放大 256 倍）；按段的 RGB 和计算，与逐像素相加相同
+                sums[row + c] += 77L * r + 150L * g + 29L * b;
+                counts[row + c] += columnStart[c + 1] - columnStart[c];
+            }
+        }
+        long bits = 0;
+        for (int r = 0; r < ROWS; r++) {
+            for (int c = 0; c < COLS - 1; c++) {
+                int left = r * COLS + c;
+                // 比较两格的平均值，交叉相乘避免除法
+                if (counts[left] > 0 && counts[left + 1] > 0
+                        && sums[left] * counts[left + 1] > sums[left + 1] * counts[left]) {
+                    bits |= 1L << (r * (COLS - 1) + c);
+                }
+            }
+        }
+        long n = (long) width * height;
+        int colour = (int) (red / n) << 16 | (int) (green / n) << 8 | (int) (blue / n);
+        return new PerceptualHash(bits, colour);
+    }
+
+    public long getBits() {
+        return bits;
+    }
+
+    // 整图的平均颜色，0xRRGGBB
+    public int getColour() {
+        return colour;
+    }
+
+    // 两个哈希不同的位数（汉明距离）
+    public int distance(PerceptualHash other) {
+        return Long.bitCount(bits ^ other.bits);
+    }
+
+    // 平均颜色各通道之差的最大值
+    public int colourDifference(PerceptualHash other) {
+        return colourDifference(colour, other.colour);
+    }
+
+    static int colourDifference(int a, int b) {
+        int dr = Math.abs(((a >> 16) & 0xFF) - ((b >> 16) & 0xFF));
+        int dg = Math.abs(((a >> 8) & 0xFF) - ((b >> 8) & 0xFF));
+        int db = Math.abs((a & 0xFF) - (b & 0xFF));
+        return Math.max(dr, Math.max(dg, db));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof PerceptualHash)) {
+            return false;
+        }
+        PerceptualHash other = (PerceptualHash) o;
+        return bits == other.bits && colour == other.colour;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(bits) * 31 + colour;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%016x/%06x", bits, colour);
+    }
+}
@@ -0,0 +1,293 @@
+package com.example.skinrecognition.core.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 两级预测结果缓存：内存 LRU（按字节数淘汰）+ 缓存目录中的小文件。
+ * <p>
+ * 键由图片内容哈希、模型指纹和分析分辨率组成，模型变化后旧结果自然不再命中，
+ * 模型加载完成后调用 {@link #retainModel} 删除其它模型版本的条目。所有方法线程安全，
+ * 磁盘读写在调用线程上执行，不要在主线程调用。
+ */
+public final class PredictionCache {
+
+    private static final String SUFFIX = ".pred";
+    private static final int FILE_VERSION = 1;
+    // 每个内存条目除特征数组外的估计开销
+    private static final int ENTRY_OVERHEAD = 96;
+
+    /** 缓存键。 */
+    public static final class Key {
+        final long contentHash;
+        final long modelVersion;
+        final int variant;
+
+        /**
+         * @param variant 影响结果的其它参数（例如分析分辨率）
+         */
+        public Key(long contentHash, long modelVersion, int variant) {
+            this.contentHash = contentHash;
+            this.modelVersion = modelVersion;
+            this.variant = variant;
+        }
+
+        String fileName() {
+            return String.format(Locale.ROOT, "%016x_%016x_%d%s", contentHash, modelVersion, variant, SUFFIX);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return contentHash == other.contentHash && modelVersion == other.modelVersion
+                    && variant == other.variant;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(contentHash) * 31 + Long.hashCode(modelVersion) * 17 + variant;
+        }
+    }
+
+    /** 缓存的预测结果：原始特征和类别下标。 */
+    public static final class Entry {
+        private final float[] features;
+        private final int label;
+
+        public Entry(float[] features, int label) {
+            this.features = features.clone();
+            this.label = label;
+        }
+
+        public float[] getFeatures() {
+            return features.clone();
+        }
+
+        public int getLabel() {
+            return label;
+        }
+
+        long sizeInBytes() {
+            return ENTRY_OVERHEAD + 4L * features.length;
+        }
+    }
+
+    private final LinkedHashMap<Key, Entry> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private final long maxMemoryBytes;
+    private long memoryBytes;
+    private final File directory;
+    private final int maxDiskEntries;
+
+    private long memoryHits;
+    private long diskHits;
+    private long misses;
+    private long evictions;
+    private long diskEvictions;
+    private long invalidated;
+
+    /**
+     * @param directory 磁盘缓存目录，为 null 时只使用内存缓存
+     */
+    public PredictionCache(long maxMemoryBytes, File directory, int maxDiskEntries) {
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.directory = directory;
+        this.maxDiskEntries = maxDiskEntries;
+        if (directory != null) {
+            directory.mkdirs();
+        }
+    }
+
+    public synchronized Entry get(Key key) {
+        Entry entry = memory.get(key);
+        if (entry != null) {
+            memoryHits++;
+            return entry;
+        }
+        entry = readDisk(key);
+        if (entry != null) {
+            diskHits++;
+            putMemory(key, entry);
+            return entry;
+        }
+        misses++;
+        return null;
+    }
+
+    public synchronized void put(Key key, Entry entry) {
+        putMemory(key, entry);
+        writeDisk(key, entry);
+    }
+
+    // 删除所有缓存
+    public synchronized void clear() {
+        memory.clear();
+        memoryBytes = 0;
+        for (File file : listEntries()) {
+            file.delete();
+        }
+    }
+
+    private void putMemory(Key key, Entry entry) {
+        Entry old = memory.put(key, entry);
+        if (old != null) {
+            memoryBytes -= old.sizeInBytes();
+        }
+        memoryBytes += entry.sizeInBytes();
+        Iterator<Map.Entry<Key, Entry>> it = memory.entrySet().iterator();
+        while (memoryBytes > maxMemoryBytes && it.hasNext()) {
+            Map.Entry<Key, Entry> eldest = it.next();
+            if (eldest.getKey().equals(key)) {
+                continue;
+            }
+            memoryBytes -= eldest.getValue().sizeInBytes();
+            it.remove();
+            evictions++;
+        }
+    }
+
+    private Entry readDisk(Key key) {
+        if (directory == null) {
+            return null;
+        }
+        File file = new File(directory, key.fileName());
+        if (!file.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FILE_VERSION) {
+                file.delete();
+                return null;
+            }
+            int label = in.readInt();
+            float[] features = new float[in.readInt()];
+            for (int i = 0; i < features.length; i++) {
+                features[i] = in.readFloat();
+            }
+            // 更新访问时间，磁盘淘汰按最近使用顺序
+            file.setLastModified(System.currentTimeMillis());
+            return new Entry(features, label);
+        } catch (IOException e) {
+            file.delete();
+            return null;
+        }
+    }
+
+    private void writeDisk(Key key, Entry entry) {
+        if (directory == null) {
+            return;
+        }
+        File file = new File(directory, key.fileName());
+        File tmp = new File(directory, key.fileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(FILE_VERSION);
+            out.writeInt(entry.label);
+            out.writeInt(entry.features.length);
+            for (float f : entry.features) {
+                out.writeFloat(f);
+            }
+        } catch (IOException e) {
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            return;
+        }
+        trimDisk();
+    }
+
+    private void trimDisk() {
+        File[] files = listEntries();
+        if (files.length <= maxDiskEntries) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (int i = 0; i < files.length - maxDiskEntries; i++) {
+            if (files[i].delete()) {
+                diskEvictions++;
+            }
+        }
+    }
+
+    // 只保留指定模型版本的结果，其它版本的内存和磁盘条目全部删除
+    public synchronized void retainModel(long modelVersion) {
+        Iterator<Map.Entry<Key, Entry>> it = memory.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, Entry> e = it.next();
+            if (e.getKey().modelVersion != modelVersion) {
+                memoryBytes -= e.getValue().sizeInBytes();
+                it.remove();
+                invalidated++;
+            }
+        }
+        String marker = String.format(Locale.ROOT, "_%016x_", modelVersion);
+        for (File file : listEntries()) {
+            if (!file.getName().contains(marker) && file.delete()) {
+                invalidated++;
+            }
+        }
+    }
+
+    private File[] listEntries() {
+        if (directory == null) {
+            return new File[0];
+        }
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(SUFFIX));
+        return files != null ? files : new File[0];
+    }
+
+    public synchronized long getMemoryHitCount() {
+        return memoryHits;
+    }
+
+    public synchronized long getDiskHitCount() {
+        return diskHits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    public synchronized long getDiskEvictionCount() {
+        return diskEvictions;
+    }
+
+    // 因模型版本变化被删除的条目数
+    public synchronized long getInvalidatedCount() {
+        return invalidated;
+    }
+
+    public synchronized long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "PredictionCache{memoryHits=" + memoryHits
+                + ", diskHits=" + diskHits
+                + ", misses=" + misses
+                + ", evictions=" + evictions
+                + ", diskEvictions=" + diskEvictions
+                + ", invalidated=" + invalidated
+                + ", memoryBytes=" + memoryBytes + "}";
+    }
+}
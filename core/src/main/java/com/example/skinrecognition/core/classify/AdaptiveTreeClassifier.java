@@ -0,0 +1,235 @@
+package com.example.skinrecognition.core.classify;
+
+import com.example.skinrecognition.core.exec.CancellationToken;
+import com.example.skinrecognition.core.feature.Descriptor;
+import com.example.skinrecognition.core.feature.DescriptorExtractor;
+import com.example.skinrecognition.core.feature.FeatureLayout;
+import com.example.skinrecognition.core.image.ArgbImage;
+import com.example.skinrecognition.core.metrics.PipelineMetrics;
+import com.example.skinrecognition.core.model.EnsembleModel;
+import com.example.skinrecognition.core.model.TreeModel;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 由粗到细的自适应推理：先在间隔较大的像素格点上估计特征，决策在采样误差范围内稳定时直接返回，
+ * 否则在更密的格点上补充新的像素（已读取的像素不再重复）；所有级别都不稳定时交给
+ * {@link TreeClassifier} 做完整提取，结果与它完全相同。
+ * <p>
+ * 稳定的判定见 {@link TreeModel#predictIfStable}：路径上每个分裂处，特征与阈值的距离都要超过
+ * confidence 倍的标准误差（{@link Descriptor#standardErrors}）。格点采样不是独立随机抽样，
+ * 标准误差只是近似，所以每 auditInterval 次提前返回中抽一次同时做完整推理，统计两者的一致率；
+ * 一致率低于 targetAgreement 时放大 confidence 并重新统计。各级次数和抽查结果同时记入
+ * {@link PipelineMetrics}。统计和调整只在同一实例内累积，应当在进程内共用一个实例。
+ * <p>
+ * 线程安全，可以与 {@link TreeClassifier} 一样在多个分析之间共享。
+ */
+public final class AdaptiveTreeClassifier implements Classifier {
+
+    // 在 200x200 的分析尺寸上分别对应 25x25 和 50x50 的格点
+    private static final int[] DEFAULT_STRIDES = {8, 4};
+    private static final float DEFAULT_CONFIDENCE = 3f;
+    private static final float DEFAULT_TARGET_AGREEMENT = 0.99f;
+    private static final int DEFAULT_AUDIT_INTERVAL = 16;
+    // 一致率至少基于这么多次抽查才会调整 confidence
+    private static final int MIN_AUDITS = 20;
+    private static final float CONFIDENCE_STEP = 1.5f;
+    private static final float MAX_CONFIDENCE = 64f;
+
+    private final TreeClassifier full;
+    private final TreeModel tree;
+    private final EnsembleModel ensemble;
+    private final FeatureLayout layout;
+    private final int[] strides;
+    private final float targetAgreement;
+    private final int auditInterval;
+    private final PipelineMetrics metrics;
+    private volatile float confidence;
+    // 各级提前返回的次数，最后一项为完整提取的次数
+    private final AtomicLongArray levelCounts;
+    private long earlyCount;
+    private long audited;
+    private long agreed;
+
+    public AdaptiveTreeClassifier(TreeClassifier full) {
+        this(full, null);
+    }
+
+    // 默认的两级采样和抽查设置
+    public AdaptiveTreeClassifier(TreeClassifier full, PipelineMetrics metrics) {
+        this(full, DEFAULT_STRIDES, DEFAULT_CONFIDENCE, DEFAULT_TARGET_AGREEMENT, DEFAULT_AUDIT_INTERVAL, metrics);
+    }
+
+    /**
+     * @param strides         由粗到细的格点间隔，每一项必须是下一项的倍数，且都大于 1；
+     *                        最多 {@link PipelineMetrics#MAX_ADAPTIVE_LEVELS} 级
+     * @param confidence      初始的误差倍数，越大越保守
+     * @param targetAgreement 提前返回的结果与完整推理一致的比例下限
+     * @param auditInterval   每多少次提前返回抽查一次，0 表示不抽查
+     * @param metrics         记录特征提取和预测的耗时，可以为 null
+     */
+    public AdaptiveTreeClassifier(TreeClassifier full, int[] strides, float confidence, float targetAgreement,
+                                  int auditInterval, PipelineMetrics metrics) {
+        if (strides.length == 0 || strides.length > PipelineMetrics.MAX_ADAPTIVE_LEVELS) {
+            throw new IllegalArgumentException("采样级数应在 1 到 " + PipelineMetrics.MAX_ADAPTIVE_LEVELS
+                    + " 之间: " + strides.length);
+        }
+        for (int i = 0; i < strides.length; i++) {
+            if (strides[i] < 2 || (i > 0 && (strides[i - 1] <= strides[i] || strides[i - 1] % strides[i] != 0))) {
+                throw new IllegalArgumentException("采样间隔无效: " + Arrays.toString(strides));
+            }
+        }
+        if (!(confidence > 0) || !(targetAgreement >= 0 && targetAgreement <= 1) || auditInterval < 0) {
+            throw new IllegalArgumentException("参数无效: confidence=" + confidence + ", targetAgreement="
+                    + targetAgreement + ", auditInterval=" + auditInterval);
+        }
+        this.full = full;
+        this.tree = full.getTree();
+        this.ensemble = full.getEnsemble();
+        this.layout = tree.getLayout();
+        this.strides = strides.clone();
+        this.confidence = confidence;
+        this.targetAgreement = targetAgreement;
+        this.auditInterval = auditInterval;
+        this.metrics = metrics;
+        this.levelCounts = new AtomicLongArray(strides.length + 1);
+    }
+
+    // 不稳定时使用的完整推理
+    public TreeClassifier getFull() {
+        return full;
+    }
+
+    @Override
+    public String getName() {
+        return "adaptive-" + full.getName();
+    }
+
+    @Override
+    public int getClassCount() {
+        return full.getClassCount();
+    }
+
+    @Override
+    public int getInputSize() {
+        return full.getInputSize();
+    }
+
+    // 版本与完整推理相同，模型更新时按版本清理缓存能保留当前模型的条目
+    @Override
+    public long getVersion() {
+        return full.getVersion();
+    }
+
+    // 提前返回时的特征是估计值，按采样间隔区分，不能与完整提取的特征共用缓存
+    @Override
+    public int getVariant() {
+        return Arrays.hashCode(strides);
+    }
+
+    @Override
+    public Classification classify(ArgbImage image, CancellationToken token) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        if (width < 3 || height < 3) {
+            return full.classify(image, token);
+        }
+        long start = System.nanoTime();
+        double population = (double) (width - 2) * (height - 2);
+        DescriptorExtractor extractor = new DescriptorExtractor();
+        Descriptor descriptor = new Descriptor();
+        float[] features = new float[layout.getFeatureCount()];
+        float[] errors = new float[features.length];
+        float[] proba = new float[tree.getClassCount()];
+        float z = confidence;
+        int coarser = 0;
+        for (int level = 0; level < strides.length; level++) {
+            extractor.sample(image.getPixels(), width, height, strides[level], coarser, descriptor, token);
+            coarser = strides[level];
+            descriptor.project(layout, features, 0);
+            descriptor.standardErrors(layout, population, errors, 0);
+            for (int f = 0; f < errors.length; f++) {
+                errors[f] *= z;
+            }
+            int label;
+            if (ensemble != null) {
+                label = ensemble.predictProbaIfStable(features, errors, proba);
+            } else {
+                label = tree.predictIfStable(features, errors);
+                if (label != TreeModel.UNSTABLE) {
+                    proba[label] = 1f;
+                }
+            }
+            if (label != TreeModel.UNSTABLE) {
+                if (metrics != null) {
+                    metrics.lap(PipelineMetrics.Stage.EXTRACT, start);
+                }
+                levelCounts.incrementAndGet(level);
+                if (metrics != null) {
+                    metrics.recordAdaptiveLevel(level);
+                }
+                if (shouldAudit()) {
+                    Classification reference = full.classify(image, token);
+                    recordAudit(reference.getLabel() == label);
+                    return reference;
+                }
+                return new Classification(label, proba, features);
+            }
+        }
+        levelCounts.incrementAndGet(strides.length);
+        if (metrics != null) {
+            metrics.recordAdaptiveLevel(strides.length);
+        }
+        return full.classify(image, token);
+    }
+
+    private synchronized boolean shouldAudit() {
+        return auditInterval > 0 && ++earlyCount % auditInterval == 0;
+    }
+
+    private synchronized void recordAudit(boolean agree) {
+        audited++;
+        if (agree) {
+            agreed++;
+        }
+        if (audited >= MIN_AUDITS && agreed < targetAgreement * audited && confidence < MAX_CONFIDENCE) {
+            // 调整后之前的一致率不再代表当前设置，重新统计
+            confidence = Math.min(confidence * CONFIDENCE_STEP, MAX_CONFIDENCE);
+            audited = 0;
+            agreed = 0;
+        }
+        if (metrics != null) {
+            metrics.recordAdaptiveAudit(agree, confidence);
+        }
+    }
+
+    public float getConfidence() {
+        return confidence;
+    }
+
+    // 当前设置下抽查的一致率，还没有抽查时为 NaN
+    public synchronized float getAgreement() {
+        return audited == 0 ? Float.NaN : (float) agreed / audited;
+    }
+
+    public synchronized long getAuditCount() {
+        return audited;
+    }
+
+    /**
+     * 各级的结果次数：下标 i &lt; 级数时为在第 i 级提前返回的次数，最后一项为完整提取的次数。
+     */
+    public long[] getLevelCounts() {
+        long[] counts = new long[levelCounts.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = levelCounts.get(i);
+        }
+        return counts;
+    }
+
+    @Override
+    public void close() {
+        full.close();
+    }
+}
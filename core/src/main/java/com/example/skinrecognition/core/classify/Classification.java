@@ -0,0 +1,39 @@
+package com.example.skinrecognition.core.classify;
+
+/**
+ * 一次分类的结果：类别下标、各类别概率，以及树模型使用的原始特征（CNN 后端为 null）。
+ */
+public final class Classification {
+
+    private final int label;
+    private final float[] probabilities;
+    private final float[] features;
+
+    public Classification(int label, float[] probabilities, float[] features) {
+        if (label < 0 || label >= probabilities.length) {
+            throw new IllegalArgumentException("类别越界: " + label);
+        }
+        this.label = label;
+        this.probabilities = probabilities;
+        this.features = features;
+    }
+
+    public int getLabel() {
+        return label;
+    }
+
+    // 直接返回内部数组，不复制
+    public float[] getProbabilities() {
+        return probabilities;
+    }
+
+    // 结果类别的概率
+    public float getConfidence() {
+        return probabilities[label];
+    }
+
+    // 原始特征，没有时返回 null；直接返回内部数组
+    public float[] getFeatures() {
+        return features;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.skinrecognition.core.classify;
+
+import com.example.skinrecognition.core.exec.CancellationToken;
+import com.example.skinrecognition.core.image.ArgbImage;
+
+/**
+ * 图片分类后端。目前有两种实现：
+ * <ul>
+ * <li>{@link TreeClassifier}：手工 HSV/LBP 特征 + 决策树（或集成模型）</li>
+ * <li>{@link CnnClassifier}：int8 量化的卷积网络，只在 CPU 上运行</li>
+ * </ul>
+ * 调用方先把图片缩放到 {@link #getInputSize()}，再调用 {@link #classify}。
+ * 实现都是线程安全的。
+ */
+public interface Classifier extends AutoCloseable {
+
+    // 后端名字，用于日志和界面
+    String getName();
+
+    int getClassCount();
+
+    // 建议的输入边长，0 表示不缩放、直接使用原图
+    int getInputSize();
+
+    // 模型版本（参数的哈希），用作缓存键的一部分
+    long getVersion();
+
+    // 同一模型版本下影响结果的推理设置，与版本一起用作缓存键；默认 0 表示没有
+    default int getVariant() {
+        return 0;
+    }
+
+    /**
+     * 对一张图片分类。
+     *
+     * @throws java.util.concurrent.CancellationException 已取消时
+     */
+    Classification classify(ArgbImage image, CancellationToken token);
+
+    // 释放后端持有的线程等资源，默认什么也不做
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.skinrecognition.core.classify;
+
+/**
+ * 分类后端，每个模型可以单独选择。
+ */
+public enum ClassifierBackend {
+    // 手工 HSV/LBP 特征 + 决策树（有集成模型时用集成模型）
+    TREE,
+    // int8 量化 CNN，只在 CPU 上运行
+    CNN;
+
+    // 按名字解析，无法识别时返回默认的 TREE
+    public static ClassifierBackend fromName(String name) {
+        if (name != null) {
+            for (ClassifierBackend value : values()) {
+                if (value.name().equalsIgnoreCase(name)) {
+                    return value;
+                }
+            }
+        }
+        return TREE;
+    }
+}
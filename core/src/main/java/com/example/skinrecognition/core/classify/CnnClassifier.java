@@ -0,0 +1,303 @@
+package com.example.skinrecognition.core.classify;
+
+import com.example.skinrecognition.core.exec.CancellationToken;
+import com.example.skinrecognition.core.image.ArgbImage;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link QuantizedCnn} 的 CPU 执行器，不依赖 GPU 或 NNAPI。
+ * <p>
+ * 输入张量缓冲区和中间激活值的内存（两块交替使用的区域）在构造时一次分配，
+ * 之后每次推理只复用，不再按层分配数组。卷积层按输出行切分到 threads 个线程上计算，
+ * threads 为 1 时完全在调用线程执行；不同线程数的结果逐位相同。
+ * <p>
+ * 同一实例的 {@link #classify} 串行执行（缓冲区只有一份），需要并发推理时创建多个实例。
+ * {@link #close} 等进行中的推理结束后停止工作线程，之后的推理在调用线程完成，结果不变。
+ */
+public final class CnnClassifier implements Classifier {
+
+    private static final AtomicInteger POOL_ID = new AtomicInteger();
+
+    private final QuantizedCnn model;
+    private final int threads;
+    // threads - 1 个工作线程，调用线程自己也计算一段
+    private final ExecutorService workers;
+    // 输入张量：inputSize x inputSize x 3 的 RGB 字节
+    private final byte[] input;
+    // 中间激活值：[0, maxActivation) 与 [maxActivation, 2 * maxActivation) 交替作为输入和输出
+    private final byte[] arena;
+    private final float[] logits;
+    private final Future<?>[] pending;
+    // close 之后不再向工作线程提交任务；与 classify 一样在本对象的锁内访问
+    private boolean closed;
+
+    public CnnClassifier(QuantizedCnn model, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads 必须为正数: " + threads);
+        }
+        this.model = model;
+        this.threads = threads;
+        int size = model.getInputSize();
+        this.input = new byte[size * size * QuantizedCnn.INPUT_CHANNELS];
+        this.arena = new byte[2 * model.getMaxActivationSize()];
+        this.logits = new float[model.getClassCount()];
+        this.pending = new Future<?>[threads - 1];
+        if (threads > 1) {
+            int id = POOL_ID.incrementAndGet();
+            AtomicInteger index = new AtomicInteger();
+            workers = Executors.newFixedThreadPool(threads - 1, r -> {
+                Thread thread = new Thread(r, "cnn-" + id + "-" + index.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            workers = null;
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "cnn";
+    }
+
+    @Override
+    public int getClassCount() {
+        return model.getClassCount();
+    }
+
+    @Override
+    public int getInputSize() {
+        return model.getInputSize();
+    }
+
+    @Override
+    public long getVersion() {
+        return model.getFingerprint();
+    }
+
+    public int getThreadCount() {
+        return threads;
+    }
+
+    // 预分配的缓冲区总字节数
+    public int getBufferBytes() {
+        return input.length + arena.length + 4 * logits.length;
+    }
+
+    // 模型参数加缓冲区，供 ModelRegistry 控制总内存
+    public long getSizeInBytes() {
+        return model.getSizeInBytes() + getBufferBytes();
+    }
+
+    /**
+     * 图片尺寸与输入尺寸不同时按最近邻采样，调用方最好先用带滤波的缩放缩到
+     * {@link #getInputSize()}。各层之间检查取消标记。
+     */
+    @Override
+    public synchronized Classification classify(ArgbImage image, CancellationToken token) {
+        fillInput(image);
+        byte[] src = input;
+        int srcOffset = 0;
+        int dstOffset = 0;
+        for (QuantizedCnn.Layer layer : model.layers) {
+            token.throwIfCancelled();
+            switch (layer.type) {
+                case QuantizedCnn.CONV:
+                    conv(layer, src, srcOffset, dstOffset);
+                    break;
+                case QuantizedCnn.MAX_POOL:
+                    maxPool(layer, src, srcOffset, arena, dstOffset);
+                    break;
+                case QuantizedCnn.GLOBAL_AVG_POOL:
+                    globalAvgPool(layer, src, srcOffset, arena, dstOffset);
+                    break;
+                default:
+                    dense(layer, src, srcOffset, logits);
+                    float[] proba = softmax(logits);
+                    return new Classification(argmax(proba), proba, null);
+            }
+            src = arena;
+            srcOffset = dstOffset;
+            dstOffset = dstOffset == 0 ? model.getMaxActivationSize() : 0;
+        }
+        throw new IllegalStateException("网络没有输出层");
+    }
+
+    // 最近邻采样到输入张量
+    private void fillInput(ArgbImage image) {
+        int size = model.getInputSize();
+        int[] pixels = image.getPixels();
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int p = 0;
+        for (int y = 0; y < size; y++) {
+            int row = (int) (((2L * y + 1) * height) / (2L * size)) * width;
+            for (int x = 0; x < size; x++) {
+                int color = pixels[row + (int) (((2L * x + 1) * width) / (2L * size))];
+                input[p++] = (byte) (color >> 16);
+                input[p++] = (byte) (color >> 8);
+                input[p++] = (byte) color;
+            }
+        }
+    }
+
+    // 按输出行切分到各线程
+    private void conv(QuantizedCnn.Layer layer, byte[] src, int srcOffset, int dstOffset) {
+        int rows = layer.outHeight;
+        int parts = closed ? 1 : Math.min(threads, rows);
+        if (parts <= 1) {
+            convRows(layer, src, srcOffset, arena, dstOffset, 0, rows);
+            return;
+        }
+        for (int t = 1; t < parts; t++) {
+            int from = rows * t / parts;
+            int to = rows * (t + 1) / parts;
+            pending[t - 1] = workers.submit(() -> convRows(layer, src, srcOffset, arena, dstOffset, from, to));
+        }
+        convRows(layer, src, srcOffset, arena, dstOffset, 0, rows / parts);
+        for (int t = 1; t < parts; t++) {
+            try {
+                pending[t - 1].get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("卷积计算被中断", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("卷积计算失败", e.getCause());
+            } finally {
+                pending[t - 1] = null;
+            }
+        }
+    }
+
+    // same 填充的卷积 + ReLU，输出 [outY][outX][o]
+    static void convRows(QuantizedCnn.Layer layer, byte[] src, int srcOffset, byte[] dst, int dstOffset,
+                         int fromRow, int toRow) {
+        int k = layer.kernel;
+        int stride = layer.stride;
+        int pad = k / 2;
+        int inH = layer.inHeight;
+        int inW = layer.inWidth;
+        int inC = layer.inChannels;
+        int outW = layer.outWidth;
+        int outC = layer.outChannels;
+        byte[] w = layer.weights;
+        int[] bias = layer.bias;
+        float[] multiplier = layer.scale;
+        for (int oy = fromRow; oy < toRow; oy++) {
+            int y0 = oy * stride - pad;
+            int kyFrom = Math.max(0, -y0);
+            int kyTo = Math.min(k, inH - y0);
+            for (int ox = 0; ox < outW; ox++) {
+                int x0 = ox * stride - pad;
+                int kxFrom = Math.max(0, -x0);
+                int kxTo = Math.min(k, inW - x0);
+                int out = dstOffset + (oy * outW + ox) * outC;
+                for (int o = 0; o < outC; o++) {
+                    int acc = bias[o];
+                    for (int ky = kyFrom; ky < kyTo; ky++) {
+                        int in = srcOffset + ((y0 + ky) * inW + x0 + kxFrom) * inC;
+                        int wi = ((o * k + ky) * k + kxFrom) * inC;
+                        int len = (kxTo - kxFrom) * inC;
+                        for (int i = 0; i < len; i++) {
+                            acc += w[wi + i] * (src[in + i] & 0xFF);
+                        }
+                    }
+                    dst[out + o] = (byte) clamp(Math.round(acc * multiplier[o]));
+                }
+            }
+        }
+    }
+
+    static void maxPool(QuantizedCnn.Layer layer, byte[] src, int srcOffset, byte[] dst, int dstOffset) {
+        int p = layer.kernel;
+        int inW = layer.inWidth;
+        int c = layer.inChannels;
+        int outH = layer.outHeight;
+        int outW = layer.outWidth;
+        for (int oy = 0; oy < outH; oy++) {
+            for (int ox = 0; ox < outW; ox++) {
+                int out = dstOffset + (oy * outW + ox) * c;
+                for (int ch = 0; ch < c; ch++) {
+                    int max = 0;
+                    for (int dy = 0; dy < p; dy++) {
+                        int in = srcOffset + ((oy * p + dy) * inW + ox * p) * c + ch;
+                        for (int dx = 0; dx < p; dx++, in += c) {
+                            max = Math.max(max, src[in] & 0xFF);
+                        }
+                    }
+                    dst[out + ch] = (byte) max;
+                }
+            }
+        }
+    }
+
+    // 各通道取平均（四舍五入），量化比例不变
+    static void globalAvgPool(QuantizedCnn.Layer layer, byte[] src, int srcOffset, byte[] dst, int dstOffset) {
+        int c = layer.inChannels;
+        int count = layer.inHeight * layer.inWidth;
+        for (int ch = 0; ch < c; ch++) {
+            int sum = 0;
+            for (int i = 0, in = srcOffset + ch; i < count; i++, in += c) {
+                sum += src[in] & 0xFF;
+            }
+            dst[dstOffset + ch] = (byte) ((sum + count / 2) / count);
+        }
+    }
+
+    static void dense(QuantizedCnn.Layer layer, byte[] src, int srcOffset, float[] out) {
+        int n = layer.inSize();
+        byte[] w = layer.weights;
+        for (int o = 0; o < layer.outChannels; o++) {
+            int acc = layer.bias[o];
+            for (int i = 0, wi = o * n; i < n; i++) {
+                acc += w[wi + i] * (src[srcOffset + i] & 0xFF);
+            }
+            out[o] = acc * layer.scale[o];
+        }
+    }
+
+    static float[] softmax(float[] logits) {
+        float max = Float.NEGATIVE_INFINITY;
+        for (float z : logits) {
+            max = Math.max(max, z);
+        }
+        float[] proba = new float[logits.length];
+        float sum = 0;
+        for (int i = 0; i < logits.length; i++) {
+            proba[i] = (float) Math.exp(logits[i] - max);
+            sum += proba[i];
+        }
+        for (int i = 0; i < proba.length; i++) {
+            proba[i] /= sum;
+        }
+        return proba;
+    }
+
+    private static int argmax(float[] values) {
+        int best = 0;
+        for (int i = 1; i < values.length; i++) {
+            if (values[i] > values[best]) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private static int clamp(int v) {
+        return v < 0 ? 0 : Math.min(v, 255);
+    }
+
+    // 与 classify 互斥，进行中的推理结束后才关闭工作线程
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (workers != null) {
+            workers.shutdown();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.skinrecognition.core.classify;
+
+import com.example.skinrecognition.core.feature.FeatureExtractor;
+import com.example.skinrecognition.core.feature.PatchGrid;
+
+import java.util.Arrays;
+
+/**
+ * 分区块分析的结果：每个区块的类别、概率和特征，以及合并后的整体结果。
+ */
+public final class PatchAnalysis {
+
+    private final PatchGrid grid;
+    private final int classCount;
+    private final int[] labels;
+    private final float[] probabilities;
+    private final float[] features;
+    private final Classification combined;
+
+    PatchAnalysis(PatchGrid grid, int classCount, int[] labels, float[] probabilities, float[] features,
+                  Classification combined) {
+        this.grid = grid;
+        this.classCount = classCount;
+        this.labels = labels;
+        this.probabilities = probabilities;
+        this.features = features;
+        this.combined = combined;
+    }
+
+    public PatchGrid getGrid() {
+        return grid;
+    }
+
+    public int getPatchCount() {
+        return labels.length;
+    }
+
+    public int getPatchLabel(int row, int col) {
+        return labels[row * grid.getCols() + col];
+    }
+
+    public float getPatchConfidence(int row, int col) {
+        int p = row * grid.getCols() + col;
+        return probabilities[p * classCount + labels[p]];
+    }
+
+    // 第 p 个区块（行优先）的原始特征
+    public float getPatchFeature(int patch, int feature) {
+        return features[patch * FeatureExtractor.FEATURE_COUNT + feature];
+    }
+
+    /** 合并后的结果，特征是整个 ROI 的特征。 */
+    public Classification getCombined() {
+        return combined;
+    }
+
+    /**
+     * 生成热力图：width x height 的 ARGB 像素（相对坐标与原图一致，可以直接缩放后叠加），
+     * 每个区块填充所属类别的颜色，透明度按该区块的概率从 alpha/2 到 alpha 变化，ROI 外透明。
+     *
+     * @param colors 各类别的 RGB 颜色（忽略最高字节）
+     * @param alpha  最大不透明度，[0, 255]
+     */
+    public int[] renderHeatMap(int width, int height, int[] colors, int alpha) {
+        if (colors.length < classCount) {
+            throw new IllegalArgumentException("颜色数少于类别数: " + colors.length);
+        }
+        int[] pixels = new int[width * height];
+        int[] xs = grid.columnBounds(width);
+        int[] ys = grid.rowBounds(height);
+        for (int r = 0; r < grid.getRows(); r++) {
+            for (int c = 0; c < grid.getCols(); c++) {
+                int a = Math.round(alpha * (0.5f + 0.5f * getPatchConfidence(r, c)));
+                int color = (Math.max(0, Math.min(255, a)) << 24) | (colors[getPatchLabel(r, c)] & 0xFFFFFF);
+                for (int y = ys[r]; y < ys[r + 1]; y++) {
+                    Arrays.fill(pixels, y * width + xs[c], y * width + xs[c + 1], color);
+                }
+            }
+        }
+        return pixels;
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.skinrecognition.core.classify;
+
+import com.example.skinrecognition.core.exec.CancellationToken;
+import com.example.skinrecognition.core.feature.AnalysisResolution;
+import com.example.skinrecognition.core.feature.FeatureExtractor;
+import com.example.skinrecognition.core.feature.FeatureLayout;
+import com.example.skinrecognition.core.feature.PatchFeatureExtractor;
+import com.example.skinrecognition.core.feature.PatchGrid;
+import com.example.skinrecognition.core.image.ArgbImage;
+import com.example.skinrecognition.core.model.EnsembleModel;
+import com.example.skinrecognition.core.model.TreeModel;
+
+import java.util.Locale;
+
+/**
+ * 分区块分析：在 ROI 内按网格提取每个区块的特征，所有区块一次批量交给决策树（或集成模型），
+ * 再按投票或概率平均合并成整体结果。背景、头发或局部反光只影响少数区块。
+ */
+public final class PatchClassifier implements Classifier {
+
+    /** 区块结果的合并方式。 */
+    public enum Combine {
+        /** 多数投票，票数相同时取平均概率较大的类别；整体概率为各类别的票数比例。 */
+        VOTE,
+        /** 各区块的类别概率取平均。 */
+        AVERAGE;
+
+        // 未指定或无法识别时使用投票
+        public static Combine fromName(String name) {
+            if (name != null) {
+                for (Combine value : values()) {
+                    if (value.name().equalsIgnoreCase(name.trim())) {
+                        return value;
+                    }
+                }
+            }
+            return VOTE;
+        }
+    }
+
+    private final TreeModel tree;
+    private final EnsembleModel ensemble;
+    private final PatchFeatureExtractor extractor;
+    private final AnalysisResolution resolution;
+    private final PatchGrid grid;
+    private final Combine combine;
+
+    /**
+     * @param ensemble 可以为 null，此时每个区块的概率是 one-hot，两种合并方式结果相同
+     */
+    public PatchClassifier(TreeModel tree, EnsembleModel ensemble, PatchFeatureExtractor extractor,
+                           AnalysisResolution resolution, PatchGrid grid, Combine combine) {
+        if (ensemble != null && ensemble.getClassCount() != tree.getClassCount()) {
+            throw new IllegalArgumentException("集成模型与单棵树的类别数不同: "
+                    + ensemble.getClassCount() + " != " + tree.getClassCount());
+        }
+        // 区块特征按 7 维提取，集成模型也必须是同一布局
+        if (tree.getLayout() != FeatureLayout.BASIC || (ensemble != null && ensemble.getLayout() != tree.getLayout())) {
+            throw new IllegalArgumentException("区块分析只支持 " + FeatureLayout.BASIC.getId() + " 特征布局的模型: "
+                    + tree.getLayout() + (ensemble != null ? " / " + ensemble.getLayout() : ""));
+        }
+        this.tree = tree;
+        this.ensemble = ensemble;
+        this.extractor = extractor;
+        this.resolution = resolution;
+        this.grid = grid;
+        this.combine = combine;
+    }
+
+    @Override
+    public String getName() {
+        return String.format(Locale.ROOT, "patch-%s-%s", grid, combine.name().toLowerCase(Locale.ROOT));
+    }
+
+    @Override
+    public int getClassCount() {
+        return tree.getClassCount();
+    }
+
+    @Override
+    public int getInputSize() {
+        return resolution.getSize();
+    }
+
+    @Override
+    public long getVersion() {
+        return tree.getFingerprint();
+    }
+
+    public PatchGrid getGrid() {
+        return grid;
+    }
+
+    @Override
+    public Classification classify(ArgbImage image, CancellationToken token) {
+        return analyze(image, token).getCombined();
+    }
+
+    public PatchAnalysis analyze(ArgbImage image, CancellationToken token) {
+        int m = FeatureExtractor.FEATURE_COUNT;
+        int n = grid.getPatchCount();
+        int k = tree.getClassCount();
+        float[] features = new float[n * m];
+        float[] roiFeatures = new float[m];
+        extractor.extract(image.getPixels(), image.getWidth(), image.getHeight(), grid, features, roiFeatures,
+                token);
+        token.throwIfCancelled();
+
+        // 所有区块一次批量预测
+        int[] labels = new int[n];
+        float[] proba = new float[n * k];
+        if (ensemble != null) {
+            ensemble.predictProbaBatch(features, n, proba, labels);
+        } else {
+            tree.predictBatch(features, n, labels);
+            for (int p = 0; p < n; p++) {
+                proba[p * k + labels[p]] = 1f;
+            }
+        }
+        return new PatchAnalysis(grid, k, labels, proba, features,
+                combine(labels, proba, k, roiFeatures));
+    }
+
+    private Classification combine(int[] labels, float[] proba, int k, float[] roiFeatures) {
+        int n = labels.length;
+        float[] mean = new float[k];
+        for (int p = 0; p < n; p++) {
+            for (int c = 0; c < k; c++) {
+                mean[c] += proba[p * k + c];
+            }
+        }
+        for (int c = 0; c < k; c++) {
+            mean[c] /= n;
+        }
+        if (combine == Combine.AVERAGE) {
+            return new Classification(argmax(mean, null), mean, roiFeatures);
+        }
+        float[] votes = new float[k];
+        for (int label : labels) {
+            votes[label]++;
+        }
+        for (int c = 0; c < k; c++) {
+            votes[c] /= n;
+        }
+        return new Classification(argmax(votes, mean), votes, roiFeatures);
+    }
+
+    // 最大值的下标，相同时比较 tieBreak（可以为 null），仍相同时取较小的下标
+    private static int argmax(float[] values, float[] tieBreak) {
+        int best = 0;
+        for (int i = 1; i < values.length; i++) {
+            if (values[i] > values[best]
+                    || (values[i] == values[best] && tieBreak != null && tieBreak[i] > tieBreak[best])) {
+                best = i;
+            }
+        }
+        return best;
+    }
+}
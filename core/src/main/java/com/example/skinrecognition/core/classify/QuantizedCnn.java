@@ -0,0 +1,432 @@
+package com.example.skinrecognition.core.classify;
+
+import com.example.skinrecognition.core.cache.ContentHash;
+import com.example.skinrecognition.core.model.ModelFormatException;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * int8 量化的小型卷积网络（skin_cnn.bin），由 {@link CnnClassifier} 在 CPU 上执行。
+ * <p>
+ * 约定：
+ * <ul>
+ * <li>输入为 inputSize x inputSize x 3 的 RGB 字节（HWC 布局），量化比例 1/255、零点 0</li>
+ * <li>除最后的全连接层外，每层输出都是零点为 0 的 uint8（卷积层自带 ReLU）</li>
+ * <li>卷积：acc = bias + Σ w * x（int32），输出 = clamp(round(acc * multiplier), 0, 255)，
+ *     multiplier 已合并输入、权重和输出的量化比例，按输出通道给出</li>
+ * <li>最后一层必须是全连接层，logit = (bias + Σ w * x) * scale，再经 softmax 得到概率</li>
+ * </ul>
+ * 文件格式（小端）：
+ * <pre>
+ * 0   magic      'SQNN'
+ * 4   version    当前为 1
+ * 8   inputSize
+ * 12  layerCount
+ * 16  checksum   之后全部字节的 FNV-1a 32 位校验
+ * 20  各层：int type，之后按类型
+ *     CONV:     int kernel, int stride, int outChannels,
+ *               byte[out*kernel*kernel*in] 权重（[o][ky][kx][c]），int[out] bias, float[out] multiplier
+ *     MAX_POOL: int size
+ *     GLOBAL_AVG_POOL: 无
+ *     DENSE:    int outCount, byte[out*in] 权重, int[out] bias, float[out] scale
+ * </pre>
+ * 实例不可变。
+ */
+public final class QuantizedCnn {
+
+    public static final int MAGIC = 0x4E4E5153; // "SQNN" 小端
+    public static final int VERSION = 1;
+    public static final int INPUT_CHANNELS = 3;
+    static final int HEADER_SIZE = 20;
+
+    public static final int CONV = 1;
+    public static final int MAX_POOL = 2;
+    public static final int GLOBAL_AVG_POOL = 3;
+    public static final int DENSE = 4;
+
+    /** 一层的参数；输入输出形状在 {@link #create} 中推算。 */
+    public static final class Layer {
+        final int type;
+        final int kernel;
+        final int stride;
+        // 池化层在 create 中填写为输入通道数
+        int outChannels;
+        final byte[] weights;
+        final int[] bias;
+        final float[] scale;
+        // 以下由 create 填写
+        int inHeight, inWidth, inChannels;
+        int outHeight, outWidth;
+
+        private Layer(int type, int kernel, int stride, int outChannels, byte[] weights, int[] bias, float[] scale) {
+            this.type = type;
+            this.kernel = kernel;
+            this.stride = stride;
+            this.outChannels = outChannels;
+            this.weights = weights;
+            this.bias = bias;
+            this.scale = scale;
+        }
+
+        // 卷积层（same 填充，自带 ReLU）；权重布局 [o][ky][kx][c]
+        public static Layer conv(int kernel, int stride, int outChannels, byte[] weights, int[] bias,
+                                 float[] multiplier) {
+            return new Layer(CONV, kernel, stride, outChannels, weights.clone(), bias.clone(), multiplier.clone());
+        }
+
+        public static Layer maxPool(int size) {
+            return new Layer(MAX_POOL, size, size, 0, null, null, null);
+        }
+
+        public static Layer globalAvgPool() {
+            return new Layer(GLOBAL_AVG_POOL, 0, 1, 0, null, null, null);
+        }
+
+        // 全连接输出层；输入为上一层输出按 HWC 展平，权重布局 [o][i]
+        public static Layer dense(int outCount, byte[] weights, int[] bias, float[] scale) {
+            return new Layer(DENSE, 0, 1, outCount, weights.clone(), bias.clone(), scale.clone());
+        }
+
+        int inSize() {
+            return inHeight * inWidth * inChannels;
+        }
+
+        int outSize() {
+            return outHeight * outWidth * outChannels;
+        }
+
+        Layer copy() {
+            return new Layer(type, kernel, stride, outChannels, weights, bias, scale);
+        }
+    }
+
+    private final int inputSize;
+    final Layer[] layers;
+    private final int maxActivation;
+    private volatile long fingerprint;
+
+    private QuantizedCnn(int inputSize, Layer[] layers, int maxActivation) {
+        this.inputSize = inputSize;
+        this.layers = layers;
+        this.maxActivation = maxActivation;
+    }
+
+    /**
+     * 按顺序组装网络并推算各层形状。
+     *
+     * @throws ModelFormatException 层参数或形状不合法时
+     */
+    public static QuantizedCnn create(int inputSize, List<Layer> layers) throws ModelFormatException {
+        if (inputSize <= 0 || inputSize > 1024) {
+            throw new ModelFormatException("输入尺寸非法: " + inputSize);
+        }
+        if (layers.isEmpty() || layers.get(layers.size() - 1).type != DENSE) {
+            throw new ModelFormatException("最后一层必须是全连接层");
+        }
+        Layer[] result = new Layer[layers.size()];
+        int h = inputSize;
+        int w = inputSize;
+        int c = INPUT_CHANNELS;
+        int maxActivation = 0;
+        for (int i = 0; i < result.length; i++) {
+            Layer layer = layers.get(i).copy();
+            layer.inHeight = h;
+            layer.inWidth = w;
+            layer.inChannels = c;
+            switch (layer.type) {
+                case CONV:
+                    if (layer.kernel < 1 || layer.kernel % 2 == 0 || layer.stride < 1 || layer.outChannels < 1) {
+                        throw new ModelFormatException("第 " + i + " 层卷积参数非法");
+                    }
+                    checkLength(i, layer.weights.length, (long) layer.outChannels * layer.kernel * layer.kernel * c);
+                    checkLength(i, layer.bias.length, layer.outChannels);
+                    checkLength(i, layer.scale.length, layer.outChannels);
+                    h = (h + layer.stride - 1) / layer.stride;
+                    w = (w + layer.stride - 1) / layer.stride;
+                    c = layer.outChannels;
+                    break;
+                case MAX_POOL:
+                    if (layer.kernel < 1 || layer.kernel > h || layer.kernel > w) {
+                        throw new ModelFormatException("第 " + i + " 层池化尺寸非法: " + layer.kernel);
+                    }
+                    h /= layer.kernel;
+                    w /= layer.kernel;
+                    break;
+                case GLOBAL_AVG_POOL:
+                    h = 1;
+                    w = 1;
+                    break;
+                case DENSE:
+                    if (i != result.length - 1 || layer.outChannels < 2) {
+                        throw new ModelFormatException("全连接层只能是最后一层，且至少输出 2 类");
+                    }
+                    checkLength(i, layer.weights.length, (long) layer.outChannels * h * w * c);
+                    checkLength(i, layer.bias.length, layer.outChannels);
+                    checkLength(i, layer.scale.length, layer.outChannels);
+                    h = 1;
+                    w = 1;
+                    c = layer.outChannels;
+                    break;
+                default:
+                    throw new ModelFormatException("第 " + i + " 层类型未知: " + layer.type);
+            }
+            if (layer.scale != null) {
+                for (float s : layer.scale) {
+                    if (!(s > 0) || Float.isInfinite(s)) {
+                        throw new ModelFormatException("第 " + i + " 层量化比例非法: " + s);
+                    }
+                }
+            }
+            layer.outHeight = h;
+            layer.outWidth = w;
+            if (layer.type != DENSE) {
+                layer.outChannels = c;
+                maxActivation = Math.max(maxActivation, layer.outSize());
+            }
+            result[i] = layer;
+        }
+        return new QuantizedCnn(inputSize, result, maxActivation);
+    }
+
+    private static void checkLength(int layer, int actual, long expected) throws ModelFormatException {
+        if (actual != expected) {
+            throw new ModelFormatException("第 " + layer + " 层参数长度不符: " + actual + " != " + expected);
+        }
+    }
+
+    public int getInputSize() {
+        return inputSize;
+    }
+
+    public int getLayerCount() {
+        return layers.length;
+    }
+
+    public int getClassCount() {
+        return layers[layers.length - 1].outChannels;
+    }
+
+    // 中间激活值的最大字节数，执行器按它分配两块交替使用的缓冲区
+    public int getMaxActivationSize() {
+        return maxActivation;
+    }
+
+    // 参数占用的字节数
+    public long getSizeInBytes() {
+        long size = 0;
+        for (Layer layer : layers) {
+            if (layer.weights != null) {
+                size += layer.weights.length + 8L * layer.bias.length;
+            }
+        }
+        return size;
+    }
+
+    // 乘加次数，用于估算耗时
+    public long getMacCount() {
+        long macs = 0;
+        for (Layer layer : layers) {
+            if (layer.type == CONV) {
+                macs += (long) layer.outSize() * layer.kernel * layer.kernel * layer.inChannels;
+            } else if (layer.type == DENSE) {
+                macs += (long) layer.outChannels * layer.inSize();
+            }
+        }
+        return macs;
+    }
+
+    public long getFingerprint() {
+        long value = fingerprint;
+        if (value == 0) {
+            value = ContentHash.of(toBytes());
+            fingerprint = value;
+        }
+        return value;
+    }
+
+    public byte[] toBytes() {
+        int size = HEADER_SIZE;
+        for (Layer layer : layers) {
+            size += 4 + paramSize(layer);
+        }
+        ByteBuffer buf = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buf.putInt(MAGIC).putInt(VERSION).putInt(inputSize).putInt(layers.length).putInt(0);
+        for (Layer layer : layers) {
+            buf.putInt(layer.type);
+            switch (layer.type) {
+                case CONV:
+                    buf.putInt(layer.kernel).putInt(layer.stride).putInt(layer.outChannels);
+                    putParams(buf, layer);
+                    break;
+                case MAX_POOL:
+                    buf.putInt(layer.kernel);
+                    break;
+                case DENSE:
+                    buf.putInt(layer.outChannels);
+                    putParams(buf, layer);
+                    break;
+                default:
+                    break;
+            }
+        }
+        buf.putInt(16, checksum(buf, HEADER_SIZE, size));
+        return buf.array();
+    }
+
+    private static int paramSize(Layer layer) {
+        switch (layer.type) {
+            case CONV:
+                return 12 + layer.weights.length + 8 * layer.outChannels;
+            case MAX_POOL:
+                return 4;
+            case DENSE:
+                return 4 + layer.weights.length + 8 * layer.outChannels;
+            default:
+                return 0;
+        }
+    }
+
+    private static void putParams(ByteBuffer buf, Layer layer) {
+        buf.put(layer.weights);
+        for (int b : layer.bias) {
+            buf.putInt(b);
+        }
+        for (float s : layer.scale) {
+            buf.putFloat(s);
+        }
+    }
+
+    /**
+     * 从缓冲区读取网络，不改变 buffer 自身的 position。
+     *
+     * @throws ModelFormatException 文件头、长度、校验和或层参数不合法时
+     */
+    public static QuantizedCnn read(ByteBuffer source) throws ModelFormatException {
+        ByteBuffer buf = source.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        buf.position(0);
+        if (buf.remaining() < HEADER_SIZE) {
+            throw new ModelFormatException("CNN 模型长度不足: " + buf.remaining());
+        }
+        if (buf.getInt(0) != MAGIC) {
+            throw new ModelFormatException("CNN 模型标识错误");
+        }
+        int version = buf.getInt(4);
+        if (version != VERSION) {
+            throw new ModelFormatException("不支持的 CNN 模型版本: " + version);
+        }
+        int inputSize = buf.getInt(8);
+        int layerCount = buf.getInt(12);
+        if (layerCount <= 0 || layerCount > 256) {
+            throw new ModelFormatException("CNN 层数非法: " + layerCount);
+        }
+        if (buf.getInt(16) != checksum(buf, HEADER_SIZE, buf.limit())) {
+            throw new ModelFormatException("CNN 模型校验和不一致");
+        }
+        buf.position(HEADER_SIZE);
+        List<Layer> layers = new ArrayList<>(layerCount);
+        // 输入通道数随层推进，读取权重时需要
+        int h = inputSize;
+        int w = inputSize;
+        int c = INPUT_CHANNELS;
+        try {
+            for (int i = 0; i < layerCount; i++) {
+                int type = buf.getInt();
+                switch (type) {
+                    case CONV: {
+                        int kernel = buf.getInt();
+                        int stride = buf.getInt();
+                        int out = buf.getInt();
+                        checkCount(i, (long) out * kernel * kernel * c);
+                        byte[] weights = new byte[out * kernel * kernel * c];
+                        buf.get(weights);
+                        layers.add(Layer.conv(kernel, stride, out, weights, getInts(buf, out), getFloats(buf, out)));
+                        h = (h + Math.max(stride, 1) - 1) / Math.max(stride, 1);
+                        w = (w + Math.max(stride, 1) - 1) / Math.max(stride, 1);
+                        c = out;
+                        break;
+                    }
+                    case MAX_POOL: {
+                        int size = buf.getInt();
+                        layers.add(Layer.maxPool(size));
+                        h /= Math.max(size, 1);
+                        w /= Math.max(size, 1);
+                        break;
+                    }
+                    case GLOBAL_AVG_POOL:
+                        layers.add(Layer.globalAvgPool());
+                        h = 1;
+                        w = 1;
+                        break;
+                    case DENSE: {
+                        int out = buf.getInt();
+                        checkCount(i, (long) out * h * w * c);
+                        byte[] weights = new byte[out * h * w * c];
+                        buf.get(weights);
+                        layers.add(Layer.dense(out, weights, getInts(buf, out), getFloats(buf, out)));
+                        c = out;
+                        h = 1;
+                        w = 1;
+                        break;
+                    }
+                    default:
+                        throw new ModelFormatException("第 " + i + " 层类型未知: " + type);
+                }
+            }
+        } catch (java.nio.BufferUnderflowException e) {
+            throw new ModelFormatException("CNN 模型数据被截断");
+        }
+        if (buf.hasRemaining()) {
+            throw new ModelFormatException("CNN 模型末尾有多余数据: " + buf.remaining() + " 字节");
+        }
+        return create(inputSize, layers);
+    }
+
+    private static void checkCount(int layer, long count) throws ModelFormatException {
+        if (count <= 0 || count > (1 << 26)) {
+            throw new ModelFormatException("第 " + layer + " 层参数个数非法: " + count);
+        }
+    }
+
+    private static int[] getInts(ByteBuffer buf, int n) {
+        int[] values = new int[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = buf.getInt();
+        }
+        return values;
+    }
+
+    private static float[] getFloats(ByteBuffer buf, int n) {
+        float[] values = new float[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = buf.getFloat();
+        }
+        return values;
+    }
+
+    // FNV-1a 32 位校验，与 BinaryModelFormat 相同
+    private static int checksum(ByteBuffer buf, int from, int to) {
+        int hash = 0x811C9DC5;
+        for (int i = from; i < to; i++) {
+            hash ^= buf.get(i) & 0xFF;
+            hash *= 0x01000193;
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("QuantizedCnn{input=").append(inputSize).append(", layers=[");
+        for (int i = 0; i < layers.length; i++) {
+            Layer l = layers[i];
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(l.type).append(':').append(l.outHeight).append('x').append(l.outWidth)
+                    .append('x').append(l.outChannels);
+        }
+        return sb.append("], macs=").append(getMacCount()).append('}').toString();
+    }
+}
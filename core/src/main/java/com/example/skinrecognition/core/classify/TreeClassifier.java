@@ -0,0 +1,140 @@
+package com.example.skinrecognition.core.classify;
+
+import com.example.skinrecognition.core.exec.CancellationToken;
+import com.example.skinrecognition.core.feature.AnalysisResolution;
+import com.example.skinrecognition.core.feature.DescriptorExtractor;
+import com.example.skinrecognition.core.feature.FeatureLayout;
+import com.example.skinrecognition.core.feature.TiledFeatureExtractor;
+import com.example.skinrecognition.core.image.ArgbImage;
+import com.example.skinrecognition.core.metrics.PipelineMetrics;
+import com.example.skinrecognition.core.model.EnsembleModel;
+import com.example.skinrecognition.core.model.TreeModel;
+
+/**
+ * 原有的手工特征流水线：提取 7 维 HSV/LBP 特征，归一化后交给决策树。
+ * 提供集成模型时改用它的类别概率；只有单棵树时概率为 one-hot。
+ * <p>
+ * 模型声明 {@link FeatureLayout#EXTENDED} 布局时改用 {@link DescriptorExtractor} 提取扩展描述子。
+ */
+public final class TreeClassifier implements Classifier {
+
+    private final TreeModel tree;
+    private final EnsembleModel ensemble;
+    private final TiledFeatureExtractor extractor;
+    private final AnalysisResolution resolution;
+    private final PipelineMetrics metrics;
+
+    /**
+     * @param ensemble 可以为 null
+     */
+    public TreeClassifier(TreeModel tree, EnsembleModel ensemble, TiledFeatureExtractor extractor,
+                          AnalysisResolution resolution) {
+        this(tree, ensemble, extractor, resolution, null);
+    }
+
+    /**
+     * @param metrics 记录特征提取、归一化和预测的耗时，可以为 null
+     */
+    public TreeClassifier(TreeModel tree, EnsembleModel ensemble, TiledFeatureExtractor extractor,
+                          AnalysisResolution resolution, PipelineMetrics metrics) {
+        if (ensemble != null && ensemble.getClassCount() != tree.getClassCount()) {
+            throw new IllegalArgumentException("集成模型与单棵树的类别数不同: "
+                    + ensemble.getClassCount() + " != " + tree.getClassCount());
+        }
+        if (tree.getLayout() == null || (ensemble != null && ensemble.getLayout() != tree.getLayout())) {
+            throw new IllegalArgumentException("模型的特征布局未知或不一致: " + tree.getLayout()
+                    + (ensemble != null ? " / " + ensemble.getLayout() : ""));
+        }
+        this.tree = tree;
+        this.ensemble = ensemble;
+        this.extractor = extractor;
+        this.resolution = resolution;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public String getName() {
+        return ensemble != null ? "ensemble" : "tree";
+    }
+
+    // 只有单棵树时概率是 one-hot，不能当作置信度
+    public boolean hasEnsemble() {
+        return ensemble != null;
+    }
+
+    TreeModel getTree() {
+        return tree;
+    }
+
+    // 没有集成模型时为 null
+    EnsembleModel getEnsemble() {
+        return ensemble;
+    }
+
+    @Override
+    public int getClassCount() {
+        return tree.getClassCount();
+    }
+
+    @Override
+    public int getInputSize() {
+        return resolution.getSize();
+    }
+
+    // 缓存的是特征，只与特征提取和单棵树的版本对应；集成模型在命中缓存后重新预测
+    @Override
+    public long getVersion() {
+        return tree.getFingerprint();
+    }
+
+    @Override
+    public Classification classify(ArgbImage image, CancellationToken token) {
+        long start = System.nanoTime();
+        FeatureLayout layout = tree.getLayout();
+        float[] features = new float[layout.getFeatureCount()];
+        if (layout == FeatureLayout.BASIC) {
+            extractor.extract(image.getPixels(), image.getWidth(), image.getHeight(), features, token);
+        } else {
+            // 描述子提取器带缓冲区，不能在并发的分析之间共享
+            new DescriptorExtractor().extract(image.getPixels(), image.getWidth(), image.getHeight(), token)
+                    .project(layout, features, 0);
+        }
+        if (metrics != null) {
+            metrics.lap(PipelineMetrics.Stage.EXTRACT, start);
+        }
+        token.throwIfCancelled();
+        return classifyFeatures(features);
+    }
+
+    // 按单棵树的标准化参数归一化原始特征（写入分析历史等用途）
+    public float[] normalize(float[] features) {
+        float[] normalized = new float[features.length];
+        tree.normalize(features, 0, normalized, 0);
+        return normalized;
+    }
+
+    /**
+     * 对已经提取好的原始特征分类（例如命中预测缓存时）。单棵树时先单独归一化再遍历，
+     * 结果与 {@link TreeModel#predict} 相同，只是两段耗时可以分开统计；集成模型内部归一化，只记预测耗时。
+     */
+    public Classification classifyFeatures(float[] features) {
+        long start = System.nanoTime();
+        float[] proba = new float[tree.getClassCount()];
+        int label;
+        if (ensemble != null) {
+            label = ensemble.predictProba(features, proba);
+        } else {
+            float[] normalized = new float[features.length];
+            tree.normalize(features, 0, normalized, 0);
+            if (metrics != null) {
+                start = metrics.lap(PipelineMetrics.Stage.NORMALIZE, start);
+            }
+            label = tree.predictNormalized(normalized, 0);
+            proba[label] = 1f;
+        }
+        if (metrics != null) {
+            metrics.lap(PipelineMetrics.Stage.PREDICT, start);
+        }
+        return new Classification(label, proba, features);
+    }
+}
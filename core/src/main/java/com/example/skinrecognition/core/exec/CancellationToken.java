@@ -0,0 +1,33 @@
+package com.example.skinrecognition.core.exec;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * 协作式取消标记：任务在循环中定期调用 {@link #throwIfCancelled()}。
+ */
+public class CancellationToken {
+
+    /** 永远不会被取消的标记。 */
+    public static final CancellationToken NONE = new CancellationToken() {
+        @Override
+        public void cancel() {
+            throw new UnsupportedOperationException("NONE 不能被取消");
+        }
+    };
+
+    private volatile boolean cancelled;
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public void throwIfCancelled() {
+        if (cancelled) {
+            throw new CancellationException();
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.skinrecognition.core.exec;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 有界的推理调度器：固定数量的工作线程加有界队列，队列满时拒绝新任务。
+ * <p>
+ * 任务按“通道”提交，同一通道新任务提交时取消旧任务（后到者优先）。
+ * 正在运行的任务通过 {@link CancellationToken} 协作取消；结果在 resultExecutor
+ * （通常是主线程）上投递，投递前再检查一次，不再是该通道最新请求的结果会被丢弃。
+ */
+public final class InferenceScheduler {
+
+    /** 在工作线程上执行的任务。 */
+    public interface Task<T> {
+        T run(CancellationToken token) throws Exception;
+    }
+
+    /**
+     * 结果回调，在 resultExecutor 上调用，每个请求恰好回调一次。
+     * 被取消、被新请求取代或被拒绝时 onError 收到
+     * {@link CancellationException} 或 {@link RejectedExecutionException}。
+     */
+    public interface Callback<T> {
+        void onResult(long requestId, T result);
+
+        void onError(long requestId, Throwable error);
+    }
+
+    private final class Request<T> implements Runnable {
+        final String channel;
+        final long id;
+        final Task<T> task;
+        final Callback<T> callback;
+        final CancellationToken token = new CancellationToken();
+
+        Request(String channel, long id, Task<T> task, Callback<T> callback) {
+            this.channel = channel;
+            this.id = id;
+            this.task = task;
+            this.callback = callback;
+        }
+
+        @Override
+        public void run() {
+            if (token.isCancelled()) {
+                deliverError(this, new CancellationException());
+                return;
+            }
+            running.incrementAndGet();
+            T result;
+            try {
+                result = task.run(token);
+            } catch (Throwable e) {
+                deliverError(this, token.isCancelled() ? new CancellationException() : e);
+                return;
+            } finally {
+                running.decrementAndGet();
+            }
+            resultExecutor.execute(() -> {
+                // 已经不是最新请求，丢弃结果
+                if (token.isCancelled() || !isCurrent(channel, id)) {
+                    cancelled.incrementAndGet();
+                    callback.onError(id, new CancellationException("结果已过期"));
+                    return;
+                }
+                latest.remove(channel, this);
+                completed.incrementAndGet();
+                callback.onResult(id, result);
+            });
+        }
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final Executor resultExecutor;
+    private final ConcurrentHashMap<String, Request<?>> latest = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public InferenceScheduler(int workers, int queueCapacity, Executor resultExecutor) {
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread thread = new Thread(r, "inference-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+        this.resultExecutor = resultExecutor;
+    }
+
+    /**
+     * 提交任务并取消该通道上之前的任务，返回请求ID。
+     * 队列已满时任务被拒绝，回调收到 {@link RejectedExecutionException}。
+     */
+    public <T> long submit(String channel, Task<T> task, Callback<T> callback) {
+        long id = nextId.incrementAndGet();
+        Request<T> request = new Request<>(channel, id, task, callback);
+        submitted.incrementAndGet();
+        Request<?> previous = latest.put(channel, request);
+        if (previous != null) {
+            cancelRequest(previous);
+        }
+        try {
+            executor.execute(request);
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            latest.remove(channel, request);
+            resultExecutor.execute(() -> callback.onError(id, e));
+        }
+        return id;
+    }
+
+    // 取消通道上的当前任务
+    public void cancel(String channel) {
+        Request<?> request = latest.remove(channel);
+        if (request != null) {
+            cancelRequest(request);
+        }
+    }
+
+    public boolean isCurrent(String channel, long requestId) {
+        Request<?> request = latest.get(channel);
+        return request != null && request.id == requestId;
+    }
+
+    private void cancelRequest(Request<?> request) {
+        request.token.cancel();
+        // 还在排队的任务直接移出队列，腾出位置
+        if (executor.remove(request)) {
+            deliverError(request, new CancellationException());
+        }
+    }
+
+    private <T> void deliverError(Request<T> request, Throwable error) {
+        if (error instanceof CancellationException) {
+            cancelled.incrementAndGet();
+        } else {
+            failed.incrementAndGet();
+        }
+        latest.remove(request.channel, request);
+        resultExecutor.execute(() -> request.callback.onError(request.id, error));
+    }
+
+    // 排队中（尚未开始）的任务数
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public int getRunningCount() {
+        return running.get();
+    }
+
+    public long getSubmittedCount() {
+        return submitted.get();
+    }
+
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    public long getCancelledCount() {
+        return cancelled.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    @Override
+    public String toString() {
+        return "InferenceScheduler{queue=" + getQueueDepth()
+                + ", running=" + getRunningCount()
+                + ", submitted=" + getSubmittedCount()
+                + ", completed=" + getCompletedCount()
+                + ", cancelled=" + getCancelledCount()
+                + ", rejected=" + getRejectedCount()
+                + ", failed=" + getFailedCount() + "}";
+    }
+
+    public void shutdown() {
+        for (String channel : latest.keySet()) {
+            cancel(channel);
+        }
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.skinrecognition.core.feature;
+
+/**
+ * 特征提取时使用的分析分辨率，每次分析可以单独选择。
+ */
+public enum AnalysisResolution {
+    // 与训练时一致的 200x200，结果与单线程实现逐位相同
+    SIZE_200(200),
+    SIZE_512(512),
+    // 不缩放，直接使用原图
+    NATIVE(0);
+
+    private final int size;
+
+    AnalysisResolution(int size) {
+        this.size = size;
+    }
+
+    // 缩放后的边长，NATIVE 返回 0
+    public int getSize() {
+        return size;
+    }
+
+    public boolean isNative() {
+        return size == 0;
+    }
+
+    // 按名字解析，无法识别时返回默认的 SIZE_200
+    public static AnalysisResolution fromName(String name) {
+        if (name != null) {
+            for (AnalysisResolution value : values()) {
+                if (value.name().equalsIgnoreCase(name)) {
+                    return value;
+                }
+            }
+        }
+        return SIZE_200;
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.skinrecognition.core.feature;
+
+import java.util.Arrays;
+
+/**
+ * 可合并的颜色/纹理描述子：H、S、V 和 LBP 编码的均值与二阶中心矩（Welford/Chan 合并，double），
+ * 59 维均匀 LBP 直方图以及 H、S、V 直方图。
+ * <p>
+ * 分块、区块或视频帧分别累加后用 {@link #merge} 合并，结果与整体一次累加相同
+ * （直方图和计数精确相等，矩只差舍入误差），不需要第二遍遍历像素；{@link #scale} 按比例衰减，
+ * 可以作为跨帧的滑动统计。方差由中心矩得到，不会像 {@code sqSum/n - mean²} 那样在像素多时抵消精度。
+ * <p>
+ * 实例不是线程安全的，每个线程累加自己的实例后再合并。
+ */
+public final class Descriptor {
+
+    public static final int LBP_BINS = 59;
+    public static final int HUE_BINS = 18;
+    public static final int SATURATION_BINS = 8;
+    public static final int VALUE_BINS = 8;
+
+    static final int H = 0;
+    static final int S = 1;
+    static final int V = 2;
+    static final int L = 3;
+    static final int CHANNELS = 4;
+
+    // 均匀模式（循环跳变不超过 2 次）按编码大小编号 0..57，其余为 58
+    static final byte[] UNIFORM = new byte[256];
+
+    static {
+        int next = 0;
+        for (int code = 0; code < 256; code++) {
+            int rotated = ((code << 1) | (code >>> 7)) & 0xFF;
+            UNIFORM[code] = (byte) (Integer.bitCount(code ^ rotated) <= 2 ? next++ : LBP_BINS - 1);
+        }
+    }
+
+    // 权重（像素数，衰减后可以不是整数）
+    private double count;
+    private final double[] mean = new double[CHANNELS];
+    private final double[] m2 = new double[CHANNELS];
+    final double[] lbpHist = new double[LBP_BINS];
+    final double[] hueHist = new double[HUE_BINS];
+    final double[] saturationHist = new double[SATURATION_BINS];
+    final double[] valueHist = new double[VALUE_BINS];
+
+    public double getCount() {
+        return count;
+    }
+
+    /**
+     * 合并一组像素的矩：n 个像素，各通道均值 mean 和中心矩 m2（Chan 等人的合并公式）。
+     * 直方图由调用方直接累加。
+     */
+    void addMoments(double n, double[] groupMean, double[] groupM2) {
+        if (n <= 0) {
+            return;
+        }
+        double total = count + n;
+        for (int c = 0; c < CHANNELS; c++) {
+            double delta = groupMean[c] - mean[c];
+            mean[c] += delta * (n / total);
+            m2[c] += groupM2[c] + delta * delta * (count * n / total);
+        }
+        count = total;
+    }
+
+    public Descriptor merge(Descriptor other) {
+        addMoments(other.count, other.mean, other.m2);
+        add(lbpHist, other.lbpHist);
+        add(hueHist, other.hueHist);
+        add(saturationHist, other.saturationHist);
+        add(valueHist, other.valueHist);
+        return this;
+    }
+
+    // 所有计数乘以 factor（均值不变），用于跨帧指数衰减
+    public void scale(double factor) {
+        count *= factor;
+        for (int c = 0; c < CHANNELS; c++) {
+            m2[c] *= factor;
+        }
+        scale(lbpHist, factor);
+        scale(hueHist, factor);
+        scale(saturationHist, factor);
+        scale(valueHist, factor);
+        if (count == 0) {
+            Arrays.fill(mean, 0);
+        }
+    }
+
+    public void clear() {
+        scale(0);
+    }
+
+    public Descriptor copy() {
+        return new Descriptor().merge(this);
+    }
+
+    public float[] project(FeatureLayout layout) {
+        float[] out = new float[layout.getFeatureCount()];
+        project(layout, out, 0);
+        return out;
+    }
+
+    /**
+     * 按布局输出特征，前 7 维与 {@link FeatureExtractor} 含义相同（标准差为总体标准差）。
+     * 没有累加任何像素时输出 NaN。
+     */
+    public void project(FeatureLayout layout, float[] out, int offset) {
+        out[offset] = (float) mean[H];
+        out[offset + 1] = (float) Math.sqrt(m2[H] / count);
+        out[offset + 2] = (float) mean[S];
+        out[offset + 3] = (float) Math.sqrt(m2[S] / count);
+        out[offset + 4] = (float) mean[V];
+        out[offset + 5] = (float) Math.sqrt(m2[V] / count);
+        out[offset + 6] = (float) mean[L];
+        if (count == 0) {
+            Arrays.fill(out, offset, offset + layout.getFeatureCount(), Float.NaN);
+            return;
+        }
+        if (layout == FeatureLayout.EXTENDED) {
+            int at = offset + FeatureExtractor.FEATURE_COUNT;
+            at = fractions(lbpHist, out, at);
+            at = fractions(hueHist, out, at);
+            at = fractions(saturationHist, out, at);
+            fractions(valueHist, out, at);
+        }
+    }
+
+    /**
+     * 把累加的像素看作从 population 个像素中抽取的样本，估计 {@link #project} 各维的标准误差，
+     * 写入 out[offset..)。均值和占比按 s/√n 和 √(p(1-p)/n)，标准差按正态近似 s/√(2(n-1))，
+     * 都乘以有限总体修正 √((N-n)/(N-1))：样本覆盖全部像素时误差为 0。少于 2 个像素时为正无穷。
+     */
+    public void standardErrors(FeatureLayout layout, double population, float[] out, int offset) {
+        double n = count;
+        if (n < 2) {
+            Arrays.fill(out, offset, offset + layout.getFeatureCount(), Float.POSITIVE_INFINITY);
+            return;
+        }
+        double fpc = population > n ? (population - n) / (population - 1) : 0;
+        for (int c = H; c <= V; c++) {
+            double variance = m2[c] / (n - 1);
+            out[offset + 2 * c] = (float) Math.sqrt(variance / n * fpc);
+            out[offset + 2 * c + 1] = (float) Math.sqrt(variance / (2 * (n - 1)) * fpc);
+        }
+        out[offset + 6] = (float) Math.sqrt(m2[L] / (n - 1) / n * fpc);
+        if (layout == FeatureLayout.EXTENDED) {
+            int at = offset + FeatureExtractor.FEATURE_COUNT;
+            at = fractionErrors(lbpHist, n, fpc, out, at);
+            at = fractionErrors(hueHist, n, fpc, out, at);
+            at = fractionErrors(saturationHist, n, fpc, out, at);
+            fractionErrors(valueHist, n, fpc, out, at);
+        }
+    }
+
+    private static int fractionErrors(double[] hist, double n, double fpc, float[] out, int at) {
+        for (double bin : hist) {
+            double p = bin / n;
+            out[at++] = (float) Math.sqrt(p * (1 - p) / n * fpc);
+        }
+        return at;
+    }
+
+    private int fractions(double[] hist, float[] out, int at) {
+        for (double bin : hist) {
+            out[at++] = (float) (bin / count);
+        }
+        return at;
+    }
+
+    private static void add(double[] into, double[] other) {
+        for (int i = 0; i < into.length; i++) {
+            into[i] += other[i];
+        }
+    }
+
+    private static void scale(double[] values, double factor) {
+        for (int i = 0; i < values.length; i++) {
+            values[i] *= factor;
+        }
+    }
+}
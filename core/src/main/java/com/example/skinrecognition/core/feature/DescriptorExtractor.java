@@ -0,0 +1,218 @@
+package com.example.skinrecognition.core.feature;
+
+import com.example.skinrecognition.core.exec.CancellationToken;
+
+/**
+ * 单次遍历像素计算 {@link Descriptor}：{@link RowKernel} 逐行给出 HSV 和 LBP 编码，
+ * 同一行内同时累加直方图和行内矩，再按 Chan 公式并入描述子。
+ * <p>
+ * 行内矩先求和得到行均值，再对一行的缓冲区（在 L1 缓存中）求中心矩，数值上等价于逐像素 Welford，
+ * 但每个像素不需要除法。可以只累加一个区域，不同区域（分块、区块、视频帧）的描述子直接合并。
+ * <p>
+ * 实例内部复用灰度和行缓冲区，不是线程安全的，每个线程请使用自己的实例。
+ */
+public final class DescriptorExtractor {
+
+    private final RowKernel kernel;
+    private byte[] gray = new byte[0];
+    private float[] hRow = new float[0];
+    private float[] sRow = new float[0];
+    private float[] vRow = new float[0];
+    private int[] codes = new int[0];
+    private int[] sampled = new int[0];
+    private final double[] rowMean = new double[Descriptor.CHANNELS];
+    private final double[] rowM2 = new double[Descriptor.CHANNELS];
+
+    public DescriptorExtractor() {
+        this(RowKernels.preferred());
+    }
+
+    public DescriptorExtractor(RowKernel kernel) {
+        this.kernel = kernel;
+    }
+
+    // 整幅图的内部像素（不含最外一圈），与 FeatureExtractor 的范围相同
+    public Descriptor extract(int[] argb, int width, int height) {
+        return extract(argb, width, height, CancellationToken.NONE);
+    }
+
+    /**
+     * 同上，每处理一行检查一次取消标记。
+     *
+     * @throws java.util.concurrent.CancellationException 已取消时
+     */
+    public Descriptor extract(int[] argb, int width, int height, CancellationToken token) {
+        if (width < 3 || height < 3) {
+            throw new IllegalArgumentException("图像尺寸过小: " + width + "x" + height);
+        }
+        Descriptor descriptor = new Descriptor();
+        accumulate(argb, width, height, 1, height - 1, 1, width - 1, descriptor, token);
+        return descriptor;
+    }
+
+    /**
+     * 把 [rowStart, rowEnd) 行、[colStart, colEnd) 列的像素累加到 into。
+     * 区域必须在图像内部（不含最外一圈），LBP 邻域读取区域外的像素。
+     */
+    public void accumulate(int[] argb, int width, int height, int rowStart, int rowEnd, int colStart, int colEnd,
+                           Descriptor into, CancellationToken token) {
+        if (rowStart < 1 || rowEnd > height - 1 || rowStart > rowEnd
+                || colStart < 1 || colEnd > width - 1 || colStart > colEnd) {
+            throw new IllegalArgumentException("区域超出图像内部: 行 [" + rowStart + ", " + rowEnd + ")，列 ["
+                    + colStart + ", " + colEnd + ")，图像 " + width + "x" + height);
+        }
+        int size = width * height;
+        if (argb.length < size) {
+            throw new IllegalArgumentException("像素数组长度不足: " + argb.length + " < " + size);
+        }
+        int n = colEnd - colStart;
+        if (n == 0 || rowStart == rowEnd) {
+            return;
+        }
+        if (gray.length < size) {
+            gray = new byte[size];
+        }
+        if (hRow.length < n) {
+            hRow = new float[n];
+            sRow = new float[n];
+            vRow = new float[n];
+            codes = new int[n];
+        }
+        // 只计算区域及其上下各一行的灰度
+        kernel.gray(argb, gray, (rowStart - 1) * width, (rowEnd + 1) * width);
+
+        for (int i = rowStart; i < rowEnd; i++) {
+            token.throwIfCancelled();
+            int row = i * width;
+            kernel.hsv(argb, row + colStart, row + colEnd, hRow, sRow, vRow);
+            kernel.lbpCodes(gray, width, i, colStart, colEnd, codes);
+            addRow(n, into);
+        }
+    }
+
+    /**
+     * 只累加图像内部位于 stride 间隔格点上的像素（第 1 + k·stride 行、列），跳过已经在 coarser
+     * 间隔格点上的像素，用于由粗到细的逐级采样：依次以 (8, 0)、(4, 8)、(2, 4) 调用时每一级只读取新增的像素，
+     * 合并后与直接以 2 采样相同。coarser 为 0 时不跳过；否则必须是 stride 的倍数。
+     * <p>
+     * 每个样本的 LBP 仍按原分辨率的 3x3 邻域计算，所以样本统计量是整幅图对应特征的无偏估计，
+     * 这一点与先缩小图像再提取不同。
+     */
+    public void sample(int[] argb, int width, int height, int stride, int coarser, Descriptor into,
+                       CancellationToken token) {
+        if (width < 3 || height < 3) {
+            throw new IllegalArgumentException("图像尺寸过小: " + width + "x" + height);
+        }
+        if (stride <= 0 || coarser < 0 || (coarser > 0 && (coarser <= stride || coarser % stride != 0))) {
+            throw new IllegalArgumentException("采样间隔无效: stride=" + stride + ", coarser=" + coarser);
+        }
+        if (argb.length < width * height) {
+            throw new IllegalArgumentException("像素数组长度不足: " + argb.length + " < " + width * height);
+        }
+        int columns = (width - 3) / stride + 1;
+        if (hRow.length < columns) {
+            hRow = new float[columns];
+            sRow = new float[columns];
+            vRow = new float[columns];
+            codes = new int[columns];
+        }
+        if (sampled.length < columns) {
+            sampled = new int[columns];
+        }
+        for (int i = 1; i < height - 1; i += stride) {
+            token.throwIfCancelled();
+            // 粗一级的格点行上只有不在粗格点列上的像素是新的
+            int step = coarser > 0 && (i - 1) % coarser == 0 ? coarser : 0;
+            int n = 0;
+            for (int j = 1; j < width - 1; j += stride) {
+                if (step > 0 && (j - 1) % step == 0) {
+                    continue;
+                }
+                int k = i * width + j;
+                sampled[n] = argb[k];
+                codes[n] = lbpCode(argb, k, width);
+                n++;
+            }
+            if (n > 0) {
+                kernel.hsv(sampled, 0, n, hRow, sRow, vRow);
+                addRow(n, into);
+            }
+        }
+    }
+
+    // 行缓冲区中的 n 个像素：直方图、行内均值和中心矩，再并入描述子
+    private void addRow(int n, Descriptor into) {
+        float[] hs = hRow;
+        float[] ss = sRow;
+        float[] vs = vRow;
+        int[] lbp = codes;
+        double[] lbpHist = into.lbpHist;
+        double[] hueHist = into.hueHist;
+        double[] saturationHist = into.saturationHist;
+        double[] valueHist = into.valueHist;
+
+        // 直方图和行内和
+        double hSum = 0, sSum = 0, vSum = 0;
+        long lbpSum = 0;
+        for (int j = 0; j < n; j++) {
+            float h = hs[j];
+            float s = ss[j];
+            float v = vs[j];
+            int code = lbp[j];
+            hSum += h;
+            sSum += s;
+            vSum += v;
+            lbpSum += code;
+            lbpHist[Descriptor.UNIFORM[code]]++;
+            hueHist[Math.min((int) (h * (Descriptor.HUE_BINS / 360f)), Descriptor.HUE_BINS - 1)]++;
+            saturationHist[Math.min((int) (s * Descriptor.SATURATION_BINS), Descriptor.SATURATION_BINS - 1)]++;
+            valueHist[Math.min((int) (v * Descriptor.VALUE_BINS), Descriptor.VALUE_BINS - 1)]++;
+        }
+
+        // 行内中心矩
+        double hMean = hSum / n;
+        double sMean = sSum / n;
+        double vMean = vSum / n;
+        double lMean = (double) lbpSum / n;
+        double hM2 = 0, sM2 = 0, vM2 = 0, lM2 = 0;
+        for (int j = 0; j < n; j++) {
+            double dh = hs[j] - hMean;
+            double ds = ss[j] - sMean;
+            double dv = vs[j] - vMean;
+            double dl = lbp[j] - lMean;
+            hM2 += dh * dh;
+            sM2 += ds * ds;
+            vM2 += dv * dv;
+            lM2 += dl * dl;
+        }
+        rowMean[Descriptor.H] = hMean;
+        rowMean[Descriptor.S] = sMean;
+        rowMean[Descriptor.V] = vMean;
+        rowMean[Descriptor.L] = lMean;
+        rowM2[Descriptor.H] = hM2;
+        rowM2[Descriptor.S] = sM2;
+        rowM2[Descriptor.V] = vM2;
+        rowM2[Descriptor.L] = lM2;
+        into.addMoments(n, rowMean, rowM2);
+    }
+
+    // 与 RowKernel 相同的灰度和 LBP 编码，直接从 ARGB 计算单个像素
+    private static int lbpCode(int[] argb, int k, int width) {
+        int up = k - width;
+        int down = k + width;
+        int center = gray(argb[k]);
+        int code = gray(argb[up - 1]) >= center ? 1 << 7 : 0;
+        code |= gray(argb[up]) >= center ? 1 << 6 : 0;
+        code |= gray(argb[up + 1]) >= center ? 1 << 5 : 0;
+        code |= gray(argb[k + 1]) >= center ? 1 << 4 : 0;
+        code |= gray(argb[down + 1]) >= center ? 1 << 3 : 0;
+        code |= gray(argb[down]) >= center ? 1 << 2 : 0;
+        code |= gray(argb[down - 1]) >= center ? 1 << 1 : 0;
+        code |= gray(argb[k - 1]) >= center ? 1 : 0;
+        return code;
+    }
+
+    private static int gray(int p) {
+        return (((p >> 16) & 0xFF) + ((p >> 8) & 0xFF) + (p & 0xFF)) / 3;
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.skinrecognition.core.feature;
+
+import com.example.skinrecognition.core.exec.CancellationToken;
+
+/**
+ * 皮肤图像特征提取（纯Java，不依赖Android，可在JVM上直接测试）。
+ * <p>
+ * 输入是与 {@code Bitmap.getPixels} 相同布局的 ARGB 像素数组，输出
+ * {hMean, hStd, sMean, sStd, vMean, vStd, lbpMean} 共7个特征。
+ * 累加顺序和浮点类型与原来 PredictActivity 中逐像素 getPixel 的实现保持一致，
+ * 所以 scaler_mean.txt / scaler_std.txt / tree_model.txt 可以继续使用。
+ * <p>
+ * 灰度平面、逐像素 HSV 和 LBP 交给 {@link RowKernel} 按行计算（每个值都与原公式逐位相同），
+ * 本类只按原来的顺序累加，所以无论使用标量还是 SIMD 内核，结果都与原实现逐位一致。
+ * <p>
+ * 实例内部复用灰度和 HSV 缓冲区，不是线程安全的，每个线程请使用自己的实例。
+ */
+public final class FeatureExtractor {
+
+    public static final int FEATURE_COUNT = 7;
+
+    private final RowKernel kernel;
+    // 复用的灰度平面，避免每张图重新分配
+    private byte[] gray = new byte[0];
+    // 复用的一行 HSV
+    private float[] hRow = new float[0];
+    private float[] sRow = new float[0];
+    private float[] vRow = new float[0];
+
+    public FeatureExtractor() {
+        this(RowKernels.preferred());
+    }
+
+    public FeatureExtractor(RowKernel kernel) {
+        this.kernel = kernel;
+    }
+
+    // 提取特征，返回新的特征数组
+    public float[] extract(int[] argb, int width, int height) {
+        float[] out = new float[FEATURE_COUNT];
+        extract(argb, width, height, out);
+        return out;
+    }
+
+    // 提取特征并写入 out（长度至少为 FEATURE_COUNT），内循环无内存分配
+    public void extract(int[] argb, int width, int height, float[] out) {
+        extract(argb, width, height, out, CancellationToken.NONE);
+    }
+
+    /**
+     * 同上，每处理一行检查一次取消标记。
+     *
+     * @throws java.util.concurrent.CancellationException 已取消时
+     */
+    public void extract(int[] argb, int width, int height, float[] out, CancellationToken token) {
+        if (width < 3 || height < 3) {
+            throw new IllegalArgumentException("图像尺寸过小: " + width + "x" + height);
+        }
+        int size = width * height;
+        if (argb.length < size) {
+            throw new IllegalArgumentException("像素数组长度不足: " + argb.length + " < " + size);
+        }
+        if (out.length < FEATURE_COUNT) {
+            throw new IllegalArgumentException("输出数组长度不足: " + out.length);
+        }
+
+        // 1. 一次性计算灰度平面，LBP 邻域直接查表
+        if (gray.length < size) {
+            gray = new byte[size];
+        }
+        byte[] g8 = gray;
+        kernel.gray(argb, g8, 0, size);
+
+        // 2. 内核逐行计算 HSV 和 LBP，HSV 矩按原实现的顺序用 float 累加
+        int inner = width - 2;
+        if (hRow.length < inner) {
+            hRow = new float[inner];
+            sRow = new float[inner];
+            vRow = new float[inner];
+        }
+        float[] hs = hRow;
+        float[] ss = sRow;
+        float[] vs = vRow;
+        float hSum = 0, sSum = 0, vSum = 0;
+        float hSqSum = 0, sSqSum = 0, vSqSum = 0;
+        int pixelCount = 0;
+        long lbpSum = 0;
+
+        for (int i = 1; i < height - 1; i++) {
+            token.throwIfCancelled();
+            int row = i * width;
+            kernel.hsv(argb, row + 1, row + width - 1, hs, ss, vs);
+            for (int j = 0; j < inner; j++) {
+                float h = hs[j];
+                float s = ss[j];
+                float v = vs[j];
+                hSum += h;
+                sSum += s;
+                vSum += v;
+                hSqSum += h * h;
+                sSqSum += s * s;
+                vSqSum += v * v;
+            }
+            pixelCount += inner;
+            lbpSum += kernel.lbpRow(g8, width, i, 1, width - 1);
+        }
+
+        // 计算HSV均值和标准差
+        float hMean = hSum / pixelCount;
+        float sMean = sSum / pixelCount;
+        float vMean = vSum / pixelCount;
+        out[0] = hMean;
+        out[1] = (float) Math.sqrt((hSqSum / pixelCount) - hMean * hMean);
+        out[2] = sMean;
+        out[3] = (float) Math.sqrt((sSqSum / pixelCount) - sMean * sMean);
+        out[4] = vMean;
+        out[5] = (float) Math.sqrt((vSqSum / pixelCount) - vMean * vMean);
+        // LBP均值（每个内部像素一个编码）
+        out[6] = (float) lbpSum / pixelCount;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.skinrecognition.core.feature;
+
+/**
+ * 特征向量的布局版本。scaler_mean.txt、scaler_std.txt、tree_model.txt 和 ensemble_model.txt
+ * 可以用 {@code descriptor:<id>} 一行声明训练时使用的布局，skin_model.bin 在文件头中记录版本号；
+ * 没有声明的旧模型按特征数推断。
+ */
+public enum FeatureLayout {
+    /**
+     * 原来的 7 维特征 {hMean, hStd, sMean, sStd, vMean, vStd, lbpMean}，由 {@link FeatureExtractor}
+     * 提取，也可以由 {@link Descriptor} 投影得到。
+     */
+    BASIC(1, "hsv-lbp-7", FeatureExtractor.FEATURE_COUNT),
+    /**
+     * BASIC 的 7 维，之后依次为 59 维均匀 LBP 直方图、18 维 H、8 维 S、8 维 V 直方图（均为占比）。
+     */
+    EXTENDED(2, "hsv-lbp59-hist", FeatureExtractor.FEATURE_COUNT + Descriptor.LBP_BINS
+            + Descriptor.HUE_BINS + Descriptor.SATURATION_BINS + Descriptor.VALUE_BINS);
+
+    /** 文本模型中声明布局的键。 */
+    public static final String KEY = "descriptor";
+
+    private final int version;
+    private final String id;
+    private final int featureCount;
+
+    FeatureLayout(int version, String id, int featureCount) {
+        this.version = version;
+        this.id = id;
+        this.featureCount = featureCount;
+    }
+
+    // 写入 skin_model.bin 的版本号
+    public int getVersion() {
+        return version;
+    }
+
+    // 写入文本模型的名字
+    public String getId() {
+        return id;
+    }
+
+    public int getFeatureCount() {
+        return featureCount;
+    }
+
+    // 按名字查找，未知时返回 null
+    public static FeatureLayout forId(String id) {
+        for (FeatureLayout layout : values()) {
+            if (layout.id.equals(id)) {
+                return layout;
+            }
+        }
+        return null;
+    }
+
+    // 按版本号查找，未知时返回 null
+    public static FeatureLayout forVersion(int version) {
+        for (FeatureLayout layout : values()) {
+            if (layout.version == version) {
+                return layout;
+            }
+        }
+        return null;
+    }
+
+    // 没有声明布局的模型按特征数推断，对不上任何布局时返回 null
+    public static FeatureLayout infer(int featureCount) {
+        for (FeatureLayout layout : values()) {
+            if (layout.featureCount == featureCount) {
+                return layout;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.skinrecognition.core.feature;
+
+/**
+ * 查表计算 HSV，结果与 {@code Color.RGBToHSV} 的公式（float 除法）逐位相同。
+ * <p>
+ * 8 位分量只有 256 种取值：V 直接查表；S 和 H 中的 {@code (float) n / d}（|n|、d 不超过 255）
+ * 改为乘以查表得到的 double 倒数再舍入到 float。n/d 不能精确表示时离 float 的舍入边界至少
+ * 相差 2^-33（相对），远大于 double 乘法 2^-52 的误差，所以舍入结果与直接相除相同；
+ * 可以精确表示时两种算法都是精确的。省掉每个像素三次 float 除法；
+ * H 的扇区用整数掩码选择，不再依赖分支预测。
+ */
+final class HsvLut {
+
+    // VALUE[max] = max / 255f
+    private static final float[] VALUE = new float[256];
+    // RECIPROCAL[d] = 1.0 / d，RECIPROCAL[0] 为 0（只在分子也为 0 时用到）
+    private static final double[] RECIPROCAL = new double[256];
+
+    // 三个扇区的偏移：r、g、b 最大
+    private static final float[] OFFSET = {0, 2, 4};
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            VALUE[i] = i / 255f;
+            RECIPROCAL[i] = i == 0 ? 0 : 1.0 / i;
+        }
+    }
+
+    private HsvLut() {
+    }
+
+    static float value(int max) {
+        return VALUE[max];
+    }
+
+    // delta 为 0 时（包括 max 为 0）结果为 0
+    static float saturation(int max, int delta) {
+        return (float) (delta * RECIPROCAL[max]);
+    }
+
+    static float hue(int r, int g, int b, int max, int delta) {
+        // 扇区用 0/1 掩码选择，避免随机颜色下的分支预测失败
+        int isR = ((r - max) >> 31) + 1;
+        int isG = (((g - max) >> 31) + 1) & (isR ^ 1);
+        int isB = 1 - isR - isG;
+        int numerator = ((g - b) & -isR) | ((b - r) & -isG) | ((r - g) & -isB);
+        // 只有 r 最大的扇区会得到负值，此时加 360
+        return (OFFSET[isG + 2 * isB] + (float) (numerator * RECIPROCAL[delta])) * 60
+                + (isR & (numerator >>> 31)) * 360f;
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.skinrecognition.core.feature;
+
+import com.example.skinrecognition.core.exec.CancellationToken;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 按 {@link PatchGrid} 分区块提取特征：每个区块输出一组与 {@link FeatureExtractor} 相同的 7 维特征。
+ * <p>
+ * 所有区块共用同一个像素数组和一次算好的灰度平面，区块只是行列范围，不复制像素；
+ * 区块边缘的 LBP 直接读取相邻区块的灰度。区块在 ForkJoinPool 上并行计算，
+ * 各区块的累加和还能直接合并成整个 ROI 的特征，不需要再遍历像素。实例本身无状态，可以在多个线程之间共享。
+ */
+public final class PatchFeatureExtractor {
+
+    // 灰度平面按行并行生成的粒度
+    private static final int GRAY_ROWS_PER_TASK = 32;
+
+    private final ForkJoinPool pool;
+
+    public PatchFeatureExtractor(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * 提取所有区块的特征。
+     *
+     * @param out    区块特征，按行优先顺序连续存放，长度至少为 getPatchCount() * FEATURE_COUNT
+     * @param roiOut 整个 ROI 的特征（各区块合并），可以为 null
+     * @throws IllegalArgumentException 区块小于 {@link PatchGrid#MIN_PATCH_SIZE} 像素时
+     * @throws java.util.concurrent.CancellationException 已取消时
+     */
+    public void extract(int[] argb, int width, int height, PatchGrid grid, float[] out, float[] roiOut,
+                        CancellationToken token) {
+        int m = FeatureExtractor.FEATURE_COUNT;
+        if (argb.length < width * height) {
+            throw new IllegalArgumentException("像素数组长度不足: " + argb.length);
+        }
+        if (out.length < grid.getPatchCount() * m) {
+            throw new IllegalArgumentException("输出数组长度不足: " + out.length);
+        }
+        int[] xs = grid.columnBounds(width);
+        int[] ys = grid.rowBounds(height);
+        for (int c = 0; c < grid.getCols(); c++) {
+            checkPatchSize(xs[c + 1] - xs[c], "宽", width);
+        }
+        for (int r = 0; r < grid.getRows(); r++) {
+            checkPatchSize(ys[r + 1] - ys[r], "高", height);
+        }
+
+        // 只生成 ROI 及上下各一行的灰度，所有区块共用
+        byte[] gray = new byte[width * height];
+        int grayFrom = Math.max(0, ys[0] - 1);
+        int grayTo = Math.min(height, ys[grid.getRows()] + 1);
+        pool.invoke(new TiledFeatureExtractor.GrayTask(argb, gray, width, grayFrom, grayTo, GRAY_ROWS_PER_TASK));
+        token.throwIfCancelled();
+
+        TileMoments[] moments = new TileMoments[grid.getPatchCount()];
+        pool.invoke(new PatchTask(argb, gray, width, height, xs, ys, grid.getCols(), moments,
+                0, moments.length, token));
+        for (int p = 0; p < moments.length; p++) {
+            moments[p].toFeatures(out, p * m);
+        }
+        if (roiOut != null) {
+            // 按固定顺序合并，结果与线程调度无关
+            TileMoments roi = new TileMoments();
+            for (TileMoments patch : moments) {
+                roi.merge(patch);
+            }
+            roi.toFeatures(roiOut);
+        }
+    }
+
+    private static void checkPatchSize(int size, String axis, int imageSize) {
+        if (size < PatchGrid.MIN_PATCH_SIZE) {
+            throw new IllegalArgumentException("区块" + axis + "度只有 " + size + " 像素（图像" + axis + " "
+                    + imageSize + "），请减少区块数或提高分析分辨率");
+        }
+    }
+
+    // 计算 [from, to) 号区块，多于一个时一分为二
+    private static final class PatchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] argb;
+        private final byte[] gray;
+        private final int width;
+        private final int height;
+        private final int[] xs;
+        private final int[] ys;
+        private final int cols;
+        private final TileMoments[] moments;
+        private final int from;
+        private final int to;
+        private final CancellationToken token;
+
+        PatchTask(int[] argb, byte[] gray, int width, int height, int[] xs, int[] ys, int cols,
+                  TileMoments[] moments, int from, int to, CancellationToken token) {
+            this.argb = argb;
+            this.gray = gray;
+            this.width = width;
+            this.height = height;
+            this.xs = xs;
+            this.ys = ys;
+            this.cols = cols;
+            this.moments = moments;
+            this.from = from;
+            this.to = to;
+            this.token = token;
+        }
+
+        @Override
+        protected void compute() {
+            token.throwIfCancelled();
+            if (to - from == 1) {
+                int r = from / cols;
+                int c = from % cols;
+                // 图像最外一圈没有完整的 LBP 邻域，与整图提取一样跳过
+                TileMoments patch = new TileMoments();
+                patch.accumulate(argb, gray, width, Math.max(1, ys[r]), Math.min(height - 1, ys[r + 1]),
+                        Math.max(1, xs[c]), Math.min(width - 1, xs[c + 1]));
+                moments[from] = patch;
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new PatchTask(argb, gray, width, height, xs, ys, cols, moments, from, mid, token),
+                    new PatchTask(argb, gray, width, height, xs, ys, cols, moments, mid, to, token));
+        }
+    }
+}
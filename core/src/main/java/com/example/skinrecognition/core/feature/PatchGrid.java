@@ -0,0 +1,124 @@
+package com.example.skinrecognition.core.feature;
+
+import java.util.Locale;
+
+/**
+ * 区块划分：在图像的一个感兴趣区域（ROI，按宽高的比例给出）内划分 rows x cols 个区块。
+ * 使用相对坐标，同一个划分可以用于任意分辨率的分析图，也能直接映射回显示的原图。
+ */
+public final class PatchGrid {
+
+    // 每个区块至少这么多像素宽高，保证去掉图像最外一圈后仍有内部像素
+    public static final int MIN_PATCH_SIZE = 4;
+
+    private final float left;
+    private final float top;
+    private final float width;
+    private final float height;
+    private final int rows;
+    private final int cols;
+
+    /**
+     * @param left   ROI 左边缘占图像宽度的比例，[0, 1)
+     * @param top    ROI 上边缘占图像高度的比例，[0, 1)
+     * @param width  ROI 宽度占图像宽度的比例，(0, 1 - left]
+     * @param height ROI 高度占图像高度的比例，(0, 1 - top]
+     */
+    public PatchGrid(float left, float top, float width, float height, int rows, int cols) {
+        if (rows < 1 || cols < 1) {
+            throw new IllegalArgumentException("区块行列数必须为正数: " + rows + "x" + cols);
+        }
+        if (!(left >= 0 && top >= 0 && width > 0 && height > 0
+                && left + width <= 1.0001f && top + height <= 1.0001f)) {
+            throw new IllegalArgumentException(String.format(Locale.ROOT,
+                    "ROI 超出图像范围: %.3f,%.3f,%.3f,%.3f", left, top, width, height));
+        }
+        this.left = left;
+        this.top = top;
+        this.width = Math.min(width, 1 - left);
+        this.height = Math.min(height, 1 - top);
+        this.rows = rows;
+        this.cols = cols;
+    }
+
+    // 整幅图划分为 rows x cols
+    public static PatchGrid full(int rows, int cols) {
+        return new PatchGrid(0, 0, 1, 1, rows, cols);
+    }
+
+    /**
+     * 解析 "4x4" 形式的行列数和 "x,y,w,h" 形式的相对 ROI（可以为 null，表示整幅图）。
+     *
+     * @throws IllegalArgumentException 格式错误时
+     */
+    public static PatchGrid parse(String grid, String roi) {
+        String[] rc = grid.trim().toLowerCase(Locale.ROOT).split("x");
+        if (rc.length != 2) {
+            throw new IllegalArgumentException("区块格式应为 行x列: " + grid);
+        }
+        int rows = Integer.parseInt(rc[0].trim());
+        int cols = Integer.parseInt(rc[1].trim());
+        if (roi == null || roi.trim().isEmpty()) {
+            return full(rows, cols);
+        }
+        String[] v = roi.split(",");
+        if (v.length != 4) {
+            throw new IllegalArgumentException("ROI 格式应为 x,y,w,h: " + roi);
+        }
+        return new PatchGrid(Float.parseFloat(v[0].trim()), Float.parseFloat(v[1].trim()),
+                Float.parseFloat(v[2].trim()), Float.parseFloat(v[3].trim()), rows, cols);
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getPatchCount() {
+        return rows * cols;
+    }
+
+    public float getLeft() {
+        return left;
+    }
+
+    public float getTop() {
+        return top;
+    }
+
+    public float getWidth() {
+        return width;
+    }
+
+    public float getHeight() {
+        return height;
+    }
+
+    /** 宽为 imageWidth 的图像中各列区块的像素边界，共 cols + 1 个，第 c 列为 [b[c], b[c + 1])。 */
+    public int[] columnBounds(int imageWidth) {
+        return bounds(left, width, cols, imageWidth);
+    }
+
+    /** 高为 imageHeight 的图像中各行区块的像素边界，共 rows + 1 个。 */
+    public int[] rowBounds(int imageHeight) {
+        return bounds(top, height, rows, imageHeight);
+    }
+
+    private static int[] bounds(float start, float extent, int parts, int size) {
+        int from = Math.round(start * size);
+        int to = Math.min(size, Math.round((start + extent) * size));
+        int[] b = new int[parts + 1];
+        for (int i = 0; i <= parts; i++) {
+            b[i] = from + (int) ((long) (to - from) * i / parts);
+        }
+        return b;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%dx%d@%.3f,%.3f,%.3f,%.3f", rows, cols, left, top, width, height);
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.skinrecognition.core.feature;
+
+/**
+ * 逐行处理的像素内核：灰度平面、逐像素 HSV 和 LBP 编码。灰度和 LBP 是整数运算，HSV 的每个分量
+ * 都与 {@code Color.RGBToHSV} 的 float 公式逐位相同，所以不同实现的结果完全相同；
+ * 特征提取器按行调用，再按原来的顺序累加 HSV 矩。
+ * <p>
+ * 默认实现见 {@link RowKernels#preferred()}：JVM 上有 {@code vector} 模块和
+ * {@code jdk.incubator.vector} 时使用 SIMD 实现，否则（包括 Android）使用标量实现。
+ * 实现必须无状态，可以在多个线程之间共享。
+ */
+public interface RowKernel {
+
+    /** 计算 gray[k] = (r + g + b) / 3，k ∈ [from, to)。 */
+    void gray(int[] argb, byte[] gray, int from, int to);
+
+    /**
+     * 计算 argb[from, to) 每个像素的 HSV，写入 h、s、v 的 [0, to - from)。
+     * 取值与 Color.RGBToHSV 相同：h ∈ [0, 360)，s、v ∈ [0, 1]，灰色像素的 h、s 为 0。
+     */
+    void hsv(int[] argb, int from, int to, float[] h, float[] s, float[] v);
+
+    /**
+     * 第 row 行 [colStart, colEnd) 列像素的 LBP 编码之和，位顺序与原实现相同（左上为最高位，顺时针）。
+     * 调用方保证这些像素都不在图像最外一圈。
+     */
+    long lbpRow(byte[] gray, int width, int row, int colStart, int colEnd);
+
+    /** 同上，把每个像素的 LBP 编码（0..255）写入 codes 的 [0, colEnd - colStart)。 */
+    void lbpCodes(byte[] gray, int width, int row, int colStart, int colEnd, int[] codes);
+
+    // 用于日志和基准报告
+    String getName();
+}
@@ -0,0 +1,116 @@
+package com.example.skinrecognition.core.feature;
+
+import java.util.Iterator;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * {@link RowKernel} 的标量实现和默认实现的选择。
+ * <p>
+ * 默认实现通过 {@link ServiceLoader} 查找（{@code vector} 模块注册了 SIMD 实现），
+ * 找不到、加载失败（运行时没有 {@code jdk.incubator.vector}）或系统属性
+ * {@code skin.kernel=scalar} 时使用标量实现。
+ */
+public final class RowKernels {
+
+    public static final String PROPERTY = "skin.kernel";
+
+    private static final RowKernel SCALAR = new Scalar();
+
+    private RowKernels() {
+    }
+
+    public static RowKernel scalar() {
+        return SCALAR;
+    }
+
+    public static RowKernel preferred() {
+        return Preferred.KERNEL;
+    }
+
+    // 第一次使用时才查找
+    private static final class Preferred {
+        static final RowKernel KERNEL = load();
+    }
+
+    static RowKernel load() {
+        if ("scalar".equalsIgnoreCase(System.getProperty(PROPERTY))) {
+            return SCALAR;
+        }
+        try {
+            Iterator<RowKernel> kernels = ServiceLoader.load(RowKernel.class, RowKernel.class.getClassLoader())
+                    .iterator();
+            if (kernels.hasNext()) {
+                return kernels.next();
+            }
+        } catch (ServiceConfigurationError | LinkageError e) {
+            // SIMD 实现不可用
+        }
+        return SCALAR;
+    }
+
+    private static final class Scalar implements RowKernel {
+
+        @Override
+        public void gray(int[] argb, byte[] gray, int from, int to) {
+            for (int k = from; k < to; k++) {
+                int p = argb[k];
+                gray[k] = (byte) ((((p >> 16) & 0xFF) + ((p >> 8) & 0xFF) + (p & 0xFF)) / 3);
+            }
+        }
+
+        @Override
+        public void hsv(int[] argb, int from, int to, float[] h, float[] s, float[] v) {
+            for (int k = from; k < to; k++) {
+                int pixel = argb[k];
+                int r = (pixel >> 16) & 0xFF;
+                int g = (pixel >> 8) & 0xFF;
+                int b = pixel & 0xFF;
+                int max = Math.max(r, Math.max(g, b));
+                int delta = max - Math.min(r, Math.min(g, b));
+                h[k - from] = HsvLut.hue(r, g, b, max, delta);
+                s[k - from] = HsvLut.saturation(max, delta);
+                v[k - from] = HsvLut.value(max);
+            }
+        }
+
+        @Override
+        public long lbpRow(byte[] gray, int width, int row, int colStart, int colEnd) {
+            int center0 = row * width;
+            long sum = 0;
+            for (int j = colStart; j < colEnd; j++) {
+                sum += code(gray, center0 + j, width);
+            }
+            return sum;
+        }
+
+        @Override
+        public void lbpCodes(byte[] gray, int width, int row, int colStart, int colEnd, int[] codes) {
+            int center0 = row * width;
+            for (int j = colStart; j < colEnd; j++) {
+                codes[j - colStart] = code(gray, center0 + j, width);
+            }
+        }
+
+        private static int code(byte[] gray, int k, int width) {
+            int up = k - width;
+            int down = k + width;
+            int center = gray[k] & 0xFF;
+            int code = 0;
+            code |= ((gray[up - 1] & 0xFF) >= center) ? 1 << 7 : 0;
+            code |= ((gray[up] & 0xFF) >= center) ? 1 << 6 : 0;
+            code |= ((gray[up + 1] & 0xFF) >= center) ? 1 << 5 : 0;
+            code |= ((gray[k + 1] & 0xFF) >= center) ? 1 << 4 : 0;
+            code |= ((gray[down + 1] & 0xFF) >= center) ? 1 << 3 : 0;
+            code |= ((gray[down] & 0xFF) >= center) ? 1 << 2 : 0;
+            code |= ((gray[down - 1] & 0xFF) >= center) ? 1 << 1 : 0;
+            code |= ((gray[k - 1] & 0xFF) >= center) ? 1 : 0;
+            return code;
+        }
+
+        @Override
+        public String getName() {
+            return "scalar";
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.skinrecognition.core.feature;
+
+/**
+ * 一个行带（tile）内的 HSV 一阶/二阶累加和与 LBP 累加和，合并时不需要第二遍遍历像素。
+ * LBP 和计数是整数，在 2^53 以内合并结果精确；HSV 的和与平方和用 double 累加，浮点加法不满足结合律，
+ * 不同的切分方式在最后几位上可能不同；
+ * 预览流分析中还可以按比例衰减，作为跨帧的滑动统计。
+ */
+final class TileMoments {
+
+    double hSum, sSum, vSum;
+    double hSqSum, sSqSum, vSqSum;
+    double lbpSum;
+    double count;
+
+    // 累加 [rowStart, rowEnd) 行的内部像素，gray 为整幅图的灰度平面
+    void accumulate(int[] argb, byte[] gray, int width, int rowStart, int rowEnd) {
+        accumulate(argb, gray, width, rowStart, rowEnd, 1, width - 1);
+    }
+
+    /**
+     * 只累加 [colStart, colEnd) 列，用于图像中的一个区块；LBP 邻域直接读取区块外的灰度，
+     * 调用方保证行列都在图像内部（不含最外一圈像素）。
+     */
+    void accumulate(int[] argb, byte[] gray, int width, int rowStart, int rowEnd, int colStart, int colEnd) {
+        RowKernel kernel = RowKernels.preferred();
+        int n = colEnd - colStart;
+        float[] hRow = new float[n];
+        float[] sRow = new float[n];
+        float[] vRow = new float[n];
+        double hs = 0, ss = 0, vs = 0, hq = 0, sq = 0, vq = 0;
+        long lbp = 0;
+        for (int i = rowStart; i < rowEnd; i++) {
+            int row = i * width;
+            kernel.hsv(argb, row + colStart, row + colEnd, hRow, sRow, vRow);
+            for (int j = 0; j < n; j++) {
+                float h = hRow[j];
+                float s = sRow[j];
+                float v = vRow[j];
+                hs += h;
+                ss += s;
+                vs += v;
+                hq += (double) h * h;
+                sq += (double) s * s;
+                vq += (double) v * v;
+            }
+            lbp += kernel.lbpRow(gray, width, i, colStart, colEnd);
+        }
+        hSum += hs;
+        sSum += ss;
+        vSum += vs;
+        hSqSum += hq;
+        sSqSum += sq;
+        vSqSum += vq;
+        lbpSum += lbp;
+        count += (long) (rowEnd - rowStart) * (colEnd - colStart);
+    }
+
+    // 所有累加和乘以 factor，用于跨帧指数衰减
+    void scale(double factor) {
+        hSum *= factor;
+        sSum *= factor;
+        vSum *= factor;
+        hSqSum *= factor;
+        sSqSum *= factor;
+        vSqSum *= factor;
+        lbpSum *= factor;
+        count *= factor;
+    }
+
+    void clear() {
+        scale(0);
+    }
+
+    TileMoments merge(TileMoments other) {
+        hSum += other.hSum;
+        sSum += other.sSum;
+        vSum += other.vSum;
+        hSqSum += other.hSqSum;
+        sSqSum += other.sSqSum;
+        vSqSum += other.vSqSum;
+        lbpSum += other.lbpSum;
+        count += other.count;
+        return this;
+    }
+
+    // 输出与 FeatureExtractor 相同顺序的7个特征
+    void toFeatures(float[] out) {
+        toFeatures(out, 0);
+    }
+
+    void toFeatures(float[] out, int offset) {
+        double hMean = hSum / count;
+        double sMean = sSum / count;
+        double vMean = vSum / count;
+        out[offset] = (float) hMean;
+        out[offset + 1] = (float) Math.sqrt(Math.max(0, hSqSum / count - hMean * hMean));
+        out[offset + 2] = (float) sMean;
+        out[offset + 3] = (float) Math.sqrt(Math.max(0, sSqSum / count - sMean * sMean));
+        out[offset + 4] = (float) vMean;
+        out[offset + 5] = (float) Math.sqrt(Math.max(0, vSqSum / count - vMean * vMean));
+        out[offset + 6] = (float) (lbpSum / count);
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.skinrecognition.core.feature;
+
+import com.example.skinrecognition.core.exec.CancellationToken;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 分块并行的特征提取：把图像按行切成若干行带，在 ForkJoinPool 上分别计算
+ * HSV 累加和与 LBP 累加和，再合并（HSV 部分只差 double 舍入误差）。适合 512x512 或原图分辨率。
+ * <p>
+ * LBP 需要上下相邻行的灰度，所以先并行生成整幅图的灰度平面，行带边界处直接读取
+ * 相邻行带的灰度，结果与不分块时完全一致。
+ * <p>
+ * 像素数不超过 {@link #SEQUENTIAL_THRESHOLD}（例如 200x200）时改用单线程的
+ * {@link FeatureExtractor}，保证输出与原来的实现逐位相同。
+ * 实例本身无状态，可以在多个线程之间共享。
+ */
+public final class TiledFeatureExtractor {
+
+    public static final int SEQUENTIAL_THRESHOLD = 256 * 256;
+    private static final int DEFAULT_ROWS_PER_TILE = 32;
+
+    private final ForkJoinPool pool;
+    private final int rowsPerTile;
+
+    public TiledFeatureExtractor(ForkJoinPool pool) {
+        this(pool, DEFAULT_ROWS_PER_TILE);
+    }
+
+    public TiledFeatureExtractor(ForkJoinPool pool, int rowsPerTile) {
+        if (rowsPerTile < 1) {
+            throw new IllegalArgumentException("rowsPerTile 必须为正数: " + rowsPerTile);
+        }
+        this.pool = pool;
+        this.rowsPerTile = rowsPerTile;
+    }
+
+    public float[] extract(int[] argb, int width, int height) {
+        float[] out = new float[FeatureExtractor.FEATURE_COUNT];
+        extract(argb, width, height, out);
+        return out;
+    }
+
+    public void extract(int[] argb, int width, int height, float[] out) {
+        extract(argb, width, height, out, CancellationToken.NONE);
+    }
+
+    /**
+     * 提取特征，各行带开始计算前检查取消标记。
+     *
+     * @throws java.util.concurrent.CancellationException 已取消时
+     */
+    public void extract(int[] argb, int width, int height, float[] out, CancellationToken token) {
+        if ((long) width * height <= SEQUENTIAL_THRESHOLD) {
+            new FeatureExtractor().extract(argb, width, height, out, token);
+            return;
+        }
+        extractTiled(argb, width, height, out, token);
+    }
+
+    // 不论图像大小都走分块路径（用于测试和基准）
+    public void extractTiled(int[] argb, int width, int height, float[] out) {
+        extractTiled(argb, width, height, out, CancellationToken.NONE);
+    }
+
+    public void extractTiled(int[] argb, int width, int height, float[] out, CancellationToken token) {
+        if (width < 3 || height < 3) {
+            throw new IllegalArgumentException("图像尺寸过小: " + width + "x" + height);
+        }
+        if (argb.length < width * height) {
+            throw new IllegalArgumentException("像素数组长度不足: " + argb.length);
+        }
+        if (out.length < FeatureExtractor.FEATURE_COUNT) {
+            throw new IllegalArgumentException("输出数组长度不足: " + out.length);
+        }
+        byte[] gray = new byte[width * height];
+        pool.invoke(new GrayTask(argb, gray, width, 0, height, rowsPerTile));
+        token.throwIfCancelled();
+        TileMoments moments = pool.invoke(new BandTask(argb, gray, width, 1, height - 1, rowsPerTile, token));
+        moments.toFeatures(out);
+    }
+
+    // 并行生成灰度平面 (r + g + b) / 3
+    static final class GrayTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] argb;
+        private final byte[] gray;
+        private final int width;
+        private final int rowStart;
+        private final int rowEnd;
+        private final int grain;
+
+        GrayTask(int[] argb, byte[] gray, int width, int rowStart, int rowEnd, int grain) {
+            this.argb = argb;
+            this.gray = gray;
+            this.width = width;
+            this.rowStart = rowStart;
+            this.rowEnd = rowEnd;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (rowEnd - rowStart <= grain) {
+                RowKernels.preferred().gray(argb, gray, rowStart * width, rowEnd * width);
+                return;
+            }
+            int mid = (rowStart + rowEnd) >>> 1;
+            invokeAll(new GrayTask(argb, gray, width, rowStart, mid, grain),
+                    new GrayTask(argb, gray, width, mid, rowEnd, grain));
+        }
+    }
+
+    // 计算 [rowStart, rowEnd) 行带的累加和，过大时一分为二
+    private static final class BandTask extends RecursiveTask<TileMoments> {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] argb;
+        private final byte[] gray;
+        private final int width;
+        private final int rowStart;
+        private final int rowEnd;
+        private final int grain;
+        private final CancellationToken token;
+
+        BandTask(int[] argb, byte[] gray, int width, int rowStart, int rowEnd, int grain,
+                 CancellationToken token) {
+            this.argb = argb;
+            this.gray = gray;
+            this.width = width;
+            this.rowStart = rowStart;
+            this.rowEnd = rowEnd;
+            this.grain = grain;
+            this.token = token;
+        }
+
+        @Override
+        protected TileMoments compute() {
+            token.throwIfCancelled();
+            if (rowEnd - rowStart <= grain) {
+                TileMoments moments = new TileMoments();
+                moments.accumulate(argb, gray, width, rowStart, rowEnd);
+                return moments;
+            }
+            int mid = (rowStart + rowEnd) >>> 1;
+            BandTask top = new BandTask(argb, gray, width, rowStart, mid, grain, token);
+            top.fork();
+            TileMoments bottom = new BandTask(argb, gray, width, mid, rowEnd, grain, token).compute();
+            return top.join().merge(bottom);
+        }
+    }
+}
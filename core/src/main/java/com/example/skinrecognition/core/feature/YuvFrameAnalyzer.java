@@ -0,0 +1,157 @@
+package com.example.skinrecognition.core.feature;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 相机预览帧（YUV_420_888）的流式特征提取，不经过 Bitmap。
+ * <p>
+ * 每帧在 Y/U/V 平面上按 gridSize x gridSize 的网格取样（相当于把整帧缩放到
+ * gridSize x gridSize，与拍照路径的 200x200 对应），只对取样点做 YUV → RGB 换算，
+ * 再用与 {@link TiledFeatureExtractor} 相同的方式计算 HSV 矩和 LBP。
+ * 各帧的累加和按 smoothing 指数衰减后合并，输出的特征随帧平滑变化。
+ * <p>
+ * 内部缓冲区在帧之间复用，不是线程安全的，请在同一个分析线程中调用。
+ */
+public final class YuvFrameAnalyzer {
+
+    public static final int DEFAULT_GRID_SIZE = 200;
+
+    private final int gridSize;
+    private final double smoothing;
+    // 取样网格的 ARGB 与灰度，每帧复用
+    private final int[] argb;
+    private final byte[] gray;
+    private final int[] axisX;
+    private final int[] axisY;
+    private final TileMoments frame = new TileMoments();
+    private final TileMoments running = new TileMoments();
+    private int frameCount;
+    private int axisWidth = -1;
+    private int axisHeight = -1;
+
+    /**
+     * @param gridSize  取样网格边长
+     * @param smoothing 新帧的权重 (0, 1]，1 表示不做跨帧平滑
+     */
+    public YuvFrameAnalyzer(int gridSize, double smoothing) {
+        if (gridSize < 3) {
+            throw new IllegalArgumentException("网格过小: " + gridSize);
+        }
+        if (!(smoothing > 0 && smoothing <= 1)) {
+            throw new IllegalArgumentException("smoothing 必须在 (0, 1] 之间: " + smoothing);
+        }
+        this.gridSize = gridSize;
+        this.smoothing = smoothing;
+        argb = new int[gridSize * gridSize];
+        gray = new byte[gridSize * gridSize];
+        axisX = new int[gridSize];
+        axisY = new int[gridSize];
+    }
+
+    /**
+     * 加入一帧。
+     *
+     * @param rotationDegrees 帧需要顺时针旋转多少度才是正向（0/90/180/270），
+     *                        保证 LBP 邻域方向与拍照路径一致
+     */
+    public void addFrame(ByteBuffer yPlane, int yRowStride,
+                         ByteBuffer uPlane, ByteBuffer vPlane, int uvRowStride, int uvPixelStride,
+                         int width, int height, int rotationDegrees) {
+        if (width < gridSize || height < gridSize) {
+            throw new IllegalArgumentException("帧尺寸小于取样网格: " + width + "x" + height);
+        }
+        if (width != axisWidth || height != axisHeight) {
+            // 取样点位于每个网格单元的中心
+            for (int i = 0; i < gridSize; i++) {
+                axisX[i] = (int) ((2L * i + 1) * width / (2L * gridSize));
+                axisY[i] = (int) ((2L * i + 1) * height / (2L * gridSize));
+            }
+            axisWidth = width;
+            axisHeight = height;
+        }
+        int last = gridSize - 1;
+        for (int gy = 0; gy < gridSize; gy++) {
+            int row = gy * gridSize;
+            for (int gx = 0; gx < gridSize; gx++) {
+                int sx, sy;
+                switch (rotationDegrees) {
+                    case 90:
+                        sx = axisX[gy];
+                        sy = axisY[last - gx];
+                        break;
+                    case 180:
+                        sx = axisX[last - gx];
+                        sy = axisY[last - gy];
+                        break;
+                    case 270:
+                        sx = axisX[last - gy];
+                        sy = axisY[gx];
+                        break;
+                    default:
+                        sx = axisX[gx];
+                        sy = axisY[gy];
+                        break;
+                }
+                int y = yPlane.get(sy * yRowStride + sx) & 0xFF;
+                int uv = (sy >> 1) * uvRowStride + (sx >> 1) * uvPixelStride;
+                int pixel = yuvToArgb(y, uPlane.get(uv) & 0xFF, vPlane.get(uv) & 0xFF);
+                argb[row + gx] = pixel;
+                gray[row + gx] = (byte) ((((pixel >> 16) & 0xFF) + ((pixel >> 8) & 0xFF) + (pixel & 0xFF)) / 3);
+            }
+        }
+        frame.clear();
+        frame.accumulate(argb, gray, gridSize, 1, gridSize - 1);
+        if (frameCount == 0) {
+            running.clear();
+        } else {
+            running.scale(1 - smoothing);
+        }
+        running.merge(frame);
+        frameCount++;
+    }
+
+    /**
+     * 写出平滑后的7个特征（顺序与 {@link FeatureExtractor} 相同）。
+     *
+     * @return 还没有任何帧时返回 false
+     */
+    public boolean getFeatures(float[] out) {
+        if (frameCount == 0) {
+            return false;
+        }
+        running.toFeatures(out);
+        return true;
+    }
+
+    // 只用最近一帧计算特征，不做平滑
+    public boolean getLastFrameFeatures(float[] out) {
+        if (frameCount == 0) {
+            return false;
+        }
+        frame.toFeatures(out);
+        return true;
+    }
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    // 画面内容变化较大时（例如切换拍摄部位）丢弃之前的统计
+    public void reset() {
+        frameCount = 0;
+        running.clear();
+    }
+
+    // BT.601 全范围（JFIF）YUV → RGB，系数放大 1024 倍用整数计算
+    static int yuvToArgb(int y, int u, int v) {
+        int d = u - 128;
+        int e = v - 128;
+        int r = y + ((1436 * e) >> 10);
+        int g = y - ((352 * d + 731 * e) >> 10);
+        int b = y + ((1815 * d) >> 10);
+        r = r < 0 ? 0 : Math.min(r, 255);
+        g = g < 0 ? 0 : Math.min(g, 255);
+        b = b < 0 ? 0 : Math.min(b, 255);
+        return 0xFF000000 | (r << 16) | (g << 8) | b;
+    }
+}
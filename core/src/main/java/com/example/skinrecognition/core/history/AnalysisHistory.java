@@ -0,0 +1,317 @@
+package com.example.skinrecognition.core.history;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * 只追加的分析历史：定长二进制记录存放在单个文件中，按块建立时间和类别索引。
+ * <p>
+ * 文件格式（小端）：16 字节文件头（魔数 "SKHL"、版本、特征数、记录长度），之后是定长记录：
+ * 时间戳、图片哈希、模型版本、类别、7 维原始特征、7 维归一化特征，最后是前面内容的 CRC32。
+ * <p>
+ * 每 {@value #BLOCK_RECORDS} 条记录为一块，内存中只保存每块的最早/最晚时间和出现过的类别，
+ * 范围查询和汇总只读取时间和类别可能匹配的块，不把全部记录读进内存。打开时顺序扫描一遍重建索引，
+ * 末尾写了一半或校验失败的记录（例如写入时进程被杀）会被截掉。
+ * <p>
+ * 所有方法线程安全；追加和查询都会读写文件，不要在主线程调用。
+ */
+public final class AnalysisHistory implements Closeable {
+
+    public static final long WEEK_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+    static final int MAGIC = 0x4C484B53; // "SKHL"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 8 + 8 + 8 + 4 + 8 * AnalysisRecord.FEATURE_COUNT + 4;
+    static final int BLOCK_RECORDS = 512;
+
+    /** 逐条访问查询结果，返回 false 时停止。 */
+    public interface Visitor {
+        boolean visit(AnalysisRecord record);
+    }
+
+    private final File file;
+    private final FileChannel channel;
+    private final ByteBuffer writeBuffer = ByteBuffer.allocate(RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final CRC32 crc = new CRC32();
+    private long count;
+    // 块索引：每块的最早、最晚时间和类别位图（类别不在 [0, 64) 时置全部位）
+    private long[] blockMin = new long[16];
+    private long[] blockMax = new long[16];
+    private long[] blockClasses = new long[16];
+    private boolean closed;
+
+    private AnalysisHistory(File file, FileChannel channel) {
+        this.file = file;
+        this.channel = channel;
+    }
+
+    /** 打开或新建历史文件。 */
+    public static AnalysisHistory open(File file) throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("无法创建目录: " + dir);
+        }
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        AnalysisHistory history = new AnalysisHistory(file, channel);
+        try {
+            history.load();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return history;
+    }
+
+    private void load() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        if (channel.size() < HEADER_SIZE) {
+            // 新文件，或者文件头都没写完
+            header.putInt(MAGIC).putInt(VERSION).putInt(AnalysisRecord.FEATURE_COUNT).putInt(RECORD_SIZE);
+            header.flip();
+            channel.truncate(0);
+            writeFully(header, 0);
+            return;
+        }
+        readFully(header, 0);
+        header.flip();
+        if (header.getInt() != MAGIC) {
+            throw new IOException("不是分析历史文件: " + file);
+        }
+        int version = header.getInt();
+        int features = header.getInt();
+        int recordSize = header.getInt();
+        if (version != VERSION || features != AnalysisRecord.FEATURE_COUNT || recordSize != RECORD_SIZE) {
+            throw new IOException("不支持的历史文件版本: version=" + version + ", features=" + features
+                    + ", recordSize=" + recordSize);
+        }
+
+        long stored = (channel.size() - HEADER_SIZE) / RECORD_SIZE;
+        ByteBuffer block = ByteBuffer.allocate(BLOCK_RECORDS * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        long valid = 0;
+        scan:
+        for (long first = 0; first < stored; first += BLOCK_RECORDS) {
+            int n = (int) Math.min(BLOCK_RECORDS, stored - first);
+            readBlock(block, first, n);
+            for (int i = 0; i < n; i++) {
+                int offset = i * RECORD_SIZE;
+                if (!checksumMatches(block, offset)) {
+                    break scan;
+                }
+                index(first + i, block.getLong(offset), block.getInt(offset + 24));
+                valid++;
+            }
+        }
+        count = valid;
+        long end = HEADER_SIZE + valid * RECORD_SIZE;
+        if (channel.size() != end) {
+            channel.truncate(end);
+        }
+    }
+
+    private boolean checksumMatches(ByteBuffer block, int offset) {
+        crc.reset();
+        crc.update(block.array(), offset, RECORD_SIZE - 4);
+        return (int) crc.getValue() == block.getInt(offset + RECORD_SIZE - 4);
+    }
+
+    // 把第 n 条记录计入块索引
+    private void index(long n, long timestamp, int label) {
+        int b = (int) (n / BLOCK_RECORDS);
+        if (b >= blockMin.length) {
+            int capacity = blockMin.length * 2;
+            blockMin = Arrays.copyOf(blockMin, capacity);
+            blockMax = Arrays.copyOf(blockMax, capacity);
+            blockClasses = Arrays.copyOf(blockClasses, capacity);
+        }
+        long bit = label >= 0 && label < 64 ? 1L << label : -1L;
+        if (n % BLOCK_RECORDS == 0) {
+            blockMin[b] = timestamp;
+            blockMax[b] = timestamp;
+            blockClasses[b] = bit;
+        } else {
+            blockMin[b] = Math.min(blockMin[b], timestamp);
+            blockMax[b] = Math.max(blockMax[b], timestamp);
+            blockClasses[b] |= bit;
+        }
+    }
+
+    /** 追加一条记录。 */
+    public synchronized void append(AnalysisRecord record) throws IOException {
+        checkOpen();
+        ByteBuffer buf = writeBuffer;
+        buf.clear();
+        buf.putLong(record.getTimestampMillis());
+        buf.putLong(record.getImageHash());
+        buf.putLong(record.getModelVersion());
+        buf.putInt(record.getLabel());
+        for (float v : record.features()) {
+            buf.putFloat(v);
+        }
+        for (float v : record.normalized()) {
+            buf.putFloat(v);
+        }
+        crc.reset();
+        crc.update(buf.array(), 0, RECORD_SIZE - 4);
+        buf.putInt((int) crc.getValue());
+        buf.flip();
+        writeFully(buf, HEADER_SIZE + count * RECORD_SIZE);
+        index(count, record.getTimestampMillis(), record.getLabel());
+        count++;
+    }
+
+    /** 把已经追加的记录刷到存储设备上。 */
+    public void flush() throws IOException {
+        channel.force(false);
+    }
+
+    public synchronized long size() {
+        return count;
+    }
+
+    /**
+     * 按文件顺序（即追加顺序）访问时间在 [fromMillis, toMillis) 内的记录。
+     *
+     * @param label 只访问该类别，小于 0 时不限类别
+     */
+    public void scan(long fromMillis, long toMillis, int label, Visitor visitor) throws IOException {
+        // 在锁内取索引的快照，读文件时不阻塞追加
+        long snapshotCount;
+        long[] min;
+        long[] max;
+        long[] classes;
+        synchronized (this) {
+            checkOpen();
+            snapshotCount = count;
+            int blocks = (int) ((count + BLOCK_RECORDS - 1) / BLOCK_RECORDS);
+            min = Arrays.copyOf(blockMin, blocks);
+            max = Arrays.copyOf(blockMax, blocks);
+            classes = Arrays.copyOf(blockClasses, blocks);
+        }
+        long labelBit = label >= 0 && label < 64 ? 1L << label : -1L;
+        ByteBuffer block = null;
+        for (int b = 0; b < min.length; b++) {
+            if (max[b] < fromMillis || min[b] >= toMillis || (label >= 0 && (classes[b] & labelBit) == 0)) {
+                continue;
+            }
+            if (block == null) {
+                block = ByteBuffer.allocate(BLOCK_RECORDS * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            }
+            long first = (long) b * BLOCK_RECORDS;
+            int n = (int) Math.min(BLOCK_RECORDS, snapshotCount - first);
+            readBlock(block, first, n);
+            for (int i = 0; i < n; i++) {
+                int offset = i * RECORD_SIZE;
+                long timestamp = block.getLong(offset);
+                int recordLabel = block.getInt(offset + 24);
+                if (timestamp < fromMillis || timestamp >= toMillis || (label >= 0 && recordLabel != label)) {
+                    continue;
+                }
+                if (!visitor.visit(decode(block, offset))) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /** 时间在 [fromMillis, toMillis) 内的记录，最多 limit 条。 */
+    public List<AnalysisRecord> query(long fromMillis, long toMillis, int label, int limit) throws IOException {
+        List<AnalysisRecord> result = new ArrayList<>();
+        if (limit <= 0) {
+            return result;
+        }
+        scan(fromMillis, toMillis, label, record -> {
+            result.add(record);
+            return result.size() < limit;
+        });
+        return result;
+    }
+
+    /**
+     * 按时间段汇总 [fromMillis, toMillis) 内的记录，例如 bucketMillis 取 {@link #WEEK_MILLIS} 得到每周的类别分布。
+     * 时间段从 fromMillis 开始划分，包括没有记录的时间段。
+     */
+    public List<TrendBucket> aggregate(long fromMillis, long toMillis, long bucketMillis, int classCount)
+            throws IOException {
+        if (bucketMillis <= 0 || toMillis <= fromMillis) {
+            throw new IllegalArgumentException("时间范围无效: [" + fromMillis + ", " + toMillis
+                    + "), bucket=" + bucketMillis);
+        }
+        long buckets = (toMillis - fromMillis + bucketMillis - 1) / bucketMillis;
+        if (buckets > 100_000) {
+            throw new IllegalArgumentException("时间段过多: " + buckets);
+        }
+        List<TrendBucket> result = new ArrayList<>((int) buckets);
+        for (long start = fromMillis; start < toMillis; start += bucketMillis) {
+            result.add(new TrendBucket(start, Math.min(start + bucketMillis, toMillis), classCount));
+        }
+        scan(fromMillis, toMillis, -1, record -> {
+            result.get((int) ((record.getTimestampMillis() - fromMillis) / bucketMillis)).add(record);
+            return true;
+        });
+        return result;
+    }
+
+    private static AnalysisRecord decode(ByteBuffer block, int offset) {
+        float[] features = new float[AnalysisRecord.FEATURE_COUNT];
+        float[] normalized = new float[AnalysisRecord.FEATURE_COUNT];
+        int p = offset + 28;
+        for (int f = 0; f < features.length; f++, p += 4) {
+            features[f] = block.getFloat(p);
+        }
+        for (int f = 0; f < normalized.length; f++, p += 4) {
+            normalized[f] = block.getFloat(p);
+        }
+        return new AnalysisRecord(block.getLong(offset), block.getLong(offset + 8), block.getLong(offset + 16),
+                block.getInt(offset + 24), features, normalized);
+    }
+
+    // 读取从第 first 条开始的 n 条记录到 block 开头
+    private void readBlock(ByteBuffer block, long first, int n) throws IOException {
+        block.clear();
+        block.limit(n * RECORD_SIZE);
+        readFully(block, HEADER_SIZE + first * RECORD_SIZE);
+        block.clear();
+    }
+
+    private void readFully(ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = channel.read(buf, position);
+            if (n < 0) {
+                throw new IOException("历史文件意外结束: " + file);
+            }
+            position += n;
+        }
+    }
+
+    private void writeFully(ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            position += channel.write(buf, position);
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("历史文件已关闭: " + file);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            channel.close();
+        }
+    }
+}
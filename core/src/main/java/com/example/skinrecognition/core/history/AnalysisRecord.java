@@ -0,0 +1,88 @@
+package com.example.skinrecognition.core.history;
+
+import com.example.skinrecognition.core.feature.FeatureExtractor;
+import com.example.skinrecognition.core.feature.FeatureLayout;
+
+import java.util.Arrays;
+
+/**
+ * 一次分析的历史记录：时间、图片内容哈希、7 维原始特征和归一化特征、类别和模型版本。
+ * 没有手工特征的结果（例如 CNN 后端）特征为 NaN。其它 {@link FeatureLayout} 的特征只保存开头的 7 维，
+ * 各布局都以 {@link FeatureLayout#BASIC} 的 7 维开头，历史文件的格式不变。
+ */
+public final class AnalysisRecord {
+
+    public static final int FEATURE_COUNT = FeatureExtractor.FEATURE_COUNT;
+
+    private final long timestampMillis;
+    private final long imageHash;
+    private final long modelVersion;
+    private final int label;
+    private final float[] features;
+    private final float[] normalized;
+
+    /**
+     * @param imageHash    图片文件的 {@link com.example.skinrecognition.core.cache.ContentHash}，未知时为 0
+     * @param modelVersion 模型指纹，未知时为 0
+     * @param features     原始特征，任一布局的特征数，可以为 null
+     * @param normalized   归一化特征，与 features 的布局相同，可以为 null
+     */
+    public AnalysisRecord(long timestampMillis, long imageHash, long modelVersion, int label,
+                          float[] features, float[] normalized) {
+        this.timestampMillis = timestampMillis;
+        this.imageHash = imageHash;
+        this.modelVersion = modelVersion;
+        this.label = label;
+        this.features = copyOrNaN(features);
+        this.normalized = copyOrNaN(normalized);
+    }
+
+    private static float[] copyOrNaN(float[] values) {
+        if (values == null) {
+            float[] empty = new float[FEATURE_COUNT];
+            Arrays.fill(empty, Float.NaN);
+            return empty;
+        }
+        if (FeatureLayout.infer(values.length) == null) {
+            throw new IllegalArgumentException("特征数量与已知的布局都不符: " + values.length);
+        }
+        return Arrays.copyOf(values, FEATURE_COUNT);
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public long getImageHash() {
+        return imageHash;
+    }
+
+    public long getModelVersion() {
+        return modelVersion;
+    }
+
+    public int getLabel() {
+        return label;
+    }
+
+    public float getFeature(int index) {
+        return features[index];
+    }
+
+    public float[] getFeatures() {
+        return features.clone();
+    }
+
+    public float[] getNormalized() {
+        return normalized.clone();
+    }
+
+    // 内部读写直接访问数组，避免复制
+    float[] features() {
+        return features;
+    }
+
+    float[] normalized() {
+        return normalized;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.skinrecognition.core.history;
+
+/**
+ * 一个时间段（例如一周）内的汇总：各类别的次数和每维原始特征的均值，
+ * 相邻时间段的均值之差即特征漂移。
+ */
+public final class TrendBucket {
+
+    private final long startMillis;
+    private final long endMillis;
+    private final int[] classCounts;
+    private final double[] featureSums;
+    private final int[] featureCounts;
+    private int count;
+
+    TrendBucket(long startMillis, long endMillis, int classCount) {
+        this.startMillis = startMillis;
+        this.endMillis = endMillis;
+        this.classCounts = new int[classCount];
+        this.featureSums = new double[AnalysisRecord.FEATURE_COUNT];
+        this.featureCounts = new int[AnalysisRecord.FEATURE_COUNT];
+    }
+
+    void add(AnalysisRecord record) {
+        count++;
+        int label = record.getLabel();
+        if (label >= 0 && label < classCounts.length) {
+            classCounts[label]++;
+        }
+        float[] features = record.features();
+        for (int f = 0; f < features.length; f++) {
+            // CNN 等没有手工特征的记录不参与均值
+            if (!Float.isNaN(features[f])) {
+                featureSums[f] += features[f];
+                featureCounts[f]++;
+            }
+        }
+    }
+
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    // 不含
+    public long getEndMillis() {
+        return endMillis;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getClassCount(int label) {
+        return classCounts[label];
+    }
+
+    // 该类别占本时间段记录数的比例，没有记录时为 0
+    public double getClassFraction(int label) {
+        return count == 0 ? 0 : (double) classCounts[label] / count;
+    }
+
+    // 原始特征的均值，没有有效值时为 NaN
+    public double getFeatureMean(int feature) {
+        return featureCounts[feature] == 0 ? Double.NaN : featureSums[feature] / featureCounts[feature];
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.skinrecognition.core.image;
+
+/**
+ * 与 {@code Bitmap.getPixels} 布局相同的 ARGB 像素数组及其宽高，
+ * 用于在不依赖 Android 的代码之间传递解码后的图片。
+ */
+public final class ArgbImage {
+
+    private final int[] pixels;
+    private final int width;
+    private final int height;
+
+    public ArgbImage(int[] pixels, int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("图像尺寸无效: " + width + "x" + height);
+        }
+        if (pixels.length < width * height) {
+            throw new IllegalArgumentException("像素数组长度不足: " + pixels.length + " < " + width * height);
+        }
+        this.pixels = pixels;
+        this.width = width;
+        this.height = height;
+    }
+
+    // 直接返回内部数组，不复制
+    public int[] getPixels() {
+        return pixels;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+}
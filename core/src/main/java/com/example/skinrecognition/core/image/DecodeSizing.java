@@ -0,0 +1,39 @@
+package com.example.skinrecognition.core.image;
+
+/**
+ * 解码前的尺寸计算：根据原图尺寸和需要的尺寸选择 2 的幂次采样率，
+ * 使解码后的图像在满足分析/显示需要的前提下尽量小。
+ */
+public final class DecodeSizing {
+
+    // ARGB_8888 每像素字节数
+    public static final int BYTES_PER_PIXEL = 4;
+
+    private DecodeSizing() {
+    }
+
+    /**
+     * 返回最大的 2 的幂次 inSampleSize，使采样后的宽高仍不小于 reqWidth x reqHeight。
+     * reqWidth 或 reqHeight 不大于 0 时表示不缩小，返回 1。
+     */
+    public static int computeSampleSize(int srcWidth, int srcHeight, int reqWidth, int reqHeight) {
+        if (srcWidth <= 0 || srcHeight <= 0 || reqWidth <= 0 || reqHeight <= 0) {
+            return 1;
+        }
+        int sampleSize = 1;
+        while (srcWidth / (sampleSize * 2) >= reqWidth && srcHeight / (sampleSize * 2) >= reqHeight) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    // 采样后的边长（与 BitmapFactory 一致，向上取整）
+    public static int sampledSize(int srcSize, int sampleSize) {
+        return (srcSize + sampleSize - 1) / sampleSize;
+    }
+
+    // 以 ARGB_8888 解码时需要的字节数
+    public static long decodedBytes(int srcWidth, int srcHeight, int sampleSize) {
+        return (long) sampledSize(srcWidth, sampleSize) * sampledSize(srcHeight, sampleSize) * BYTES_PER_PIXEL;
+    }
+}
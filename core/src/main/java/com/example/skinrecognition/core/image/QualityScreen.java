@@ -0,0 +1,348 @@
+package com.example.skinrecognition.core.image;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * 拍照质量预检：把图片按整数倍块平均缩小到长边不超过 {@link Thresholds#getMaxSide()} 的亮度平面，
+ * 检查曝光（直方图两端被截断的像素比例）、取景（肤色像素比例）和对焦（拉普拉斯响应的方差），
+ * 不合格时给出具体的重拍原因，分析在特征提取之前结束。
+ * <p>
+ * 缩小后的尺寸与分析分辨率（200x200）相当：在这个尺度上看不出的模糊也不会影响特征。
+ * 实例不可变，可以在多个线程之间共享。
+ */
+public final class QualityScreen {
+
+    /** 不合格的原因，按检查顺序排列。 */
+    public enum Reason {
+        TOO_DARK("光线太暗，请到明亮处重拍"),
+        OVEREXPOSED("曝光过度，请避开强光重拍"),
+        NO_SKIN("画面中皮肤太少，请靠近皮肤重拍"),
+        BLURRY("照片模糊，请对焦后重拍");
+
+        private final String message;
+
+        Reason(String message) {
+            this.message = message;
+        }
+
+        // 显示给用户的重拍提示
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    /**
+     * 各项阈值。可以用 {@link #parse} 从 {@code 键=值,键=值} 形式的字符串覆盖部分默认值，
+     * 键为 max_side、min_sharpness、dark_level、max_dark、bright_level、max_bright、min_skin。
+     */
+    public static final class Thresholds {
+
+        /** 默认阈值：亮度不超过 16 的像素超过一半为太暗，不低于 240 的超过 30% 为过曝，肤色不足 25%。 */
+        public static final Thresholds DEFAULT = new Thresholds(128, 5f, 16, 0.5f, 240, 0.3f, 0.25f);
+
+        private final int maxSide;
+        private final float minSharpness;
+        private final int darkLevel;
+        private final float maxDarkFraction;
+        private final int brightLevel;
+        private final float maxBrightFraction;
+        private final float minSkinFraction;
+
+        public Thresholds(int maxSide, float minSharpness, int darkLevel, float maxDarkFraction,
+                          int brightLevel, float maxBrightFraction, float minSkinFraction) {
+            if (maxSide < 3 || darkLevel < 0 || brightLevel > 255 || darkLevel >= brightLevel
+                    || !(minSharpness >= 0) || !inUnit(maxDarkFraction) || !inUnit(maxBrightFraction)
+                    || !inUnit(minSkinFraction)) {
+                throw new IllegalArgumentException(String.format(Locale.ROOT,
+                        "质量阈值无效: max_side=%d min_sharpness=%s dark=%d/%s bright=%d/%s min_skin=%s",
+                        maxSide, minSharpness, darkLevel, maxDarkFraction, brightLevel, maxBrightFraction,
+                        minSkinFraction));
+            }
+            this.maxSide = maxSide;
+            this.minSharpness = minSharpness;
+            this.darkLevel = darkLevel;
+            this.maxDarkFraction = maxDarkFraction;
+            this.brightLevel = brightLevel;
+            this.maxBrightFraction = maxBrightFraction;
+            this.minSkinFraction = minSkinFraction;
+        }
+
+        private static boolean inUnit(float value) {
+            return value >= 0 && value <= 1;
+        }
+
+        /**
+         * 在默认值的基础上覆盖给出的项，spec 为 null 或空时返回默认值。
+         *
+         * @throws IllegalArgumentException 键未知或取值无效时
+         */
+        public static Thresholds parse(String spec) {
+            Thresholds d = DEFAULT;
+            if (spec == null || spec.trim().isEmpty()) {
+                return d;
+            }
+            int maxSide = d.maxSide;
+            float minSharpness = d.minSharpness;
+            int darkLevel = d.darkLevel;
+            float maxDark = d.maxDarkFraction;
+            int brightLevel = d.brightLevel;
+            float maxBright = d.maxBrightFraction;
+            float minSkin = d.minSkinFraction;
+            for (String item : spec.split(",")) {
+                String[] kv = item.split("=", 2);
+                if (kv.length != 2) {
+                    throw new IllegalArgumentException("质量阈值格式应为 键=值: " + item);
+                }
+                String value = kv[1].trim();
+                switch (kv[0].trim()) {
+                    case "max_side":
+                        maxSide = Integer.parseInt(value);
+                        break;
+                    case "min_sharpness":
+                        minSharpness = Float.parseFloat(value);
+                        break;
+                    case "dark_level":
+                        darkLevel = Integer.parseInt(value);
+                        break;
+                    case "max_dark":
+                        maxDark = Float.parseFloat(value);
+                        break;
+                    case "bright_level":
+                        brightLevel = Integer.parseInt(value);
+                        break;
+                    case "max_bright":
+                        maxBright = Float.parseFloat(value);
+                        break;
+                    case "min_skin":
+                        minSkin = Float.parseFloat(value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("未知的质量阈值: " + kv[0].trim());
+                }
+            }
+            return new Thresholds(maxSide, minSharpness, darkLevel, maxDark, brightLevel, maxBright, minSkin);
+        }
+
+        // 缩小后亮度平面的最大边长
+        public int getMaxSide() {
+            return maxSide;
+        }
+
+        // 拉普拉斯响应方差的下限（亮度 0..255），低于它为模糊；0 表示不检查
+        public float getMinSharpness() {
+            return minSharpness;
+        }
+
+        public int getDarkLevel() {
+            return darkLevel;
+        }
+
+        public float getMaxDarkFraction() {
+            return maxDarkFraction;
+        }
+
+        public int getBrightLevel() {
+            return brightLevel;
+        }
+
+        public float getMaxBrightFraction() {
+            return maxBrightFraction;
+        }
+
+        // 肤色像素比例的下限，0 表示不检查
+        public float getMinSkinFraction() {
+            return minSkinFraction;
+        }
+    }
+
+    /** 一次预检的测量值和结论。 */
+    public static final class Result {
+        private final Reason reason;
+        private final float sharpness;
+        private final float darkFraction;
+        private final float brightFraction;
+        private final float skinFraction;
+
+        Result(Reason reason, float sharpness, float darkFraction, float brightFraction, float skinFraction) {
+            this.reason = reason;
+            this.sharpness = sharpness;
+            this.darkFraction = darkFraction;
+            this.brightFraction = brightFraction;
+            this.skinFraction = skinFraction;
+        }
+
+        public boolean isAcceptable() {
+            return reason == null;
+        }
+
+        // 不合格的原因，合格时为 null
+        public Reason getReason() {
+            return reason;
+        }
+
+        public float getSharpness() {
+            return sharpness;
+        }
+
+        public float getDarkFraction() {
+            return darkFraction;
+        }
+
+        public float getBrightFraction() {
+            return brightFraction;
+        }
+
+        public float getSkinFraction() {
+            return skinFraction;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%s sharpness=%.1f dark=%.3f bright=%.3f skin=%.3f",
+                    reason != null ? reason : "OK", sharpness, darkFraction, brightFraction, skinFraction);
+        }
+    }
+
+    private final Thresholds thresholds;
+
+    public QualityScreen(Thresholds thresholds) {
+        this.thresholds = thresholds;
+    }
+
+    public Thresholds getThresholds() {
+        return thresholds;
+    }
+
+    public Result screen(ArgbImage image) {
+        return screen(image.getPixels(), image.getWidth(), image.getHeight());
+    }
+
+    /**
+     * 检查一张图片。缩小倍数为使长边不超过 maxSide 的最小整数，每个格子取块内 RGB 的平均值；
+     * 不足一整块的右边和下边被忽略。
+     */
+    public Result screen(int[] argb, int width, int height) {
+        if (width <= 0 || height <= 0 || argb.length < width * height) {
+            throw new IllegalArgumentException("图像尺寸无效: " + width + "x" + height);
+        }
+        int factor = Math.max(1, (Math.max(width, height) + thresholds.maxSide - 1) / thresholds.maxSide);
+        // 很扁的图至少保留一行一列
+        factor = Math.min(factor, Math.min(width, height));
+        int w = width / factor;
+        int h = height / factor;
+        int[] pixels = factor == 1 ? argb : downsample(argb, width, factor, w, h);
+        int n = w * h;
+        int[] luma = new int[n];
+        // 下面两个循环都只做整数运算，计数写成符号位的加法而不用条件分支，JIT 可以向量化；
+        // 合在一个循环里或者按行处理都会慢好几倍
+        int outside = 0;
+        for (int i = 0; i < n; i++) {
+            int p = pixels[i];
+            int r = (p >> 16) & 0xFF;
+            int g = (p >> 8) & 0xFF;
+            int b = p & 0xFF;
+            // BT.601 亮度和色度的整数近似
+            luma[i] = (77 * r + 150 * g + 29 * b) >> 8;
+            int cb = (-43 * r - 85 * g + 128 * b + 32768) >> 8;
+            int cr = (128 * r - 107 * g - 21 * b + 32768) >> 8;
+            // YCbCr 空间的肤色范围（Chai 和 Ngan）：77 <= Cb <= 127，133 <= Cr <= 173，范围外的计 1
+            outside += ((cb - 77) | (127 - cb) | (cr - 133) | (173 - cr)) >>> 31;
+        }
+        int darkLevel = thresholds.darkLevel;
+        int brightLevel = thresholds.brightLevel;
+        int dark = 0;
+        int bright = 0;
+        for (int i = 0; i < n; i++) {
+            int yy = luma[i];
+            dark += (yy - darkLevel - 1) >>> 31;
+            bright += (brightLevel - 1 - yy) >>> 31;
+        }
+        float count = n;
+        float sharpness = laplacianVariance(luma, w, h);
+        float darkFraction = dark / count;
+        float brightFraction = bright / count;
+        float skinFraction = (n - outside) / count;
+        Reason reason = null;
+        if (darkFraction > thresholds.maxDarkFraction) {
+            reason = Reason.TOO_DARK;
+        } else if (brightFraction > thresholds.maxBrightFraction) {
+            reason = Reason.OVEREXPOSED;
+        } else if (skinFraction < thresholds.minSkinFraction) {
+            reason = Reason.NO_SKIN;
+        } else if (sharpness < thresholds.minSharpness) {
+            reason = Reason.BLURRY;
+        }
+        return new Result(reason, sharpness, darkFraction, brightFraction, skinFraction);
+    }
+
+    // 按 factor x factor 的块平均，结果仍是 ARGB（alpha 为 0xFF）
+    private static int[] downsample(int[] argb, int width, int factor, int w, int h) {
+        // 用定点倒数代替除法：块内总和不超过 255 * area，area < 2^16 时 floor(sum * reciprocal >> 40)
+        // 与 sum / area 完全相同，更大的块最多差 1
+        long reciprocal = ((1L << 40) + factor * factor - 1) / (factor * factor);
+        int span = w * factor;
+        int[] out = new int[w * h];
+        // 先把 factor 行逐列累加（连续访问），再把每 factor 列合成一格
+        int[] red = new int[span];
+        int[] green = new int[span];
+        int[] blue = new int[span];
+        for (int y = 0; y < h; y++) {
+            Arrays.fill(red, 0);
+            Arrays.fill(green, 0);
+            Arrays.fill(blue, 0);
+            for (int dy = 0; dy < factor; dy++) {
+                int row = (y * factor + dy) * width;
+                for (int x = 0; x < span; x++) {
+                    int p = argb[row + x];
+                    red[x] += (p >> 16) & 0xFF;
+                    green[x] += (p >> 8) & 0xFF;
+                    blue[x] += p & 0xFF;
+                }
+            }
+            for (int x = 0, k = 0; x < w; x++) {
+                int r = 0;
+                int g = 0;
+                int b = 0;
+                for (int dx = 0; dx < factor; dx++, k++) {
+                    r += red[k];
+                    g += green[k];
+                    b += blue[k];
+                }
+                out[y * w + x] = 0xFF000000 | (int) (r * reciprocal >>> 40) << 16
+                        | (int) (g * reciprocal >>> 40) << 8 | (int) (b * reciprocal >>> 40);
+            }
+        }
+        return out;
+    }
+
+    // 4 邻域拉普拉斯响应在内部像素上的方差，图太小时为 0
+    static float laplacianVariance(int[] luma, int w, int h) {
+        if (w < 3 || h < 3) {
+            return 0;
+        }
+        // 先在整个平面上连续计算响应（左右边界列的值无意义），再按行只累加内部像素
+        int[] response = new int[w * h];
+        for (int k = w, end = w * (h - 1); k < end; k++) {
+            response[k] = 4 * luma[k] - luma[k - 1] - luma[k + 1] - luma[k - w] - luma[k + w];
+        }
+        long sum = 0;
+        long sumSq = 0;
+        for (int y = 1; y < h - 1; y++) {
+            // 响应不超过 ±1020，一行的和不会超出 int
+            int rowSum = 0;
+            long rowSq = 0;
+            for (int k = y * w + 1, end = y * w + w - 1; k < end; k++) {
+                int r = response[k];
+                rowSum += r;
+                rowSq += r * r;
+            }
+            sum += rowSum;
+            sumSq += rowSq;
+        }
+        double n = (double) (w - 2) * (h - 2);
+        double mean = sum / n;
+        // 整数累加没有舍入误差，直接用 E[x²] - E[x]² 即可
+        return (float) (sumSq / n - mean * mean);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.skinrecognition.core.io;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * 直接内存缓冲区池：编码结果写入直接缓冲区后，可以由 NIO 通道直接写出，不再复制到堆数组。
+ * 直接缓冲区分配较慢且不受 GC 及时回收，所以用完归还复用。线程安全。
+ */
+public final class DirectBufferPool {
+
+    private final int maxPooled;
+    private final ArrayDeque<ByteBuffer> pool = new ArrayDeque<>();
+
+    /**
+     * @param maxPooled 池中最多保留的缓冲区数，多出的归还时直接丢弃
+     */
+    public DirectBufferPool(int maxPooled) {
+        if (maxPooled < 0) {
+            throw new IllegalArgumentException("maxPooled 不能为负数: " + maxPooled);
+        }
+        this.maxPooled = maxPooled;
+    }
+
+    /** 取一个容量不小于 minCapacity 的缓冲区，position 为 0，limit 为容量。 */
+    public ByteBuffer acquire(int minCapacity) {
+        synchronized (pool) {
+            for (Iterator<ByteBuffer> it = pool.iterator(); it.hasNext(); ) {
+                ByteBuffer buffer = it.next();
+                if (buffer.capacity() >= minCapacity) {
+                    it.remove();
+                    buffer.clear();
+                    return buffer;
+                }
+            }
+        }
+        return ByteBuffer.allocateDirect(minCapacity);
+    }
+
+    public void release(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect()) {
+            return;
+        }
+        synchronized (pool) {
+            if (pool.size() < maxPooled) {
+                pool.addFirst(buffer);
+            } else if (!pool.isEmpty() && pool.peekLast().capacity() < buffer.capacity()) {
+                // 池满时保留较大的缓冲区，下次更可能直接满足
+                pool.pollLast();
+                pool.addFirst(buffer);
+            }
+        }
+    }
+
+    public int getPooledCount() {
+        synchronized (pool) {
+            return pool.size();
+        }
+    }
+}
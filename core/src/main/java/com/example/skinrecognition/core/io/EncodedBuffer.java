@@ -0,0 +1,108 @@
+package com.example.skinrecognition.core.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 编码一次、多处写出的输出缓冲区：编码器（例如 Bitmap.compress）把结果写进来，
+ * 之后用 {@link #writeTo} 通过 NIO 通道写到任意多个目标，每次写出都不复制数据。
+ * <p>
+ * 底层是从 {@link DirectBufferPool} 取得的直接缓冲区，空间不够时换成两倍大的缓冲区，
+ * 旧的归还给池。{@link #close()} 后缓冲区归还，不能再使用。不是线程安全的。
+ */
+public final class EncodedBuffer extends OutputStream {
+
+    private final DirectBufferPool pool;
+    private ByteBuffer buffer;
+
+    public EncodedBuffer(DirectBufferPool pool, int initialCapacity) {
+        this.pool = pool;
+        this.buffer = pool.acquire(Math.max(initialCapacity, 16));
+    }
+
+    @Override
+    public void write(int b) {
+        ensureCapacity(1);
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        if (off < 0 || len < 0 || off + len > b.length) {
+            throw new IndexOutOfBoundsException("off=" + off + ", len=" + len + ", length=" + b.length);
+        }
+        ensureCapacity(len);
+        buffer.put(b, off, len);
+    }
+
+    private void ensureCapacity(int extra) {
+        checkOpen();
+        if (buffer.remaining() >= extra) {
+            return;
+        }
+        long needed = (long) buffer.position() + extra;
+        if (needed > Integer.MAX_VALUE) {
+            throw new IllegalStateException("编码结果过大: " + needed);
+        }
+        int capacity = (int) Math.min(Integer.MAX_VALUE, Math.max(needed, 2L * buffer.capacity()));
+        ByteBuffer larger = pool.acquire(capacity);
+        buffer.flip();
+        larger.put(buffer);
+        pool.release(buffer);
+        buffer = larger;
+    }
+
+    /** 清空内容，保留已分配的缓冲区，用于下一次编码。 */
+    public void reset() {
+        checkOpen();
+        buffer.clear();
+    }
+
+    public int size() {
+        checkOpen();
+        return buffer.position();
+    }
+
+    /** 当前内容的只读视图，与缓冲区共享数据，下次 {@link #reset()} 后失效。 */
+    public ByteBuffer contents() {
+        checkOpen();
+        ByteBuffer view = buffer.duplicate();
+        view.flip();
+        return view.asReadOnlyBuffer();
+    }
+
+    /** 把全部内容写入通道，不关闭通道。 */
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        ByteBuffer view = contents();
+        while (view.hasRemaining()) {
+            channel.write(view);
+        }
+    }
+
+    /** 覆盖写入文件。 */
+    public void writeTo(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeTo(channel);
+        }
+    }
+
+    private void checkOpen() {
+        if (buffer == null) {
+            throw new IllegalStateException("缓冲区已关闭");
+        }
+    }
+
+    @Override
+    public void close() {
+        if (buffer != null) {
+            pool.release(buffer);
+            buffer = null;
+        }
+    }
+}
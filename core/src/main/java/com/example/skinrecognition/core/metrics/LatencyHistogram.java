@@ -0,0 +1,140 @@
+package com.example.skinrecognition.core.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 无锁的耗时直方图（纳秒），桶按 HDR 直方图的方式划分：每个 2 的幂区间再线性分成 32 个子桶，
+ * 小于 64ns 的值各占一个桶，因此任意值的相对误差不超过 1/32。
+ * <p>
+ * {@link #record} 只做几次原子加法，不分配内存，可以在热路径上从任意线程调用；
+ * {@link #snapshot()} 复制当前计数，之后的统计都在快照上计算。
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    // 超过约 18 分钟的值按上限记录
+    private static final int MAX_BITS = 40;
+    static final long MAX_VALUE = (1L << MAX_BITS) - 1;
+    static final int BUCKET_COUNT = (MAX_BITS - SUB_BITS + 1) * SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /** 记录一次耗时，负数按 0 记录。 */
+    public void record(long nanos) {
+        long value = nanos < 0 ? 0 : Math.min(nanos, MAX_VALUE);
+        counts.getAndIncrement(bucketOf(value));
+        total.getAndIncrement();
+        sum.getAndAdd(value);
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            // 其它线程刚更新了最大值，重新比较
+        }
+    }
+
+    public long getCount() {
+        return total.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        total.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        // 复制期间可能有新的记录，计数以复制到的桶为准
+        return new Snapshot(copy, count, sum.get(), max.get());
+    }
+
+    static int bucketOf(long value) {
+        if (value < 2 * SUB_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return (shift + 1) * SUB_COUNT + (int) (value >>> shift) - SUB_COUNT;
+    }
+
+    // 桶内的最大值
+    static long highestValueIn(int bucket) {
+        if (bucket < 2 * SUB_COUNT) {
+            return bucket;
+        }
+        int shift = bucket / SUB_COUNT - 1;
+        long mantissa = bucket % SUB_COUNT + SUB_COUNT;
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    /** 某一时刻的统计结果，不再变化。 */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        Snapshot(long[] counts, long count, long sum, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * 分位数（纳秒），q 取 [0, 1]。返回所在桶的上界，不超过记录到的最大值；没有记录时返回 0。
+         */
+        public long getPercentile(double q) {
+            if (q < 0 || q > 1) {
+                throw new IllegalArgumentException("分位数必须在 [0, 1] 内: " + q);
+            }
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(q * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestValueIn(i), max);
+                }
+            }
+            return max;
+        }
+
+        public long getP50() {
+            return getPercentile(0.50);
+        }
+
+        public long getP95() {
+            return getPercentile(0.95);
+        }
+
+        public long getP99() {
+            return getPercentile(0.99);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.skinrecognition.core.metrics;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 拍照到出结果整条流水线的埋点：每个阶段一个 {@link LatencyHistogram}，外加各类失败的计数。
+ * <p>
+ * 典型用法是在阶段开始时取 {@code long t = System.nanoTime()}，结束时
+ * {@code t = metrics.lap(Stage.X, t)}，返回值直接作为下一阶段的起点。
+ * 每个阶段的开销是一次 nanoTime 加几次原子操作，可以一直开着。
+ * <p>
+ * 自适应推理另外记录各级提前返回的次数、抽查的一致次数和当前的误差倍数，见 {@link #recordAdaptiveLevel}。
+ */
+public final class PipelineMetrics {
+
+    /** 流水线阶段。 */
+    public enum Stage {
+        /** 解码图片文件为位图（含读取尺寸和采样）。 */
+        DECODE,
+        /** 缩放到分析尺寸并读出像素。 */
+        RESIZE,
+        /** 拍照质量预检（对焦、曝光、取景），被拒的次数见 REJECTED_* 失败。 */
+        QUALITY_SCREEN,
+        /** 计算图片内容哈希并查预测缓存。 */
+        CACHE_LOOKUP,
+        /** 计算感知哈希并查找连拍中的近似重复照片。 */
+        NEAR_DUPLICATE,
+        /** HSV/LBP 特征提取。 */
+        EXTRACT,
+        /** 特征归一化。 */
+        NORMALIZE,
+        /** 决策树/集成模型/CNN 推理。 */
+        PREDICT,
+        /** 上传推理服务并等待结果。 */
+        REMOTE,
+        /** 推理线程产出结果到主线程开始处理的等待。 */
+        UI_POST,
+        /** 提交分析到显示结果的总耗时。 */
+        TOTAL,
+        /** 模型从请求加载到可用。 */
+        MODEL_LOAD,
+        /** 分享卡片的绘制和编码。 */
+        SHARE_ENCODE,
+        /** 分享卡片写入相册或缓存文件。 */
+        SHARE_WRITE
+    }
+
+    /** 失败类型。 */
+    public enum Failure {
+        DECODE_FAILED,
+        MODEL_LOAD_FAILED,
+        MODEL_UNAVAILABLE,
+        ANALYSIS_FAILED,
+        CANCELLED,
+        QUEUE_FULL,
+        REMOTE_FAILED,
+        SHARE_FAILED,
+        // 质量预检不合格，提示重拍；除以 QUALITY_SCREEN 的次数即为各原因的拒绝率
+        REJECTED_TOO_DARK,
+        REJECTED_OVEREXPOSED,
+        REJECTED_NO_SKIN,
+        REJECTED_BLURRY
+    }
+
+    /** 自适应推理最多统计的采样级数，不含最后的完整提取。 */
+    public static final int MAX_ADAPTIVE_LEVELS = 4;
+
+    private final Map<Stage, LatencyHistogram> histograms = new EnumMap<>(Stage.class);
+    private final AtomicLongArray failures = new AtomicLongArray(Failure.values().length);
+    // 下标 i < MAX_ADAPTIVE_LEVELS 为在第 i 级提前返回的次数，最后一项为完整提取的次数
+    private final AtomicLongArray adaptiveLevels = new AtomicLongArray(MAX_ADAPTIVE_LEVELS + 1);
+    private final AtomicLong adaptiveAudits = new AtomicLong();
+    private final AtomicLong adaptiveAgreed = new AtomicLong();
+    private volatile float adaptiveConfidence = Float.NaN;
+    private final long createdMillis = System.currentTimeMillis();
+
+    public PipelineMetrics() {
+        for (Stage stage : Stage.values()) {
+            histograms.put(stage, new LatencyHistogram());
+        }
+    }
+
+    public void record(Stage stage, long nanos) {
+        histograms.get(stage).record(nanos);
+    }
+
+    /** 记录从 startNanos 到现在的耗时，返回现在的 nanoTime。 */
+    public long lap(Stage stage, long startNanos) {
+        long now = System.nanoTime();
+        histograms.get(stage).record(now - startNanos);
+        return now;
+    }
+
+    public void recordFailure(Failure failure) {
+        failures.getAndIncrement(failure.ordinal());
+    }
+
+    /** 自适应推理在第 level 级提前返回；level 等于级数时表示改为完整提取。 */
+    public void recordAdaptiveLevel(int level) {
+        adaptiveLevels.getAndIncrement(Math.min(level, MAX_ADAPTIVE_LEVELS));
+    }
+
+    /** 一次抽查的结果，以及抽查后的误差倍数。 */
+    public void recordAdaptiveAudit(boolean agreed, float confidence) {
+        adaptiveAudits.getAndIncrement();
+        if (agreed) {
+            adaptiveAgreed.getAndIncrement();
+        }
+        adaptiveConfidence = confidence;
+    }
+
+    public long getAdaptiveLevelCount(int level) {
+        return adaptiveLevels.get(level);
+    }
+
+    // 累计的抽查一致率（不随 confidence 调整清零），还没有抽查时为 NaN
+    public float getAdaptiveAgreement() {
+        long audits = adaptiveAudits.get();
+        return audits == 0 ? Float.NaN : (float) adaptiveAgreed.get() / audits;
+    }
+
+    public long getAdaptiveAuditCount() {
+        return adaptiveAudits.get();
+    }
+
+    public LatencyHistogram get(Stage stage) {
+        return histograms.get(stage);
+    }
+
+    public long getFailureCount(Failure failure) {
+        return failures.get(failure.ordinal());
+    }
+
+    public void reset() {
+        for (LatencyHistogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+        for (int i = 0; i < failures.length(); i++) {
+            failures.set(i, 0);
+        }
+        for (int i = 0; i < adaptiveLevels.length(); i++) {
+            adaptiveLevels.set(i, 0);
+        }
+        adaptiveAudits.set(0);
+        adaptiveAgreed.set(0);
+    }
+
+    /**
+     * 导出为制表符分隔的文本：每个阶段一行（次数、平均值、p50/p95/p99、最大值，单位微秒），
+     * 然后每种失败一行，最后是自适应推理各级的次数和抽查结果。没有记录的阶段也输出，
+     * 便于多次导出的文件对齐比较。
+     */
+    public String toText() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("# since_ms=").append(createdMillis)
+                .append(" exported_ms=").append(System.currentTimeMillis()).append('\n');
+        sb.append("stage\tcount\tmean_us\tp50_us\tp95_us\tp99_us\tmax_us\n");
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram.Snapshot s = histograms.get(stage).snapshot();
+            sb.append(String.format(Locale.ROOT, "%s\t%d\t%.1f\t%.1f\t%.1f\t%.1f\t%.1f\n",
+                    stage.name().toLowerCase(Locale.ROOT), s.getCount(), s.getMean() / 1000,
+                    s.getP50() / 1000.0, s.getP95() / 1000.0, s.getP99() / 1000.0, s.getMax() / 1000.0));
+        }
+        sb.append("failure\tcount\n");
+        for (Failure failure : Failure.values()) {
+            sb.append(failure.name().toLowerCase(Locale.ROOT)).append('\t')
+                    .append(failures.get(failure.ordinal())).append('\n');
+        }
+        sb.append("adaptive\tvalue\n");
+        for (int i = 0; i < MAX_ADAPTIVE_LEVELS; i++) {
+            sb.append("level_").append(i).append('\t').append(adaptiveLevels.get(i)).append('\n');
+        }
+        sb.append("full\t").append(adaptiveLevels.get(MAX_ADAPTIVE_LEVELS)).append('\n');
+        sb.append("audits\t").append(adaptiveAudits.get()).append('\n');
+        sb.append(String.format(Locale.ROOT, "agreement\t%.4f\n", getAdaptiveAgreement()));
+        sb.append("confidence\t").append(adaptiveConfidence).append('\n');
+        return sb.toString();
+    }
+
+    /** 写入文件（先写临时文件再改名），不要在主线程调用。 */
+    public void writeTo(File file) throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("无法创建目录: " + dir);
+        }
+        File tmp = new File(file.getPath() + ".tmp");
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8)) {
+            out.write(toText());
+        }
+        if (!tmp.renameTo(file)) {
+            // 部分文件系统不能覆盖已有文件
+            if (!file.delete() || !tmp.renameTo(file)) {
+                tmp.delete();
+                throw new IOException("无法写入: " + file);
+            }
+        }
+    }
+}
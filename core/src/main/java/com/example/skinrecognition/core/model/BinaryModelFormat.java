@@ -0,0 +1,142 @@
+package com.example.skinrecognition.core.model;
+
+import com.example.skinrecognition.core.feature.FeatureLayout;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 预编译的二进制模型格式（skin_model.bin），由 {@link ModelConverter} 从文本模型生成。
+ * <p>
+ * 所有字段均为小端 32 位：
+ * <pre>
+ * 0   magic        'SKMB'
+ * 4   version      当前为 2
+ * 8   nodeCount    n
+ * 12  featureCount m
+ * 16  classCount
+ * 20  checksum     之后全部字节的 FNV-1a 32 位校验
+ * 24  layout       特征布局版本（{@link FeatureLayout#getVersion()}），0 表示未知；版本 1 没有这个字段
+ * 28  float[m] scalerMean, float[m] scalerStd,
+ *     int[n] feature, float[n] threshold, int[n] left, int[n] right, int[n] label
+ * </pre>
+ * 节点数组已是 {@link TreeModel} 的内部布局（叶子的 feature 为 -1），
+ * 加载时整段批量读取，不做逐字段解析。
+ */
+public final class BinaryModelFormat {
+
+    public static final int MAGIC = 0x424D4B53; // "SKMB" 小端
+    public static final int VERSION = 2;
+    static final int HEADER_SIZE = 28;
+    // 版本 1 的文件头没有 layout 字段，按特征数推断布局
+    private static final int V1_HEADER_SIZE = 24;
+    // 校验和覆盖的起点
+    private static final int CHECKSUM_FROM = 24;
+
+    private BinaryModelFormat() {
+    }
+
+    // 二进制模型的字节数
+    public static int sizeOf(int nodeCount, int featureCount) {
+        return sizeOf(HEADER_SIZE, nodeCount, featureCount);
+    }
+
+    private static int sizeOf(int headerSize, int nodeCount, int featureCount) {
+        return headerSize + 4 * (2 * featureCount + 5 * nodeCount);
+    }
+
+    public static byte[] toBytes(TreeModel model) {
+        int n = model.getNodeCount();
+        int m = model.getFeatureCount();
+        ByteBuffer buf = ByteBuffer.allocate(sizeOf(n, m)).order(ByteOrder.LITTLE_ENDIAN);
+        FeatureLayout layout = model.getLayout();
+        buf.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(m).putInt(model.getClassCount()).putInt(0)
+                .putInt(layout != null ? layout.getVersion() : 0);
+        buf.asFloatBuffer().put(model.scalerMean).put(model.scalerStd);
+        int pos = HEADER_SIZE + 8 * m;
+        buf.position(pos);
+        buf.asIntBuffer().put(model.feature);
+        pos += 4 * n;
+        buf.position(pos);
+        buf.asFloatBuffer().put(model.threshold);
+        pos += 4 * n;
+        buf.position(pos);
+        buf.asIntBuffer().put(model.left).put(model.right).put(model.label);
+        buf.putInt(20, checksum(buf, CHECKSUM_FROM, buf.capacity()));
+        return buf.array();
+    }
+
+    /**
+     * 从缓冲区（通常是内存映射的 asset）读取模型，不改变 buffer 自身的 position。
+     *
+     * @throws ModelFormatException 文件头、长度、校验和或树结构不合法时
+     */
+    public static TreeModel read(ByteBuffer source) throws ModelFormatException {
+        ByteBuffer buf = source.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        buf.position(0);
+        if (buf.remaining() < V1_HEADER_SIZE) {
+            throw new ModelFormatException("二进制模型长度不足: " + buf.remaining());
+        }
+        if (buf.getInt(0) != MAGIC) {
+            throw new ModelFormatException("二进制模型标识错误");
+        }
+        int version = buf.getInt(4);
+        if (version != 1 && version != VERSION) {
+            throw new ModelFormatException("不支持的二进制模型版本: " + version);
+        }
+        int headerSize = version == 1 ? V1_HEADER_SIZE : HEADER_SIZE;
+        int n = buf.getInt(8);
+        int m = buf.getInt(12);
+        int classCount = buf.getInt(16);
+        if (n <= 0 || m <= 0 || classCount <= 0 || n > (1 << 24) || m > 4096) {
+            throw new ModelFormatException("二进制模型头部数值非法: n=" + n + ", m=" + m
+                    + ", classCount=" + classCount);
+        }
+        int size = sizeOf(headerSize, n, m);
+        if (buf.limit() != size) {
+            throw new ModelFormatException("二进制模型长度不符: " + buf.limit() + " != " + size);
+        }
+        if (buf.getInt(20) != checksum(buf, CHECKSUM_FROM, size)) {
+            throw new ModelFormatException("二进制模型校验和不一致");
+        }
+        FeatureLayout layout = null;
+        if (version != 1 && buf.getInt(24) != 0) {
+            layout = FeatureLayout.forVersion(buf.getInt(24));
+            if (layout == null) {
+                throw new ModelFormatException("未知的特征布局版本: " + buf.getInt(24));
+            }
+        }
+
+        float[] mean = new float[m];
+        float[] std = new float[m];
+        int[] feature = new int[n];
+        float[] threshold = new float[n];
+        int[] left = new int[n];
+        int[] right = new int[n];
+        int[] label = new int[n];
+
+        buf.position(headerSize);
+        buf.asFloatBuffer().get(mean).get(std);
+        int pos = headerSize + 8 * m;
+        buf.position(pos);
+        buf.asIntBuffer().get(feature);
+        pos += 4 * n;
+        buf.position(pos);
+        buf.asFloatBuffer().get(threshold);
+        pos += 4 * n;
+        buf.position(pos);
+        buf.asIntBuffer().get(left).get(right).get(label);
+
+        return TreeModel.fromCompiled(feature, threshold, left, right, label, mean, std, classCount, layout);
+    }
+
+    // FNV-1a 32 位校验（minSdk 24 上 CRC32 不支持 ByteBuffer）
+    static int checksum(ByteBuffer buf, int from, int to) {
+        int hash = 0x811C9DC5;
+        for (int i = from; i < to; i++) {
+            hash ^= buf.get(i) & 0xFF;
+            hash *= 0x01000193;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,395 @@
+package com.example.skinrecognition.core.model;
+
+import com.example.skinrecognition.core.cache.ContentHash;
+import com.example.skinrecognition.core.feature.FeatureLayout;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * 多棵决策树组成的集成模型（随机森林或梯度提升树），输出各类别的概率。
+ * <p>
+ * 节点格式与 tree_model.txt 相同。所有树的节点首尾相接存放在同一组基本类型数组中，
+ * 子节点下标是全局下标；批量推理时外层循环遍历树、内层循环遍历一批样本，
+ * 同一棵树的节点在处理整批样本期间一直留在缓存中。
+ * <ul>
+ * <li>{@link Kind#FOREST}：每棵树的叶子给出类别，概率为投票比例</li>
+ * <li>{@link Kind#BOOSTED}：叶子的 threshold 列为叶子值，label 列为该值累加到的类别，
+ *     各类别得分 = baseScore + learningRate * 叶子值之和，经 softmax 得到概率</li>
+ * </ul>
+ * 实例不可变，可以在多个线程之间共享。
+ */
+public final class EnsembleModel {
+
+    public enum Kind {
+        FOREST, BOOSTED
+    }
+
+    // 批量推理时一次处理的样本数
+    private static final int BLOCK = 64;
+
+    private final Kind kind;
+    final int[] roots;
+    final int[] feature;
+    // 内部节点为分裂阈值，BOOSTED 的叶子为叶子值
+    final float[] threshold;
+    final int[] left;
+    final int[] right;
+    final int[] label;
+    final float[] scalerMean;
+    final float[] scalerStd;
+    private final int classCount;
+    private final float learningRate;
+    private final float[] baseScore;
+    private final int maxDepth;
+    private final FeatureLayout layout;
+    private volatile long fingerprint;
+
+    private EnsembleModel(Kind kind, int[] roots, int[] feature, float[] threshold, int[] left,
+                          int[] right, int[] label, float[] scalerMean, float[] scalerStd,
+                          int classCount, float learningRate, float[] baseScore, int maxDepth,
+                          FeatureLayout layout) {
+        this.kind = kind;
+        this.roots = roots;
+        this.feature = feature;
+        this.threshold = threshold;
+        this.left = left;
+        this.right = right;
+        this.label = label;
+        this.scalerMean = scalerMean;
+        this.scalerStd = scalerStd;
+        this.classCount = classCount;
+        this.learningRate = learningRate;
+        this.baseScore = baseScore;
+        this.maxDepth = maxDepth;
+        this.layout = layout;
+    }
+
+    /**
+     * 校验并打包集成模型。节点数组按树依次拼接，列的含义与 tree_model.txt 相同，
+     * 子节点下标是树内的局部下标；treeSizes[t] 为第 t 棵树的节点数。传入的数组会被复制。
+     *
+     * @param baseScore BOOSTED 时各类别的初始得分，可以为 null（全 0）；FOREST 时忽略
+     * @throws ModelFormatException 任意一棵树结构不合法时
+     */
+    public static EnsembleModel compile(Kind kind, int[] treeSizes, int[] type, int[] featureIndex,
+                                        float[] threshold, int[] leftChild, int[] rightChild,
+                                        int[] label, float[] scalerMean, float[] scalerStd,
+                                        int classCount, float learningRate,
+                                        float[] baseScore) throws ModelFormatException {
+        return compile(kind, treeSizes, type, featureIndex, threshold, leftChild, rightChild, label,
+                scalerMean, scalerStd, classCount, learningRate, baseScore, null);
+    }
+
+    /**
+     * 同上，并声明训练时使用的特征布局；为 null 时按特征数推断。
+     *
+     * @throws ModelFormatException 结构不合法或特征数与布局不符时
+     */
+    public static EnsembleModel compile(Kind kind, int[] treeSizes, int[] type, int[] featureIndex,
+                                        float[] threshold, int[] leftChild, int[] rightChild,
+                                        int[] label, float[] scalerMean, float[] scalerStd,
+                                        int classCount, float learningRate, float[] baseScore,
+                                        FeatureLayout layout) throws ModelFormatException {
+        int n = type.length;
+        if (featureIndex.length != n || threshold.length != n || leftChild.length != n
+                || rightChild.length != n || label.length != n) {
+            throw new ModelFormatException("节点数组长度不一致");
+        }
+        if (treeSizes.length == 0) {
+            throw new ModelFormatException("集成模型中没有树");
+        }
+        if (scalerMean.length != scalerStd.length) {
+            throw new ModelFormatException("归一化参数长度不一致: mean=" + scalerMean.length
+                    + ", std=" + scalerStd.length);
+        }
+        if (classCount < 2) {
+            throw new ModelFormatException("类别数至少为 2: " + classCount);
+        }
+        float[] base = new float[classCount];
+        if (kind == Kind.BOOSTED && baseScore != null) {
+            if (baseScore.length != classCount) {
+                throw new ModelFormatException("base_score 长度与类别数不符: " + baseScore.length);
+            }
+            base = baseScore.clone();
+        }
+
+        int featureCount = scalerMean.length;
+        layout = TreeModel.checkLayout(layout, featureCount);
+        int[] roots = new int[treeSizes.length];
+        int[] f = new int[n];
+        float[] t = new float[n];
+        int[] l = new int[n];
+        int[] r = new int[n];
+        int[] c = new int[n];
+        int maxDepth = 0;
+        int offset = 0;
+        for (int tree = 0; tree < treeSizes.length; tree++) {
+            int size = treeSizes[tree];
+            if (size <= 0 || offset + size > n) {
+                throw new ModelFormatException("第 " + tree + " 棵树的节点数非法: " + size);
+            }
+            int[] localF = new int[size];
+            int[] localL = new int[size];
+            int[] localR = new int[size];
+            for (int i = 0; i < size; i++) {
+                int g = offset + i;
+                if (type[g] == 0) {
+                    if (label[g] < 0 || label[g] >= classCount) {
+                        throw new ModelFormatException("第 " + tree + " 棵树节点 " + i + " 的类别越界: " + label[g]);
+                    }
+                    localF[i] = TreeModel.LEAF;
+                    f[g] = TreeModel.LEAF;
+                    l[g] = -1;
+                    r[g] = -1;
+                    c[g] = label[g];
+                    t[g] = kind == Kind.BOOSTED ? threshold[g] : 0;
+                } else if (type[g] == 1) {
+                    if (featureIndex[g] < 0 || featureIndex[g] >= featureCount) {
+                        throw new ModelFormatException("第 " + tree + " 棵树节点 " + i + " 的特征下标越界: "
+                                + featureIndex[g]);
+                    }
+                    TreeModel.checkChild(i, leftChild[g], size);
+                    TreeModel.checkChild(i, rightChild[g], size);
+                    localF[i] = featureIndex[g];
+                    localL[i] = leftChild[g];
+                    localR[i] = rightChild[g];
+                    f[g] = featureIndex[g];
+                    l[g] = offset + leftChild[g];
+                    r[g] = offset + rightChild[g];
+                    c[g] = -1;
+                    t[g] = threshold[g];
+                } else {
+                    throw new ModelFormatException("第 " + tree + " 棵树节点 " + i + " 的类型未知: " + type[g]);
+                }
+                if (Float.isNaN(t[g])) {
+                    throw new ModelFormatException("第 " + tree + " 棵树节点 " + i + " 的数值为 NaN");
+                }
+            }
+            maxDepth = Math.max(maxDepth, TreeModel.checkStructure(localF, localL, localR));
+            roots[tree] = offset;
+            offset += size;
+        }
+        if (offset != n) {
+            throw new ModelFormatException("各树节点数之和与节点总数不符: " + offset + " != " + n);
+        }
+        return new EnsembleModel(kind, roots, f, t, l, r, c, scalerMean.clone(), scalerStd.clone(),
+                classCount, learningRate, base, maxDepth, layout);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public int getTreeCount() {
+        return roots.length;
+    }
+
+    public int getNodeCount() {
+        return feature.length;
+    }
+
+    // 训练时使用的特征布局，未知时为 null
+    public FeatureLayout getLayout() {
+        return layout;
+    }
+
+    public int getFeatureCount() {
+        return scalerMean.length;
+    }
+
+    public int getClassCount() {
+        return classCount;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    // 模型占用内存的估计值（字节），供 ModelRegistry 控制总内存
+    public long getSizeInBytes() {
+        return 4L * (5L * feature.length + roots.length + 2L * scalerMean.length + classCount) + 10 * 16 + 48;
+    }
+
+    // 模型指纹：全部参数的 64 位哈希，用作缓存等场景下的模型版本
+    public long getFingerprint() {
+        long value = fingerprint;
+        if (value == 0) {
+            int n = feature.length;
+            ByteBuffer buf = ByteBuffer.allocate(4 * (5 * n + roots.length + 2 * scalerMean.length
+                    + classCount + 3)).order(ByteOrder.LITTLE_ENDIAN);
+            buf.putInt(kind.ordinal()).putInt(classCount).putFloat(learningRate);
+            buf.asIntBuffer().put(roots);
+            buf.position(buf.position() + 4 * roots.length);
+            for (int[] a : new int[][]{feature, left, right, label}) {
+                buf.asIntBuffer().put(a);
+                buf.position(buf.position() + 4 * a.length);
+            }
+            for (float[] a : new float[][]{threshold, scalerMean, scalerStd, baseScore}) {
+                buf.asFloatBuffer().put(a);
+                buf.position(buf.position() + 4 * a.length);
+            }
+            value = ContentHash.of(buf.array());
+            fingerprint = value;
+        }
+        return value;
+    }
+
+    /**
+     * 对一组原始（未归一化）特征预测，各类别概率写入 proba[0..classCount)。
+     *
+     * @return 概率最大的类别下标
+     */
+    public int predictProba(float[] features, float[] proba) {
+        int[] labels = new int[1];
+        predictProbaBatch(features, 1, proba, labels);
+        return labels[0];
+    }
+
+    /**
+     * 同 {@link #predictProba}，但检查每棵树路径上的分裂是否稳定（见 {@link TreeModel#predictIfStable}）。
+     * FOREST 中不稳定的树可能投给任何类别，稳定的树中最高票领先次高票超过不稳定树的棵数时结果不会改变；
+     * BOOSTED 的叶子值无法这样界定，要求所有树都稳定。结果可能改变时返回 {@link TreeModel#UNSTABLE}，
+     * proba 的内容此时无意义。
+     */
+    public int predictProbaIfStable(float[] features, float[] errors, float[] proba) {
+        int m = scalerMean.length;
+        if (features.length < m || errors.length < m) {
+            throw new IllegalArgumentException("特征数组长度不足: " + Math.min(features.length, errors.length));
+        }
+        if (proba.length < classCount) {
+            throw new IllegalArgumentException("结果数组长度不足");
+        }
+        float[] x = new float[m];
+        float[] margin = new float[m];
+        for (int j = 0; j < m; j++) {
+            x[j] = (features[j] - scalerMean[j]) / scalerStd[j];
+            margin[j] = errors[j] / Math.abs(scalerStd[j]);
+        }
+        boolean boosted = kind == Kind.BOOSTED;
+        float[] scores = new float[classCount];
+        int unstable = 0;
+        for (int root : roots) {
+            int node = root;
+            int f;
+            while ((f = feature[node]) != TreeModel.LEAF) {
+                if (!(Math.abs(x[f] - threshold[node]) > margin[f])) {
+                    if (boosted) {
+                        return TreeModel.UNSTABLE;
+                    }
+                    unstable++;
+                    break;
+                }
+                node = x[f] <= threshold[node] ? left[node] : right[node];
+            }
+            // 不稳定的树不计票，按最坏情况处理
+            if (feature[node] == TreeModel.LEAF) {
+                scores[label[node]] += boosted ? threshold[node] : 1f;
+            }
+        }
+        if (unstable > 0) {
+            // 不稳定的树可能投给任何类别：最高票仍须严格领先于次高票加上全部不稳定票
+            float best = 0;
+            float second = 0;
+            for (float score : scores) {
+                if (score > best) {
+                    second = best;
+                    best = score;
+                } else if (score > second) {
+                    second = score;
+                }
+            }
+            if (!(best > second + unstable)) {
+                return TreeModel.UNSTABLE;
+            }
+            // 把不稳定的树补上后再换算概率，与完整预测一致
+            return predictProba(features, proba);
+        }
+        return finish(scores, 0, proba, 0);
+    }
+
+    /**
+     * 批量预测：features 中连续存放 count 组原始特征，概率按样本连续写入
+     * proba[k * classCount + c]，类别写入 labels[0..count)。
+     */
+    public void predictProbaBatch(float[] features, int count, float[] proba, int[] labels) {
+        int m = scalerMean.length;
+        int k = classCount;
+        if (count < 0 || (long) count * m > features.length) {
+            throw new IllegalArgumentException("特征数组长度不足: length=" + features.length + ", count=" + count);
+        }
+        if ((long) count * k > proba.length || labels.length < count) {
+            throw new IllegalArgumentException("结果数组长度不足");
+        }
+        int block = Math.min(BLOCK, Math.max(count, 1));
+        float[] x = new float[block * m];
+        float[] scores = new float[block * k];
+        for (int start = 0; start < count; start += block) {
+            int size = Math.min(block, count - start);
+            // 每个样本只归一化一次，之后所有树共用
+            for (int s = 0; s < size; s++) {
+                int src = (start + s) * m;
+                for (int j = 0; j < m; j++) {
+                    x[s * m + j] = (features[src + j] - scalerMean[j]) / scalerStd[j];
+                }
+            }
+            accumulate(x, size, scores);
+            for (int s = 0; s < size; s++) {
+                labels[start + s] = finish(scores, s * k, proba, (start + s) * k);
+            }
+        }
+    }
+
+    // 外层遍历树、内层遍历样本，累加投票数或叶子值
+    private void accumulate(float[] x, int size, float[] scores) {
+        int m = scalerMean.length;
+        int k = classCount;
+        Arrays.fill(scores, 0, size * k, 0f);
+        boolean boosted = kind == Kind.BOOSTED;
+        for (int root : roots) {
+            for (int s = 0, offset = 0; s < size; s++, offset += m) {
+                int node = root;
+                int f;
+                while ((f = feature[node]) != TreeModel.LEAF) {
+                    node = x[offset + f] <= threshold[node] ? left[node] : right[node];
+                }
+                scores[s * k + label[node]] += boosted ? threshold[node] : 1f;
+            }
+        }
+    }
+
+    // 把累加结果换算成概率，返回最大概率的类别
+    private int finish(float[] scores, int from, float[] proba, int to) {
+        int k = classCount;
+        if (kind == Kind.FOREST) {
+            float trees = roots.length;
+            for (int c = 0; c < k; c++) {
+                proba[to + c] = scores[from + c] / trees;
+            }
+        } else {
+            float max = Float.NEGATIVE_INFINITY;
+            for (int c = 0; c < k; c++) {
+                float z = baseScore[c] + learningRate * scores[from + c];
+                proba[to + c] = z;
+                max = Math.max(max, z);
+            }
+            float sum = 0;
+            for (int c = 0; c < k; c++) {
+                float e = (float) Math.exp(proba[to + c] - max);
+                proba[to + c] = e;
+                sum += e;
+            }
+            for (int c = 0; c < k; c++) {
+                proba[to + c] /= sum;
+            }
+        }
+        int best = 0;
+        for (int c = 1; c < k; c++) {
+            if (proba[to + c] > proba[to + best]) {
+                best = c;
+            }
+        }
+        return best;
+    }
+}
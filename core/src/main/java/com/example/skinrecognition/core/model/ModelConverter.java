@@ -0,0 +1,63 @@
+package com.example.skinrecognition.core.model;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * 构建期工具：把 assets 中的文本模型转换成 skin_model.bin。
+ * <p>
+ * 用法：{@code ./gradlew :core:convertModelAssets}，
+ * 或 {@code java ModelConverter <assets目录> [类别数]}。
+ */
+public final class ModelConverter {
+
+    public static final String TREE_FILE = "tree_model.txt";
+    public static final String MEAN_FILE = "scaler_mean.txt";
+    public static final String STD_FILE = "scaler_std.txt";
+    public static final String BINARY_FILE = "skin_model.bin";
+    // 可选的集成模型，存在时优先使用
+    public static final String ENSEMBLE_FILE = "ensemble_model.txt";
+    // 可选的 int8 量化 CNN（格式见 QuantizedCnn）
+    public static final String CNN_FILE = "skin_cnn.bin";
+    public static final int DEFAULT_CLASS_COUNT = 3;
+
+    private ModelConverter() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("用法: ModelConverter <assets目录> [类别数]");
+            System.exit(2);
+        }
+        File dir = new File(args[0]);
+        int classCount = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_CLASS_COUNT;
+        TreeModel model = readText(dir, classCount);
+        byte[] bytes = BinaryModelFormat.toBytes(model);
+        File out = new File(dir, BINARY_FILE);
+        try (OutputStream os = new FileOutputStream(out)) {
+            os.write(bytes);
+        }
+        System.out.println("已生成 " + out + "，节点数 " + model.getNodeCount()
+                + "，" + bytes.length + " 字节");
+    }
+
+    public static TreeModel readText(File dir, int classCount) throws IOException {
+        try (InputStream tree = new FileInputStream(new File(dir, TREE_FILE));
+             InputStream mean = new FileInputStream(new File(dir, MEAN_FILE));
+             InputStream std = new FileInputStream(new File(dir, STD_FILE))) {
+            return TextModelReader.read(tree, mean, std, classCount);
+        }
+    }
+
+    public static EnsembleModel readEnsembleText(File dir) throws IOException {
+        try (InputStream ensemble = new FileInputStream(new File(dir, ENSEMBLE_FILE));
+             InputStream mean = new FileInputStream(new File(dir, MEAN_FILE));
+             InputStream std = new FileInputStream(new File(dir, STD_FILE))) {
+            return TextModelReader.readEnsemble(ensemble, mean, std);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.skinrecognition.core.model;
+
+import java.io.IOException;
+
+/**
+ * 模型文件内容不合法（格式错误、索引越界、树结构有环等）。
+ */
+public class ModelFormatException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ModelFormatException(String message) {
+        super(message);
+    }
+
+    public ModelFormatException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.skinrecognition.core.model;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.ToLongFunction;
+
+/**
+ * 进程级模型注册表：按名字管理多个模型，首次使用时在后台线程加载，
+ * 所有调用方拿到的是同一个不可变实例。
+ * <p>
+ * 已加载模型的总大小不超过 maxBytes，超出时按最近最少使用的顺序释放其它模型，
+ * 被释放的模型下次 {@link #get} 时重新加载（调用方手里已有的引用不受影响）。
+ * 实现了 {@link AutoCloseable} 的模型（例如持有线程的 CnnClassifier）在释放时调用 close()，
+ * 在注册表的锁外执行；close() 需要等待进行中的调用结束，并允许之后仍持有引用的调用方继续使用。
+ */
+public final class ModelRegistry {
+
+    /** 模型加载函数，在注册表的后台线程中执行。 */
+    public interface Loader<T> {
+        T load() throws IOException;
+    }
+
+    /** 带类型的模型标识。 */
+    public static final class Key<T> {
+        final String name;
+        final Loader<T> loader;
+        final ToLongFunction<T> sizeOf;
+
+        public Key(String name, Loader<T> loader, ToLongFunction<T> sizeOf) {
+            this.name = name;
+            this.loader = loader;
+            this.sizeOf = sizeOf;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private static final class Entry {
+        final CompletableFuture<Object> future = new CompletableFuture<>();
+        long sizeInBytes;
+    }
+
+    private final Executor executor;
+    private final long maxBytes;
+    // accessOrder = true，迭代顺序即 LRU 顺序
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(8, 0.75f, true);
+    private long loadedBytes;
+
+    public ModelRegistry(Executor executor, long maxBytes) {
+        this.executor = executor;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 获取模型；尚未加载时在后台开始加载。返回的 future 完成后即可使用，
+     * 加载失败时 future 以异常结束，下次调用会重新尝试。
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <T> CompletableFuture<T> get(Key<T> key) {
+        Entry entry = entries.get(key.name);
+        if (entry == null) {
+            entry = new Entry();
+            entries.put(key.name, entry);
+            Entry started = entry;
+            executor.execute(() -> load(key, started));
+        }
+        return (CompletableFuture<T>) (CompletableFuture<?>) entry.future;
+    }
+
+    // 提前在后台加载，不等待结果
+    public void preload(Key<?>... keys) {
+        for (Key<?> key : keys) {
+            get(key);
+        }
+    }
+
+    /**
+     * 阻塞等待模型就绪，不能在主线程调用。
+     *
+     * @throws IOException 加载失败时
+     */
+    public <T> T await(Key<T> key, long timeout, TimeUnit unit)
+            throws IOException, InterruptedException, TimeoutException {
+        try {
+            return get(key).get(timeout, unit);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("模型加载失败: " + key.name, cause);
+        }
+    }
+
+    // 已就绪时直接返回模型，否则返回 null（不会触发加载）
+    @SuppressWarnings("unchecked")
+    public synchronized <T> T getIfReady(Key<T> key) {
+        Entry entry = entries.get(key.name);
+        if (entry == null || !entry.future.isDone() || entry.future.isCompletedExceptionally()) {
+            return null;
+        }
+        return (T) entry.future.join();
+    }
+
+    public synchronized boolean isLoaded(Key<?> key) {
+        Entry entry = entries.get(key.name);
+        return entry != null && entry.future.isDone() && !entry.future.isCompletedExceptionally();
+    }
+
+    public synchronized long getLoadedBytes() {
+        return loadedBytes;
+    }
+
+    // 释放指定模型
+    public void evict(Key<?> key) {
+        Object model = null;
+        synchronized (this) {
+            Entry entry = entries.get(key.name);
+            if (entry != null && entry.future.isDone()) {
+                entries.remove(key.name);
+                loadedBytes -= entry.sizeInBytes;
+                model = entry.future.getNow(null);
+            }
+        }
+        closeIfCloseable(model);
+    }
+
+    private <T> void load(Key<T> key, Entry entry) {
+        T model;
+        try {
+            model = key.loader.load();
+            if (model == null) {
+                throw new IOException("模型加载结果为空: " + key.name);
+            }
+        } catch (Throwable e) {
+            synchronized (this) {
+                entries.remove(key.name, entry);
+            }
+            entry.future.completeExceptionally(e);
+            return;
+        }
+        List<Object> evicted = new ArrayList<>();
+        synchronized (this) {
+            entry.sizeInBytes = key.sizeOf.applyAsLong(model);
+            if (entries.get(key.name) == entry) {
+                loadedBytes += entry.sizeInBytes;
+                trimToSize(entry, evicted);
+            }
+        }
+        entry.future.complete(model);
+        for (Object old : evicted) {
+            closeIfCloseable(old);
+        }
+    }
+
+    // 超出内存上限时释放最久未使用的已加载模型（不包括刚加载完成的 keep），释放的模型放入 evicted
+    private void trimToSize(Entry keep, List<Object> evicted) {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (loadedBytes > maxBytes && it.hasNext()) {
+            Entry candidate = it.next().getValue();
+            if (candidate != keep && candidate.future.isDone()) {
+                it.remove();
+                loadedBytes -= candidate.sizeInBytes;
+                evicted.add(candidate.future.getNow(null));
+            }
+        }
+    }
+
+    // 在锁外调用，close() 可能要等进行中的推理结束
+    private static void closeIfCloseable(Object model) {
+        if (model instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) model).close();
+            } catch (Exception e) {
+                // 模型已经从注册表移除，关闭失败只影响它自己持有的资源
+            }
+        }
+    }
+}
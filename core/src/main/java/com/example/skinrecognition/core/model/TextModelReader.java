@@ -0,0 +1,352 @@
+package com.example.skinrecognition.core.model;
+
+import com.example.skinrecognition.core.feature.FeatureLayout;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 读取 assets 中的文本模型：tree_model.txt（或集成模型 ensemble_model.txt）、
+ * scaler_mean.txt、scaler_std.txt。
+ * <p>
+ * tree_model.txt 第一行为 {@code node_count:N}，之后每行一个节点：
+ * {@code type,featureIndex,threshold,left,right,label}。
+ * <p>
+ * 每个文件开头都可以有一行 {@code descriptor:<id>} 声明训练时的特征布局（见 {@link FeatureLayout}），
+ * 同一模型的各文件声明必须一致，并与特征数相符；都没有声明时按特征数推断。
+ */
+public final class TextModelReader {
+
+    private static final String NODE_COUNT_PREFIX = "node_count:";
+    private static final String DESCRIPTOR_PREFIX = FeatureLayout.KEY + ":";
+
+    // scaler 文件的内容和声明的布局
+    private static final class Floats {
+        final float[] values;
+        final FeatureLayout layout;
+
+        Floats(float[] values, FeatureLayout layout) {
+            this.values = values;
+            this.layout = layout;
+        }
+    }
+
+    private TextModelReader() {
+    }
+
+    // 读取三个文本文件并编译成决策树模型，不会关闭传入的流
+    public static TreeModel read(InputStream treeModel, InputStream scalerMean,
+                                 InputStream scalerStd, int classCount) throws IOException {
+        Floats mean = readDeclaredFloats(scalerMean);
+        Floats std = readDeclaredFloats(scalerStd);
+        return readTree(treeModel, mean.values, std.values, classCount, agree(mean.layout, std.layout));
+    }
+
+    public static TreeModel readTree(InputStream in, float[] scalerMean, float[] scalerStd,
+                                     int classCount) throws IOException {
+        return readTree(in, scalerMean, scalerStd, classCount, null);
+    }
+
+    private static TreeModel readTree(InputStream in, float[] scalerMean, float[] scalerStd,
+                                      int classCount, FeatureLayout scalerLayout) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String header = reader.readLine();
+        int lineNum = 1;
+        FeatureLayout layout = null;
+        while (header != null && header.trim().startsWith(DESCRIPTOR_PREFIX)) {
+            layout = parseLayout(header.trim().substring(DESCRIPTOR_PREFIX.length()), lineNum);
+            header = reader.readLine();
+            lineNum++;
+        }
+        if (header == null) {
+            throw new ModelFormatException("模型文件为空");
+        }
+        int expected = -1;
+        header = header.trim();
+        if (header.startsWith(NODE_COUNT_PREFIX)) {
+            expected = parseInt(header.substring(NODE_COUNT_PREFIX.length()), 1);
+        }
+
+        NodeBuffer nodes = new NodeBuffer(expected > 0 ? expected : 64);
+        String[] parts = new String[6];
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNum++;
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            nodes.add(line, parts, lineNum);
+        }
+        if (expected >= 0 && expected != nodes.count) {
+            throw new ModelFormatException("节点数与文件头不符: 头部 " + expected + "，实际 " + nodes.count);
+        }
+
+        nodes.trim();
+        return TreeModel.compile(nodes.type, nodes.featureIndex, nodes.threshold,
+                nodes.left, nodes.right, nodes.label, scalerMean, scalerStd, classCount,
+                agree(layout, scalerLayout));
+    }
+
+    // 读取集成模型和与单棵树共用的 scaler 文件，不会关闭传入的流
+    public static EnsembleModel readEnsemble(InputStream ensemble, InputStream scalerMean,
+                                             InputStream scalerStd) throws IOException {
+        Floats mean = readDeclaredFloats(scalerMean);
+        Floats std = readDeclaredFloats(scalerStd);
+        return readEnsemble(ensemble, mean.values, std.values, agree(mean.layout, std.layout));
+    }
+
+    /**
+     * 读取集成模型（ensemble_model.txt）。文件头为若干 {@code 键:值} 行：
+     * <pre>
+     * ensemble:forest 或 ensemble:boosted
+     * class_count:3
+     * tree_count:200
+     * learning_rate:0.1        （仅 boosted）
+     * base_score:0.1,0.2,0.3   （仅 boosted，可省略）
+     * descriptor:hsv-lbp-7     （可省略）
+     * </pre>
+     * 之后每棵树以 {@code node_count:N} 开头，接着 N 行与 tree_model.txt 相同格式的节点，
+     * 子节点下标是树内的局部下标。boosted 模型叶子的 threshold 列为叶子值。
+     */
+    public static EnsembleModel readEnsemble(InputStream in, float[] scalerMean,
+                                             float[] scalerStd) throws IOException {
+        return readEnsemble(in, scalerMean, scalerStd, null);
+    }
+
+    private static EnsembleModel readEnsemble(InputStream in, float[] scalerMean, float[] scalerStd,
+                                              FeatureLayout scalerLayout) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        EnsembleModel.Kind kind = null;
+        int classCount = -1;
+        int treeCount = -1;
+        float learningRate = 1f;
+        float[] baseScore = null;
+        FeatureLayout layout = null;
+
+        NodeBuffer nodes = new NodeBuffer(1024);
+        int[] treeSizes = new int[16];
+        int trees = 0;
+        int expected = -1;
+        int treeStart = 0;
+        int lineNum = 0;
+        String[] parts = new String[6];
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNum++;
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            int colon = line.indexOf(':');
+            if (colon < 0) {
+                if (expected < 0) {
+                    throw new ModelFormatException("第 " + lineNum + " 行之前缺少 node_count: " + line);
+                }
+                nodes.add(line, parts, lineNum);
+                continue;
+            }
+            String key = line.substring(0, colon).trim();
+            String value = line.substring(colon + 1).trim();
+            switch (key) {
+                case "ensemble":
+                    if (value.equals("forest")) {
+                        kind = EnsembleModel.Kind.FOREST;
+                    } else if (value.equals("boosted")) {
+                        kind = EnsembleModel.Kind.BOOSTED;
+                    } else {
+                        throw new ModelFormatException("未知的集成类型: " + value);
+                    }
+                    break;
+                case "class_count":
+                    classCount = parseInt(value, lineNum);
+                    break;
+                case "tree_count":
+                    treeCount = parseInt(value, lineNum);
+                    break;
+                case "learning_rate":
+                    learningRate = parseFloat(value, lineNum);
+                    break;
+                case "base_score":
+                    String[] tokens = value.split(",");
+                    baseScore = new float[tokens.length];
+                    for (int i = 0; i < tokens.length; i++) {
+                        baseScore[i] = parseFloat(tokens[i], lineNum);
+                    }
+                    break;
+                case FeatureLayout.KEY:
+                    layout = parseLayout(value, lineNum);
+                    break;
+                case "node_count":
+                    if (expected >= 0) {
+                        treeSizes = closeTree(treeSizes, trees++, expected, nodes.count - treeStart);
+                    }
+                    expected = parseInt(value, lineNum);
+                    treeStart = nodes.count;
+                    break;
+                default:
+                    throw new ModelFormatException("第 " + lineNum + " 行未知的字段: " + key);
+            }
+        }
+        if (expected >= 0) {
+            treeSizes = closeTree(treeSizes, trees++, expected, nodes.count - treeStart);
+        }
+        if (kind == null || classCount < 0) {
+            throw new ModelFormatException("集成模型缺少 ensemble 或 class_count");
+        }
+        if (treeCount >= 0 && treeCount != trees) {
+            throw new ModelFormatException("树的数量与文件头不符: 头部 " + treeCount + "，实际 " + trees);
+        }
+        nodes.trim();
+        return EnsembleModel.compile(kind, Arrays.copyOf(treeSizes, trees), nodes.type,
+                nodes.featureIndex, nodes.threshold, nodes.left, nodes.right, nodes.label,
+                scalerMean, scalerStd, classCount, learningRate, baseScore, agree(layout, scalerLayout));
+    }
+
+    private static int[] closeTree(int[] sizes, int tree, int expected, int actual) throws ModelFormatException {
+        if (expected != actual) {
+            throw new ModelFormatException("第 " + tree + " 棵树节点数与 node_count 不符: "
+                    + expected + " != " + actual);
+        }
+        if (tree == sizes.length) {
+            sizes = Arrays.copyOf(sizes, tree * 2);
+        }
+        sizes[tree] = actual;
+        return sizes;
+    }
+
+    // 逐行解析的节点列，容量不足时成倍扩容
+    private static final class NodeBuffer {
+        int[] type;
+        int[] featureIndex;
+        float[] threshold;
+        int[] left;
+        int[] right;
+        int[] label;
+        int count;
+
+        NodeBuffer(int capacity) {
+            type = new int[capacity];
+            featureIndex = new int[capacity];
+            threshold = new float[capacity];
+            left = new int[capacity];
+            right = new int[capacity];
+            label = new int[capacity];
+        }
+
+        void add(String line, String[] parts, int lineNum) throws ModelFormatException {
+            if (split(line, parts) != 6) {
+                throw new ModelFormatException("第 " + lineNum + " 行应有6列: " + line);
+            }
+            if (count == type.length) {
+                resize(count * 2);
+            }
+            type[count] = parseInt(parts[0], lineNum);
+            featureIndex[count] = parseInt(parts[1], lineNum);
+            threshold[count] = parseFloat(parts[2], lineNum);
+            left[count] = parseInt(parts[3], lineNum);
+            right[count] = parseInt(parts[4], lineNum);
+            label[count] = parseInt(parts[5], lineNum);
+            count++;
+        }
+
+        void trim() {
+            resize(count);
+        }
+
+        private void resize(int capacity) {
+            type = Arrays.copyOf(type, capacity);
+            featureIndex = Arrays.copyOf(featureIndex, capacity);
+            threshold = Arrays.copyOf(threshold, capacity);
+            left = Arrays.copyOf(left, capacity);
+            right = Arrays.copyOf(right, capacity);
+            label = Arrays.copyOf(label, capacity);
+        }
+    }
+
+    // 读取以空白分隔的浮点数，忽略 descriptor 声明
+    public static float[] readFloats(InputStream in) throws IOException {
+        return readDeclaredFloats(in).values;
+    }
+
+    private static Floats readDeclaredFloats(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        float[] values = new float[8];
+        int count = 0;
+        int lineNum = 0;
+        FeatureLayout layout = null;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNum++;
+            if (line.trim().startsWith(DESCRIPTOR_PREFIX)) {
+                layout = parseLayout(line.trim().substring(DESCRIPTOR_PREFIX.length()), lineNum);
+                continue;
+            }
+            for (String token : line.trim().split("\\s+")) {
+                if (token.isEmpty()) {
+                    continue;
+                }
+                if (count == values.length) {
+                    values = Arrays.copyOf(values, count * 2);
+                }
+                values[count++] = parseFloat(token, lineNum);
+            }
+        }
+        return new Floats(Arrays.copyOf(values, count), layout);
+    }
+
+    private static FeatureLayout parseLayout(String id, int lineNum) throws ModelFormatException {
+        FeatureLayout layout = FeatureLayout.forId(id.trim());
+        if (layout == null) {
+            throw new ModelFormatException("第 " + lineNum + " 行未知的特征布局: " + id.trim());
+        }
+        return layout;
+    }
+
+    // 两处声明都存在时必须相同，返回其中非 null 的一个
+    private static FeatureLayout agree(FeatureLayout a, FeatureLayout b) throws ModelFormatException {
+        if (a != null && b != null && a != b) {
+            throw new ModelFormatException("特征布局声明不一致: " + a.getId() + " / " + b.getId());
+        }
+        return a != null ? a : b;
+    }
+
+    // 按逗号切分，返回列数（超过 parts 长度时只统计不写入）
+    private static int split(String line, String[] parts) {
+        int n = 0;
+        int start = 0;
+        while (true) {
+            int comma = line.indexOf(',', start);
+            String part = comma < 0 ? line.substring(start) : line.substring(start, comma);
+            if (n < parts.length) {
+                parts[n] = part.trim();
+            }
+            n++;
+            if (comma < 0) {
+                return n;
+            }
+            start = comma + 1;
+        }
+    }
+
+    private static int parseInt(String s, int lineNum) throws ModelFormatException {
+        try {
+            return Integer.parseInt(s.trim());
+        } catch (NumberFormatException e) {
+            throw new ModelFormatException("第 " + lineNum + " 行整数格式错误: " + s, e);
+        }
+    }
+
+    private static float parseFloat(String s, int lineNum) throws ModelFormatException {
+        try {
+            return Float.parseFloat(s.trim());
+        } catch (NumberFormatException e) {
+            throw new ModelFormatException("第 " + lineNum + " 行浮点数格式错误: " + s, e);
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package com.example.skinrecognition.core.model;
+
+import com.example.skinrecognition.core.cache.ContentHash;
+import com.example.skinrecognition.core.feature.FeatureLayout;
+
+/**
+ * 编译后的决策树模型，节点按“结构数组”方式存放在并行的基本类型数组里。
+ * <p>
+ * 树结构只在加载时检查一次（索引范围、无环、每条路径都走到叶子），
+ * 之后的推理不分配内存、不抛异常。特征归一化 (x - mean) / std 融合在遍历过程中，
+ * 只对路径上用到的特征计算，不再生成中间数组。
+ * <p>
+ * 实例不可变，可以在多个线程之间共享。
+ */
+public final class TreeModel {
+
+    // 叶子节点的 feature 取值
+    static final int LEAF = -1;
+
+    /** {@link #predictIfStable} 在决策不稳定时的返回值。 */
+    public static final int UNSTABLE = -1;
+
+    final int[] feature;
+    final float[] threshold;
+    final int[] left;
+    final int[] right;
+    final int[] label;
+    final float[] scalerMean;
+    final float[] scalerStd;
+    private final int classCount;
+    private final int maxDepth;
+    // 训练时使用的特征布局，特征数对不上任何布局时为 null
+    private final FeatureLayout layout;
+    // 模型指纹，首次使用时计算
+    private volatile long fingerprint;
+
+    private TreeModel(int[] feature, float[] threshold, int[] left, int[] right, int[] label,
+                      float[] scalerMean, float[] scalerStd, int classCount, int maxDepth,
+                      FeatureLayout layout) {
+        this.feature = feature;
+        this.threshold = threshold;
+        this.left = left;
+        this.right = right;
+        this.label = label;
+        this.scalerMean = scalerMean;
+        this.scalerStd = scalerStd;
+        this.classCount = classCount;
+        this.maxDepth = maxDepth;
+        this.layout = layout;
+    }
+
+    /**
+     * 校验并打包模型。各节点数组的含义与 tree_model.txt 的列相同：
+     * type 为 0 表示叶子，1 表示内部节点。传入的数组会被复制。
+     *
+     * @throws ModelFormatException 结构不合法时
+     */
+    public static TreeModel compile(int[] type, int[] featureIndex, float[] threshold,
+                                    int[] leftChild, int[] rightChild, int[] label,
+                                    float[] scalerMean, float[] scalerStd,
+                                    int classCount) throws ModelFormatException {
+        return compile(type, featureIndex, threshold, leftChild, rightChild, label, scalerMean, scalerStd,
+                classCount, null);
+    }
+
+    /**
+     * 同上，并声明训练时使用的特征布局；为 null 时按特征数推断。
+     *
+     * @throws ModelFormatException 结构不合法或特征数与布局不符时
+     */
+    public static TreeModel compile(int[] type, int[] featureIndex, float[] threshold,
+                                    int[] leftChild, int[] rightChild, int[] label,
+                                    float[] scalerMean, float[] scalerStd,
+                                    int classCount, FeatureLayout layout) throws ModelFormatException {
+        int n = type.length;
+        if (featureIndex.length != n || threshold.length != n || leftChild.length != n
+                || rightChild.length != n || label.length != n) {
+            throw new ModelFormatException("节点数组长度不一致");
+        }
+
+        int[] f = new int[n];
+        float[] t = new float[n];
+        int[] l = new int[n];
+        int[] r = new int[n];
+        int[] c = new int[n];
+        for (int i = 0; i < n; i++) {
+            if (type[i] == 0) {
+                f[i] = LEAF;
+                l[i] = -1;
+                r[i] = -1;
+                c[i] = label[i];
+            } else if (type[i] == 1) {
+                f[i] = featureIndex[i];
+                t[i] = threshold[i];
+                l[i] = leftChild[i];
+                r[i] = rightChild[i];
+                c[i] = -1;
+            } else {
+                throw new ModelFormatException("节点 " + i + " 的类型未知: " + type[i]);
+            }
+        }
+        return fromCompiled(f, t, l, r, c, scalerMean.clone(), scalerStd.clone(), classCount, layout);
+    }
+
+    /**
+     * 直接使用已打包的数组构建模型（不复制），用于二进制模型加载。
+     * 叶子节点的 feature 为 -1，layout 为 null 时按特征数推断。
+     */
+    static TreeModel fromCompiled(int[] feature, float[] threshold, int[] left, int[] right,
+                                  int[] label, float[] scalerMean, float[] scalerStd,
+                                  int classCount, FeatureLayout layout) throws ModelFormatException {
+        int n = feature.length;
+        if (n == 0) {
+            throw new ModelFormatException("模型节点数据为空");
+        }
+        if (scalerMean.length != scalerStd.length) {
+            throw new ModelFormatException("归一化参数长度不一致: mean=" + scalerMean.length
+                    + ", std=" + scalerStd.length);
+        }
+        int featureCount = scalerMean.length;
+        layout = checkLayout(layout, featureCount);
+        for (int i = 0; i < n; i++) {
+            if (feature[i] == LEAF) {
+                if (label[i] < 0 || label[i] >= classCount) {
+                    throw new ModelFormatException("节点 " + i + " 的类别越界: " + label[i]);
+                }
+            } else {
+                if (feature[i] < 0 || feature[i] >= featureCount) {
+                    throw new ModelFormatException("节点 " + i + " 的特征下标越界: " + feature[i]);
+                }
+                if (Float.isNaN(threshold[i])) {
+                    throw new ModelFormatException("节点 " + i + " 的阈值为 NaN");
+                }
+                checkChild(i, left[i], n);
+                checkChild(i, right[i], n);
+            }
+        }
+        int maxDepth = checkStructure(feature, left, right);
+        return new TreeModel(feature, threshold, left, right, label, scalerMean, scalerStd,
+                classCount, maxDepth, layout);
+    }
+
+    // 声明的布局必须与特征数一致；没有声明时按特征数推断
+    static FeatureLayout checkLayout(FeatureLayout layout, int featureCount) throws ModelFormatException {
+        if (layout == null) {
+            return FeatureLayout.infer(featureCount);
+        }
+        if (layout.getFeatureCount() != featureCount) {
+            throw new ModelFormatException("特征数与声明的布局 " + layout.getId() + " 不符: "
+                    + featureCount + " != " + layout.getFeatureCount());
+        }
+        return layout;
+    }
+
+    static void checkChild(int node, int child, int n) throws ModelFormatException {
+        // 子节点必须在范围内，且不能指回根节点
+        if (child <= 0 || child >= n) {
+            throw new ModelFormatException("节点 " + node + " 的子节点下标越界: " + child);
+        }
+    }
+
+    // 每个节点最多只有一个父节点，从根出发的遍历就不会有环，且每条路径都终止于叶子
+    static int checkStructure(int[] f, int[] l, int[] r) throws ModelFormatException {
+        int n = f.length;
+        boolean[] hasParent = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            if (f[i] == LEAF) {
+                continue;
+            }
+            if (l[i] == r[i]) {
+                throw new ModelFormatException("节点 " + i + " 的左右子节点相同: " + l[i]);
+            }
+            for (int child : new int[]{l[i], r[i]}) {
+                if (hasParent[child]) {
+                    throw new ModelFormatException("节点 " + child + " 被多个父节点引用");
+                }
+                hasParent[child] = true;
+            }
+        }
+
+        // 计算最大深度，同时确认从根出发能走到的节点都是合法的
+        int[] stack = new int[n];
+        int[] depth = new int[n];
+        int top = 0;
+        int maxDepth = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (f[node] == LEAF) {
+                maxDepth = Math.max(maxDepth, depth[node]);
+                continue;
+            }
+            depth[l[node]] = depth[node] + 1;
+            depth[r[node]] = depth[node] + 1;
+            stack[top++] = l[node];
+            stack[top++] = r[node];
+        }
+        return maxDepth;
+    }
+
+    public int getNodeCount() {
+        return feature.length;
+    }
+
+    public int getFeatureCount() {
+        return scalerMean.length;
+    }
+
+    // 训练时使用的特征布局，未知时为 null
+    public FeatureLayout getLayout() {
+        return layout;
+    }
+
+    public int getClassCount() {
+        return classCount;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * 模型指纹：二进制模型内容的 64 位哈希，模型或归一化参数变化时随之变化，
+     * 用作缓存等场景下的模型版本。
+     */
+    public long getFingerprint() {
+        long value = fingerprint;
+        if (value == 0) {
+            value = ContentHash.of(BinaryModelFormat.toBytes(this));
+            fingerprint = value;
+        }
+        return value;
+    }
+
+    // 模型占用内存的估计值（字节），供 ModelRegistry 控制总内存
+    public long getSizeInBytes() {
+        return 4L * (5L * feature.length + 2L * scalerMean.length) + 7 * 16 + 32;
+    }
+
+    // 对原始（未归一化）特征进行预测，返回类别下标
+    public int predict(float[] features) {
+        return predict(features, 0);
+    }
+
+    // 从 features[offset] 开始读取一组原始特征进行预测
+    public int predict(float[] features, int offset) {
+        checkRange(features.length, offset, 1);
+        int node = 0;
+        int f;
+        while ((f = feature[node]) != LEAF) {
+            float normalized = (features[offset + f] - scalerMean[f]) / scalerStd[f];
+            node = normalized <= threshold[node] ? left[node] : right[node];
+        }
+        return label[node];
+    }
+
+    /**
+     * 与 {@link #predict} 走同一条路径，但要求路径上每个分裂处归一化特征与阈值的距离
+     * 大于该特征的误差 errors[f]（原始特征的单位）。任一分裂处距离不够时返回 {@link #UNSTABLE}：
+     * 特征在误差范围内变化就可能走另一条路径。
+     */
+    public int predictIfStable(float[] features, float[] errors) {
+        checkRange(features.length, 0, 1);
+        checkRange(errors.length, 0, 1);
+        int node = 0;
+        int f;
+        while ((f = feature[node]) != LEAF) {
+            float normalized = (features[f] - scalerMean[f]) / scalerStd[f];
+            if (!(Math.abs(normalized - threshold[node]) > errors[f] / Math.abs(scalerStd[f]))) {
+                return UNSTABLE;
+            }
+            node = normalized <= threshold[node] ? left[node] : right[node];
+        }
+        return label[node];
+    }
+
+    /**
+     * 把 features[offset] 开始的一组原始特征归一化到 out[outOffset] 开始的位置，
+     * 之后用 {@link #predictNormalized} 预测与直接 {@link #predict} 结果相同。
+     */
+    public void normalize(float[] features, int offset, float[] out, int outOffset) {
+        checkRange(features.length, offset, 1);
+        checkRange(out.length, outOffset, 1);
+        for (int f = 0; f < scalerMean.length; f++) {
+            out[outOffset + f] = (features[offset + f] - scalerMean[f]) / scalerStd[f];
+        }
+    }
+
+    // 对已经归一化的特征进行预测
+    public int predictNormalized(float[] normalized, int offset) {
+        checkRange(normalized.length, offset, 1);
+        int node = 0;
+        int f;
+        while ((f = feature[node]) != LEAF) {
+            node = normalized[offset + f] <= threshold[node] ? left[node] : right[node];
+        }
+        return label[node];
+    }
+
+    /**
+     * 批量预测：features 中连续存放 count 组原始特征（每组 getFeatureCount() 个），
+     * 结果写入 out[0..count)。
+     */
+    public void predictBatch(float[] features, int count, int[] out) {
+        checkRange(features.length, 0, count);
+        if (out.length < count) {
+            throw new IllegalArgumentException("结果数组长度不足: " + out.length + " < " + count);
+        }
+        int stride = scalerMean.length;
+        for (int k = 0, offset = 0; k < count; k++, offset += stride) {
+            int node = 0;
+            int f;
+            while ((f = feature[node]) != LEAF) {
+                float normalized = (features[offset + f] - scalerMean[f]) / scalerStd[f];
+                node = normalized <= threshold[node] ? left[node] : right[node];
+            }
+            out[k] = label[node];
+        }
+    }
+
+    // 批量预测已归一化的特征
+    public void predictNormalizedBatch(float[] normalized, int count, int[] out) {
+        checkRange(normalized.length, 0, count);
+        if (out.length < count) {
+            throw new IllegalArgumentException("结果数组长度不足: " + out.length + " < " + count);
+        }
+        int stride = scalerMean.length;
+        for (int k = 0, offset = 0; k < count; k++, offset += stride) {
+            int node = 0;
+            int f;
+            while ((f = feature[node]) != LEAF) {
+                node = normalized[offset + f] <= threshold[node] ? left[node] : right[node];
+            }
+            out[k] = label[node];
+        }
+    }
+
+    private void checkRange(int length, int offset, int count) {
+        if (offset < 0 || count < 0 || (long) offset + (long) count * scalerMean.length > length) {
+            throw new IllegalArgumentException("特征数组长度不足: length=" + length
+                    + ", offset=" + offset + ", count=" + count);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.skinrecognition.core.remote;
+
+import com.example.skinrecognition.core.classify.Classification;
+import com.example.skinrecognition.core.feature.FeatureExtractor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 推理服务的客户端，只用 {@link HttpURLConnection}，JVM 和 Android 上都能用。
+ * <p>
+ * 请求失败（连不上、超时、5xx）后进入退避期，期间 {@link #isAvailable()} 返回 false，
+ * 调用方直接在本地推理，不必每张图都等一次超时。所有方法线程安全。
+ */
+public final class InferenceClient {
+
+    private static final int DEFAULT_CONNECT_TIMEOUT_MS = 1000;
+    private static final int DEFAULT_READ_TIMEOUT_MS = 5000;
+    private static final long DEFAULT_BACKOFF_MS = 30_000;
+
+    private final String baseUrl;
+    private final int connectTimeoutMs;
+    private final int readTimeoutMs;
+    private final long backoffMs;
+    // 退避截止时间（System.nanoTime），0 表示不在退避期
+    private volatile long unavailableUntil;
+
+    public InferenceClient(String baseUrl) {
+        this(baseUrl, DEFAULT_CONNECT_TIMEOUT_MS, DEFAULT_READ_TIMEOUT_MS, DEFAULT_BACKOFF_MS);
+    }
+
+    public InferenceClient(String baseUrl, int connectTimeoutMs, int readTimeoutMs, long backoffMs) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.connectTimeoutMs = connectTimeoutMs;
+        this.readTimeoutMs = readTimeoutMs;
+        this.backoffMs = backoffMs;
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    // 不在失败后的退避期内
+    public boolean isAvailable() {
+        long until = unavailableUntil;
+        return until == 0 || System.nanoTime() - until >= 0;
+    }
+
+    // 服务端 /health 返回 ok
+    public boolean checkHealth() {
+        try {
+            return request(InferenceProtocol.HEALTH_PATH, null).startsWith("ok");
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 对 count 组连续存放的原始特征预测。
+     *
+     * @throws IOException 网络错误或服务端返回错误时
+     */
+    public int[] predictFeatures(float[] features, int count) throws IOException {
+        int m = FeatureExtractor.FEATURE_COUNT;
+        StringBuilder sb = new StringBuilder(count * 64);
+        for (int i = 0; i < count; i++) {
+            InferenceProtocol.appendFeatures(sb, features, i * m);
+            sb.append('\n');
+        }
+        String[] lines = request(InferenceProtocol.FEATURES_PATH,
+                sb.toString().getBytes(StandardCharsets.UTF_8)).split("\n");
+        if (lines.length != count) {
+            throw new IOException("响应行数不符: " + lines.length + " != " + count);
+        }
+        int[] labels = new int[count];
+        for (int i = 0; i < count; i++) {
+            labels[i] = parseLabel(lines[i]);
+        }
+        return labels;
+    }
+
+    /**
+     * 上传图片文件内容，由服务端提取特征并预测。树模型只给出类别，概率为 one-hot。
+     *
+     * @throws IOException 网络错误或服务端返回错误时
+     */
+    public Classification predictImage(byte[] image, int classCount) throws IOException {
+        String line = request(InferenceProtocol.IMAGE_PATH, image).trim();
+        int tab = line.indexOf('\t');
+        if (tab < 0) {
+            throw new IOException("响应格式错误: " + line);
+        }
+        int label = parseLabel(line.substring(0, tab));
+        if (label >= classCount) {
+            throw new IOException("类别越界: " + label);
+        }
+        float[] features = new float[FeatureExtractor.FEATURE_COUNT];
+        try {
+            InferenceProtocol.parseFeatures(line.substring(tab + 1), features, 0);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("响应格式错误: " + e.getMessage());
+        }
+        float[] proba = new float[classCount];
+        proba[label] = 1f;
+        return new Classification(label, proba, features);
+    }
+
+    // 从流中读出图片文件内容再上传，超过 MAX_IMAGE_BYTES 时直接报错、不发请求
+    public Classification predictImage(InputStream image, int classCount) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = image.read(buffer)) != -1) {
+            if (out.size() + n > InferenceProtocol.MAX_IMAGE_BYTES) {
+                throw new IOException("图片超过 " + InferenceProtocol.MAX_IMAGE_BYTES + " 字节");
+            }
+            out.write(buffer, 0, n);
+        }
+        return predictImage(out.toByteArray(), classCount);
+    }
+
+    private static int parseLabel(String s) throws IOException {
+        try {
+            int label = Integer.parseInt(s.trim());
+            if (label < 0) {
+                throw new IOException("类别越界: " + label);
+            }
+            return label;
+        } catch (NumberFormatException e) {
+            throw new IOException("响应格式错误: " + s);
+        }
+    }
+
+    // body 为 null 时发 GET；连不上、超时或 5xx 时进入退避期
+    private String request(String path, byte[] body) throws IOException {
+        HttpURLConnection conn = null;
+        int status;
+        String response;
+        try {
+            conn = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+            conn.setConnectTimeout(connectTimeoutMs);
+            conn.setReadTimeout(readTimeoutMs);
+            conn.setUseCaches(false);
+            if (body != null) {
+                conn.setRequestMethod("POST");
+                conn.setDoOutput(true);
+                conn.setFixedLengthStreamingMode(body.length);
+                conn.setRequestProperty("Content-Type", path.equals(InferenceProtocol.IMAGE_PATH)
+                        ? "application/octet-stream" : InferenceProtocol.CONTENT_TYPE);
+                try (OutputStream out = conn.getOutputStream()) {
+                    out.write(body);
+                }
+            }
+            status = conn.getResponseCode();
+            response = readAll(status == HttpURLConnection.HTTP_OK ? conn.getInputStream() : conn.getErrorStream());
+        } catch (IOException e) {
+            markUnavailable();
+            throw e;
+        } finally {
+            if (conn != null) {
+                conn.disconnect();
+            }
+        }
+        if (status != HttpURLConnection.HTTP_OK) {
+            if (status >= 500) {
+                markUnavailable();
+            }
+            throw new IOException("服务端返回 " + status + ": " + response.trim());
+        }
+        unavailableUntil = 0;
+        return response;
+    }
+
+    private void markUnavailable() {
+        long until = System.nanoTime() + backoffMs * 1_000_000L;
+        unavailableUntil = until == 0 ? 1 : until;
+    }
+
+    private static String readAll(InputStream in) throws IOException {
+        if (in == null) {
+            return "";
+        }
+        try (InputStream stream = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = stream.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.skinrecognition.core.remote;
+
+import com.example.skinrecognition.core.feature.FeatureExtractor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 推理服务的 HTTP 协议，服务端和客户端共用。请求和响应都是 UTF-8 纯文本：
+ * <ul>
+ * <li>{@code POST /v1/predict/features}：每行一组 7 个逗号分隔的原始特征，响应每行一个类别下标</li>
+ * <li>{@code POST /v1/predict/image}：请求体是 JPEG/PNG 文件，服务端按 200x200 提取特征；
+ *     响应一行 {@code 类别下标<TAB>逗号分隔的特征}</li>
+ * <li>{@code GET /health}：服务正常时第一行为 ok，之后是 key=value 行</li>
+ * <li>{@code GET /metrics}：Prometheus 文本格式的计数器</li>
+ * </ul>
+ * 出错时返回 4xx/5xx，响应体是一行错误说明。
+ */
+public final class InferenceProtocol {
+
+    public static final String FEATURES_PATH = "/v1/predict/features";
+    public static final String IMAGE_PATH = "/v1/predict/image";
+    public static final String HEALTH_PATH = "/health";
+    public static final String METRICS_PATH = "/metrics";
+    public static final String CONTENT_TYPE = "text/plain; charset=utf-8";
+    // 一次请求最多的特征行数和图片字节数
+    public static final int MAX_FEATURE_ROWS = 4096;
+    public static final int MAX_IMAGE_BYTES = 20 * 1024 * 1024;
+
+    private InferenceProtocol() {
+    }
+
+    // 一组特征写成一行（不含换行），float 按 Float.toString 往返无损
+    public static void appendFeatures(StringBuilder sb, float[] features, int offset) {
+        for (int i = 0; i < FeatureExtractor.FEATURE_COUNT; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(features[offset + i]);
+        }
+    }
+
+    /**
+     * 解析一行特征，写入 out[offset..offset+7)。
+     *
+     * @throws IllegalArgumentException 个数不对或不是合法数字时
+     */
+    public static void parseFeatures(String line, float[] out, int offset) {
+        String[] parts = line.split(",", -1);
+        if (parts.length != FeatureExtractor.FEATURE_COUNT) {
+            throw new IllegalArgumentException("每行需要 " + FeatureExtractor.FEATURE_COUNT
+                    + " 个特征，实际 " + parts.length + ": " + line);
+        }
+        for (int i = 0; i < parts.length; i++) {
+            float value;
+            try {
+                value = Float.parseFloat(parts[i].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("无法解析特征: " + parts[i]);
+            }
+            if (Float.isNaN(value) || Float.isInfinite(value)) {
+                throw new IllegalArgumentException("特征不是有限数: " + parts[i]);
+            }
+            out[offset + i] = value;
+        }
+    }
+
+    /**
+     * 解析多行特征（忽略空行），按行连续存放。
+     *
+     * @throws IllegalArgumentException 格式错误、没有数据或超过 {@link #MAX_FEATURE_ROWS} 行时
+     */
+    public static float[] parseFeatureRows(String body) {
+        List<String> lines = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            line = line.trim();
+            if (!line.isEmpty()) {
+                lines.add(line);
+            }
+        }
+        if (lines.isEmpty()) {
+            throw new IllegalArgumentException("请求中没有特征");
+        }
+        if (lines.size() > MAX_FEATURE_ROWS) {
+            throw new IllegalArgumentException("特征行数超过上限 " + MAX_FEATURE_ROWS);
+        }
+        int m = FeatureExtractor.FEATURE_COUNT;
+        float[] features = new float[lines.size() * m];
+        for (int i = 0; i < lines.size(); i++) {
+            parseFeatures(lines.get(i), features, i * m);
+        }
+        return features;
+    }
+
+    public static String formatLabels(int[] labels, int count) {
+        StringBuilder sb = new StringBuilder(count * 2);
+        for (int i = 0; i < count; i++) {
+            sb.append(labels[i]).append('\n');
+        }
+        return sb.toString();
+    }
+
+    public static String formatImageResult(int label, float[] features) {
+        StringBuilder sb = new StringBuilder(96);
+        sb.append(label).append('\t');
+        appendFeatures(sb, features, 0);
+        return sb.append('\n').toString();
+    }
+}
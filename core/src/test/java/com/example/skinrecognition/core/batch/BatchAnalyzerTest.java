@@ -0,0 +1,181 @@
+package com.example.skinrecognition.core.batch;
+
+import com.example.skinrecognition.core.exec.CancellationToken;
+import com.example.skinrecognition.core.feature.FeatureExtractor;
+import com.example.skinrecognition.core.feature.FeatureLayout;
+import com.example.skinrecognition.core.image.ArgbImage;
+import com.example.skinrecognition.core.model.ModelConverter;
+import com.example.skinrecognition.core.model.TreeModel;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class BatchAnalyzerTest {
+
+    private static final int SIZE = 40;
+    private static TreeModel model;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void loadModel() throws IOException {
+        model = ModelConverter.readText(new File("../app/src/main/assets"),
+                ModelConverter.DEFAULT_CLASS_COUNT);
+    }
+
+    // 测试用“图片格式”：文件内容是一个随机种子，解码时生成固定的像素
+    private static final BatchAnalyzer.Decoder DECODER = data -> {
+        if (data.length != 8) {
+            return null;
+        }
+        Random random = new Random(ByteBuffer.wrap(data).getLong());
+        int[] pixels = new int[SIZE * SIZE];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        return new ArgbImage(pixels, SIZE, SIZE);
+    };
+
+    private List<BatchAnalyzer.Item> writeImages(int count) throws IOException {
+        File dir = folder.newFolder("images");
+        List<BatchAnalyzer.Item> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            File file = new File(dir, "IMG_" + i + ".jpg");
+            try (OutputStream out = new FileOutputStream(file)) {
+                out.write(ByteBuffer.allocate(8).putLong(i * 7919L).array());
+            }
+            items.add(BatchAnalyzer.fileItem(file));
+        }
+        return items;
+    }
+
+    @Test
+    public void rejectsModelsWithOtherFeatureLayouts() throws IOException {
+        // 结果文件只保存 7 维特征
+        int m = FeatureLayout.EXTENDED.getFeatureCount();
+        float[] std = new float[m];
+        Arrays.fill(std, 1f);
+        TreeModel extended = TreeModel.compile(new int[]{0}, new int[]{-1}, new float[]{0f}, new int[]{-1},
+                new int[]{-1}, new int[]{1}, new float[m], std, 3, FeatureLayout.EXTENDED);
+        try {
+            new BatchAnalyzer(extended, DECODER, 1, 1, 1);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            assertTrue(expected.getMessage().contains(FeatureLayout.BASIC.getId()));
+        }
+    }
+
+    @Test
+    public void analysesEveryImageAndMatchesSequentialPrediction() throws Exception {
+        List<BatchAnalyzer.Item> items = writeImages(30);
+        File out = folder.newFile("results.tsv");
+        BatchProgress progress;
+        try (BatchResultsFile results = BatchResultsFile.open(out)) {
+            progress = new BatchAnalyzer(model, DECODER, 2, 3, 4)
+                    .run(items, results, null, new CancellationToken());
+        }
+        assertEquals(30, progress.getCompleted());
+        assertEquals(0, progress.getFailed());
+        assertTrue(progress.isFinished());
+
+        List<BatchResult> written = BatchResultsFile.readAll(out);
+        assertEquals(30, written.size());
+        for (BatchResult result : written) {
+            byte[] data = Files.readAllBytes(new File(result.getId()).toPath());
+            ArgbImage image = DECODER.decode(data);
+            float[] expected = new FeatureExtractor().extract(image.getPixels(), SIZE, SIZE);
+            assertArrayEquals(expected, result.getFeatures(), 0f);
+            assertEquals(model.predict(expected), result.getLabel());
+        }
+    }
+
+    @Test
+    public void resumesAfterInterruptionWithoutDuplicates() throws Exception {
+        List<BatchAnalyzer.Item> items = writeImages(20);
+        File out = folder.newFile("results.tsv");
+        BatchAnalyzer analyzer = new BatchAnalyzer(model, DECODER, 1, 2, 2);
+        try (BatchResultsFile results = BatchResultsFile.open(out)) {
+            analyzer.run(items.subList(0, 8), results, null, new CancellationToken());
+        }
+        // 模拟进程在写一行时被杀
+        try (OutputStream append = new FileOutputStream(out, true)) {
+            append.write("/half/written\t00".getBytes("UTF-8"));
+        }
+
+        BatchProgress progress;
+        try (BatchResultsFile results = BatchResultsFile.open(out)) {
+            assertEquals(8, results.getCompletedCount());
+            progress = analyzer.run(items, results, null, new CancellationToken());
+        }
+        assertEquals(8, progress.getSkipped());
+        assertEquals(12, progress.getCompleted());
+
+        Set<String> ids = new HashSet<>();
+        for (BatchResult result : BatchResultsFile.readAll(out)) {
+            assertTrue(ids.add(result.getId()));
+        }
+        assertEquals(20, ids.size());
+    }
+
+    @Test
+    public void reportsUndecodableImagesAndStopsWhenCancelled() throws Exception {
+        List<BatchAnalyzer.Item> items = writeImages(10);
+        File broken = folder.newFile("broken.jpg");
+        items.add(3, BatchAnalyzer.fileItem(broken));
+        List<String> failures = new ArrayList<>();
+        CancellationToken token = new CancellationToken();
+        BatchAnalyzer.Listener listener = new BatchAnalyzer.Listener() {
+            @Override
+            public void onProgress(BatchProgress progress) {
+                if (progress.getCompleted() >= 5) {
+                    token.cancel();
+                }
+            }
+
+            @Override
+            public synchronized void onItemFailed(String id, Exception error) {
+                failures.add(id);
+            }
+        };
+        BatchProgress progress;
+        try (BatchResultsFile results = BatchResultsFile.open(folder.newFile("results.tsv"))) {
+            progress = new BatchAnalyzer(model, DECODER, 1, 1, 1).run(items, results, listener, token);
+        }
+        assertTrue(progress.isCancelled());
+        assertEquals(5, progress.getCompleted());
+        assertEquals(1, progress.getFailed());
+        assertEquals(broken.getAbsolutePath(), failures.get(0));
+    }
+
+    @Test
+    public void escapesSpecialCharactersInIds() throws IOException {
+        File out = folder.newFile("results.tsv");
+        String id = "content://media/a\tb\\c";
+        try (BatchResultsFile results = BatchResultsFile.open(out)) {
+            results.append(new BatchResult(id, -1L, new float[]{1.5f, 2f}, 2, 123L));
+        }
+        BatchResult read = BatchResultsFile.readAll(out).get(0);
+        assertEquals(id, read.getId());
+        assertEquals(-1L, read.getContentHash());
+        assertEquals(2, read.getLabel());
+        assertArrayEquals(new float[]{1.5f, 2f}, read.getFeatures(), 0f);
+    }
+}
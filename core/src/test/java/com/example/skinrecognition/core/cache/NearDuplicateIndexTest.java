@@ -0,0 +1,175 @@
+package com.example.skinrecognition.core.cache;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class NearDuplicateIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final float[] FEATURES = {30f, 20f, 0.3f, 0.1f, 0.7f, 0.2f, 120f};
+    private static final int COLOUR = 0xC08070;
+
+    @Test
+    public void burstShotHashesAreClose() {
+        Random random = new Random(11);
+        int[] scene = scene(random, 0, 0, 0);
+        int[] burst = scene(new Random(11), 2, 1, 6);
+        PerceptualHash a = PerceptualHash.of(scene, 200, 200);
+        PerceptualHash b = PerceptualHash.of(burst, 200, 200);
+        PerceptualHash other = PerceptualHash.of(scene(new Random(12), 0, 0, 0), 200, 200);
+        assertTrue(a + " " + b, a.distance(b) <= 6);
+        assertTrue(a.colourDifference(b) <= 12);
+        assertTrue(a + " " + other, a.distance(other) > 6 || a.colourDifference(other) > 12);
+
+        // 比格子还小的图也能计算，没有像素的格子不置位
+        PerceptualHash tiny = PerceptualHash.of(new int[]{0xFF000000, 0xFFFFFFFF, 0xFF000000}, 3, 1);
+        assertEquals(0L, tiny.getBits());
+        assertEquals(0x555555, tiny.getColour());
+    }
+
+    @Test
+    public void findsWithinDistanceAndFiltersScope() throws IOException {
+        try (NearDuplicateIndex index = NearDuplicateIndex.open(folder.newFile("a.idx"), 100, 12)) {
+            index.add(new PerceptualHash(0xF0F0F0F0F0F0F0F0L, COLOUR), 7, 0, FEATURES, 3);
+            PerceptualHash near = new PerceptualHash(0xF0F0F0F0F0F0F0F0L ^ 0b10101, COLOUR + 0x050000);
+
+            NearDuplicateIndex.Match match = index.find(near, 7, 0, 3);
+            assertNotNull(match);
+            assertEquals(3, match.getDistance());
+            assertEquals(3, match.getLabel());
+            assertArrayEquals(FEATURES, match.getFeatures(), 0f);
+            match.getFeatures()[0] = -1f;
+            assertEquals(FEATURES[0], index.find(near, 7, 0, 3).getFeatures()[0], 0f);
+
+            assertNull(index.find(near, 7, 0, 2));
+            assertNull(index.find(near, 8, 0, 3));
+            assertNull(index.find(near, 7, 1, 3));
+            assertNull(index.find(new PerceptualHash(near.getBits(), COLOUR + 13), 7, 0, 3));
+            assertNull("负数表示不查找", index.find(near, 7, 0, -1));
+            assertEquals(2, index.getHitCount());
+            assertEquals(5, index.getMissCount());
+        }
+    }
+
+    @Test
+    public void matchesBruteForceOnRandomHashes() throws IOException {
+        Random random = new Random(3);
+        int n = 3000;
+        long[] hashes = new long[n];
+        try (NearDuplicateIndex index = NearDuplicateIndex.open(folder.newFile("b.idx"), n, 255)) {
+            for (int i = 0; i < n; i++) {
+                // 一部分从已有的哈希翻转几位得到，保证有近邻
+                hashes[i] = i > 0 && random.nextBoolean()
+                        ? flip(hashes[random.nextInt(i)], random.nextInt(12), random) : random.nextLong();
+                index.add(new PerceptualHash(hashes[i], COLOUR), 1, 0, new float[]{i}, 0);
+            }
+            for (int q = 0; q < 500; q++) {
+                long query = flip(hashes[random.nextInt(n)], random.nextInt(20), random);
+                int radius = random.nextInt(20);
+                int best = -1;
+                int bestDistance = Integer.MAX_VALUE;
+                for (int i = 0; i < n; i++) {
+                    int d = Long.bitCount(query ^ hashes[i]);
+                    if (d <= radius && d <= bestDistance) {
+                        best = i;
+                        bestDistance = d;
+                    }
+                }
+                NearDuplicateIndex.Match match = index.find(new PerceptualHash(query, COLOUR), 1, 0, radius);
+                if (best < 0) {
+                    assertNull(match);
+                } else {
+                    assertNotNull(match);
+                    assertEquals(bestDistance, match.getDistance());
+                    assertEquals(best, match.getFeatures()[0], 0f);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void persistsAndTruncatesCorruptTail() throws IOException {
+        File file = folder.newFile("c.idx");
+        try (NearDuplicateIndex index = NearDuplicateIndex.open(file, 100, 12)) {
+            for (int i = 0; i < 3; i++) {
+                index.add(new PerceptualHash(0x1111L << (i * 16), COLOUR), 7, 0, new float[]{i, i}, i);
+            }
+        }
+        long length = file.length();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            // 最后一条的 CRC 损坏，再追加半条记录
+            raf.seek(length - 1);
+            int last = raf.read();
+            raf.seek(length - 1);
+            raf.write(last ^ 0xFF);
+            raf.seek(length);
+            raf.write(new byte[13]);
+        }
+        try (NearDuplicateIndex index = NearDuplicateIndex.open(file, 100, 12)) {
+            assertEquals(2, index.size());
+            assertEquals(1, index.find(new PerceptualHash(0x1111L << 16, COLOUR), 7, 0, 0).getLabel());
+            assertNull(index.find(new PerceptualHash(0x1111L << 32, COLOUR), 7, 0, 0));
+            index.add(new PerceptualHash(0x1111L << 48, COLOUR), 7, 0, FEATURES, 5);
+        }
+        try (NearDuplicateIndex index = NearDuplicateIndex.open(file, 100, 12)) {
+            assertEquals(3, index.size());
+            assertEquals(5, index.find(new PerceptualHash(0x1111L << 48, COLOUR), 7, 0, 0).getLabel());
+        }
+    }
+
+    @Test
+    public void compactsToNewerHalfWhenFull() throws IOException {
+        File file = folder.newFile("d.idx");
+        try (NearDuplicateIndex index = NearDuplicateIndex.open(file, 8, 12)) {
+            for (int i = 0; i < 9; i++) {
+                index.add(new PerceptualHash(0xFFL << (i * 6), COLOUR), 7, 0, FEATURES, i);
+            }
+            assertEquals(1, index.getCompactionCount());
+            assertEquals(5, index.size());
+            assertNull(index.find(new PerceptualHash(0xFFL, COLOUR), 7, 0, 0));
+            assertEquals(8, index.find(new PerceptualHash(0xFFL << 48, COLOUR), 7, 0, 0).getLabel());
+        }
+        try (NearDuplicateIndex index = NearDuplicateIndex.open(file, 8, 12)) {
+            assertEquals(5, index.size());
+            assertEquals(4, index.find(new PerceptualHash(0xFFL << 24, COLOUR), 7, 0, 0).getLabel());
+        }
+    }
+
+    private static long flip(long bits, int count, Random random) {
+        for (int i = 0; i < count; i++) {
+            bits ^= 1L << random.nextInt(64);
+        }
+        return bits;
+    }
+
+    // 肤色底色上的低频明暗和噪声；shift 为平移像素，gain 为亮度增益（百分比）
+    private static int[] scene(Random random, int shiftX, int shiftY, int gain) {
+        int[] pixels = new int[200 * 200];
+        double fx = 0.02 + random.nextDouble() * 0.04;
+        double fy = 0.02 + random.nextDouble() * 0.04;
+        double phase = random.nextDouble() * 6;
+        Random noise = new Random(random.nextLong() ^ gain);
+        for (int i = 0; i < 200; i++) {
+            for (int j = 0; j < 200; j++) {
+                double base = 30 * Math.sin((i + shiftY) * fy + (j + shiftX) * fx + phase);
+                double v = (1 + gain / 100.0) * (base + noise.nextGaussian() * 4);
+                pixels[i * 200 + j] = 0xFF000000 | clamp(190 + v) << 16 | clamp(128 + v) << 8 | clamp(112 + v);
+            }
+        }
+        return pixels;
+    }
+
+    private static int clamp(double value) {
+        return (int) Math.max(0, Math.min(255, value));
+    }
+}
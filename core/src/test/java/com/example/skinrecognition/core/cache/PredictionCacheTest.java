@@ -0,0 +1,92 @@
+package com.example.skinrecognition.core.cache;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PredictionCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final float[] FEATURES = {30f, 20f, 0.3f, 0.1f, 0.7f, 0.2f, 120f};
+
+    @Test
+    public void streamHashMatchesArrayHash() throws IOException {
+        Random random = new Random(5);
+        for (int size : new int[]{0, 1, 7, 8, 65535, 65536, 65537, 200003}) {
+            byte[] data = new byte[size];
+            random.nextBytes(data);
+            assertEquals(ContentHash.of(data), ContentHash.of(new ByteArrayInputStream(data)));
+        }
+        byte[] a = new byte[1000];
+        byte[] b = a.clone();
+        b[999] = 1;
+        assertNotEquals(ContentHash.of(a), ContentHash.of(b));
+    }
+
+    @Test
+    public void memoryHitAfterPut() {
+        PredictionCache cache = new PredictionCache(1024, null, 0);
+        PredictionCache.Key key = new PredictionCache.Key(1, 2, 0);
+        assertNull(cache.get(key));
+        cache.put(key, new PredictionCache.Entry(FEATURES, 2));
+        PredictionCache.Entry hit = cache.get(key);
+        assertEquals(2, hit.getLabel());
+        assertArrayEquals(FEATURES, hit.getFeatures(), 0f);
+        assertEquals(1, cache.getMemoryHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedBySize() {
+        long entrySize = new PredictionCache.Entry(FEATURES, 0).sizeInBytes();
+        PredictionCache cache = new PredictionCache(entrySize * 2, null, 0);
+        PredictionCache.Key a = new PredictionCache.Key(1, 9, 0);
+        PredictionCache.Key b = new PredictionCache.Key(2, 9, 0);
+        PredictionCache.Key c = new PredictionCache.Key(3, 9, 0);
+        cache.put(a, new PredictionCache.Entry(FEATURES, 0));
+        cache.put(b, new PredictionCache.Entry(FEATURES, 1));
+        cache.get(a);
+        cache.put(c, new PredictionCache.Entry(FEATURES, 2));
+        assertEquals(1, cache.getEvictionCount());
+        assertNotNull(cache.get(a));
+        assertNull(cache.get(b));
+        assertEquals(entrySize * 2, cache.getMemoryBytes());
+    }
+
+    @Test
+    public void diskEntriesSurviveRestartAndAreInvalidatedByModelChange() throws IOException {
+        File dir = folder.newFolder("cache");
+        PredictionCache.Key oldModel = new PredictionCache.Key(42, 1, 0);
+        PredictionCache.Key newModel = new PredictionCache.Key(42, 2, 0);
+        new PredictionCache(1024, dir, 10).put(oldModel, new PredictionCache.Entry(FEATURES, 1));
+
+        PredictionCache reopened = new PredictionCache(1024, dir, 10);
+        assertEquals(1, reopened.get(oldModel).getLabel());
+        assertEquals(1, reopened.getDiskHitCount());
+
+        reopened.retainModel(2);
+        assertNull(reopened.get(oldModel));
+        assertNull(reopened.get(newModel));
+        assertEquals(2, reopened.getInvalidatedCount());
+    }
+
+    @Test
+    public void diskStoreIsBounded() throws IOException {
+        File dir = folder.newFolder("bounded");
+        PredictionCache cache = new PredictionCache(0, dir, 3);
+        for (int i = 0; i < 5; i++) {
+            cache.put(new PredictionCache.Key(i, 1, 0), new PredictionCache.Entry(FEATURES, 0));
+        }
+        assertEquals(3, dir.listFiles().length);
+        assertEquals(2, cache.getDiskEvictionCount());
+    }
+}
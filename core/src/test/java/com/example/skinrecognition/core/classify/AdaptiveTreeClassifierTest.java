@@ -0,0 +1,161 @@
+package com.example.skinrecognition.core.classify;
+
+import com.example.skinrecognition.core.cache.PredictionCache;
+import com.example.skinrecognition.core.exec.CancellationToken;
+import com.example.skinrecognition.core.feature.AnalysisResolution;
+import com.example.skinrecognition.core.feature.Descriptor;
+import com.example.skinrecognition.core.feature.DescriptorExtractor;
+import com.example.skinrecognition.core.feature.FeatureLayout;
+import com.example.skinrecognition.core.feature.TiledFeatureExtractor;
+import com.example.skinrecognition.core.image.ArgbImage;
+import com.example.skinrecognition.core.metrics.PipelineMetrics;
+import com.example.skinrecognition.core.model.ModelConverter;
+import com.example.skinrecognition.core.model.TextModelReader;
+import com.example.skinrecognition.core.model.TreeModel;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptiveTreeClassifierTest {
+
+    private static final int SIZE = 200;
+
+    @Test
+    public void agreesWithFullExtractionOnAssetModel() throws IOException {
+        TreeClassifier full = classifier(ModelConverter.readText(new File("../app/src/main/assets"),
+                ModelConverter.DEFAULT_CLASS_COUNT));
+        AdaptiveTreeClassifier adaptive = new AdaptiveTreeClassifier(full, new int[]{8, 4}, 3f, 0.99f, 0, null);
+        Random random = new Random(23);
+        int count = 200;
+        int agreed = 0;
+        for (int i = 0; i < count; i++) {
+            ArgbImage image = skinImage(random);
+            if (adaptive.classify(image, CancellationToken.NONE).getLabel()
+                    == full.classify(image, CancellationToken.NONE).getLabel()) {
+                agreed++;
+            }
+        }
+        assertTrue("agreement " + agreed + "/" + count, agreed >= count * 0.99);
+        long[] levels = adaptive.getLevelCounts();
+        assertEquals(count, levels[0] + levels[1] + levels[2]);
+        // 大部分图片在最粗的一级就能确定
+        assertTrue(levels[0] > count / 2);
+    }
+
+    @Test
+    public void cacheKeysSurviveRetainingTheTreeModel() throws IOException {
+        TreeModel model = ModelConverter.readText(new File("../app/src/main/assets"),
+                ModelConverter.DEFAULT_CLASS_COUNT);
+        TreeClassifier full = classifier(model);
+        AdaptiveTreeClassifier adaptive = new AdaptiveTreeClassifier(full);
+        // 版本与模型指纹相同，估计特征靠 variant 与完整提取区分
+        assertEquals(model.getFingerprint(), adaptive.getVersion());
+        assertEquals(0, full.getVariant());
+        assertNotEquals(full.getVariant(), adaptive.getVariant());
+
+        PredictionCache cache = new PredictionCache(1 << 20, null, 0);
+        PredictionCache.Key key = new PredictionCache.Key(1L, adaptive.getVersion(), adaptive.getVariant());
+        cache.put(key, new PredictionCache.Entry(new float[FeatureLayout.BASIC.getFeatureCount()], 1));
+        cache.retainModel(model.getFingerprint());
+        assertNotNull(cache.get(key));
+        assertNull(cache.get(new PredictionCache.Key(1L, full.getVersion(), full.getVariant())));
+    }
+
+    @Test
+    public void fallsBackToFullExtractionWhenUnstable() throws IOException {
+        TreeClassifier full = classifier(ModelConverter.readText(new File("../app/src/main/assets"),
+                ModelConverter.DEFAULT_CLASS_COUNT));
+        // 误差放大到无论如何都不稳定
+        AdaptiveTreeClassifier adaptive = new AdaptiveTreeClassifier(full, new int[]{8, 4}, 1e9f, 0.99f, 0, null);
+        ArgbImage image = skinImage(new Random(4));
+        Classification expected = full.classify(image, CancellationToken.NONE);
+        Classification actual = adaptive.classify(image, CancellationToken.NONE);
+        assertEquals(expected.getLabel(), actual.getLabel());
+        assertArrayEquals(expected.getFeatures(), actual.getFeatures(), 0f);
+        assertArrayEquals(new long[]{0, 0, 1}, adaptive.getLevelCounts());
+    }
+
+    @Test
+    public void auditRaisesConfidenceWhenAgreementIsBelowTarget() throws IOException {
+        ArgbImage image = skinImage(new Random(9));
+        // 在粗采样估计的色相均值和完整提取的值之间分裂，粗采样的结果总是与完整推理不同
+        Descriptor coarse = new Descriptor();
+        new DescriptorExtractor().sample(image.getPixels(), SIZE, SIZE, 8, 0, coarse, CancellationToken.NONE);
+        float estimate = coarse.project(FeatureLayout.BASIC)[0];
+        TreeClassifier probe = classifier(splitOnHue(0f));
+        float exact = probe.classify(image, CancellationToken.NONE).getFeatures()[0];
+        assertTrue(estimate != exact);
+        TreeClassifier full = classifier(splitOnHue((estimate + exact) / 2));
+
+        PipelineMetrics metrics = new PipelineMetrics();
+        AdaptiveTreeClassifier adaptive = new AdaptiveTreeClassifier(full, new int[]{8}, 1e-6f, 0.99f, 1, metrics);
+        int expected = full.classify(image, CancellationToken.NONE).getLabel();
+        for (int i = 0; i < 20; i++) {
+            // 抽查时返回完整推理的结果
+            assertEquals(expected, adaptive.classify(image, CancellationToken.NONE).getLabel());
+        }
+        assertEquals(1.5e-6f, adaptive.getConfidence(), 1e-12f);
+        assertEquals(0, adaptive.getAuditCount());
+        assertTrue(Float.isNaN(adaptive.getAgreement()));
+
+        // 流水线统计是累计值，不随 confidence 调整清零
+        assertEquals(20, metrics.getAdaptiveLevelCount(0));
+        assertEquals(0, metrics.getAdaptiveLevelCount(PipelineMetrics.MAX_ADAPTIVE_LEVELS));
+        assertEquals(20, metrics.getAdaptiveAuditCount());
+        assertEquals(0f, metrics.getAdaptiveAgreement(), 0f);
+        String text = metrics.toText();
+        assertTrue(text, text.contains("level_0\t20\n") && text.contains("audits\t20\n")
+                && text.contains("confidence\t1.5E-6\n"));
+    }
+
+    private static TreeClassifier classifier(TreeModel tree) {
+        return new TreeClassifier(tree, null, new TiledFeatureExtractor(ForkJoinPool.commonPool()),
+                AnalysisResolution.SIZE_200);
+    }
+
+    // 只按色相均值分裂一次的树，归一化参数为恒等变换
+    private static TreeModel splitOnHue(float threshold) throws IOException {
+        String tree = "node_count:3\n1,0," + threshold + ",1,2,-1\n0,-1,-1,-1,-1,0\n0,-1,-1,-1,-1,1\n";
+        return TextModelReader.readTree(new ByteArrayInputStream(tree.getBytes(StandardCharsets.UTF_8)),
+                new float[7], new float[]{1, 1, 1, 1, 1, 1, 1}, 2);
+    }
+
+    // 肤色底色、低频明暗、噪声和暗点，参数每张随机
+    private static ArgbImage skinImage(Random random) {
+        int[] pixels = new int[SIZE * SIZE];
+        int r0 = 60 + random.nextInt(190);
+        int g0 = 40 + random.nextInt(160);
+        int b0 = 30 + random.nextInt(150);
+        double shade = random.nextDouble() * 60;
+        double noise = random.nextDouble() * 60;
+        double fx = random.nextDouble() * 0.05;
+        double fy = random.nextDouble() * 0.05;
+        double pores = random.nextDouble() * 0.3;
+        for (int i = 0; i < SIZE; i++) {
+            for (int j = 0; j < SIZE; j++) {
+                double base = shade * Math.sin(i * fx + j * fy) + (random.nextDouble() < pores ? -40 : 0);
+                double e = random.nextGaussian() * noise;
+                pixels[i * SIZE + j] = 0xFF000000 | clamp(r0 + base + e) << 16 | clamp(g0 + base + e * 0.8) << 8
+                        | clamp(b0 + base + e * 0.7);
+            }
+        }
+        return new ArgbImage(pixels, SIZE, SIZE);
+    }
+
+    private static int clamp(double value) {
+        return (int) Math.max(0, Math.min(255, value));
+    }
+}
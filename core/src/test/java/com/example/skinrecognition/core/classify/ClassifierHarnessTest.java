@@ -0,0 +1,318 @@
+package com.example.skinrecognition.core.classify;
+
+import com.example.skinrecognition.core.exec.CancellationToken;
+import com.example.skinrecognition.core.feature.AnalysisResolution;
+import com.example.skinrecognition.core.feature.FeatureExtractor;
+import com.example.skinrecognition.core.feature.TiledFeatureExtractor;
+import com.example.skinrecognition.core.image.ArgbImage;
+import com.example.skinrecognition.core.model.ModelConverter;
+import com.example.skinrecognition.core.model.ModelFormatException;
+import com.example.skinrecognition.core.model.TreeModel;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 两种分类后端在同一组图片上运行：树模型与原来的特征 + predict 结果一致，
+ * CNN 与测试中的逐元素参考实现一致，且不同线程数结果相同。
+ */
+public class ClassifierHarnessTest {
+
+    private static final int FIXTURE_COUNT = 8;
+    private static final int FIXTURE_SIZE = 200;
+
+    private static TreeModel tree;
+    private static TreeClassifier treeClassifier;
+    private static QuantizedCnn cnn;
+    private static List<ArgbImage> fixtures;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        tree = ModelConverter.readText(new File("../app/src/main/assets"), ModelConverter.DEFAULT_CLASS_COUNT);
+        treeClassifier = new TreeClassifier(tree, null, new TiledFeatureExtractor(ForkJoinPool.commonPool()),
+                AnalysisResolution.SIZE_200);
+        cnn = randomNetwork(new Random(7), 32);
+        fixtures = new ArrayList<>();
+        Random random = new Random(3);
+        for (int i = 0; i < FIXTURE_COUNT; i++) {
+            fixtures.add(randomImage(random, FIXTURE_SIZE, FIXTURE_SIZE));
+        }
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        treeClassifier.close();
+    }
+
+    @Test
+    public void bothBackendsProduceDistributionsOnSameFixtures() {
+        for (Classifier classifier : new Classifier[]{treeClassifier, new CnnClassifier(cnn, 2)}) {
+            try {
+                assertEquals(3, classifier.getClassCount());
+                for (ArgbImage image : fixtures) {
+                    Classification result = classifier.classify(image, CancellationToken.NONE);
+                    float sum = 0;
+                    for (float p : result.getProbabilities()) {
+                        assertTrue(p >= 0 && p <= 1);
+                        sum += p;
+                    }
+                    assertEquals(classifier.getName(), 1f, sum, 1e-5f);
+                    for (float p : result.getProbabilities()) {
+                        assertTrue(result.getConfidence() >= p);
+                    }
+                }
+            } finally {
+                classifier.close();
+            }
+        }
+    }
+
+    @Test
+    public void treeBackendMatchesHandcraftedPipeline() {
+        FeatureExtractor extractor = new FeatureExtractor();
+        for (ArgbImage image : fixtures) {
+            float[] features = extractor.extract(image.getPixels(), image.getWidth(), image.getHeight());
+            Classification result = treeClassifier.classify(image, CancellationToken.NONE);
+            assertArrayEquals(features, result.getFeatures(), 0f);
+            assertEquals(tree.predict(features), result.getLabel());
+            assertEquals(1f, result.getConfidence(), 0f);
+        }
+        assertEquals(tree.getFingerprint(), treeClassifier.getVersion());
+    }
+
+    @Test
+    public void cnnMatchesReferenceForAnyThreadCount() {
+        float[][] expected = new float[FIXTURE_COUNT][];
+        for (int i = 0; i < FIXTURE_COUNT; i++) {
+            expected[i] = CnnClassifier.softmax(referenceLogits(cnn, fixtures.get(i)));
+        }
+        for (int threads : new int[]{1, 3, 8}) {
+            try (CnnClassifier classifier = new CnnClassifier(cnn, threads)) {
+                for (int i = 0; i < FIXTURE_COUNT; i++) {
+                    Classification result = classifier.classify(fixtures.get(i), CancellationToken.NONE);
+                    assertArrayEquals("threads=" + threads, expected[i], result.getProbabilities(), 0f);
+                    assertNull(result.getFeatures());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void cnnStillClassifiesAfterClose() {
+        CnnClassifier classifier = new CnnClassifier(cnn, 3);
+        Classification before = classifier.classify(fixtures.get(0), CancellationToken.NONE);
+        classifier.close();
+        // 被注册表释放后，仍持有引用的调用方在调用线程完成推理
+        Classification after = classifier.classify(fixtures.get(0), CancellationToken.NONE);
+        assertArrayEquals(before.getProbabilities(), after.getProbabilities(), 0f);
+    }
+
+    @Test
+    public void cnnSeparatesRedFromBlue() throws ModelFormatException {
+        // 1x1 卷积原样输出 R、B 两个通道，全局平均后比较大小
+        List<QuantizedCnn.Layer> layers = Arrays.asList(
+                QuantizedCnn.Layer.conv(1, 1, 2, new byte[]{1, 0, 0, 0, 0, 1}, new int[2], new float[]{1, 1}),
+                QuantizedCnn.Layer.globalAvgPool(),
+                QuantizedCnn.Layer.dense(2, new byte[]{1, -1, -1, 1}, new int[2], new float[]{0.1f, 0.1f}));
+        QuantizedCnn net = QuantizedCnn.create(8, layers);
+        try (CnnClassifier classifier = new CnnClassifier(net, 1)) {
+            assertEquals(0, classifier.classify(solid(0xFFE04020, 16), CancellationToken.NONE).getLabel());
+            assertEquals(1, classifier.classify(solid(0xFF2040E0, 16), CancellationToken.NONE).getLabel());
+        }
+    }
+
+    @Test
+    public void formatRoundTrip() throws ModelFormatException {
+        byte[] bytes = cnn.toBytes();
+        QuantizedCnn read = QuantizedCnn.read(ByteBuffer.wrap(bytes));
+        assertArrayEquals(bytes, read.toBytes());
+        assertEquals(cnn.getFingerprint(), read.getFingerprint());
+        assertEquals(cnn.getMaxActivationSize(), read.getMaxActivationSize());
+
+        bytes[bytes.length - 1] ^= 1;
+        try {
+            QuantizedCnn.read(ByteBuffer.wrap(bytes));
+            fail("校验和错误应当被发现");
+        } catch (ModelFormatException expected) {
+            // 预期
+        }
+    }
+
+    @Test(expected = CancellationException.class)
+    public void cancelledBeforeFirstLayer() {
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+        try (CnnClassifier classifier = new CnnClassifier(cnn, 2)) {
+            classifier.classify(fixtures.get(0), token);
+        }
+    }
+
+    // conv3x3(3→8) → maxpool2 → conv3x3/2(8→16) → 全局平均 → dense(16→3)
+    private static QuantizedCnn randomNetwork(Random random, int inputSize) throws ModelFormatException {
+        List<QuantizedCnn.Layer> layers = new ArrayList<>();
+        layers.add(QuantizedCnn.Layer.conv(3, 1, 8, randomBytes(random, 8 * 9 * 3), randomInts(random, 8, 2000),
+                filled(8, 1f / 200)));
+        layers.add(QuantizedCnn.Layer.maxPool(2));
+        layers.add(QuantizedCnn.Layer.conv(3, 2, 16, randomBytes(random, 16 * 9 * 8), randomInts(random, 16, 2000),
+                filled(16, 1f / 400)));
+        layers.add(QuantizedCnn.Layer.globalAvgPool());
+        layers.add(QuantizedCnn.Layer.dense(3, randomBytes(random, 3 * 16), randomInts(random, 3, 500),
+                filled(3, 1e-4f)));
+        return QuantizedCnn.create(inputSize, layers);
+    }
+
+    // 不考虑性能的逐元素参考实现，张量下标为 [y][x][c]
+    private static float[] referenceLogits(QuantizedCnn net, ArgbImage image) {
+        int size = net.getInputSize();
+        int[][][] x = new int[size][size][3];
+        for (int y = 0; y < size; y++) {
+            for (int i = 0; i < size; i++) {
+                int sy = (2 * y + 1) * image.getHeight() / (2 * size);
+                int sx = (2 * i + 1) * image.getWidth() / (2 * size);
+                int color = image.getPixels()[sy * image.getWidth() + sx];
+                x[y][i] = new int[]{(color >> 16) & 0xFF, (color >> 8) & 0xFF, color & 0xFF};
+            }
+        }
+        for (QuantizedCnn.Layer layer : net.layers) {
+            int h = x.length;
+            int w = x[0].length;
+            int c = x[0][0].length;
+            switch (layer.type) {
+                case QuantizedCnn.CONV: {
+                    int k = layer.kernel;
+                    int oh = (h + layer.stride - 1) / layer.stride;
+                    int ow = (w + layer.stride - 1) / layer.stride;
+                    int[][][] out = new int[oh][ow][layer.outChannels];
+                    for (int oy = 0; oy < oh; oy++) {
+                        for (int ox = 0; ox < ow; ox++) {
+                            for (int o = 0; o < layer.outChannels; o++) {
+                                int acc = layer.bias[o];
+                                for (int ky = 0; ky < k; ky++) {
+                                    for (int kx = 0; kx < k; kx++) {
+                                        int iy = oy * layer.stride + ky - k / 2;
+                                        int ix = ox * layer.stride + kx - k / 2;
+                                        if (iy < 0 || iy >= h || ix < 0 || ix >= w) {
+                                            continue;
+                                        }
+                                        for (int ch = 0; ch < c; ch++) {
+                                            acc += layer.weights[((o * k + ky) * k + kx) * c + ch] * x[iy][ix][ch];
+                                        }
+                                    }
+                                }
+                                out[oy][ox][o] = Math.max(0, Math.min(255, Math.round(acc * layer.scale[o])));
+                            }
+                        }
+                    }
+                    x = out;
+                    break;
+                }
+                case QuantizedCnn.MAX_POOL: {
+                    int p = layer.kernel;
+                    int[][][] out = new int[h / p][w / p][c];
+                    for (int oy = 0; oy < h / p; oy++) {
+                        for (int ox = 0; ox < w / p; ox++) {
+                            for (int ch = 0; ch < c; ch++) {
+                                for (int dy = 0; dy < p; dy++) {
+                                    for (int dx = 0; dx < p; dx++) {
+                                        out[oy][ox][ch] = Math.max(out[oy][ox][ch], x[oy * p + dy][ox * p + dx][ch]);
+                                    }
+                                }
+                            }
+                        }
+                    }
+                    x = out;
+                    break;
+                }
+                case QuantizedCnn.GLOBAL_AVG_POOL: {
+                    int[][][] out = new int[1][1][c];
+                    for (int ch = 0; ch < c; ch++) {
+                        int sum = 0;
+                        for (int[][] row : x) {
+                            for (int[] px : row) {
+                                sum += px[ch];
+                            }
+                        }
+                        out[0][0][ch] = (sum + h * w / 2) / (h * w);
+                    }
+                    x = out;
+                    break;
+                }
+                default: {
+                    float[] logits = new float[layer.outChannels];
+                    int n = h * w * c;
+                    for (int o = 0; o < logits.length; o++) {
+                        int acc = layer.bias[o];
+                        int i = 0;
+                        for (int[][] row : x) {
+                            for (int[] px : row) {
+                                for (int v : px) {
+                                    acc += layer.weights[o * n + i++] * v;
+                                }
+                            }
+                        }
+                        logits[o] = acc * layer.scale[o];
+                    }
+                    return logits;
+                }
+            }
+        }
+        throw new AssertionError("网络没有输出层");
+    }
+
+    private static ArgbImage randomImage(Random random, int width, int height) {
+        // 平滑的色块加噪声，接近照片的统计特性
+        int base = random.nextInt(0x1000000);
+        int[] pixels = new int[width * height];
+        for (int i = 0; i < pixels.length; i++) {
+            int r = Math.min(255, ((base >> 16) & 0xFF) + random.nextInt(40));
+            int g = Math.min(255, ((base >> 8) & 0xFF) + random.nextInt(40));
+            int b = Math.min(255, (base & 0xFF) + random.nextInt(40));
+            pixels[i] = 0xFF000000 | r << 16 | g << 8 | b;
+        }
+        return new ArgbImage(pixels, width, height);
+    }
+
+    private static ArgbImage solid(int color, int size) {
+        int[] pixels = new int[size * size];
+        Arrays.fill(pixels, color);
+        return new ArgbImage(pixels, size, size);
+    }
+
+    private static byte[] randomBytes(Random random, int n) {
+        byte[] values = new byte[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = (byte) (random.nextInt(255) - 127);
+        }
+        return values;
+    }
+
+    private static int[] randomInts(Random random, int n, int bound) {
+        int[] values = new int[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = random.nextInt(2 * bound) - bound;
+        }
+        return values;
+    }
+
+    private static float[] filled(int n, float value) {
+        float[] values = new float[n];
+        Arrays.fill(values, value);
+        return values;
+    }
+}
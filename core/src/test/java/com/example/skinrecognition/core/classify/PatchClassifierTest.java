@@ -0,0 +1,109 @@
+package com.example.skinrecognition.core.classify;
+
+import com.example.skinrecognition.core.exec.CancellationToken;
+import com.example.skinrecognition.core.feature.AnalysisResolution;
+import com.example.skinrecognition.core.feature.FeatureExtractor;
+import com.example.skinrecognition.core.feature.FeatureLayout;
+import com.example.skinrecognition.core.feature.PatchFeatureExtractor;
+import com.example.skinrecognition.core.feature.PatchGrid;
+import com.example.skinrecognition.core.image.ArgbImage;
+import com.example.skinrecognition.core.model.EnsembleModel;
+import com.example.skinrecognition.core.model.ModelConverter;
+import com.example.skinrecognition.core.model.TreeModel;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PatchClassifierTest {
+
+    private static final int M = FeatureExtractor.FEATURE_COUNT;
+
+    private static ArgbImage halves(int size) {
+        // 左半偏红、右半偏暗，加一点噪声
+        Random random = new Random(7);
+        int[] pixels = new int[size * size];
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                int base = x < size / 2 ? 0xE0A080 : 0x604030;
+                int noise = random.nextInt(24);
+                pixels[y * size + x] = 0xFF000000 | (base + (noise << 16) + (noise << 8) + noise);
+            }
+        }
+        return new ArgbImage(pixels, size, size);
+    }
+
+    @Test
+    public void batchedPatchLabelsMatchPerPatchPredictionAndVote() throws IOException {
+        TreeModel tree = ModelConverter.readText(new File("../app/src/main/assets"), 3);
+        PatchGrid grid = PatchGrid.full(4, 4);
+        PatchClassifier classifier = new PatchClassifier(tree, null,
+                new PatchFeatureExtractor(ForkJoinPool.commonPool()), AnalysisResolution.SIZE_200, grid,
+                PatchClassifier.Combine.VOTE);
+        PatchAnalysis analysis = classifier.analyze(halves(200), CancellationToken.NONE);
+
+        int[] votes = new int[3];
+        float[] row = new float[M];
+        for (int r = 0; r < 4; r++) {
+            for (int c = 0; c < 4; c++) {
+                int p = r * 4 + c;
+                for (int f = 0; f < M; f++) {
+                    row[f] = analysis.getPatchFeature(p, f);
+                }
+                int label = tree.predict(row);
+                assertEquals(label, analysis.getPatchLabel(r, c));
+                assertEquals(1f, analysis.getPatchConfidence(r, c), 0f);
+                votes[label]++;
+            }
+        }
+        Classification combined = analysis.getCombined();
+        assertEquals(votes[combined.getLabel()] / 16f, combined.getConfidence(), 1e-6f);
+        for (int v : votes) {
+            assertTrue(v <= votes[combined.getLabel()]);
+        }
+        assertEquals(M, combined.getFeatures().length);
+    }
+
+    @Test
+    public void rejectsEnsembleWithOtherLayout() throws IOException {
+        TreeModel tree = ModelConverter.readText(new File("../app/src/main/assets"), 3);
+        int m = FeatureLayout.EXTENDED.getFeatureCount();
+        float[] std = new float[m];
+        Arrays.fill(std, 1f);
+        EnsembleModel extended = EnsembleModel.compile(EnsembleModel.Kind.FOREST, new int[]{1}, new int[]{0},
+                new int[]{-1}, new float[]{0f}, new int[]{-1}, new int[]{-1}, new int[]{1}, new float[m], std, 3,
+                1f, null, FeatureLayout.EXTENDED);
+        try {
+            new PatchClassifier(tree, extended, new PatchFeatureExtractor(ForkJoinPool.commonPool()),
+                    AnalysisResolution.SIZE_200, PatchGrid.parse("2x2", null), PatchClassifier.Combine.VOTE);
+            fail("集成模型的布局与区块特征不符，应当在构造时拒绝");
+        } catch (IllegalArgumentException expected) {
+            assertTrue(expected.getMessage().contains(FeatureLayout.BASIC.getId()));
+        }
+    }
+
+    @Test
+    public void heatMapPaintsRoiCellsOnly() throws IOException {
+        TreeModel tree = ModelConverter.readText(new File("../app/src/main/assets"), 3);
+        PatchGrid grid = new PatchGrid(0.5f, 0f, 0.5f, 1f, 2, 2);
+        PatchAnalysis analysis = new PatchClassifier(tree, null, new PatchFeatureExtractor(ForkJoinPool.commonPool()),
+                AnalysisResolution.SIZE_200, grid, PatchClassifier.Combine.AVERAGE)
+                .analyze(halves(200), CancellationToken.NONE);
+        int[] colors = {0xFF0000, 0x00FF00, 0x0000FF};
+        int[] heat = analysis.renderHeatMap(20, 10, colors, 200);
+        assertEquals(0, heat[0]);
+        assertEquals(0, heat[9 * 20 + 9]);
+        int cell = heat[10];
+        assertEquals(200, cell >>> 24);
+        assertEquals(colors[analysis.getPatchLabel(0, 0)], cell & 0xFFFFFF);
+        assertEquals(colors[analysis.getPatchLabel(1, 1)], heat[9 * 20 + 19] & 0xFFFFFF);
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.skinrecognition.core.exec;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class InferenceSchedulerTest {
+
+    // 记录回调结果的简单实现
+    private static final class Recorder<T> implements InferenceScheduler.Callback<T> {
+        final List<Object> events = new CopyOnWriteArrayList<>();
+        final CountDownLatch done;
+
+        Recorder(int expected) {
+            done = new CountDownLatch(expected);
+        }
+
+        @Override
+        public void onResult(long requestId, T result) {
+            events.add(result);
+            done.countDown();
+        }
+
+        @Override
+        public void onError(long requestId, Throwable error) {
+            events.add(error.getClass());
+            done.countDown();
+        }
+    }
+
+    @Test
+    public void latestRequestWinsAndStaleWorkIsCancelled() throws Exception {
+        ExecutorService delivery = Executors.newSingleThreadExecutor();
+        InferenceScheduler scheduler = new InferenceScheduler(1, 4, delivery);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Recorder<String> recorder = new Recorder<>(3);
+
+        // 两个新请求都提交之后才放开唯一的工作线程，"queued" 不会在被取代前开始执行
+        scheduler.submit("predict", token -> {
+            started.countDown();
+            release.await();
+            token.throwIfCancelled();
+            return "first";
+        }, recorder);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        scheduler.submit("predict", token -> "queued", recorder);
+        long last = scheduler.submit("predict", token -> "latest", recorder);
+        release.countDown();
+
+        assertTrue(recorder.done.await(5, TimeUnit.SECONDS));
+        assertTrue(recorder.events.contains("latest"));
+        assertFalse(recorder.events.contains("queued"));
+        assertEquals(2, recorder.events.stream().filter(e -> e == CancellationException.class).count());
+        assertEquals(1, scheduler.getCompletedCount());
+        assertEquals(2, scheduler.getCancelledCount());
+        assertFalse(scheduler.isCurrent("predict", last));
+        scheduler.shutdown();
+        delivery.shutdown();
+    }
+
+    @Test
+    public void rejectsWhenQueueIsFull() throws Exception {
+        ExecutorService delivery = Executors.newSingleThreadExecutor();
+        InferenceScheduler scheduler = new InferenceScheduler(1, 1, delivery);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        Recorder<String> recorder = new Recorder<>(3);
+
+        // 不同通道之间互不取消
+        scheduler.submit("a", token -> {
+            started.countDown();
+            release.await();
+            return "a";
+        }, recorder);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        scheduler.submit("b", token -> "b", recorder);
+        scheduler.submit("c", token -> "c", recorder);
+        assertEquals(1, scheduler.getQueueDepth());
+        assertEquals(1, scheduler.getRejectedCount());
+
+        release.countDown();
+        assertTrue(recorder.done.await(5, TimeUnit.SECONDS));
+        assertTrue(recorder.events.contains(RejectedExecutionException.class));
+        assertTrue(recorder.events.contains("a"));
+        assertTrue(recorder.events.contains("b"));
+        scheduler.shutdown();
+        delivery.shutdown();
+    }
+
+    @Test
+    public void failuresAreDeliveredToCallback() throws Exception {
+        InferenceScheduler scheduler = new InferenceScheduler(1, 1, Runnable::run);
+        Recorder<String> recorder = new Recorder<>(1);
+        scheduler.submit("x", token -> {
+            throw new IllegalStateException("boom");
+        }, recorder);
+        assertTrue(recorder.done.await(5, TimeUnit.SECONDS));
+        assertEquals(IllegalStateException.class, recorder.events.get(0));
+        assertEquals(1, scheduler.getFailedCount());
+        scheduler.shutdown();
+    }
+}
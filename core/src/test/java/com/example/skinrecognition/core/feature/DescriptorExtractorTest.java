@@ -0,0 +1,180 @@
+package com.example.skinrecognition.core.feature;
+
+import com.example.skinrecognition.core.exec.CancellationToken;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DescriptorExtractorTest {
+
+    @Test
+    public void basicProjectionMatchesFeatureExtractor() {
+        Random random = new Random(22);
+        int width = 211;
+        int height = 197;
+        int[] pixels = FeatureExtractorTest.randomSkinLike(random, width * height);
+        float[] expected = new FeatureExtractor(RowKernels.scalar()).extract(pixels, width, height);
+        float[] actual = new DescriptorExtractor(RowKernels.scalar()).extract(pixels, width, height)
+                .project(FeatureLayout.BASIC);
+        for (int f = 0; f < expected.length; f++) {
+            // 标准差（奇数下标）在 FeatureExtractor 中由 float 的 sqSum/n - mean² 得到，本身就有 1e-4 量级的误差
+            float tolerance = f % 2 == 1 ? 1e-3f : 1e-4f;
+            assertEquals("feature " + f, expected[f], actual[f], Math.abs(expected[f]) * tolerance);
+        }
+    }
+
+    @Test
+    public void mergedTilesMatchWholeImage() {
+        Random random = new Random(7);
+        int width = 120;
+        int height = 90;
+        int[] pixels = FeatureExtractorTest.randomSkinLike(random, width * height);
+        DescriptorExtractor extractor = new DescriptorExtractor(RowKernels.scalar());
+        Descriptor whole = extractor.extract(pixels, width, height);
+
+        // 不规则的 3x2 区块分别累加后合并
+        int[] rows = {1, 30, height - 1};
+        int[] cols = {1, 17, 64, width - 1};
+        Descriptor merged = new Descriptor();
+        for (int r = 0; r + 1 < rows.length; r++) {
+            for (int c = 0; c + 1 < cols.length; c++) {
+                Descriptor patch = new Descriptor();
+                extractor.accumulate(pixels, width, height, rows[r], rows[r + 1], cols[c], cols[c + 1], patch,
+                        CancellationToken.NONE);
+                merged.merge(patch);
+            }
+        }
+        assertEquals(whole.getCount(), merged.getCount(), 0);
+        assertArrayEquals(whole.lbpHist, merged.lbpHist, 0);
+        assertArrayEquals(whole.hueHist, merged.hueHist, 0);
+        assertArrayEquals(whole.saturationHist, merged.saturationHist, 0);
+        assertArrayEquals(whole.valueHist, merged.valueHist, 0);
+        float[] expected = whole.project(FeatureLayout.EXTENDED);
+        float[] actual = merged.project(FeatureLayout.EXTENDED);
+        for (int f = 0; f < expected.length; f++) {
+            assertEquals("feature " + f, expected[f], actual[f], Math.abs(expected[f]) * 1e-6f);
+        }
+    }
+
+    @Test
+    public void coarseToFineSamplingReadsEachPixelOnce() {
+        Random random = new Random(8);
+        int width = 67;
+        int height = 53;
+        int[] pixels = FeatureExtractorTest.randomSkinLike(random, width * height);
+        DescriptorExtractor extractor = new DescriptorExtractor(RowKernels.scalar());
+        Descriptor direct = new Descriptor();
+        extractor.sample(pixels, width, height, 2, 0, direct, CancellationToken.NONE);
+        Descriptor refined = new Descriptor();
+        extractor.sample(pixels, width, height, 8, 0, refined, CancellationToken.NONE);
+        extractor.sample(pixels, width, height, 4, 8, refined, CancellationToken.NONE);
+        extractor.sample(pixels, width, height, 2, 4, refined, CancellationToken.NONE);
+        assertEquals(33 * 26, direct.getCount(), 0);
+        assertEquals(direct.getCount(), refined.getCount(), 0);
+        assertArrayEquals(direct.lbpHist, refined.lbpHist, 0);
+        assertArrayEquals(direct.hueHist, refined.hueHist, 0);
+        assertArrayEquals(direct.project(FeatureLayout.EXTENDED), refined.project(FeatureLayout.EXTENDED), 1e-5f);
+
+        // 间隔为 1 时就是整幅图，标准误差为 0
+        Descriptor all = new Descriptor();
+        extractor.sample(pixels, width, height, 1, 0, all, CancellationToken.NONE);
+        Descriptor whole = extractor.extract(pixels, width, height);
+        assertArrayEquals(whole.lbpHist, all.lbpHist, 0);
+        assertArrayEquals(whole.project(FeatureLayout.BASIC), all.project(FeatureLayout.BASIC), 1e-4f);
+        float[] errors = new float[FeatureLayout.EXTENDED.getFeatureCount()];
+        all.standardErrors(FeatureLayout.EXTENDED, (width - 2) * (height - 2), errors, 0);
+        for (float error : errors) {
+            assertEquals(0f, error, 0f);
+        }
+        // 稀疏的样本误差更大
+        float[] coarse = new float[FeatureLayout.BASIC.getFeatureCount()];
+        float[] fine = new float[coarse.length];
+        Descriptor sparse = new Descriptor();
+        extractor.sample(pixels, width, height, 8, 0, sparse, CancellationToken.NONE);
+        sparse.standardErrors(FeatureLayout.BASIC, (width - 2) * (height - 2), coarse, 0);
+        direct.standardErrors(FeatureLayout.BASIC, (width - 2) * (height - 2), fine, 0);
+        for (int f = 0; f < coarse.length; f++) {
+            assertTrue("feature " + f, coarse[f] > fine[f] && fine[f] > 0);
+        }
+    }
+
+    @Test
+    public void stdStaysAccurateForLargeFlatImages() {
+        // 300x300 的偏红图像，色相集中在 350° 附近：float 的 sqSum/n - mean² 在这里抵消掉大部分有效位
+        Random random = new Random(3);
+        int width = 300;
+        int height = 300;
+        int[] pixels = new int[width * height];
+        for (int k = 0; k < pixels.length; k++) {
+            int b = 30 + random.nextInt(3);
+            pixels[k] = 0xFF000000 | 220 << 16 | 20 << 8 | b;
+        }
+        // double 两遍法的参考值
+        float[] hsv = new float[3];
+        double sum = 0;
+        int n = 0;
+        for (int i = 1; i < height - 1; i++) {
+            for (int j = 1; j < width - 1; j++) {
+                int p = pixels[i * width + j];
+                FeatureExtractorTest.rgbToHsv(p >> 16 & 0xFF, p >> 8 & 0xFF, p & 0xFF, hsv);
+                sum += hsv[0];
+                n++;
+            }
+        }
+        double mean = sum / n;
+        double m2 = 0;
+        for (int i = 1; i < height - 1; i++) {
+            for (int j = 1; j < width - 1; j++) {
+                int p = pixels[i * width + j];
+                FeatureExtractorTest.rgbToHsv(p >> 16 & 0xFF, p >> 8 & 0xFF, p & 0xFF, hsv);
+                m2 += (hsv[0] - mean) * (hsv[0] - mean);
+            }
+        }
+        float expected = (float) Math.sqrt(m2 / n);
+        float[] features = new DescriptorExtractor().extract(pixels, width, height).project(FeatureLayout.BASIC);
+        assertEquals(expected, features[1], expected * 1e-5f);
+    }
+
+    @Test
+    public void histogramsSumToPixelCount() {
+        Random random = new Random(11);
+        int[] pixels = random.ints(64 * 48).toArray();
+        Descriptor descriptor = new DescriptorExtractor().extract(pixels, 64, 48);
+        assertEquals(62 * 46, descriptor.getCount(), 0);
+        for (double[] hist : new double[][]{descriptor.lbpHist, descriptor.hueHist, descriptor.saturationHist,
+                descriptor.valueHist}) {
+            double total = 0;
+            for (double bin : hist) {
+                total += bin;
+            }
+            assertEquals(descriptor.getCount(), total, 0);
+        }
+        // 58 个均匀模式各占一个编号
+        int uniform = 0;
+        for (int code = 0; code < 256; code++) {
+            if (Descriptor.UNIFORM[code] != Descriptor.LBP_BINS - 1) {
+                uniform++;
+            }
+        }
+        assertEquals(58, uniform);
+    }
+
+    @Test
+    public void scaleDecaysWeightsButKeepsMeans() {
+        Random random = new Random(5);
+        int[] pixels = FeatureExtractorTest.randomSkinLike(random, 40 * 40);
+        Descriptor frame = new DescriptorExtractor().extract(pixels, 40, 40);
+        Descriptor decayed = frame.copy();
+        decayed.scale(0.25);
+        assertEquals(frame.getCount() * 0.25, decayed.getCount(), 1e-9);
+        assertArrayEquals(frame.project(FeatureLayout.EXTENDED), decayed.project(FeatureLayout.EXTENDED), 1e-6f);
+        decayed.clear();
+        assertEquals(0, decayed.getCount(), 0);
+        assertEquals(Float.NaN, decayed.project(FeatureLayout.BASIC)[0], 0f);
+    }
+}
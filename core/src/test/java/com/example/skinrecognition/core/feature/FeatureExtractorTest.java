@@ -0,0 +1,143 @@
+package com.example.skinrecognition.core.feature;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * 对比新的特征提取器与原 PredictActivity 中逐像素实现的结果。
+ */
+public class FeatureExtractorTest {
+
+    private static final float TOLERANCE = 1e-4f;
+
+    @Test
+    public void matchesPerPixelReference() {
+        Random random = new Random(42);
+        FeatureExtractor extractor = new FeatureExtractor();
+        int[][] sizes = {{200, 200}, {3, 3}, {17, 31}, {64, 48}};
+        for (int[] size : sizes) {
+            int[] pixels = randomSkinLike(random, size[0] * size[1]);
+            float[] expected = reference(pixels, size[0], size[1]);
+            float[] actual = extractor.extract(pixels, size[0], size[1]);
+            assertArrayEquals(expected, actual, TOLERANCE);
+        }
+    }
+
+    @Test
+    public void handlesGrayAndSaturatedPixels() {
+        int[] pixels = {
+                0xFF000000, 0xFFFFFFFF, 0xFF808080, 0xFFFF0000,
+                0xFF00FF00, 0xFF0000FF, 0xFFFF00FF, 0xFF00FFFF,
+                0xFFFFFF00, 0xFF102030, 0xFF302010, 0xFF203010,
+                0xFF7F7F80, 0xFF01FF01, 0xFFFE0001, 0xFF000001
+        };
+        float[] expected = reference(pixels, 4, 4);
+        assertArrayEquals(expected, new FeatureExtractor().extract(pixels, 4, 4), TOLERANCE);
+    }
+
+    @Test
+    public void reusesBufferAcrossSizes() {
+        Random random = new Random(7);
+        FeatureExtractor extractor = new FeatureExtractor();
+        int[] big = randomSkinLike(random, 100 * 100);
+        int[] small = randomSkinLike(random, 10 * 10);
+        extractor.extract(big, 100, 100);
+        float[] out = new float[FeatureExtractor.FEATURE_COUNT];
+        extractor.extract(small, 10, 10, out);
+        assertArrayEquals(reference(small, 10, 10), out, TOLERANCE);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTooSmallImage() {
+        new FeatureExtractor().extract(new int[4], 2, 2);
+    }
+
+    static int[] randomSkinLike(Random random, int count) {
+        int[] pixels = new int[count];
+        for (int k = 0; k < count; k++) {
+            int r = 120 + random.nextInt(136);
+            int g = 80 + random.nextInt(120);
+            int b = 60 + random.nextInt(110);
+            pixels[k] = 0xFF000000 | (r << 16) | (g << 8) | b;
+        }
+        return pixels;
+    }
+
+    // 原 PredictActivity.extractFeatures 的算法（去掉缩放），HSV 按 Color.RGBToHSV 的公式计算
+    static float[] reference(int[] pixels, int width, int height) {
+        float hSum = 0, sSum = 0, vSum = 0;
+        float hSqSum = 0, sSqSum = 0, vSqSum = 0;
+        int pixelCount = 0;
+        int lbpSum = 0;
+        int lbpCount = 0;
+        for (int i = 1; i < height - 1; i++) {
+            for (int j = 1; j < width - 1; j++) {
+                int pixel = pixels[i * width + j];
+                int r = (pixel >> 16) & 0xFF;
+                int g = (pixel >> 8) & 0xFF;
+                int b = pixel & 0xFF;
+                float[] hsv = new float[3];
+                rgbToHsv(r, g, b, hsv);
+                hSum += hsv[0];
+                sSum += hsv[1];
+                vSum += hsv[2];
+                hSqSum += hsv[0] * hsv[0];
+                sSqSum += hsv[1] * hsv[1];
+                vSqSum += hsv[2] * hsv[2];
+                pixelCount++;
+
+                int center = (r + g + b) / 3;
+                int[][] offsets = {{-1, -1}, {0, -1}, {1, -1}, {1, 0}, {1, 1}, {0, 1}, {-1, 1}, {-1, 0}};
+                int code = 0;
+                for (int n = 0; n < 8; n++) {
+                    int p = pixels[(i + offsets[n][1]) * width + j + offsets[n][0]];
+                    int gray = (((p >> 16) & 0xFF) + ((p >> 8) & 0xFF) + (p & 0xFF)) / 3;
+                    code |= (gray >= center) ? 1 << (7 - n) : 0;
+                }
+                lbpSum += code;
+                lbpCount++;
+            }
+        }
+        float hMean = hSum / pixelCount;
+        float sMean = sSum / pixelCount;
+        float vMean = vSum / pixelCount;
+        float hStd = (float) Math.sqrt((hSqSum / pixelCount) - hMean * hMean);
+        float sStd = (float) Math.sqrt((sSqSum / pixelCount) - sMean * sMean);
+        float vStd = (float) Math.sqrt((vSqSum / pixelCount) - vMean * vMean);
+        float lbpMean = (float) lbpSum / lbpCount;
+        return new float[]{hMean, hStd, sMean, sStd, vMean, vStd, lbpMean};
+    }
+
+    // Skia SkRGBToHSV 的Java版本（Color.RGBToHSV 的底层实现）
+    static void rgbToHsv(int r, int g, int b, float[] hsv) {
+        int min = Math.min(r, Math.min(g, b));
+        int max = Math.max(r, Math.max(g, b));
+        int delta = max - min;
+        float v = max / 255f;
+        if (delta == 0) {
+            hsv[0] = 0;
+            hsv[1] = 0;
+            hsv[2] = v;
+            return;
+        }
+        float s = (float) delta / max;
+        float h;
+        if (r == max) {
+            h = (float) (g - b) / delta;
+        } else if (g == max) {
+            h = 2 + (float) (b - r) / delta;
+        } else {
+            h = 4 + (float) (r - g) / delta;
+        }
+        h *= 60;
+        if (h < 0) {
+            h += 360;
+        }
+        hsv[0] = h;
+        hsv[1] = s;
+        hsv[2] = v;
+    }
+}
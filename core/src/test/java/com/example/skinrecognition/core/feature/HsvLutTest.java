@@ -0,0 +1,50 @@
+package com.example.skinrecognition.core.feature;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class HsvLutTest {
+
+    @Test
+    public void matchesFloatDivisionForEveryColor() {
+        float[] hsv = new float[3];
+        for (int r = 0; r < 256; r++) {
+            for (int g = 0; g < 256; g++) {
+                for (int b = 0; b < 256; b++) {
+                    FeatureExtractorTest.rgbToHsv(r, g, b, hsv);
+                    int max = Math.max(r, Math.max(g, b));
+                    int delta = max - Math.min(r, Math.min(g, b));
+                    if (Float.floatToIntBits(hsv[0]) != Float.floatToIntBits(HsvLut.hue(r, g, b, max, delta))
+                            || Float.floatToIntBits(hsv[1]) != Float.floatToIntBits(HsvLut.saturation(max, delta))
+                            || Float.floatToIntBits(hsv[2]) != Float.floatToIntBits(HsvLut.value(max))) {
+                        assertEquals("rgb(" + r + "," + g + "," + b + ")", hsv[0], HsvLut.hue(r, g, b, max, delta), 0f);
+                        assertEquals(hsv[1], HsvLut.saturation(max, delta), 0f);
+                        assertEquals(hsv[2], HsvLut.value(max), 0f);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void scalarKernelMatchesPerPixelFormula() {
+        Random random = new Random(8);
+        int width = 37;
+        int height = 9;
+        int[] pixels = FeatureExtractorTest.randomSkinLike(random, width * height);
+        byte[] gray = new byte[pixels.length];
+        RowKernels.scalar().gray(pixels, gray, 0, pixels.length);
+        long sum = 0;
+        for (int i = 1; i < height - 1; i++) {
+            sum += RowKernels.scalar().lbpRow(gray, width, i, 1, width - 1);
+        }
+        float[] expected = FeatureExtractorTest.reference(pixels, width, height);
+        assertEquals(expected[6], (float) sum / ((width - 2) * (height - 2)), 0f);
+        // 整个特征向量与原实现逐位一致
+        assertArrayEquals(expected, new FeatureExtractor(RowKernels.scalar()).extract(pixels, width, height), 0f);
+    }
+}
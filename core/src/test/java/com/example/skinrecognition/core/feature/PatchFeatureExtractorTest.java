@@ -0,0 +1,93 @@
+package com.example.skinrecognition.core.feature;
+
+import com.example.skinrecognition.core.exec.CancellationToken;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class PatchFeatureExtractorTest {
+
+    private static final int M = FeatureExtractor.FEATURE_COUNT;
+
+    @Test
+    public void patchMatchesExtractorOnPatchWithOneRingOfNeighbours() {
+        Random random = new Random(21);
+        int width = 240;
+        int height = 180;
+        int[] pixels = FeatureExtractorTest.randomSkinLike(random, width * height);
+        PatchGrid grid = new PatchGrid(0.1f, 0.1f, 0.8f, 0.8f, 3, 4);
+        float[] out = new float[grid.getPatchCount() * M];
+        new PatchFeatureExtractor(ForkJoinPool.commonPool())
+                .extract(pixels, width, height, grid, out, null, CancellationToken.NONE);
+
+        int[] xs = grid.columnBounds(width);
+        int[] ys = grid.rowBounds(height);
+        for (int r = 0; r < grid.getRows(); r++) {
+            for (int c = 0; c < grid.getCols(); c++) {
+                // 区块加上一圈邻居后，整图提取的内部像素正好是这个区块
+                int cw = xs[c + 1] - xs[c] + 2;
+                int ch = ys[r + 1] - ys[r] + 2;
+                int[] crop = new int[cw * ch];
+                for (int y = 0; y < ch; y++) {
+                    System.arraycopy(pixels, (ys[r] - 1 + y) * width + xs[c] - 1, crop, y * cw, cw);
+                }
+                float[] expected = new FeatureExtractor().extract(crop, cw, ch);
+                int p = r * grid.getCols() + c;
+                for (int f = 0; f < M; f++) {
+                    assertEquals(expected[f], out[p * M + f], Math.abs(expected[f]) * 1e-4f + 1e-4f);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void mergedRoiMatchesWholeImageAndIgnoresThreadCount() {
+        Random random = new Random(22);
+        int width = 301;
+        int height = 257;
+        int[] pixels = FeatureExtractorTest.randomSkinLike(random, width * height);
+        float[] whole = new float[M];
+        new TiledFeatureExtractor(ForkJoinPool.commonPool(), height).extractTiled(pixels, width, height, whole);
+
+        PatchGrid grid = PatchGrid.full(5, 7);
+        float[] single = new float[grid.getPatchCount() * M];
+        float[] singleRoi = new float[M];
+        ForkJoinPool one = new ForkJoinPool(1);
+        ForkJoinPool four = new ForkJoinPool(4);
+        try {
+            new PatchFeatureExtractor(one).extract(pixels, width, height, grid, single, singleRoi,
+                    CancellationToken.NONE);
+            float[] parallel = new float[single.length];
+            float[] parallelRoi = new float[M];
+            new PatchFeatureExtractor(four).extract(pixels, width, height, grid, parallel, parallelRoi,
+                    CancellationToken.NONE);
+            assertArrayEquals(single, parallel, 0f);
+            assertArrayEquals(singleRoi, parallelRoi, 0f);
+        } finally {
+            one.shutdown();
+            four.shutdown();
+        }
+        assertArrayEquals(whole, singleRoi, 1e-4f);
+    }
+
+    @Test
+    public void parsesGridAndRoi() {
+        PatchGrid grid = PatchGrid.parse("2x3", "0.25, 0.5, 0.5, 0.5");
+        assertEquals(6, grid.getPatchCount());
+        assertArrayEquals(new int[]{50, 83, 116, 150}, grid.columnBounds(200));
+        assertArrayEquals(new int[]{100, 150, 200}, grid.rowBounds(200));
+        assertEquals(1, PatchGrid.parse("1x1", null).getPatchCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsPatchesSmallerThanMinimum() {
+        int[] pixels = new int[40 * 40];
+        PatchGrid grid = PatchGrid.full(20, 20);
+        new PatchFeatureExtractor(ForkJoinPool.commonPool())
+                .extract(pixels, 40, 40, grid, new float[grid.getPatchCount() * M], null, CancellationToken.NONE);
+    }
+}
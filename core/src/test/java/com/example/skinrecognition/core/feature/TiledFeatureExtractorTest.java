@@ -0,0 +1,53 @@
+package com.example.skinrecognition.core.feature;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class TiledFeatureExtractorTest {
+
+    @Test
+    public void smallImagesAreBitCompatibleWithSequentialExtractor() {
+        Random random = new Random(11);
+        int[] pixels = FeatureExtractorTest.randomSkinLike(random, 200 * 200);
+        float[] expected = new FeatureExtractor().extract(pixels, 200, 200);
+        float[] actual = new TiledFeatureExtractor(ForkJoinPool.commonPool()).extract(pixels, 200, 200);
+        for (int f = 0; f < expected.length; f++) {
+            assertEquals(Float.floatToIntBits(expected[f]), Float.floatToIntBits(actual[f]));
+        }
+    }
+
+    @Test
+    public void tiledResultDoesNotDependOnTileSize() {
+        Random random = new Random(12);
+        int width = 301;
+        int height = 257;
+        int[] pixels = FeatureExtractorTest.randomSkinLike(random, width * height);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        float[] single = new float[FeatureExtractor.FEATURE_COUNT];
+        new TiledFeatureExtractor(pool, height).extractTiled(pixels, width, height, single);
+        for (int rows : new int[]{1, 3, 32, 100}) {
+            float[] tiled = new float[FeatureExtractor.FEATURE_COUNT];
+            new TiledFeatureExtractor(pool, rows).extractTiled(pixels, width, height, tiled);
+            assertArrayEquals(single, tiled, 1e-5f);
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    public void tiledMatchesPerPixelReference() {
+        Random random = new Random(13);
+        int width = 150;
+        int height = 97;
+        int[] pixels = FeatureExtractorTest.randomSkinLike(random, width * height);
+        float[] expected = FeatureExtractorTest.reference(pixels, width, height);
+        float[] tiled = new float[FeatureExtractor.FEATURE_COUNT];
+        new TiledFeatureExtractor(ForkJoinPool.commonPool(), 7).extractTiled(pixels, width, height, tiled);
+        for (int f = 0; f < expected.length; f++) {
+            assertEquals(expected[f], tiled[f], Math.abs(expected[f]) * 1e-4f + 1e-4f);
+        }
+    }
+}
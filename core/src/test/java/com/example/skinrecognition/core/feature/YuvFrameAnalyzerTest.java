@@ -0,0 +1,157 @@
+package com.example.skinrecognition.core.feature;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class YuvFrameAnalyzerTest {
+
+    private static final int GRID = 200;
+
+    /** 测试用 YUV_420 帧：Y 平面和交错的 UV 平面（pixelStride = 2，与多数相机输出相同）。 */
+    private static final class Frame {
+        final int width;
+        final int height;
+        final ByteBuffer y;
+        final ByteBuffer u;
+        final ByteBuffer v;
+
+        Frame(int width, int height) {
+            this.width = width;
+            this.height = height;
+            y = ByteBuffer.allocate(width * height);
+            ByteBuffer uv = ByteBuffer.allocate(width * height / 2);
+            u = uv.duplicate();
+            ByteBuffer shifted = uv.duplicate();
+            shifted.position(1);
+            v = shifted.slice();
+        }
+
+        void set(int x, int yy, int luma, int cb, int cr) {
+            y.put(yy * width + x, (byte) luma);
+            int uv = (yy >> 1) * width + (x >> 1) * 2;
+            u.put(uv, (byte) cb);
+            v.put(uv, (byte) cr);
+        }
+
+        void feed(YuvFrameAnalyzer analyzer, int rotation) {
+            analyzer.addFrame(y, width, u, v, width, 2, width, height, rotation);
+        }
+    }
+
+    // 每个网格像素对应 2x2 的 YUV 块（色度采样不损失信息）
+    private static Frame toFrame(int[] yuv, int size, int rotation) {
+        Frame frame = new Frame(size * 2, size * 2);
+        for (int gy = 0; gy < size; gy++) {
+            for (int gx = 0; gx < size; gx++) {
+                // 把正向图像逆向旋转，模拟传感器方向
+                int sx, sy;
+                switch (rotation) {
+                    case 90:
+                        sx = gy;
+                        sy = size - 1 - gx;
+                        break;
+                    case 180:
+                        sx = size - 1 - gx;
+                        sy = size - 1 - gy;
+                        break;
+                    case 270:
+                        sx = size - 1 - gy;
+                        sy = gx;
+                        break;
+                    default:
+                        sx = gx;
+                        sy = gy;
+                        break;
+                }
+                int p = yuv[gy * size + gx];
+                for (int k = 0; k < 4; k++) {
+                    frame.set(sx * 2 + (k & 1), sy * 2 + (k >> 1), p >> 16 & 0xFF, p >> 8 & 0xFF, p & 0xFF);
+                }
+            }
+        }
+        return frame;
+    }
+
+    private static int[] randomYuv(Random random, int count) {
+        int[] yuv = new int[count];
+        for (int i = 0; i < count; i++) {
+            int y = 120 + random.nextInt(100);
+            int u = 100 + random.nextInt(30);
+            int v = 140 + random.nextInt(30);
+            yuv[i] = (y << 16) | (u << 8) | v;
+        }
+        return yuv;
+    }
+
+    @Test
+    public void matchesBitmapPathOnConvertedPixels() {
+        int[] yuv = randomYuv(new Random(1), GRID * GRID);
+        int[] argb = new int[yuv.length];
+        for (int i = 0; i < yuv.length; i++) {
+            argb[i] = YuvFrameAnalyzer.yuvToArgb(yuv[i] >> 16 & 0xFF, yuv[i] >> 8 & 0xFF, yuv[i] & 0xFF);
+        }
+        // 与分块路径一样用 double 累加，只有合并顺序不同
+        float[] expected = new float[FeatureExtractor.FEATURE_COUNT];
+        new TiledFeatureExtractor(ForkJoinPool.commonPool()).extractTiled(argb, GRID, GRID, expected);
+
+        YuvFrameAnalyzer analyzer = new YuvFrameAnalyzer(GRID, 1);
+        toFrame(yuv, GRID, 0).feed(analyzer, 0);
+        float[] actual = new float[FeatureExtractor.FEATURE_COUNT];
+        assertTrue(analyzer.getFeatures(actual));
+        for (int i = 0; i < actual.length; i++) {
+            assertEquals(expected[i], actual[i], Math.abs(expected[i]) * 1e-6f);
+        }
+    }
+
+    @Test
+    public void rotationRestoresUprightNeighbourhood() {
+        int[] yuv = randomYuv(new Random(2), GRID * GRID);
+        float[] upright = new float[FeatureExtractor.FEATURE_COUNT];
+        YuvFrameAnalyzer analyzer = new YuvFrameAnalyzer(GRID, 1);
+        toFrame(yuv, GRID, 0).feed(analyzer, 0);
+        analyzer.getFeatures(upright);
+
+        for (int rotation : new int[]{90, 180, 270}) {
+            YuvFrameAnalyzer rotated = new YuvFrameAnalyzer(GRID, 1);
+            toFrame(yuv, GRID, rotation).feed(rotated, rotation);
+            float[] actual = new float[FeatureExtractor.FEATURE_COUNT];
+            rotated.getFeatures(actual);
+            assertArrayEquals("rotation " + rotation, upright, actual, 0f);
+        }
+    }
+
+    @Test
+    public void smoothsAcrossFramesAndResets() {
+        Frame a = new Frame(64, 64);
+        Frame b = new Frame(64, 64);
+        for (int y = 0; y < 64; y++) {
+            for (int x = 0; x < 64; x++) {
+                a.set(x, y, 60, 128, 128);
+                b.set(x, y, 200, 128, 128);
+            }
+        }
+        YuvFrameAnalyzer analyzer = new YuvFrameAnalyzer(16, 0.5);
+        float[] out = new float[FeatureExtractor.FEATURE_COUNT];
+        assertFalse(analyzer.getFeatures(out));
+
+        a.feed(analyzer, 0);
+        b.feed(analyzer, 0);
+        analyzer.getFeatures(out);
+        // 旧帧权重衰减为 0.5，新帧为 1
+        assertEquals((0.5f * 60 + 200) / 1.5f / 255f, out[4], 1e-6f);
+        assertEquals(255f, out[6], 0f);
+        analyzer.getLastFrameFeatures(out);
+        assertEquals(200 / 255f, out[4], 1e-6f);
+
+        analyzer.reset();
+        a.feed(analyzer, 0);
+        analyzer.getFeatures(out);
+        assertEquals(60 / 255f, out[4], 1e-6f);
+        assertEquals(1, analyzer.getFrameCount());
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.skinrecognition.core.history;
+
+import com.example.skinrecognition.core.feature.FeatureLayout;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AnalysisHistoryTest {
+
+    private static final long DAY = 24L * 3600 * 1000;
+    private static final long START = 1_700_000_000_000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // 大约 60 天内的记录，偶尔时间倒退（系统时间被调整）
+    private static List<AnalysisRecord> randomRecords(int count, long seed) {
+        Random random = new Random(seed);
+        List<AnalysisRecord> records = new ArrayList<>();
+        long time = START;
+        for (int i = 0; i < count; i++) {
+            time += random.nextInt(10) == 0 ? -random.nextInt(3600_000) : random.nextInt(2 * 3600_000);
+            float[] features = new float[AnalysisRecord.FEATURE_COUNT];
+            float[] normalized = new float[AnalysisRecord.FEATURE_COUNT];
+            for (int f = 0; f < features.length; f++) {
+                features[f] = random.nextFloat() * 100;
+                normalized[f] = (float) random.nextGaussian();
+            }
+            boolean cnn = random.nextInt(20) == 0;
+            records.add(new AnalysisRecord(time, random.nextLong(), 42, random.nextInt(3),
+                    cnn ? null : features, cnn ? null : normalized));
+        }
+        return records;
+    }
+
+    private static List<AnalysisRecord> filter(List<AnalysisRecord> records, long from, long to, int label) {
+        List<AnalysisRecord> result = new ArrayList<>();
+        for (AnalysisRecord r : records) {
+            if (r.getTimestampMillis() >= from && r.getTimestampMillis() < to && (label < 0 || r.getLabel() == label)) {
+                result.add(r);
+            }
+        }
+        return result;
+    }
+
+    private static void assertSameRecords(List<AnalysisRecord> expected, List<AnalysisRecord> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            AnalysisRecord e = expected.get(i);
+            AnalysisRecord a = actual.get(i);
+            assertEquals(e.getTimestampMillis(), a.getTimestampMillis());
+            assertEquals(e.getImageHash(), a.getImageHash());
+            assertEquals(e.getModelVersion(), a.getModelVersion());
+            assertEquals(e.getLabel(), a.getLabel());
+            assertArrayEquals(e.getFeatures(), a.getFeatures(), 0f);
+            assertArrayEquals(e.getNormalized(), a.getNormalized(), 0f);
+        }
+    }
+
+    @Test
+    public void keepsBasicPrefixOfExtendedFeatures() {
+        float[] features = new float[FeatureLayout.EXTENDED.getFeatureCount()];
+        for (int f = 0; f < features.length; f++) {
+            features[f] = f;
+        }
+        AnalysisRecord record = new AnalysisRecord(START, 1, 42, 2, features, features);
+        assertArrayEquals(Arrays.copyOf(features, AnalysisRecord.FEATURE_COUNT), record.getFeatures(), 0f);
+        assertArrayEquals(Arrays.copyOf(features, AnalysisRecord.FEATURE_COUNT), record.getNormalized(), 0f);
+        try {
+            new AnalysisRecord(START, 1, 42, 2, new float[5], null);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // 特征数对不上任何布局
+        }
+    }
+
+    @Test
+    public void rangeQueriesMatchFullScanAfterReopen() throws IOException {
+        File file = new File(folder.getRoot(), "history/analysis.log");
+        List<AnalysisRecord> records = randomRecords(3000, 1);
+        try (AnalysisHistory history = AnalysisHistory.open(file)) {
+            for (AnalysisRecord r : records) {
+                history.append(r);
+            }
+        }
+        assertEquals(AnalysisHistory.HEADER_SIZE + 3000L * AnalysisHistory.RECORD_SIZE, file.length());
+        try (AnalysisHistory history = AnalysisHistory.open(file)) {
+            assertEquals(3000, history.size());
+            long from = START + 20 * DAY;
+            long to = START + 27 * DAY;
+            assertSameRecords(filter(records, from, to, -1), history.query(from, to, -1, Integer.MAX_VALUE));
+            assertSameRecords(filter(records, from, to, 2), history.query(from, to, 2, Integer.MAX_VALUE));
+            assertSameRecords(filter(records, Long.MIN_VALUE, Long.MAX_VALUE, 1).subList(0, 10),
+                    history.query(Long.MIN_VALUE, Long.MAX_VALUE, 1, 10));
+            assertTrue(history.query(START - 2 * DAY, START - DAY, -1, 100).isEmpty());
+        }
+    }
+
+    @Test
+    public void weeklyAggregationMatchesRecords() throws IOException {
+        List<AnalysisRecord> records = randomRecords(2000, 2);
+        try (AnalysisHistory history = AnalysisHistory.open(folder.newFile("analysis.log"))) {
+            for (AnalysisRecord r : records) {
+                history.append(r);
+            }
+            long to = START + 8 * AnalysisHistory.WEEK_MILLIS;
+            List<TrendBucket> weeks = history.aggregate(START, to, AnalysisHistory.WEEK_MILLIS, 3);
+            assertEquals(8, weeks.size());
+            for (TrendBucket week : weeks) {
+                List<AnalysisRecord> expected = filter(records, week.getStartMillis(), week.getEndMillis(), -1);
+                assertEquals(expected.size(), week.getCount());
+                int[] classes = new int[3];
+                double sum = 0;
+                int withFeatures = 0;
+                for (AnalysisRecord r : expected) {
+                    classes[r.getLabel()]++;
+                    if (!Float.isNaN(r.getFeature(4))) {
+                        sum += r.getFeature(4);
+                        withFeatures++;
+                    }
+                }
+                for (int c = 0; c < 3; c++) {
+                    assertEquals(classes[c], week.getClassCount(c));
+                }
+                assertEquals(sum / withFeatures, week.getFeatureMean(4), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void tornTailIsTruncatedOnOpen() throws IOException {
+        File file = folder.newFile("analysis.log");
+        List<AnalysisRecord> records = randomRecords(10, 3);
+        try (AnalysisHistory history = AnalysisHistory.open(file)) {
+            for (AnalysisRecord r : records) {
+                history.append(r);
+            }
+        }
+        // 写了一半的记录
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(raf.length());
+            raf.write(new byte[AnalysisHistory.RECORD_SIZE / 2]);
+        }
+        try (AnalysisHistory history = AnalysisHistory.open(file)) {
+            assertEquals(10, history.size());
+        }
+        // 最后一条记录损坏
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(raf.length() - 10);
+            raf.write(0x5A);
+        }
+        try (AnalysisHistory history = AnalysisHistory.open(file)) {
+            assertEquals(9, history.size());
+            history.append(records.get(9));
+            assertSameRecords(records, history.query(Long.MIN_VALUE, Long.MAX_VALUE, -1, 100));
+        }
+    }
+
+    @Test
+    public void rejectsForeignFile() throws IOException {
+        File file = folder.newFile("other.bin");
+        Files.write(file.toPath(), new byte[64]);
+        try {
+            AnalysisHistory.open(file).close();
+            fail("不是历史文件时应当拒绝打开");
+        } catch (IOException expected) {
+            // 预期
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.skinrecognition.core.image;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DecodeSizingTest {
+
+    @Test
+    public void decodedBytesForArgb() {
+        assertEquals(1000L * 750 * 4, DecodeSizing.decodedBytes(4000, 3000, 4));
+        assertEquals(1001L * 751 * 4, DecodeSizing.decodedBytes(4001, 3001, 4));
+    }
+
+    @Test
+    public void picksLargestPowerOfTwoAboveRequestedSize() {
+        assertEquals(4, DecodeSizing.computeSampleSize(4000, 3000, 720, 720));
+        assertEquals(8, DecodeSizing.computeSampleSize(4000, 3000, 200, 200));
+        assertEquals(1, DecodeSizing.computeSampleSize(640, 480, 720, 720));
+        assertEquals(1, DecodeSizing.computeSampleSize(4000, 3000, 0, 0));
+    }
+
+    @Test
+    public void shortSideStaysBelowTwiceRequested() {
+        int[][] sources = {{4000, 3000}, {4032, 3024}, {1080, 1920}, {8000, 6000}, {721, 721}};
+        for (int[] src : sources) {
+            int sample = DecodeSizing.computeSampleSize(src[0], src[1], 720, 720);
+            int shortSide = Math.min(DecodeSizing.sampledSize(src[0], sample),
+                    DecodeSizing.sampledSize(src[1], sample));
+            assertTrue(shortSide >= 720 && shortSide < 2 * 720);
+        }
+    }
+}
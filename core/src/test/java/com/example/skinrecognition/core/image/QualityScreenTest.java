@@ -0,0 +1,144 @@
+package com.example.skinrecognition.core.image;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class QualityScreenTest {
+
+    private static final int SIZE = 200;
+    private final QualityScreen screen = new QualityScreen(QualityScreen.Thresholds.DEFAULT);
+
+    @Test
+    public void acceptsSharpSkinAndRejectsBlurredCopy() {
+        int[] sharp = skinImage(new Random(3));
+        QualityScreen.Result ok = screen.screen(sharp, SIZE, SIZE);
+        assertTrue(ok.toString(), ok.isAcceptable());
+        assertNull(ok.getReason());
+        assertEquals(1f, ok.getSkinFraction(), 0.05f);
+
+        QualityScreen.Result blurred = screen.screen(boxBlur(sharp, 4), SIZE, SIZE);
+        assertEquals(blurred.toString(), QualityScreen.Reason.BLURRY, blurred.getReason());
+        assertTrue(blurred.getSharpness() < ok.getSharpness() / 20);
+    }
+
+    @Test
+    public void rejectsDarkAndOverexposedImages() {
+        int[] dark = skinImage(new Random(5));
+        for (int i = 0; i < dark.length; i++) {
+            int p = dark[i];
+            dark[i] = 0xFF000000 | ((p >> 16) & 0xFF) / 20 << 16 | ((p >> 8) & 0xFF) / 20 << 8 | (p & 0xFF) / 20;
+        }
+        assertEquals(QualityScreen.Reason.TOO_DARK, screen.screen(dark, SIZE, SIZE).getReason());
+
+        int[] white = new int[SIZE * SIZE];
+        Arrays.fill(white, 0xFFFAFAFA);
+        QualityScreen.Result result = screen.screen(white, SIZE, SIZE);
+        assertEquals(QualityScreen.Reason.OVEREXPOSED, result.getReason());
+        assertEquals(1f, result.getBrightFraction(), 0f);
+    }
+
+    @Test
+    public void rejectsImagesWithoutSkin() {
+        int[] pixels = skinImage(new Random(7));
+        // 交换红蓝通道，纹理不变但颜色偏蓝
+        for (int i = 0; i < pixels.length; i++) {
+            int p = pixels[i];
+            pixels[i] = 0xFF000000 | (p & 0xFF) << 16 | (p & 0xFF00) | (p >> 16) & 0xFF;
+        }
+        QualityScreen.Result result = screen.screen(pixels, SIZE, SIZE);
+        assertEquals(result.toString(), QualityScreen.Reason.NO_SKIN, result.getReason());
+        assertEquals(0f, result.getSkinFraction(), 0.01f);
+    }
+
+    @Test
+    public void averagesBlocksBeforeMeasuringSharpness() {
+        // 0/255 交替的棋盘格：原尺寸上每个响应都是 ±1020，2x2 块平均后完全平坦
+        int[] board = new int[256 * 256];
+        for (int y = 0; y < 256; y++) {
+            for (int x = 0; x < 256; x++) {
+                board[y * 256 + x] = ((x + y) & 1) == 0 ? 0xFF000000 : 0xFFFFFFFF;
+            }
+        }
+        QualityScreen full = new QualityScreen(QualityScreen.Thresholds.parse("max_side=256,min_skin=0"));
+        assertEquals(1020f * 1020f, full.screen(board, 256, 256).getSharpness(), 0f);
+        QualityScreen.Result halved = screen.screen(board, 256, 256);
+        assertEquals(0f, halved.getSharpness(), 0f);
+        assertEquals(0f, halved.getDarkFraction(), 0f);
+
+        // 长宽比超过 maxSide 的图也能处理
+        int[] strip = new int[1000 * 2];
+        Arrays.fill(strip, 0xFFC08070);
+        assertEquals(1f, screen.screen(strip, 1000, 2).getSkinFraction(), 0f);
+    }
+
+    @Test
+    public void parsesThresholdOverrides() {
+        QualityScreen.Thresholds thresholds = QualityScreen.Thresholds.parse(" min_sharpness = 8 ,min_skin=0.4");
+        assertEquals(8f, thresholds.getMinSharpness(), 0f);
+        assertEquals(0.4f, thresholds.getMinSkinFraction(), 0f);
+        assertEquals(QualityScreen.Thresholds.DEFAULT.getMaxSide(), thresholds.getMaxSide());
+        assertEquals(QualityScreen.Thresholds.DEFAULT, QualityScreen.Thresholds.parse(""));
+        for (String spec : new String[]{"focus=3", "min_skin", "max_dark=1.5", "dark_level=250"}) {
+            try {
+                QualityScreen.Thresholds.parse(spec);
+                fail(spec);
+            } catch (IllegalArgumentException expected) {
+                // 未知的键、缺少值或取值无效
+            }
+        }
+    }
+
+    // 肤色底色、低频明暗、噪声和暗点
+    private static int[] skinImage(Random random) {
+        int[] pixels = new int[SIZE * SIZE];
+        int r0 = 170 + random.nextInt(40);
+        int g0 = 110 + random.nextInt(30);
+        int b0 = 90 + random.nextInt(30);
+        for (int i = 0; i < SIZE; i++) {
+            for (int j = 0; j < SIZE; j++) {
+                double base = 20 * Math.sin(i * 0.03 + j * 0.02) + (random.nextDouble() < 0.05 ? -35 : 0);
+                double e = random.nextGaussian() * 5;
+                pixels[i * SIZE + j] = 0xFF000000 | clamp(r0 + base + e) << 16 | clamp(g0 + base + e * 0.8) << 8
+                        | clamp(b0 + base + e * 0.7);
+            }
+        }
+        return pixels;
+    }
+
+    // (2r+1)x(2r+1) 的均值模糊，边界复制
+    private static int[] boxBlur(int[] pixels, int radius) {
+        int[] out = new int[pixels.length];
+        for (int i = 0; i < SIZE; i++) {
+            for (int j = 0; j < SIZE; j++) {
+                int r = 0;
+                int g = 0;
+                int b = 0;
+                int n = 0;
+                for (int di = -radius; di <= radius; di++) {
+                    for (int dj = -radius; dj <= radius; dj++) {
+                        int y = Math.min(SIZE - 1, Math.max(0, i + di));
+                        int x = Math.min(SIZE - 1, Math.max(0, j + dj));
+                        int p = pixels[y * SIZE + x];
+                        r += (p >> 16) & 0xFF;
+                        g += (p >> 8) & 0xFF;
+                        b += p & 0xFF;
+                        n++;
+                    }
+                }
+                out[i * SIZE + j] = 0xFF000000 | r / n << 16 | g / n << 8 | b / n;
+            }
+        }
+        return out;
+    }
+
+    private static int clamp(double value) {
+        return (int) Math.max(0, Math.min(255, value));
+    }
+}
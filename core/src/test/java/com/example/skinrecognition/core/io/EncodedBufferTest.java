@@ -0,0 +1,80 @@
+package com.example.skinrecognition.core.io;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class EncodedBufferTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void growsAndWritesSameBytesToEveryTarget() throws IOException {
+        byte[] data = new byte[100_000];
+        new Random(1).nextBytes(data);
+        DirectBufferPool pool = new DirectBufferPool(2);
+        try (EncodedBuffer encoded = new EncodedBuffer(pool, 1024)) {
+            // 按编码器的习惯分块写入，中间会多次扩容
+            for (int off = 0; off < data.length; off += 777) {
+                encoded.write(data, off, Math.min(777, data.length - off));
+            }
+            encoded.write(42);
+            assertEquals(data.length + 1, encoded.size());
+
+            File file = folder.newFile("share.jpg");
+            // 覆盖写入时截断旧内容
+            Files.write(file.toPath(), new byte[200_000]);
+            encoded.writeTo(file);
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            encoded.writeTo(Channels.newChannel(stream));
+
+            byte[] expected = new byte[data.length + 1];
+            System.arraycopy(data, 0, expected, 0, data.length);
+            expected[data.length] = 42;
+            assertArrayEquals(expected, Files.readAllBytes(file.toPath()));
+            assertArrayEquals(expected, stream.toByteArray());
+            assertTrue(encoded.contents().isReadOnly());
+        }
+        // 扩容时换下的缓冲区和关闭后的缓冲区都回到池中
+        assertEquals(2, pool.getPooledCount());
+    }
+
+    @Test
+    public void resetReusesPooledBuffer() {
+        DirectBufferPool pool = new DirectBufferPool(1);
+        ByteBuffer first;
+        try (EncodedBuffer encoded = new EncodedBuffer(pool, 4096)) {
+            encoded.write(new byte[100], 0, 100);
+            encoded.reset();
+            assertEquals(0, encoded.size());
+            first = encoded.contents();
+        }
+        ByteBuffer reused = pool.acquire(4096);
+        assertTrue(reused.isDirect());
+        assertEquals(4096, reused.capacity());
+        pool.release(reused);
+        assertSame(reused, pool.acquire(1000));
+        assertEquals(0, first.remaining());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void closedBufferRejectsWrites() {
+        EncodedBuffer encoded = new EncodedBuffer(new DirectBufferPool(1), 16);
+        encoded.close();
+        encoded.write(1);
+    }
+}
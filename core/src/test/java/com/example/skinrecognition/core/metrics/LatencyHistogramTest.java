@@ -0,0 +1,103 @@
+package com.example.skinrecognition.core.metrics;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void bucketsCoverRangeContiguously() {
+        assertEquals(0, LatencyHistogram.bucketOf(0));
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketOf(LatencyHistogram.MAX_VALUE));
+        for (int b = 1; b < LatencyHistogram.BUCKET_COUNT; b++) {
+            long low = LatencyHistogram.highestValueIn(b - 1) + 1;
+            assertEquals(b, LatencyHistogram.bucketOf(low));
+            assertEquals(b, LatencyHistogram.bucketOf(LatencyHistogram.highestValueIn(b)));
+        }
+    }
+
+    @Test
+    public void percentilesWithinRelativeError() {
+        Random random = new Random(1);
+        LatencyHistogram histogram = new LatencyHistogram();
+        long[] values = new long[100_000];
+        for (int i = 0; i < values.length; i++) {
+            // 对数分布，从几百纳秒到几百毫秒
+            values[i] = (long) Math.exp(5 + random.nextDouble() * 15);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(values.length, snapshot.getCount());
+        assertEquals(values[values.length - 1], snapshot.getMax());
+        for (double q : new double[]{0.5, 0.95, 0.99, 1.0}) {
+            long exact = values[(int) Math.ceil(q * values.length) - 1];
+            long estimate = snapshot.getPercentile(q);
+            assertTrue(q + ": " + estimate + " < " + exact, estimate >= exact);
+            assertTrue(q + ": " + estimate + " vs " + exact, estimate <= exact + exact / 32 + 1);
+        }
+    }
+
+    @Test
+    public void concurrentRecordsAreNotLost() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        int threads = 4;
+        int perThread = 50_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            Future<?>[] futures = new Future<?>[threads];
+            for (int t = 0; t < threads; t++) {
+                long value = 1000L * (t + 1);
+                futures[t] = pool.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        histogram.record(value);
+                    }
+                });
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals((long) threads * perThread, snapshot.getCount());
+        assertEquals(2500.0, snapshot.getMean(), 1e-9);
+        assertEquals(4000, snapshot.getMax());
+    }
+
+    @Test
+    public void exportsStagesAndFailures() throws IOException {
+        PipelineMetrics metrics = new PipelineMetrics();
+        metrics.record(PipelineMetrics.Stage.EXTRACT, 2_000_000);
+        metrics.record(PipelineMetrics.Stage.EXTRACT, 4_000_000);
+        metrics.recordFailure(PipelineMetrics.Failure.QUEUE_FULL);
+        File file = new File(folder.getRoot(), "metrics/pipeline.tsv");
+        metrics.writeTo(file);
+        String text = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        assertTrue(text, text.contains("\nextract\t2\t3000.0\t"));
+        assertTrue(text, text.contains("\nmodel_load\t0\t"));
+        assertTrue(text, text.contains("\nqueue_full\t1\n"));
+
+        metrics.reset();
+        assertEquals(0, metrics.get(PipelineMetrics.Stage.EXTRACT).getCount());
+        assertEquals(0, metrics.getFailureCount(PipelineMetrics.Failure.QUEUE_FULL));
+    }
+}
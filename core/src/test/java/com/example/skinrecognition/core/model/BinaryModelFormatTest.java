@@ -0,0 +1,88 @@
+package com.example.skinrecognition.core.model;
+
+import com.example.skinrecognition.core.feature.FeatureLayout;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BinaryModelFormatTest {
+
+    @Test
+    public void binaryAndTextPredictIdentically() throws IOException {
+        TreeModel text = TreeModelTest.loadAssetModel();
+        TreeModel binary = BinaryModelFormat.read(ByteBuffer.wrap(BinaryModelFormat.toBytes(text)));
+        assertEquals(text.getNodeCount(), binary.getNodeCount());
+        assertEquals(text.getMaxDepth(), binary.getMaxDepth());
+        Random random = new Random(3);
+        for (int k = 0; k < 5000; k++) {
+            float[] features = TreeModelTest.randomFeatures(random, text);
+            assertEquals(text.predict(features), binary.predict(features));
+        }
+    }
+
+    @Test
+    public void committedAssetMatchesTextModel() throws IOException {
+        // skin_model.bin 必须与文本模型同步，否则请运行 :core:convertModelAssets
+        File file = new File(TreeModelTest.ASSETS, ModelConverter.BINARY_FILE);
+        byte[] expected = BinaryModelFormat.toBytes(TreeModelTest.loadAssetModel());
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            assertEquals(ByteBuffer.wrap(expected), mapped);
+            assertEquals(375, BinaryModelFormat.read(mapped).getNodeCount());
+        }
+    }
+
+    @Test
+    public void readsVersion1Files() throws IOException {
+        TreeModel model = TreeModelTest.loadAssetModel();
+        byte[] v2 = BinaryModelFormat.toBytes(model);
+        // 去掉 v2 文件头中的布局字段，得到旧版本写出的文件
+        ByteBuffer v1 = ByteBuffer.allocate(v2.length - 4).order(ByteOrder.LITTLE_ENDIAN);
+        v1.put(v2, 0, 24).put(v2, 28, v2.length - 28);
+        v1.putInt(4, 1);
+        v1.putInt(20, BinaryModelFormat.checksum(v1, 24, v1.capacity()));
+        v1.clear();
+        TreeModel read = BinaryModelFormat.read(v1);
+        assertEquals(FeatureLayout.BASIC, read.getLayout());
+        assertEquals(model.getFingerprint(), read.getFingerprint());
+    }
+
+    @Test
+    public void keepsLayoutAcrossRoundTrip() throws IOException {
+        TreeModel model = TreeModelTest.loadAssetModel();
+        ByteBuffer bytes = ByteBuffer.wrap(BinaryModelFormat.toBytes(model)).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(FeatureLayout.BASIC.getVersion(), bytes.getInt(24));
+        assertEquals(FeatureLayout.BASIC, BinaryModelFormat.read(bytes).getLayout());
+    }
+
+    @Test(expected = ModelFormatException.class)
+    public void rejectsCorruptedPayload() throws IOException {
+        byte[] bytes = BinaryModelFormat.toBytes(TreeModelTest.loadAssetModel());
+        bytes[bytes.length - 3] ^= 0x40;
+        BinaryModelFormat.read(ByteBuffer.wrap(bytes));
+    }
+
+    @Test(expected = ModelFormatException.class)
+    public void rejectsTruncatedFile() throws IOException {
+        byte[] bytes = BinaryModelFormat.toBytes(TreeModelTest.loadAssetModel());
+        BinaryModelFormat.read(ByteBuffer.wrap(bytes, 0, bytes.length - 4).slice());
+    }
+
+    @Test(expected = ModelFormatException.class)
+    public void rejectsWrongMagic() throws IOException {
+        byte[] bytes = BinaryModelFormat.toBytes(TreeModelTest.loadAssetModel());
+        bytes[0] = 'X';
+        BinaryModelFormat.read(ByteBuffer.wrap(bytes));
+    }
+}
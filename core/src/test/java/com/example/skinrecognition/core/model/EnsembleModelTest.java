@@ -0,0 +1,230 @@
+package com.example.skinrecognition.core.model;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class EnsembleModelTest {
+
+    private static final float[] MEAN = {0, 0, 0, 0, 0, 0, 0};
+    private static final float[] STD = {1, 1, 1, 1, 1, 1, 1};
+
+    // 生成一棵随机树（前序编号），叶子的 threshold 列写入 leafValue
+    private static void randomTree(Random random, int depth, boolean boosted, List<String> out) {
+        List<String> nodes = new ArrayList<>();
+        grow(random, depth, boosted, nodes);
+        out.add("node_count:" + nodes.size());
+        out.addAll(nodes);
+    }
+
+    private static int grow(Random random, int depth, boolean boosted, List<String> nodes) {
+        int index = nodes.size();
+        if (depth == 0 || random.nextInt(5) == 0) {
+            float value = boosted ? (float) random.nextGaussian() : 0f;
+            nodes.add("0,-1," + value + ",-1,-1," + random.nextInt(3));
+            return index;
+        }
+        nodes.add(null);
+        int left = grow(random, depth - 1, boosted, nodes);
+        int right = grow(random, depth - 1, boosted, nodes);
+        nodes.set(index, "1," + random.nextInt(7) + "," + (float) random.nextGaussian()
+                + "," + left + "," + right + ",-1");
+        return index;
+    }
+
+    private static EnsembleModel randomEnsemble(long seed, String kind, int trees) throws IOException {
+        Random random = new Random(seed);
+        List<String> lines = new ArrayList<>();
+        lines.add("ensemble:" + kind);
+        lines.add("class_count:3");
+        lines.add("tree_count:" + trees);
+        if (kind.equals("boosted")) {
+            lines.add("learning_rate:0.1");
+            lines.add("base_score:0.2,-0.1,0.0");
+        }
+        for (int t = 0; t < trees; t++) {
+            randomTree(random, 8, kind.equals("boosted"), lines);
+        }
+        return TextModelReader.readEnsemble(TreeModelTest.stream(String.join("\n", lines)), MEAN, STD);
+    }
+
+    // 逐棵树单独遍历的参考实现
+    private static float[] reference(EnsembleModel model, float[] x) {
+        float[] scores = new float[model.getClassCount()];
+        for (int root : model.roots) {
+            int node = root;
+            while (model.feature[node] != TreeModel.LEAF) {
+                float v = (x[model.feature[node]] - model.scalerMean[model.feature[node]])
+                        / model.scalerStd[model.feature[node]];
+                node = v <= model.threshold[node] ? model.left[node] : model.right[node];
+            }
+            scores[model.label[node]] += model.getKind() == EnsembleModel.Kind.BOOSTED
+                    ? model.threshold[node] : 1f;
+        }
+        return scores;
+    }
+
+    private static float[] randomInput(Random random) {
+        float[] x = new float[7];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = (float) random.nextGaussian();
+        }
+        return x;
+    }
+
+    @Test
+    public void singleTreeForestMatchesTreeModel() throws IOException {
+        List<String> tree = Files.readAllLines(new File(TreeModelTest.ASSETS, "tree_model.txt").toPath(),
+                StandardCharsets.UTF_8);
+        String text = "ensemble:forest\nclass_count:3\ntree_count:1\n" + String.join("\n", tree);
+        TreeModel single = TreeModelTest.loadAssetModel();
+        EnsembleModel forest = TextModelReader.readEnsemble(TreeModelTest.stream(text),
+                single.scalerMean, single.scalerStd);
+        assertEquals(single.getNodeCount(), forest.getNodeCount());
+        assertEquals(single.getMaxDepth(), forest.getMaxDepth());
+
+        Random random = new Random(3);
+        float[] proba = new float[3];
+        for (int k = 0; k < 500; k++) {
+            float[] features = TreeModelTest.randomFeatures(random, single);
+            int label = forest.predictProba(features, proba);
+            assertEquals(single.predict(features), label);
+            assertEquals(1f, proba[label], 0f);
+        }
+    }
+
+    @Test
+    public void forestVotesMatchReference() throws IOException {
+        EnsembleModel forest = randomEnsemble(4, "forest", 50);
+        assertEquals(50, forest.getTreeCount());
+        Random random = new Random(5);
+        float[] proba = new float[3];
+        for (int k = 0; k < 300; k++) {
+            float[] x = randomInput(random);
+            float[] votes = reference(forest, x);
+            int label = forest.predictProba(x, proba);
+            float sum = 0;
+            for (int c = 0; c < 3; c++) {
+                assertEquals(votes[c] / 50f, proba[c], 1e-6f);
+                sum += proba[c];
+            }
+            assertEquals(1f, sum, 1e-5f);
+            assertTrue(votes[label] >= votes[0] && votes[label] >= votes[1] && votes[label] >= votes[2]);
+        }
+    }
+
+    @Test
+    public void boostedScoresUseSoftmax() throws IOException {
+        EnsembleModel boosted = randomEnsemble(6, "boosted", 30);
+        float[] base = {0.2f, -0.1f, 0f};
+        Random random = new Random(7);
+        float[] proba = new float[3];
+        for (int k = 0; k < 300; k++) {
+            float[] x = randomInput(random);
+            float[] sums = reference(boosted, x);
+            double[] expected = new double[3];
+            double total = 0;
+            for (int c = 0; c < 3; c++) {
+                expected[c] = Math.exp(base[c] + 0.1 * sums[c]);
+                total += expected[c];
+            }
+            boosted.predictProba(x, proba);
+            for (int c = 0; c < 3; c++) {
+                assertEquals(expected[c] / total, proba[c], 1e-5);
+            }
+        }
+    }
+
+    @Test
+    public void batchMatchesSingleAcrossBlocks() throws IOException {
+        EnsembleModel forest = randomEnsemble(8, "forest", 20);
+        Random random = new Random(9);
+        int count = 150;
+        float[] batch = new float[count * 7];
+        for (int k = 0; k < count; k++) {
+            System.arraycopy(randomInput(random), 0, batch, k * 7, 7);
+        }
+        float[] proba = new float[count * 3];
+        int[] labels = new int[count];
+        forest.predictProbaBatch(batch, count, proba, labels);
+
+        float[] single = new float[3];
+        for (int k = 0; k < count; k++) {
+            float[] x = new float[7];
+            System.arraycopy(batch, k * 7, x, 0, 7);
+            assertEquals(forest.predictProba(x, single), labels[k]);
+            for (int c = 0; c < 3; c++) {
+                assertEquals(single[c], proba[k * 3 + c], 0f);
+            }
+        }
+    }
+
+    @Test
+    public void stablePredictionMatchesFullPrediction() throws IOException {
+        Random random = new Random(23);
+        float[] zero = new float[7];
+        float[] huge = new float[7];
+        Arrays.fill(huge, 1e6f);
+        for (String kind : new String[]{"forest", "boosted"}) {
+            EnsembleModel model = randomEnsemble(31, kind, 25);
+            float[] expected = new float[3];
+            float[] actual = new float[3];
+            int stable = 0;
+            for (int k = 0; k < 500; k++) {
+                float[] x = randomInput(random);
+                int label = model.predictProba(x, expected);
+                assertEquals(label, model.predictProbaIfStable(x, zero, actual));
+                assertArrayEquals(expected, actual, 0f);
+                assertEquals(TreeModel.UNSTABLE, model.predictProbaIfStable(x, huge, actual));
+                // 适中的误差下，返回的结果必须与完整预测相同
+                float[] errors = new float[7];
+                Arrays.fill(errors, 0.05f);
+                int adaptive = model.predictProbaIfStable(x, errors, actual);
+                if (adaptive != TreeModel.UNSTABLE) {
+                    assertEquals(label, adaptive);
+                    stable++;
+                }
+            }
+            assertTrue(kind, stable > 0);
+        }
+    }
+
+    @Test
+    public void rejectsInconsistentHeaders() {
+        String[] invalid = {
+                "ensemble:forest\nclass_count:3\ntree_count:2\nnode_count:1\n0,-1,0,-1,-1,0",
+                "ensemble:forest\nclass_count:3\nnode_count:2\n0,-1,0,-1,-1,0",
+                "ensemble:bagged\nclass_count:3\nnode_count:1\n0,-1,0,-1,-1,0",
+                "class_count:3\nnode_count:1\n0,-1,0,-1,-1,0",
+                "ensemble:forest\nclass_count:3\nnode_count:1\n0,-1,0,-1,-1,5",
+                "ensemble:forest\nclass_count:3\n0,-1,0,-1,-1,0",
+        };
+        for (String text : invalid) {
+            try {
+                TextModelReader.readEnsemble(TreeModelTest.stream(text), MEAN, STD);
+                fail("应当拒绝: " + text);
+            } catch (ModelFormatException expected) {
+                // ok
+            } catch (IOException e) {
+                fail(e.toString());
+            }
+        }
+    }
+
+    @Test
+    public void fingerprintDependsOnParameters() throws IOException {
+        assertEquals(randomEnsemble(10, "forest", 5).getFingerprint(),
+                randomEnsemble(10, "forest", 5).getFingerprint());
+        assertNotEquals(randomEnsemble(10, "forest", 5).getFingerprint(),
+                randomEnsemble(11, "forest", 5).getFingerprint());
+    }
+}
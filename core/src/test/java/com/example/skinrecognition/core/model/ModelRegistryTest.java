@@ -0,0 +1,114 @@
+package com.example.skinrecognition.core.model;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ModelRegistryTest {
+
+    @Test
+    public void concurrentCallersShareOneInstance() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ModelRegistry registry = new ModelRegistry(executor, Long.MAX_VALUE);
+        ModelRegistry.Key<TreeModel> key = new ModelRegistry.Key<>("skin_type", () -> {
+            loads.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            return TreeModelTest.loadAssetModel();
+        }, TreeModel::getSizeInBytes);
+
+        registry.preload(key);
+        assertNull(registry.getIfReady(key));
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        TreeModel[] seen = new TreeModel[8];
+        CountDownLatch done = new CountDownLatch(seen.length);
+        for (int i = 0; i < seen.length; i++) {
+            int index = i;
+            callers.execute(() -> {
+                try {
+                    seen[index] = registry.await(key, 5, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new AssertionError(e);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        for (TreeModel model : seen) {
+            assertSame(seen[0], model);
+        }
+        assertEquals(1, loads.get());
+        assertSame(seen[0], registry.getIfReady(key));
+        callers.shutdown();
+        executor.shutdown();
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedOverBudget() throws Exception {
+        ModelRegistry registry = new ModelRegistry(Runnable::run, 250);
+        ModelRegistry.Key<String> a = new ModelRegistry.Key<>("a", () -> "A", s -> 100);
+        ModelRegistry.Key<String> b = new ModelRegistry.Key<>("b", () -> "B", s -> 100);
+        ModelRegistry.Key<String> c = new ModelRegistry.Key<>("c", () -> "C", s -> 100);
+        registry.get(a).join();
+        registry.get(b).join();
+        registry.get(a).join();
+        registry.get(c).join();
+        assertTrue(registry.isLoaded(a));
+        assertFalse(registry.isLoaded(b));
+        assertTrue(registry.isLoaded(c));
+        assertEquals(200, registry.getLoadedBytes());
+    }
+
+    @Test
+    public void closesEvictedCloseableModels() throws Exception {
+        AtomicInteger closed = new AtomicInteger();
+        ModelRegistry registry = new ModelRegistry(Runnable::run, 150);
+        ModelRegistry.Key<AutoCloseable> a = new ModelRegistry.Key<>("a", () -> closed::incrementAndGet, m -> 100);
+        ModelRegistry.Key<AutoCloseable> b = new ModelRegistry.Key<>("b", () -> closed::incrementAndGet, m -> 100);
+        registry.get(a).join();
+        assertEquals(0, closed.get());
+        // 超出上限时释放 a
+        registry.get(b).join();
+        assertFalse(registry.isLoaded(a));
+        assertEquals(1, closed.get());
+        registry.evict(b);
+        assertEquals(2, closed.get());
+        // 没有加载的模型不重复关闭
+        registry.evict(b);
+        assertEquals(2, closed.get());
+    }
+
+    @Test
+    public void failedLoadIsRetried() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        ModelRegistry registry = new ModelRegistry(Runnable::run, Long.MAX_VALUE);
+        ModelRegistry.Key<String> key = new ModelRegistry.Key<>("flaky", () -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new IOException("boom");
+            }
+            return "ok";
+        }, s -> 1);
+        try {
+            registry.await(key, 1, TimeUnit.SECONDS);
+            fail("第一次加载应当失败");
+        } catch (IOException expected) {
+            assertEquals("boom", expected.getMessage());
+        }
+        assertEquals("ok", registry.await(key, 1, TimeUnit.SECONDS));
+        assertEquals(2, attempts.get());
+    }
+}
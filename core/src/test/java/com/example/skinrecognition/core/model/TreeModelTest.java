@@ -0,0 +1,194 @@
+package com.example.skinrecognition.core.model;
+
+import com.example.skinrecognition.core.feature.FeatureLayout;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TreeModelTest {
+
+    // Gradle 运行测试时的工作目录是 core 模块
+    static final File ASSETS = new File("../app/src/main/assets");
+
+    static TreeModel loadAssetModel() throws IOException {
+        try (InputStream tree = new FileInputStream(new File(ASSETS, "tree_model.txt"));
+             InputStream mean = new FileInputStream(new File(ASSETS, "scaler_mean.txt"));
+             InputStream std = new FileInputStream(new File(ASSETS, "scaler_std.txt"))) {
+            return TextModelReader.read(tree, mean, std, 3);
+        }
+    }
+
+    @Test
+    public void loadsAssetModel() throws IOException {
+        TreeModel model = loadAssetModel();
+        assertEquals(375, model.getNodeCount());
+        assertEquals(7, model.getFeatureCount());
+        assertTrue(model.getMaxDepth() > 0);
+    }
+
+    @Test
+    public void matchesNodeByNodeTraversal() throws IOException {
+        TreeModel model = loadAssetModel();
+        Random random = new Random(1);
+        for (int k = 0; k < 2000; k++) {
+            float[] features = randomFeatures(random, model);
+            assertEquals(referencePredict(model, features), model.predict(features));
+        }
+    }
+
+    @Test
+    public void batchMatchesSinglePrediction() throws IOException {
+        TreeModel model = loadAssetModel();
+        Random random = new Random(2);
+        int count = 500;
+        int stride = model.getFeatureCount();
+        float[] batch = new float[count * stride];
+        float[] normalized = new float[count * stride];
+        for (int k = 0; k < count; k++) {
+            float[] features = randomFeatures(random, model);
+            System.arraycopy(features, 0, batch, k * stride, stride);
+            for (int f = 0; f < stride; f++) {
+                normalized[k * stride + f] = (features[f] - model.scalerMean[f]) / model.scalerStd[f];
+            }
+        }
+        int[] out = new int[count];
+        int[] outNormalized = new int[count];
+        model.predictBatch(batch, count, out);
+        model.predictNormalizedBatch(normalized, count, outNormalized);
+        for (int k = 0; k < count; k++) {
+            assertEquals(model.predict(batch, k * stride), out[k]);
+            assertEquals(out[k], outNormalized[k]);
+        }
+    }
+
+    @Test
+    public void normalizeThenTraverseMatchesPredict() throws IOException {
+        TreeModel model = loadAssetModel();
+        Random random = new Random(3);
+        float[] normalized = new float[model.getFeatureCount()];
+        for (int k = 0; k < 2000; k++) {
+            float[] features = randomFeatures(random, model);
+            model.normalize(features, 0, normalized, 0);
+            assertEquals(model.predict(features), model.predictNormalized(normalized, 0));
+        }
+    }
+
+    @Test
+    public void stablePredictionChecksEveryMarginOnPath() throws IOException {
+        // 根按特征 0 在 0.5 处分裂，左子树再按特征 1 在 0 处分裂
+        TreeModel model = TextModelReader.readTree(stream("node_count:5\n1,0,0.5,1,2,-1\n1,1,0.0,3,4,-1\n"
+                        + "0,-1,-1,-1,-1,2\n0,-1,-1,-1,-1,0\n0,-1,-1,-1,-1,1\n"),
+                new float[]{0f, 0f}, new float[]{2f, 1f}, 3);
+        float[] x = {0f, 0.3f};
+        assertEquals(1, model.predict(x));
+        assertEquals(1, model.predictIfStable(x, new float[]{0.9f, 0.29f}));
+        // 特征 0 的误差以原始单位计，归一化后超过到阈值的距离 0.5
+        assertEquals(TreeModel.UNSTABLE, model.predictIfStable(x, new float[]{1f, 0f}));
+        assertEquals(TreeModel.UNSTABLE, model.predictIfStable(x, new float[]{0f, 0.3f}));
+        // 不在路径上的特征不影响结果
+        assertEquals(2, model.predictIfStable(new float[]{4f, 0f}, new float[]{0f, 100f}));
+    }
+
+    @Test
+    public void rejectsCycle() {
+        String tree = "node_count:3\n1,0,0.5,1,2,-1\n1,0,0.5,2,0,-1\n0,-1,-1,-1,-1,0\n";
+        assertInvalid(tree);
+    }
+
+    @Test
+    public void rejectsSharedChild() {
+        String tree = "node_count:4\n1,0,0.5,1,2,-1\n1,0,0.5,3,2,-1\n0,-1,-1,-1,-1,0\n0,-1,-1,-1,-1,1\n";
+        assertInvalid(tree);
+    }
+
+    @Test
+    public void rejectsChildOutOfRange() {
+        assertInvalid("node_count:3\n1,0,0.5,1,7,-1\n0,-1,-1,-1,-1,0\n0,-1,-1,-1,-1,1\n");
+    }
+
+    @Test
+    public void rejectsBadFeatureAndLabel() {
+        assertInvalid("node_count:3\n1,9,0.5,1,2,-1\n0,-1,-1,-1,-1,0\n0,-1,-1,-1,-1,1\n");
+        assertInvalid("node_count:3\n1,0,0.5,1,2,-1\n0,-1,-1,-1,-1,0\n0,-1,-1,-1,-1,5\n");
+    }
+
+    @Test
+    public void rejectsMalformedLineAndCountMismatch() {
+        assertInvalid("node_count:3\n1,0,0.5,1,2\n0,-1,-1,-1,-1,0\n0,-1,-1,-1,-1,1\n");
+        assertInvalid("node_count:4\n1,0,0.5,1,2,-1\n0,-1,-1,-1,-1,0\n0,-1,-1,-1,-1,1\n");
+        assertInvalid("node_count:3\n1,x,0.5,1,2,-1\n0,-1,-1,-1,-1,0\n0,-1,-1,-1,-1,1\n");
+    }
+
+    @Test
+    public void readsDeclaredLayout() throws IOException {
+        String scaler = "descriptor:hsv-lbp-7\n0\n0\n0\n0\n0\n0\n0\n";
+        String tree = "descriptor:hsv-lbp-7\nnode_count:3\n1,6,0.5,1,2,-1\n0,-1,-1,-1,-1,0\n0,-1,-1,-1,-1,1\n";
+        TreeModel model = TextModelReader.read(stream(tree), stream(scaler), stream(scaler.replace('0', '1')), 2);
+        assertEquals(FeatureLayout.BASIC, model.getLayout());
+        // 未声明时按特征数推断
+        assertEquals(FeatureLayout.BASIC, loadAssetModel().getLayout());
+    }
+
+    @Test
+    public void rejectsConflictingOrUnknownLayout() {
+        String nodes = "node_count:3\n1,0,0.5,1,2,-1\n0,-1,-1,-1,-1,0\n0,-1,-1,-1,-1,1\n";
+        assertInvalid("descriptor:no-such-layout\n" + nodes);
+        // 2 维的 scaler 与声明的 7 维布局不符
+        assertInvalid("descriptor:hsv-lbp-7\n" + nodes);
+        try {
+            TextModelReader.read(stream("descriptor:hsv-lbp-7\n" + nodes),
+                    stream("descriptor:hsv-lbp59-hist\n0\n0\n"), stream("1\n1\n"), 2);
+            fail("应当拒绝不一致的布局声明");
+        } catch (ModelFormatException expected) {
+            // ok
+        } catch (IOException e) {
+            fail(e.toString());
+        }
+    }
+
+    private static void assertInvalid(String tree) {
+        try {
+            TextModelReader.readTree(stream(tree), new float[]{0f, 0f}, new float[]{1f, 1f}, 3);
+            fail("应当拒绝非法模型");
+        } catch (ModelFormatException expected) {
+            // ok
+        } catch (IOException e) {
+            fail(e.toString());
+        }
+    }
+
+    static InputStream stream(String s) {
+        return new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static float[] randomFeatures(Random random, TreeModel model) {
+        float[] features = new float[model.getFeatureCount()];
+        for (int f = 0; f < features.length; f++) {
+            features[f] = model.scalerMean[f] + (float) random.nextGaussian() * 2 * model.scalerStd[f];
+        }
+        return features;
+    }
+
+    // 原 PredictActivity.predict 的逐节点遍历
+    static int referencePredict(TreeModel model, float[] features) {
+        float[] normalized = new float[features.length];
+        for (int i = 0; i < features.length; i++) {
+            normalized[i] = (features[i] - model.scalerMean[i]) / model.scalerStd[i];
+        }
+        int node = 0;
+        while (model.feature[node] != TreeModel.LEAF) {
+            node = normalized[model.feature[node]] <= model.threshold[node]
+                    ? model.left[node] : model.right[node];
+        }
+        return model.label[node];
+    }
+}
@@ -0,0 +1,14 @@
+plugins {
+    `java-library`
+}
+
+// 桌面 JVM 上的 ImageIO 解码，推理服务和训练工具共用；Android 上没有 javax.imageio，app 不使用本模块
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+dependencies {
+    // 公开接口中用到 core 的 ArgbImage 和 BatchAnalyzer.Decoder
+    api(project(":core"))
+}
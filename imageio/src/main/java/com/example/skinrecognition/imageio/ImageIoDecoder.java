@@ -0,0 +1,49 @@
+package com.example.skinrecognition.imageio;
+
+import com.example.skinrecognition.core.batch.BatchAnalyzer;
+import com.example.skinrecognition.core.image.ArgbImage;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+/**
+ * 用 ImageIO 解码 JPEG/PNG 并用 Graphics2D 双线性缩放到 size x size；尺寸已经相同时不缩放。
+ * 推理服务和离线训练工具共用，保证训练和服务端推理的输入一致。
+ * <p>
+ * 与 app 的预处理（BitmapFactory 按 inSampleSize 下采样、再 {@code Bitmap.createScaledBitmap(..., true)}）
+ * 不是同一套实现，JPEG 解码和插值在像素上会有细微差别；两边共用的只是之后的特征提取。
+ */
+public final class ImageIoDecoder implements BatchAnalyzer.Decoder {
+
+    private final int size;
+
+    public ImageIoDecoder(int size) {
+        this.size = size;
+    }
+
+    @Override
+    public ArgbImage decode(byte[] data) throws IOException {
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(data));
+        if (image == null) {
+            return null;
+        }
+        if (image.getWidth() != size || image.getHeight() != size) {
+            BufferedImage scaled = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = scaled.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.drawImage(image, 0, 0, size, size, null);
+            } finally {
+                g.dispose();
+            }
+            image = scaled;
+        }
+        int[] pixels = image.getRGB(0, 0, size, size, null, 0, size);
+        return new ArgbImage(pixels, size, size);
+    }
+}
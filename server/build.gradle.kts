@@ -0,0 +1,43 @@
+plugins {
+    application
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+    // vector 模块是 Java 17 字节码，只在运行时加载
+    disableAutoTargetJvm()
+}
+
+dependencies {
+    implementation(project(":core"))
+    implementation(project(":imageio"))
+    // JVM 为 17 及以上并带有 --add-modules jdk.incubator.vector 时启用 SIMD 行内核，否则自动退回标量实现
+    runtimeOnly(project(":vector"))
+    testImplementation(libs.junit)
+}
+
+// jdk.incubator.vector 只在 JDK 17 及以上存在，更早的 JDK 遇到 --add-modules 会无法启动；
+// run 和 test 在运行 Gradle 的 JDK 上执行，只在它为 17 及以上时添加。没有该参数时 RowKernels 使用标量实现
+val vectorJvmArgs = if (JavaVersion.current().isCompatibleWith(JavaVersion.VERSION_17)) {
+    listOf("--add-modules", "jdk.incubator.vector")
+} else {
+    emptyList()
+}
+
+// 运行：./gradlew :server:run，默认监听 8080 并加载 app 的 assets 中的模型
+application {
+    mainClass.set("com.example.skinrecognition.server.InferenceServer")
+    // 启动脚本可能在 JDK 11 上运行，不带 --add-modules；在 JDK 17 上可以通过 JAVA_OPTS 加上
+    applicationDefaultJvmArgs = listOf("-Djava.awt.headless=true")
+}
+
+tasks.named<JavaExec>("run") {
+    jvmArgumentProviders.add(CommandLineArgumentProvider { vectorJvmArgs })
+    args("--assets", rootProject.file("app/src/main/assets").absolutePath)
+}
+
+tasks.test {
+    systemProperty("java.awt.headless", "true")
+    jvmArgs(vectorJvmArgs)
+}
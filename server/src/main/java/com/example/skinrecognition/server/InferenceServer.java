@@ -0,0 +1,285 @@
+package com.example.skinrecognition.server;
+
+import com.example.skinrecognition.core.feature.AnalysisResolution;
+import com.example.skinrecognition.core.feature.FeatureExtractor;
+import com.example.skinrecognition.core.feature.FeatureLayout;
+import com.example.skinrecognition.core.image.ArgbImage;
+import com.example.skinrecognition.core.model.ModelConverter;
+import com.example.skinrecognition.core.model.TreeModel;
+import com.example.skinrecognition.core.remote.InferenceProtocol;
+import com.example.skinrecognition.imageio.ImageIoDecoder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 无界面的推理服务：对外提供 {@link InferenceProtocol} 中的接口，
+ * 特征提取和决策树与 app 端完全相同。
+ * <p>
+ * 连接由 JDK 自带 HttpServer 的 NIO selector 线程统一接收，请求交给固定大小的工作线程池；
+ * 预测请求提交给 {@link PredictionBatcher} 后工作线程立即返回，结果在批处理完成后
+ * 异步写回，等待预测期间不占用工作线程。
+ */
+public final class InferenceServer implements AutoCloseable {
+
+    private static final int DEFAULT_PORT = 8080;
+    private static final int DEFAULT_MAX_BATCH = 256;
+    private static final long DEFAULT_MAX_WAIT_MICROS = 2000;
+    private static final int DEFAULT_QUEUE_CAPACITY = 1024;
+    // 与 app 默认的分析分辨率相同，结果可以直接比较
+    private static final int IMAGE_SIZE = AnalysisResolution.SIZE_200.getSize();
+
+    private final TreeModel model;
+    private final HttpServer server;
+    private final ExecutorService workers;
+    private final PredictionBatcher batcher;
+    private final ServerMetrics metrics = new ServerMetrics();
+    private final ImageIoDecoder decoder = new ImageIoDecoder(IMAGE_SIZE);
+    private final ThreadLocal<FeatureExtractor> extractors = ThreadLocal.withInitial(FeatureExtractor::new);
+
+    /**
+     * @param address       监听地址，端口为 0 时自动分配
+     * @param workerThreads 解析请求、解码图片和提取特征的线程数
+     * @param maxBatch      一批最多的样本数
+     * @param maxWaitMicros 收集一批时最多等待的时间
+     */
+    public InferenceServer(TreeModel model, InetSocketAddress address, int workerThreads, int maxBatch,
+                           long maxWaitMicros, int queueCapacity) throws IOException {
+        if (workerThreads <= 0) {
+            throw new IllegalArgumentException("workerThreads 必须为正数: " + workerThreads);
+        }
+        // 协议按 7 维特征传输
+        if (model.getLayout() != FeatureLayout.BASIC) {
+            throw new IllegalArgumentException("推理服务只支持 " + FeatureLayout.BASIC.getId() + " 特征布局的模型");
+        }
+        this.model = model;
+        this.batcher = new PredictionBatcher(model, maxBatch, maxWaitMicros, queueCapacity, metrics);
+        AtomicInteger index = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerThreads, r -> {
+            Thread thread = new Thread(r, "http-worker-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server = HttpServer.create(address, 0);
+        server.setExecutor(workers);
+        server.createContext(InferenceProtocol.FEATURES_PATH, guarded("features", this::handleFeatures));
+        server.createContext(InferenceProtocol.IMAGE_PATH, guarded("image", this::handleImage));
+        server.createContext(InferenceProtocol.HEALTH_PATH, guarded("health", this::handleHealth));
+        server.createContext(InferenceProtocol.METRICS_PATH, guarded("metrics", this::handleMetrics));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    // 实际监听的端口
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    ServerMetrics getMetrics() {
+        return metrics;
+    }
+
+    /** 处理一个请求；返回后如果还没有写响应，由异步回调负责写。 */
+    private interface Endpoint {
+        void handle(HttpExchange exchange, String name, long start) throws IOException;
+    }
+
+    // 同步阶段抛出的异常统一返回 500
+    private HttpHandler guarded(String name, Endpoint endpoint) {
+        return exchange -> {
+            long start = System.nanoTime();
+            try {
+                endpoint.handle(exchange, name, start);
+            } catch (IOException | RuntimeException e) {
+                respond(exchange, name, start, 500, "服务端错误: " + e);
+            }
+        };
+    }
+
+    private void handleFeatures(HttpExchange exchange, String name, long start) throws IOException {
+        if (!requireMethod(exchange, name, start, "POST")) {
+            return;
+        }
+        byte[] body = readBody(exchange, InferenceProtocol.MAX_FEATURE_ROWS * 256);
+        if (body == null) {
+            respond(exchange, name, start, 413, "请求体过大");
+            return;
+        }
+        float[] features;
+        try {
+            features = InferenceProtocol.parseFeatureRows(new String(body, StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            respond(exchange, name, start, 400, e.getMessage());
+            return;
+        }
+        int count = features.length / FeatureExtractor.FEATURE_COUNT;
+        submit(exchange, name, start, features, count,
+                labels -> InferenceProtocol.formatLabels(labels, count));
+    }
+
+    private void handleImage(HttpExchange exchange, String name, long start) throws IOException {
+        if (!requireMethod(exchange, name, start, "POST")) {
+            return;
+        }
+        byte[] body = readBody(exchange, InferenceProtocol.MAX_IMAGE_BYTES);
+        if (body == null) {
+            respond(exchange, name, start, 413, "图片过大");
+            return;
+        }
+        ArgbImage image = decoder.decode(body);
+        if (image == null) {
+            respond(exchange, name, start, 415, "无法解码图片");
+            return;
+        }
+        float[] features = extractors.get().extract(image.getPixels(), image.getWidth(), image.getHeight());
+        submit(exchange, name, start, features, 1,
+                labels -> InferenceProtocol.formatImageResult(labels[0], features));
+    }
+
+    private interface Formatter {
+        String format(int[] labels);
+    }
+
+    // 交给批处理；结果在工作线程池中写回
+    private void submit(HttpExchange exchange, String name, long start, float[] features, int count,
+                        Formatter formatter) {
+        CompletableFuture<int[]> future;
+        try {
+            future = batcher.submit(features, count);
+        } catch (RejectedExecutionException e) {
+            respond(exchange, name, start, 503, e.getMessage());
+            return;
+        }
+        future.whenCompleteAsync((labels, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                respond(exchange, name, start, 500, "预测失败: " + cause);
+            } else {
+                respond(exchange, name, start, 200, formatter.format(labels));
+            }
+        }, workers);
+    }
+
+    private void handleHealth(HttpExchange exchange, String name, long start) {
+        String body = String.format(Locale.ROOT, "ok\nmodel=%016x\nnodes=%d\nuptime_seconds=%.0f\n",
+                model.getFingerprint(), model.getNodeCount(), metrics.getUptimeSeconds());
+        respond(exchange, name, start, 200, body);
+    }
+
+    private void handleMetrics(HttpExchange exchange, String name, long start) {
+        respond(exchange, name, start, 200, metrics.toPrometheus(batcher.getQueueDepth()));
+    }
+
+    private boolean requireMethod(HttpExchange exchange, String name, long start, String method) {
+        if (method.equalsIgnoreCase(exchange.getRequestMethod())) {
+            return true;
+        }
+        exchange.getResponseHeaders().set("Allow", method);
+        respond(exchange, name, start, 405, "只支持 " + method);
+        return false;
+    }
+
+    // 读取整个请求体，超过 limit 字节时返回 null
+    private static byte[] readBody(HttpExchange exchange, int limit) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                if (out.size() + n > limit) {
+                    return null;
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private void respond(HttpExchange exchange, String name, long start, int status, String body) {
+        byte[] bytes = (status == 200 ? body : body + "\n").getBytes(StandardCharsets.UTF_8);
+        try (OutputStream out = exchange.getResponseBody()) {
+            exchange.getResponseHeaders().set("Content-Type", InferenceProtocol.CONTENT_TYPE);
+            exchange.sendResponseHeaders(status, bytes.length);
+            out.write(bytes);
+        } catch (IOException e) {
+            // 客户端已断开
+        } finally {
+            exchange.close();
+            metrics.recordRequest(name, status, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        batcher.close();
+        workers.shutdown();
+    }
+
+    /**
+     * 启动参数：--assets 模型目录（默认 app/src/main/assets）、--port、--threads、
+     * --max-batch、--max-wait-us、--queue。
+     */
+    public static void main(String[] args) throws IOException {
+        File assets = new File("app/src/main/assets");
+        String host = "0.0.0.0";
+        int port = DEFAULT_PORT;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int maxBatch = DEFAULT_MAX_BATCH;
+        long maxWait = DEFAULT_MAX_WAIT_MICROS;
+        int queue = DEFAULT_QUEUE_CAPACITY;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--assets":
+                    assets = new File(value);
+                    break;
+                case "--host":
+                    host = value;
+                    break;
+                case "--port":
+                    port = Integer.parseInt(value);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(value);
+                    break;
+                case "--max-batch":
+                    maxBatch = Integer.parseInt(value);
+                    break;
+                case "--max-wait-us":
+                    maxWait = Long.parseLong(value);
+                    break;
+                case "--queue":
+                    queue = Integer.parseInt(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("未知参数: " + args[i]);
+            }
+        }
+        TreeModel model = ModelConverter.readText(assets, ModelConverter.DEFAULT_CLASS_COUNT);
+        InferenceServer server = new InferenceServer(model, new InetSocketAddress(host, port),
+                threads, maxBatch, maxWait, queue);
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        System.out.println("推理服务已启动: http://" + host + ":" + server.getPort()
+                + "，模型节点数 " + model.getNodeCount() + "，工作线程 " + threads);
+        // HttpServer 的 dispatcher 线程不是守护线程，main 返回后服务继续运行
+    }
+}
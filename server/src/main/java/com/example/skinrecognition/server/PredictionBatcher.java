@@ -0,0 +1,150 @@
+package com.example.skinrecognition.server;
+
+import com.example.skinrecognition.core.feature.FeatureExtractor;
+import com.example.skinrecognition.core.model.TreeModel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 把并发到达的预测请求合并成一批，交给 {@link TreeModel#predictBatch} 一次算完。
+ * <p>
+ * 单独的批处理线程取出第一个请求后，最多再等待 maxWait 收集后续请求，
+ * 样本数达到 maxBatch 或等待超时就执行。排队的请求数超过 queueCapacity 时
+ * {@link #submit} 直接拒绝，由调用方返回 503。
+ */
+final class PredictionBatcher implements AutoCloseable {
+
+    private static final class Request {
+        final float[] features;
+        final int count;
+        final CompletableFuture<int[]> result = new CompletableFuture<>();
+
+        Request(float[] features, int count) {
+            this.features = features;
+            this.count = count;
+        }
+    }
+
+    private final TreeModel model;
+    private final int maxBatch;
+    private final long maxWaitNanos;
+    private final BlockingQueue<Request> queue;
+    private final ServerMetrics metrics;
+    private final Thread thread;
+    private volatile boolean closed;
+    // 只在批处理线程中使用，按需扩容后复用
+    private float[] packed = new float[0];
+    private int[] labels = new int[0];
+
+    PredictionBatcher(TreeModel model, int maxBatch, long maxWaitMicros, int queueCapacity, ServerMetrics metrics) {
+        if (maxBatch <= 0 || maxWaitMicros < 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("批大小、等待时间和队列容量必须为正数");
+        }
+        this.model = model;
+        this.maxBatch = maxBatch;
+        this.maxWaitNanos = TimeUnit.MICROSECONDS.toNanos(maxWaitMicros);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.metrics = metrics;
+        this.thread = new Thread(this::run, "prediction-batcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 提交 count 组连续存放的原始特征，结果按顺序给出类别下标。
+     *
+     * @throws RejectedExecutionException 队列已满或已关闭时
+     */
+    CompletableFuture<int[]> submit(float[] features, int count) {
+        if (closed) {
+            throw new RejectedExecutionException("批处理已关闭");
+        }
+        Request request = new Request(features, count);
+        if (!queue.offer(request)) {
+            throw new RejectedExecutionException("预测队列已满");
+        }
+        return request.result;
+    }
+
+    int getQueueDepth() {
+        return queue.size();
+    }
+
+    private void run() {
+        List<Request> batch = new ArrayList<>();
+        while (!closed) {
+            try {
+                Request first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                int samples = first.count;
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (samples < maxBatch) {
+                    long remaining = deadline - System.nanoTime();
+                    Request next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    samples += next.count;
+                }
+                execute(batch, samples);
+            } catch (InterruptedException e) {
+                // close() 中断等待，回到循环检查 closed
+            } finally {
+                batch.clear();
+            }
+        }
+        for (Request request : queue) {
+            request.result.completeExceptionally(new CancellationException("服务已关闭"));
+        }
+    }
+
+    private void execute(List<Request> batch, int samples) {
+        int m = FeatureExtractor.FEATURE_COUNT;
+        if (packed.length < samples * m) {
+            packed = new float[samples * m];
+            labels = new int[samples];
+        }
+        int offset = 0;
+        for (Request request : batch) {
+            System.arraycopy(request.features, 0, packed, offset * m, request.count * m);
+            offset += request.count;
+        }
+        try {
+            model.predictBatch(packed, samples, labels);
+        } catch (RuntimeException e) {
+            for (Request request : batch) {
+                request.result.completeExceptionally(e);
+            }
+            return;
+        }
+        metrics.recordBatch(batch.size(), samples);
+        offset = 0;
+        for (Request request : batch) {
+            request.result.complete(Arrays.copyOfRange(labels, offset, offset + request.count));
+            offset += request.count;
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        thread.interrupt();
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
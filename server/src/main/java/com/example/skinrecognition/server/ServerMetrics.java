@@ -0,0 +1,92 @@
+package com.example.skinrecognition.server;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 服务端计数器：各接口的请求数、错误数和耗时，以及批处理的批数和批大小。
+ * 所有方法线程安全，{@link #toPrometheus} 输出 Prometheus 文本格式。
+ */
+final class ServerMetrics {
+
+    private static final class EndpointStats {
+        final LongAdder requests = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final AtomicLong maxNanos = new AtomicLong();
+    }
+
+    private final Map<String, EndpointStats> endpoints = new ConcurrentHashMap<>();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder batchedRequests = new LongAdder();
+    private final LongAdder batchedSamples = new LongAdder();
+    private final AtomicLong maxBatchSamples = new AtomicLong();
+    private final long startNanos = System.nanoTime();
+
+    // 一次请求结束；status 不是 200 时计为错误
+    void recordRequest(String endpoint, int status, long elapsedNanos) {
+        EndpointStats stats = endpoints.computeIfAbsent(endpoint, k -> new EndpointStats());
+        stats.requests.increment();
+        if (status != 200) {
+            stats.errors.increment();
+        }
+        stats.nanos.add(elapsedNanos);
+        stats.maxNanos.accumulateAndGet(elapsedNanos, Math::max);
+    }
+
+    void recordBatch(int requests, int samples) {
+        batches.increment();
+        batchedRequests.add(requests);
+        batchedSamples.add(samples);
+        maxBatchSamples.accumulateAndGet(samples, Math::max);
+    }
+
+    long getRequestCount(String endpoint) {
+        EndpointStats stats = endpoints.get(endpoint);
+        return stats != null ? stats.requests.sum() : 0;
+    }
+
+    long getBatchCount() {
+        return batches.sum();
+    }
+
+    long getBatchedRequestCount() {
+        return batchedRequests.sum();
+    }
+
+    double getUptimeSeconds() {
+        return (System.nanoTime() - startNanos) / 1e9;
+    }
+
+    String toPrometheus(int queueDepth) {
+        StringBuilder sb = new StringBuilder(1024);
+        sb.append("# TYPE skin_requests_total counter\n");
+        endpoints.forEach((name, s) -> line(sb, "skin_requests_total", name, s.requests.sum()));
+        sb.append("# TYPE skin_request_errors_total counter\n");
+        endpoints.forEach((name, s) -> line(sb, "skin_request_errors_total", name, s.errors.sum()));
+        sb.append("# TYPE skin_request_seconds_sum counter\n");
+        endpoints.forEach((name, s) -> line(sb, "skin_request_seconds_sum", name, s.nanos.sum() / 1e9));
+        sb.append("# TYPE skin_request_seconds_max gauge\n");
+        endpoints.forEach((name, s) -> line(sb, "skin_request_seconds_max", name, s.maxNanos.get() / 1e9));
+        sb.append("# TYPE skin_batches_total counter\n");
+        sb.append("skin_batches_total ").append(batches.sum()).append('\n');
+        sb.append("# TYPE skin_batched_requests_total counter\n");
+        sb.append("skin_batched_requests_total ").append(batchedRequests.sum()).append('\n');
+        sb.append("# TYPE skin_batched_samples_total counter\n");
+        sb.append("skin_batched_samples_total ").append(batchedSamples.sum()).append('\n');
+        sb.append("# TYPE skin_batch_samples_max gauge\n");
+        sb.append("skin_batch_samples_max ").append(maxBatchSamples.get()).append('\n');
+        sb.append("# TYPE skin_queue_depth gauge\n");
+        sb.append("skin_queue_depth ").append(queueDepth).append('\n');
+        sb.append("# TYPE skin_uptime_seconds gauge\n");
+        sb.append(String.format(Locale.ROOT, "skin_uptime_seconds %.3f\n", getUptimeSeconds()));
+        return sb.toString();
+    }
+
+    private static void line(StringBuilder sb, String metric, String endpoint, Number value) {
+        sb.append(metric).append("{endpoint=\"").append(endpoint).append("\"} ").append(value).append('\n');
+    }
+}
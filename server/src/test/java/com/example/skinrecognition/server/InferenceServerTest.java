@@ -0,0 +1,197 @@
+package com.example.skinrecognition.server;
+
+import com.example.skinrecognition.core.classify.Classification;
+import com.example.skinrecognition.core.feature.FeatureExtractor;
+import com.example.skinrecognition.core.model.ModelConverter;
+import com.example.skinrecognition.core.model.TreeModel;
+import com.example.skinrecognition.core.remote.InferenceClient;
+import com.example.skinrecognition.core.remote.InferenceProtocol;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 在 localhost 上启动服务，用 {@link InferenceClient} 验证结果与本地推理一致。
+ */
+public class InferenceServerTest {
+
+    private static final int M = FeatureExtractor.FEATURE_COUNT;
+
+    private static TreeModel model;
+    private InferenceServer server;
+    private InferenceClient client;
+
+    @BeforeClass
+    public static void loadModel() throws IOException {
+        model = ModelConverter.readText(new File("../app/src/main/assets"), ModelConverter.DEFAULT_CLASS_COUNT);
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        server = new InferenceServer(model, new InetSocketAddress("127.0.0.1", 0), 4, 64, 2000, 256);
+        server.start();
+        client = new InferenceClient("http://127.0.0.1:" + server.getPort());
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void featureRowsMatchLocalPrediction() throws IOException {
+        float[] features = randomFeatures(new Random(1), 100);
+        int[] labels = client.predictFeatures(features, 100);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(model.predict(features, i * M), labels[i]);
+        }
+    }
+
+    @Test
+    public void imageUploadMatchesOnDevicePipeline() throws IOException {
+        int size = 200;
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(5);
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                image.setRGB(x, y, (180 + random.nextInt(60)) << 16 | (120 + random.nextInt(60)) << 8
+                        | (90 + random.nextInt(60)));
+            }
+        }
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", png);
+
+        int[] pixels = image.getRGB(0, 0, size, size, null, 0, size);
+        float[] expected = new FeatureExtractor().extract(pixels, size, size);
+        Classification result = client.predictImage(png.toByteArray(), model.getClassCount());
+        assertArrayEquals(expected, result.getFeatures(), 0f);
+        assertEquals(model.predict(expected), result.getLabel());
+    }
+
+    @Test
+    public void concurrentRequestsAreBatched() throws Exception {
+        int requests = 64;
+        float[] features = randomFeatures(new Random(2), requests);
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < requests; i++) {
+                float[] row = new float[M];
+                System.arraycopy(features, i * M, row, 0, M);
+                results.add(pool.submit(() -> client.predictFeatures(row, 1)[0]));
+            }
+            for (int i = 0; i < requests; i++) {
+                assertEquals(model.predict(features, i * M), (int) results.get(i).get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+        ServerMetrics metrics = server.getMetrics();
+        assertEquals(requests, metrics.getBatchedRequestCount());
+        assertTrue(metrics.getBatchCount() <= requests);
+        assertEquals(requests, metrics.getRequestCount("features"));
+    }
+
+    @Test
+    public void healthAndMetricsEndpoints() throws IOException {
+        assertTrue(client.checkHealth());
+        client.predictFeatures(randomFeatures(new Random(3), 2), 2);
+        String health = get(InferenceProtocol.HEALTH_PATH);
+        assertTrue(health, health.contains(String.format("model=%016x", model.getFingerprint())));
+        String metrics = get(InferenceProtocol.METRICS_PATH);
+        assertTrue(metrics, metrics.contains("skin_requests_total{endpoint=\"features\"} 1"));
+        assertTrue(metrics, metrics.contains("skin_batched_samples_total 2"));
+    }
+
+    @Test
+    public void badRequestsDoNotTriggerFallback() throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL("http://127.0.0.1:" + server.getPort()
+                + InferenceProtocol.FEATURES_PATH).openConnection();
+        conn.setRequestMethod("POST");
+        conn.setDoOutput(true);
+        conn.getOutputStream().write("1,2,3\n".getBytes(StandardCharsets.UTF_8));
+        assertEquals(400, conn.getResponseCode());
+        conn.disconnect();
+
+        try {
+            client.predictImage(new byte[]{1, 2, 3}, model.getClassCount());
+            fail("无法解码的图片应当返回错误");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("415"));
+        }
+        // 4xx 是请求本身的问题，服务仍然可用
+        assertTrue(client.isAvailable());
+    }
+
+    @Test
+    public void unreachableServerEntersBackoff() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        InferenceClient offline = new InferenceClient("http://127.0.0.1:" + port, 200, 200, 60_000);
+        assertTrue(offline.isAvailable());
+        try {
+            offline.predictFeatures(randomFeatures(new Random(4), 1), 1);
+            fail("连不上服务时应当抛出 IOException");
+        } catch (IOException expected) {
+            // 预期
+        }
+        assertFalse(offline.isAvailable());
+        assertFalse(offline.checkHealth());
+    }
+
+    private String get(String path) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL("http://127.0.0.1:" + server.getPort() + path)
+                .openConnection();
+        try (InputStream in = conn.getInputStream()) {
+            assertEquals(200, conn.getResponseCode());
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    // 特征取值范围与真实图片相近：H、S、V 的均值/标准差和 LBP 均值
+    private static float[] randomFeatures(Random random, int count) {
+        float[] features = new float[count * M];
+        for (int i = 0; i < count; i++) {
+            int o = i * M;
+            features[o] = random.nextFloat() * 360;
+            features[o + 1] = random.nextFloat() * 100;
+            features[o + 2] = random.nextFloat();
+            features[o + 3] = random.nextFloat() * 0.3f;
+            features[o + 4] = random.nextFloat();
+            features[o + 5] = random.nextFloat() * 0.3f;
+            features[o + 6] = random.nextFloat() * 255;
+        }
+        return features;
+    }
+}
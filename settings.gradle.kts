@@ -21,4 +21,9 @@ dependencyResolutionManagement {
 
 rootProject.name = "SkinRecognition"
 include(":app")
- 
\ No newline at end of file
+include(":core")
+include(":benchmark")
+include(":server")
+include(":trainer")
+include(":vector")
+include(":imageio")
@@ -0,0 +1,45 @@
+plugins {
+    application
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+    // vector 模块是 Java 17 字节码，只在运行时加载
+    disableAutoTargetJvm()
+}
+
+dependencies {
+    implementation(project(":core"))
+    // 与推理服务共用 ImageIO 解码和缩放
+    implementation(project(":imageio"))
+    // JVM 为 17 及以上并带有 --add-modules jdk.incubator.vector 时启用 SIMD 行内核，否则自动退回标量实现
+    runtimeOnly(project(":vector"))
+    testImplementation(libs.junit)
+}
+
+// jdk.incubator.vector 只在 JDK 17 及以上存在，更早的 JDK 遇到 --add-modules 会无法启动；
+// run 和 test 在运行 Gradle 的 JDK 上执行，只在它为 17 及以上时添加。没有该参数时 RowKernels 使用标量实现
+val vectorJvmArgs = if (JavaVersion.current().isCompatibleWith(JavaVersion.VERSION_17)) {
+    listOf("--add-modules", "jdk.incubator.vector")
+} else {
+    emptyList()
+}
+
+// 运行：./gradlew :trainer:run --args="--data <数据集目录>"，默认把模型写到 app/src/main/assets
+application {
+    mainClass.set("com.example.skinrecognition.trainer.ModelTrainer")
+    // 启动脚本可能在 JDK 11 上运行，不带 --add-modules；在 JDK 17 上可以通过 JAVA_OPTS 加上
+    applicationDefaultJvmArgs = listOf("-Djava.awt.headless=true")
+}
+
+// --args 会覆盖 args，所以相对路径按仓库根目录解析
+tasks.named<JavaExec>("run") {
+    jvmArgumentProviders.add(CommandLineArgumentProvider { vectorJvmArgs })
+    workingDir = rootProject.projectDir
+}
+
+tasks.test {
+    systemProperty("java.awt.headless", "true")
+    jvmArgs(vectorJvmArgs)
+}
@@ -0,0 +1,206 @@
+package com.example.skinrecognition.trainer;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * CART 分类树：按基尼不纯度选择分裂，阈值取相邻两个不同特征值的中点。
+ * <p>
+ * 按层序生成节点，编号方式与 tree_model.txt 相同。每个节点对候选特征各排序一次
+ * （特征值和行号打包成 long 后用基本类型排序），复杂度 O(n log n · 特征数 · 深度)。
+ * 相同增益时取编号较小的特征和较小的阈值，结果只取决于数据和随机种子。
+ */
+public final class CartTrainer {
+
+    private final int maxDepth;
+    private final int minSamplesLeaf;
+    private final int maxFeatures;
+
+    /**
+     * @param maxDepth       最大深度，根为第 0 层
+     * @param minSamplesLeaf 每个叶子至少包含的样本数
+     * @param maxFeatures    每个节点随机挑选的候选特征数，0 表示使用全部特征（单棵树），不能超过样本的特征数
+     */
+    public CartTrainer(int maxDepth, int minSamplesLeaf, int maxFeatures) {
+        if (maxDepth < 0 || minSamplesLeaf <= 0 || maxFeatures < 0) {
+            throw new IllegalArgumentException("参数无效: maxDepth=" + maxDepth + ", minSamplesLeaf="
+                    + minSamplesLeaf + ", maxFeatures=" + maxFeatures);
+        }
+        this.maxDepth = maxDepth;
+        this.minSamplesLeaf = minSamplesLeaf;
+        this.maxFeatures = maxFeatures;
+    }
+
+    // 待处理的节点：rows[start, end) 是落在该节点的样本
+    private static final class Pending {
+        final int node;
+        final int start;
+        final int end;
+        final int depth;
+
+        Pending(int node, int start, int end, int depth) {
+            this.node = node;
+            this.start = start;
+            this.end = end;
+            this.depth = depth;
+        }
+    }
+
+    /**
+     * 用 rows 中的样本（可以重复，用于 bootstrap）训练一棵树。
+     *
+     * @param normalized 已归一化的样本
+     * @param random     只在 maxFeatures 大于 0 时使用
+     */
+    public TrainedTree fit(FeatureTable normalized, int[] rows, Random random) {
+        if (rows.length == 0) {
+            throw new IllegalArgumentException("没有样本");
+        }
+        int k = normalized.getClassCount();
+        int m = normalized.getFeatureCount();
+        if (maxFeatures > m) {
+            throw new IllegalArgumentException("候选特征数超过特征数: " + maxFeatures + " > " + m);
+        }
+        int[] order = rows.clone();
+        int[] scratch = new int[order.length];
+        long[] keys = new long[order.length];
+        int[] counts = new int[k];
+        int[] leftCounts = new int[k];
+        int[] candidates = new int[m];
+
+        TrainedTree tree = new TrainedTree(64);
+        ArrayDeque<Pending> queue = new ArrayDeque<>();
+        queue.add(new Pending(tree.add(), 0, order.length, 0));
+        while (!queue.isEmpty()) {
+            Pending p = queue.poll();
+            int n = p.end - p.start;
+            Arrays.fill(counts, 0);
+            for (int i = p.start; i < p.end; i++) {
+                counts[normalized.getLabel(order[i])]++;
+            }
+            int majority = argmax(counts);
+            if (p.depth >= maxDepth || n < 2 * minSamplesLeaf || counts[majority] == n) {
+                tree.setLeaf(p.node, majority);
+                continue;
+            }
+
+            // 最大化 Σ左²/n左 + Σ右²/n右，等价于最小化加权基尼不纯度
+            double parentScore = sumSquares(counts) / n;
+            double bestScore = parentScore + 1e-9;
+            int bestFeature = -1;
+            float bestThreshold = 0f;
+            int featureCount = pickFeatures(candidates, random);
+            for (int c = 0; c < featureCount; c++) {
+                int f = candidates[c];
+                for (int i = 0; i < n; i++) {
+                    int row = order[p.start + i];
+                    keys[i] = (long) sortableBits(normalized.get(row, f)) << 32 | row;
+                }
+                Arrays.sort(keys, 0, n);
+                Arrays.fill(leftCounts, 0);
+                for (int i = 0; i < n - 1; i++) {
+                    leftCounts[normalized.getLabel((int) keys[i])]++;
+                    int nl = i + 1;
+                    int nr = n - nl;
+                    if (nl < minSamplesLeaf || nr < minSamplesLeaf) {
+                        continue;
+                    }
+                    float a = normalized.get((int) keys[i], f);
+                    float b = normalized.get((int) keys[i + 1], f);
+                    if (!(a < b)) {
+                        continue;
+                    }
+                    double score = sumSquares(leftCounts) / nl + rightSumSquares(counts, leftCounts) / nr;
+                    if (score > bestScore) {
+                        bestScore = score;
+                        bestFeature = f;
+                        bestThreshold = midpoint(a, b);
+                    }
+                }
+            }
+            if (bestFeature < 0) {
+                tree.setLeaf(p.node, majority);
+                continue;
+            }
+
+            // 稳定划分：左子树的样本保持原来的相对顺序
+            int l = p.start;
+            int r = 0;
+            for (int i = p.start; i < p.end; i++) {
+                int row = order[i];
+                if (normalized.get(row, bestFeature) <= bestThreshold) {
+                    order[l++] = row;
+                } else {
+                    scratch[r++] = row;
+                }
+            }
+            System.arraycopy(scratch, 0, order, l, r);
+            int leftNode = tree.add();
+            int rightNode = tree.add();
+            tree.setSplit(p.node, bestFeature, bestThreshold, leftNode, rightNode);
+            queue.add(new Pending(leftNode, p.start, l, p.depth + 1));
+            queue.add(new Pending(rightNode, l, p.end, p.depth + 1));
+        }
+        return tree;
+    }
+
+    // 候选特征：全部，或随机挑 maxFeatures 个（按编号排序，保证相同增益时的取舍确定）
+    private int pickFeatures(int[] candidates, Random random) {
+        int m = candidates.length;
+        for (int f = 0; f < m; f++) {
+            candidates[f] = f;
+        }
+        if (maxFeatures == 0 || maxFeatures == m) {
+            return m;
+        }
+        for (int i = 0; i < maxFeatures; i++) {
+            int j = i + random.nextInt(m - i);
+            int t = candidates[i];
+            candidates[i] = candidates[j];
+            candidates[j] = t;
+        }
+        Arrays.sort(candidates, 0, maxFeatures);
+        return maxFeatures;
+    }
+
+    // a < b 时满足 a <= t < b 的阈值，尽量取中点
+    static float midpoint(float a, float b) {
+        float t = (float) (((double) a + b) / 2);
+        return t < b ? t : a;
+    }
+
+    // 与 float 大小顺序一致的有符号整数
+    private static int sortableBits(float value) {
+        int bits = Float.floatToIntBits(value);
+        return bits ^ ((bits >> 31) & 0x7FFFFFFF);
+    }
+
+    private static double sumSquares(int[] counts) {
+        double sum = 0;
+        for (int c : counts) {
+            sum += (double) c * c;
+        }
+        return sum;
+    }
+
+    private static double rightSumSquares(int[] total, int[] left) {
+        double sum = 0;
+        for (int c = 0; c < total.length; c++) {
+            double r = total[c] - left[c];
+            sum += r * r;
+        }
+        return sum;
+    }
+
+    // 票数相同时取下标较小的类别
+    static int argmax(int[] counts) {
+        int best = 0;
+        for (int c = 1; c < counts.length; c++) {
+            if (counts[c] > counts[best]) {
+                best = c;
+            }
+        }
+        return best;
+    }
+}
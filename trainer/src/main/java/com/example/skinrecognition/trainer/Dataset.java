@@ -0,0 +1,106 @@
+package com.example.skinrecognition.trainer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * 按目录组织的图片数据集：根目录下每个类别一个子目录（可以再有子目录），
+ * 类别下标按传入的类别名顺序，与 app 中 skinTypes 的顺序一致。
+ * <p>
+ * 只保存文件路径和类别，图片在提取特征时逐个读取。
+ */
+public final class Dataset {
+
+    // ImageIO 能直接解码的扩展名
+    private static final String[] EXTENSIONS = {".jpg", ".jpeg", ".png", ".bmp", ".gif"};
+
+    private final List<String> classNames;
+    private final List<File> files;
+    private final int[] labels;
+
+    private Dataset(List<String> classNames, List<File> files, int[] labels) {
+        this.classNames = classNames;
+        this.files = files;
+        this.labels = labels;
+    }
+
+    /**
+     * 扫描数据集目录。每个类别内的文件按路径排序，结果与文件系统的遍历顺序无关。
+     *
+     * @throws IOException 某个类别的目录不存在或为空时
+     */
+    public static Dataset scan(File root, List<String> classNames) throws IOException {
+        List<File> files = new ArrayList<>();
+        List<Integer> labels = new ArrayList<>();
+        for (int c = 0; c < classNames.size(); c++) {
+            File dir = new File(root, classNames.get(c));
+            if (!dir.isDirectory()) {
+                throw new IOException("找不到类别目录: " + dir);
+            }
+            List<File> images = new ArrayList<>();
+            try (Stream<Path> paths = Files.walk(dir.toPath())) {
+                paths.filter(Files::isRegularFile).filter(Dataset::isImage).forEach(p -> images.add(p.toFile()));
+            }
+            if (images.isEmpty()) {
+                throw new IOException("类别目录中没有图片: " + dir);
+            }
+            Collections.sort(images);
+            for (File image : images) {
+                files.add(image);
+                labels.add(c);
+            }
+        }
+        int[] labelArray = new int[labels.size()];
+        for (int i = 0; i < labelArray.length; i++) {
+            labelArray[i] = labels.get(i);
+        }
+        return new Dataset(Collections.unmodifiableList(new ArrayList<>(classNames)),
+                Collections.unmodifiableList(files), labelArray);
+    }
+
+    private static boolean isImage(Path path) {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        for (String extension : EXTENSIONS) {
+            if (name.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return files.size();
+    }
+
+    public int getClassCount() {
+        return classNames.size();
+    }
+
+    public List<String> getClassNames() {
+        return classNames;
+    }
+
+    public File getFile(int index) {
+        return files.get(index);
+    }
+
+    public int getLabel(int index) {
+        return labels[index];
+    }
+
+    // 各类别的图片数
+    public int[] classCounts() {
+        int[] counts = new int[classNames.size()];
+        for (int label : labels) {
+            counts[label]++;
+        }
+        return counts;
+    }
+}
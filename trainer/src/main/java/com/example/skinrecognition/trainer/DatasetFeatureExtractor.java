@@ -0,0 +1,173 @@
+package com.example.skinrecognition.trainer;
+
+import com.example.skinrecognition.core.batch.BatchAnalyzer;
+import com.example.skinrecognition.core.feature.DescriptorExtractor;
+import com.example.skinrecognition.core.feature.FeatureExtractor;
+import com.example.skinrecognition.core.feature.FeatureLayout;
+import com.example.skinrecognition.core.image.ArgbImage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 并行提取整个数据集的特征：每个线程一个 {@link FeatureExtractor}（扩展布局用
+ * {@link DescriptorExtractor} 再投影），逐张读取、解码、提取。
+ * 特征提取与 app 在分析分辨率 200 时的单线程提取相同；解码和缩放由传入的 Decoder 完成
+ * （通常是 ImageIO），与 app 的 BitmapFactory 预处理在像素上可能略有差别。
+ * <p>
+ * 同时在处理中的图片数不超过 maxInFlight，内存中只保留各图片的特征；
+ * 结果按数据集中的顺序存放，与线程数和完成顺序无关。
+ */
+public final class DatasetFeatureExtractor {
+
+    /** 进度回调，在工作线程中调用。 */
+    public interface Listener {
+        void onProgress(int done, int total);
+
+        void onImageFailed(File file, Exception error);
+    }
+
+    /** 提取结果和吞吐量统计。 */
+    public static final class Result {
+        private final FeatureTable table;
+        private final int failed;
+        private final long bytes;
+        private final long nanos;
+
+        Result(FeatureTable table, int failed, long bytes, long nanos) {
+            this.table = table;
+            this.failed = failed;
+            this.bytes = bytes;
+            this.nanos = nanos;
+        }
+
+        // 成功提取的样本，无法读取或解码的图片不在其中
+        public FeatureTable getTable() {
+            return table;
+        }
+
+        public int getFailedCount() {
+            return failed;
+        }
+
+        public long getBytesRead() {
+            return bytes;
+        }
+
+        public long getElapsedNanos() {
+            return nanos;
+        }
+
+        public double getImagesPerSecond() {
+            return (table.size() + failed) / Math.max(nanos / 1e9, 1e-9);
+        }
+    }
+
+    private final BatchAnalyzer.Decoder decoder;
+    private final FeatureLayout layout;
+    private final int threads;
+    private final int maxInFlight;
+
+    /** 提取 {@link FeatureLayout#BASIC} 布局的特征。 */
+    public DatasetFeatureExtractor(BatchAnalyzer.Decoder decoder, int threads, int maxInFlight) {
+        this(decoder, FeatureLayout.BASIC, threads, maxInFlight);
+    }
+
+    /**
+     * @param decoder     把文件内容解码并缩放到分析分辨率
+     * @param layout      提取的特征布局
+     * @param threads     工作线程数，一般取 CPU 核数
+     * @param maxInFlight 同时在处理中的图片数上限
+     */
+    public DatasetFeatureExtractor(BatchAnalyzer.Decoder decoder, FeatureLayout layout, int threads,
+                                   int maxInFlight) {
+        if (threads <= 0 || maxInFlight <= 0) {
+            throw new IllegalArgumentException("线程数和并发上限必须大于 0");
+        }
+        this.decoder = decoder;
+        this.layout = layout;
+        this.threads = threads;
+        this.maxInFlight = maxInFlight;
+    }
+
+    public Result extract(Dataset dataset, Listener listener) throws InterruptedException {
+        int n = dataset.size();
+        int m = layout.getFeatureCount();
+        float[] features = new float[n * m];
+        boolean[] ok = new boolean[n];
+        AtomicInteger done = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicLong bytes = new AtomicLong();
+        long start = System.nanoTime();
+
+        AtomicInteger index = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "extract-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        ThreadLocal<FeatureExtractor> extractors = ThreadLocal.withInitial(FeatureExtractor::new);
+        ThreadLocal<DescriptorExtractor> descriptors = ThreadLocal.withInitial(DescriptorExtractor::new);
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        try {
+            for (int i = 0; i < n; i++) {
+                inFlight.acquire();
+                int item = i;
+                pool.execute(() -> {
+                    File file = dataset.getFile(item);
+                    try {
+                        byte[] data = Files.readAllBytes(file.toPath());
+                        bytes.addAndGet(data.length);
+                        ArgbImage image = decoder.decode(data);
+                        if (image == null) {
+                            throw new IOException("无法解码图片");
+                        }
+                        // 与 app 相同：基本布局走 FeatureExtractor，其他布局从完整描述子投影
+                        float[] row = layout == FeatureLayout.BASIC
+                                ? extractors.get().extract(image.getPixels(), image.getWidth(), image.getHeight())
+                                : descriptors.get().extract(image.getPixels(), image.getWidth(), image.getHeight())
+                                        .project(layout);
+                        // 各任务写不相交的区间，最后拿回全部许可时对主线程可见
+                        System.arraycopy(row, 0, features, item * m, m);
+                        ok[item] = true;
+                    } catch (IOException | RuntimeException e) {
+                        failed.incrementAndGet();
+                        if (listener != null) {
+                            listener.onImageFailed(file, e);
+                        }
+                    } finally {
+                        int count = done.incrementAndGet();
+                        if (listener != null) {
+                            listener.onProgress(count, n);
+                        }
+                        inFlight.release();
+                    }
+                });
+            }
+            inFlight.acquire(maxInFlight);
+        } finally {
+            pool.shutdownNow();
+        }
+        long nanos = System.nanoTime() - start;
+
+        // 去掉失败的图片，保持原顺序
+        int kept = n - failed.get();
+        float[] table = new float[kept * m];
+        int[] labels = new int[kept];
+        int k = 0;
+        for (int i = 0; i < n; i++) {
+            if (ok[i]) {
+                System.arraycopy(features, i * m, table, k * m, m);
+                labels[k++] = dataset.getLabel(i);
+            }
+        }
+        return new Result(new FeatureTable(layout, table, labels, dataset.getClassCount()), failed.get(),
+                bytes.get(), nanos);
+    }
+}
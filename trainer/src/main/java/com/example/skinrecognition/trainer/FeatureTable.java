@@ -0,0 +1,94 @@
+package com.example.skinrecognition.trainer;
+
+import com.example.skinrecognition.core.feature.FeatureLayout;
+
+import java.util.Arrays;
+
+/**
+ * 训练样本：每行 {@link FeatureLayout#getFeatureCount()} 个特征，按行连续存放，外加类别。
+ * 布局随归一化参数一起导出，模型文件据此声明。
+ */
+public final class FeatureTable {
+
+    private final FeatureLayout layout;
+    private final int m;
+    private final float[] features;
+    private final int[] labels;
+    private final int classCount;
+
+    /** {@link FeatureLayout#BASIC} 布局的样本，传入的数组不复制。 */
+    public FeatureTable(float[] features, int[] labels, int classCount) {
+        this(FeatureLayout.BASIC, features, labels, classCount);
+    }
+
+    /** 传入的数组不复制。 */
+    public FeatureTable(FeatureLayout layout, float[] features, int[] labels, int classCount) {
+        int m = layout.getFeatureCount();
+        if (features.length != labels.length * m) {
+            throw new IllegalArgumentException("特征数与样本数不符: " + features.length + " != "
+                    + labels.length + " x " + m);
+        }
+        for (int label : labels) {
+            if (label < 0 || label >= classCount) {
+                throw new IllegalArgumentException("类别越界: " + label);
+            }
+        }
+        this.layout = layout;
+        this.m = m;
+        this.features = features;
+        this.labels = labels;
+        this.classCount = classCount;
+    }
+
+    public FeatureLayout getLayout() {
+        return layout;
+    }
+
+    // 每行的特征数
+    public int getFeatureCount() {
+        return m;
+    }
+
+    public int size() {
+        return labels.length;
+    }
+
+    public int getClassCount() {
+        return classCount;
+    }
+
+    public float get(int row, int feature) {
+        return features[row * m + feature];
+    }
+
+    public int getLabel(int row) {
+        return labels[row];
+    }
+
+    // 按行连续存放的特征，不复制
+    public float[] getFeatures() {
+        return features;
+    }
+
+    public int[] getLabels() {
+        return labels;
+    }
+
+    // 按下标取出部分样本（可以重复），顺序与 rows 相同
+    public FeatureTable subset(int[] rows) {
+        float[] f = new float[rows.length * m];
+        int[] l = new int[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            System.arraycopy(features, rows[i] * m, f, i * m, m);
+            l[i] = labels[rows[i]];
+        }
+        return new FeatureTable(layout, f, l, classCount);
+    }
+
+    // 用同一组归一化参数处理后的副本
+    public FeatureTable normalize(StandardScaler scaler) {
+        float[] normalized = Arrays.copyOf(features, features.length);
+        scaler.transform(normalized, size());
+        return new FeatureTable(layout, normalized, labels, classCount);
+    }
+}
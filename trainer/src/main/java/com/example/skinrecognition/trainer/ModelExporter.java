@@ -0,0 +1,136 @@
+package com.example.skinrecognition.trainer;
+
+import com.example.skinrecognition.core.feature.FeatureLayout;
+import com.example.skinrecognition.core.model.BinaryModelFormat;
+import com.example.skinrecognition.core.model.EnsembleModel;
+import com.example.skinrecognition.core.model.ModelConverter;
+import com.example.skinrecognition.core.model.ModelFormatException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 把训练结果写成 app 的 assets：tree_model.txt、scaler_mean.txt、scaler_std.txt、
+ * 由它们转换的 skin_model.bin，以及可选的 ensemble_model.txt。
+ * <p>
+ * 每个文件先写到临时文件再改名替换，中途失败不会留下半个模型。
+ */
+public final class ModelExporter {
+
+    private ModelExporter() {
+    }
+
+    /**
+     * 写出全部文件。forest 为 null 时删除目录中旧的 ensemble_model.txt，
+     * 否则它会和新的归一化参数搭配使用。
+     */
+    public static void export(File dir, StandardScaler scaler, TrainedTree tree, List<TrainedTree> forest,
+                              int classCount) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("无法创建目录: " + dir);
+        }
+        // 每个文本文件开头声明特征布局，读取时与特征数交叉检查
+        String descriptor = FeatureLayout.KEY + ":" + scaler.getLayout().getId() + "\n";
+        StringBuilder mean = new StringBuilder(descriptor);
+        StringBuilder std = new StringBuilder(descriptor);
+        for (float v : scaler.getMean()) {
+            mean.append(format(v)).append('\n');
+        }
+        for (float v : scaler.getStd()) {
+            std.append(format(v)).append('\n');
+        }
+        writeText(new File(dir, ModelConverter.MEAN_FILE), mean);
+        writeText(new File(dir, ModelConverter.STD_FILE), std);
+
+        StringBuilder text = new StringBuilder(descriptor);
+        appendTree(text, tree);
+        writeText(new File(dir, ModelConverter.TREE_FILE), text);
+        writeBytes(new File(dir, ModelConverter.BINARY_FILE),
+                BinaryModelFormat.toBytes(tree.toModel(scaler, classCount)));
+
+        File ensembleFile = new File(dir, ModelConverter.ENSEMBLE_FILE);
+        if (forest != null) {
+            StringBuilder ensemble = new StringBuilder();
+            ensemble.append("ensemble:forest\n");
+            ensemble.append("class_count:").append(classCount).append('\n');
+            ensemble.append("tree_count:").append(forest.size()).append('\n');
+            ensemble.append(descriptor);
+            for (TrainedTree t : forest) {
+                appendTree(ensemble, t);
+            }
+            writeText(ensembleFile, ensemble);
+        } else {
+            Files.deleteIfExists(ensembleFile.toPath());
+        }
+    }
+
+    // 与 TextModelReader 读取的格式相同
+    static void appendTree(StringBuilder out, TrainedTree tree) {
+        out.append("node_count:").append(tree.count).append('\n');
+        for (int i = 0; i < tree.count; i++) {
+            if (tree.type[i] == 0) {
+                out.append("0,-1,-1,-1,-1,").append(tree.label[i]).append('\n');
+            } else {
+                out.append("1,").append(tree.feature[i]).append(',').append(format(tree.threshold[i]))
+                        .append(',').append(tree.left[i]).append(',').append(tree.right[i]).append(",-1\n");
+            }
+        }
+    }
+
+    /**
+     * 与现有 assets 一样保留 10 位小数；这样读回的 float 与原值不同时（很小的值）
+     * 改用 Java 的最短表示，保证读回后阈值和归一化参数逐位不变。
+     */
+    static String format(float value) {
+        String fixed = String.format(Locale.ROOT, "%.10f", value);
+        return Float.parseFloat(fixed) == value ? fixed : Float.toString(value);
+    }
+
+    /** 把森林编译成推理用的集成模型，与从导出的文本读回的模型相同。 */
+    public static EnsembleModel toEnsemble(List<TrainedTree> forest, StandardScaler scaler,
+                                           int classCount) throws ModelFormatException {
+        int total = 0;
+        int[] sizes = new int[forest.size()];
+        for (int t = 0; t < sizes.length; t++) {
+            sizes[t] = forest.get(t).count;
+            total += sizes[t];
+        }
+        int[] type = new int[total];
+        int[] feature = new int[total];
+        float[] threshold = new float[total];
+        int[] left = new int[total];
+        int[] right = new int[total];
+        int[] label = new int[total];
+        int offset = 0;
+        for (TrainedTree t : forest) {
+            System.arraycopy(t.type, 0, type, offset, t.count);
+            System.arraycopy(t.feature, 0, feature, offset, t.count);
+            System.arraycopy(t.threshold, 0, threshold, offset, t.count);
+            System.arraycopy(t.left, 0, left, offset, t.count);
+            System.arraycopy(t.right, 0, right, offset, t.count);
+            System.arraycopy(t.label, 0, label, offset, t.count);
+            offset += t.count;
+        }
+        return EnsembleModel.compile(EnsembleModel.Kind.FOREST, sizes, type, feature, threshold, left, right,
+                label, scaler.getMean(), scaler.getStd(), classCount, 1f, null, scaler.getLayout());
+    }
+
+    private static void writeText(File file, CharSequence text) throws IOException {
+        writeBytes(file, text.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void writeBytes(File file, byte[] bytes) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp.toPath())) {
+            out.write(bytes);
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+}
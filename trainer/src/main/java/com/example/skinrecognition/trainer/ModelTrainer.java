@@ -0,0 +1,286 @@
+package com.example.skinrecognition.trainer;
+
+import com.example.skinrecognition.core.feature.AnalysisResolution;
+import com.example.skinrecognition.core.feature.FeatureLayout;
+import com.example.skinrecognition.core.model.EnsembleModel;
+import com.example.skinrecognition.core.model.ModelConverter;
+import com.example.skinrecognition.core.model.TreeModel;
+import com.example.skinrecognition.imageio.ImageIoDecoder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * 离线训练工具：遍历数据集目录，用与 app 相同的代码并行提取特征，拟合归一化参数和
+ * CART 决策树（可选随机森林），把模型写成 {@code PredictActivity} 使用的 assets。
+ * <p>
+ * 用法：{@code ./gradlew :trainer:run --args="--data <数据集目录>"}，数据集目录下每个类别一个子目录，
+ * 默认为 oily、dry、normal，对应 app 中的 油性、干性、中性。
+ */
+public final class ModelTrainer {
+
+    /** 命令行参数。 */
+    public static final class Options {
+        File data;
+        File out = new File("app/src/main/assets");
+        List<String> classes = Arrays.asList("oily", "dry", "normal");
+        // 与 app 默认的分析分辨率相同
+        int size = AnalysisResolution.SIZE_200.getSize();
+        // 导出模型的特征布局，hsv-lbp59-hist 只有 app 的单张分析支持
+        FeatureLayout layout = FeatureLayout.BASIC;
+        int threads = Runtime.getRuntime().availableProcessors();
+        // 0 表示只训练单棵树
+        int trees = 0;
+        int maxDepth = 12;
+        int minLeaf = 2;
+        // 森林每个节点的候选特征数，0 表示取 √特征数
+        int maxFeatures = 0;
+        // 留作验证的样本比例，为 0 时全部用于训练
+        double validation = 0.2;
+        long seed = 42;
+
+        /**
+         * --data、--out、--classes（逗号分隔）、--size、--layout、--threads、--trees、--max-depth、
+         * --min-leaf、--max-features、--validation、--seed。
+         */
+        public static Options parse(String[] args) {
+            Options options = new Options();
+            if (args.length % 2 != 0) {
+                throw new IllegalArgumentException("参数缺少取值: " + args[args.length - 1]);
+            }
+            for (int i = 0; i < args.length; i += 2) {
+                String value = args[i + 1];
+                switch (args[i]) {
+                    case "--data":
+                        options.data = new File(value);
+                        break;
+                    case "--out":
+                        options.out = new File(value);
+                        break;
+                    case "--classes":
+                        options.classes = Arrays.asList(value.split("\\s*,\\s*"));
+                        break;
+                    case "--size":
+                        options.size = Integer.parseInt(value);
+                        break;
+                    case "--layout":
+                        options.layout = FeatureLayout.forId(value);
+                        if (options.layout == null) {
+                            throw new IllegalArgumentException("未知特征布局: " + value);
+                        }
+                        break;
+                    case "--threads":
+                        options.threads = Integer.parseInt(value);
+                        break;
+                    case "--trees":
+                        options.trees = Integer.parseInt(value);
+                        break;
+                    case "--max-depth":
+                        options.maxDepth = Integer.parseInt(value);
+                        break;
+                    case "--min-leaf":
+                        options.minLeaf = Integer.parseInt(value);
+                        break;
+                    case "--max-features":
+                        options.maxFeatures = Integer.parseInt(value);
+                        break;
+                    case "--validation":
+                        options.validation = Double.parseDouble(value);
+                        break;
+                    case "--seed":
+                        options.seed = Long.parseLong(value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("未知参数: " + args[i]);
+                }
+            }
+            if (options.data == null) {
+                throw new IllegalArgumentException("缺少 --data");
+            }
+            if (options.validation < 0 || options.validation >= 1) {
+                throw new IllegalArgumentException("--validation 应在 [0, 1) 内: " + options.validation);
+            }
+            return options;
+        }
+    }
+
+    /** 一次训练的结果。 */
+    public static final class Report {
+        final TreeModel tree;
+        final EnsembleModel forest;
+        final int trainCount;
+        final int validationCount;
+        final float treeAccuracy;
+        final float forestAccuracy;
+
+        Report(TreeModel tree, EnsembleModel forest, int trainCount, int validationCount,
+               float treeAccuracy, float forestAccuracy) {
+            this.tree = tree;
+            this.forest = forest;
+            this.trainCount = trainCount;
+            this.validationCount = validationCount;
+            this.treeAccuracy = treeAccuracy;
+            this.forestAccuracy = forestAccuracy;
+        }
+    }
+
+    private ModelTrainer() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("用法: ModelTrainer --data <数据集目录> [--out <assets目录>] [--classes oily,dry,normal]"
+                    + " [--layout hsv-lbp-7|hsv-lbp59-hist] [--trees N] [--max-depth D] [--min-leaf L] [--validation 0.2] [--threads T] [--seed S]");
+            System.exit(2);
+            return;
+        }
+        run(options, System.out);
+    }
+
+    public static Report run(Options options, PrintStream log) throws IOException, InterruptedException {
+        Dataset dataset = Dataset.scan(options.data, options.classes);
+        log.printf(Locale.ROOT, "数据集 %s: %d 张图片，各类别 %s %s%n", options.data, dataset.size(),
+                dataset.getClassNames(), Arrays.toString(dataset.classCounts()));
+
+        // 1. 并行提取特征，每完成约 10% 报告一次
+        int step = Math.max(1, dataset.size() / 10);
+        DatasetFeatureExtractor extractor = new DatasetFeatureExtractor(new ImageIoDecoder(options.size),
+                options.layout, options.threads, options.threads * 2);
+        DatasetFeatureExtractor.Result extracted = extractor.extract(dataset, new DatasetFeatureExtractor.Listener() {
+            @Override
+            public void onProgress(int done, int total) {
+                if (done % step == 0 || done == total) {
+                    log.printf(Locale.ROOT, "  特征提取 %d/%d%n", done, total);
+                }
+            }
+
+            @Override
+            public void onImageFailed(File file, Exception error) {
+                log.println("  跳过 " + file + ": " + error.getMessage());
+            }
+        });
+        log.printf(Locale.ROOT, "特征提取: %d 张, 失败 %d 张, %.1f s, %.1f 张/s, %.1f MB/s（%d 线程）%n",
+                extracted.getTable().size(), extracted.getFailedCount(), extracted.getElapsedNanos() / 1e9,
+                extracted.getImagesPerSecond(),
+                extracted.getBytesRead() / 1e6 / Math.max(extracted.getElapsedNanos() / 1e9, 1e-9),
+                options.threads);
+
+        // 2. 按种子打乱后留出验证集
+        FeatureTable all = extracted.getTable();
+        int[] order = shuffled(all.size(), new Random(options.seed));
+        int validationCount = (int) Math.round(all.size() * options.validation);
+        int trainCount = all.size() - validationCount;
+        if (trainCount == 0) {
+            throw new IOException("没有可用于训练的样本");
+        }
+        FeatureTable train = all.subset(Arrays.copyOfRange(order, 0, trainCount));
+        FeatureTable validation = all.subset(Arrays.copyOfRange(order, trainCount, order.length));
+
+        // 3. 归一化参数和单棵树
+        StandardScaler scaler = StandardScaler.fit(train);
+        FeatureTable normalized = train.normalize(scaler);
+        int[] rows = new int[trainCount];
+        for (int i = 0; i < trainCount; i++) {
+            rows[i] = i;
+        }
+        long start = System.nanoTime();
+        TrainedTree trainedTree = new CartTrainer(options.maxDepth, options.minLeaf, 0)
+                .fit(normalized, rows, new Random(options.seed));
+        long treeNanos = System.nanoTime() - start;
+        TreeModel tree = trainedTree.toModel(scaler, dataset.getClassCount());
+        float treeAccuracy = accuracy(tree, null, validation);
+        log.printf(Locale.ROOT, "决策树: %d 个节点, 深度 %d, 训练 %.1f ms（%.0f 样本/s）, 训练集准确率 %.3f, "
+                        + "验证集准确率 %s%n",
+                tree.getNodeCount(), tree.getMaxDepth(), treeNanos / 1e6, trainCount / (treeNanos / 1e9),
+                accuracy(tree, null, train), formatAccuracy(treeAccuracy));
+
+        // 4. 可选的随机森林
+        List<TrainedTree> trainedForest = null;
+        EnsembleModel forest = null;
+        float forestAccuracy = Float.NaN;
+        if (options.trees > 0) {
+            int maxFeatures = options.maxFeatures > 0 ? options.maxFeatures
+                    : Math.max(1, (int) Math.round(Math.sqrt(normalized.getFeatureCount())));
+            start = System.nanoTime();
+            trainedForest = new RandomForestTrainer(new CartTrainer(options.maxDepth, options.minLeaf, maxFeatures),
+                    options.threads).fit(normalized, options.trees, options.seed);
+            long forestNanos = System.nanoTime() - start;
+            forest = ModelExporter.toEnsemble(trainedForest, scaler, dataset.getClassCount());
+            forestAccuracy = accuracy(null, forest, validation);
+            log.printf(Locale.ROOT, "随机森林: %d 棵树, %d 个节点, 训练 %.1f ms（%.0f 样本·树/s）, 验证集准确率 %s%n",
+                    forest.getTreeCount(), forest.getNodeCount(), forestNanos / 1e6,
+                    (double) trainCount * options.trees / (forestNanos / 1e9), formatAccuracy(forestAccuracy));
+        }
+
+        // 5. 导出后读回，确认与内存中的模型逐条预测一致
+        ModelExporter.export(options.out, scaler, trainedTree, trainedForest, dataset.getClassCount());
+        TreeModel exported = ModelConverter.readText(options.out, dataset.getClassCount());
+        EnsembleModel exportedForest = trainedForest != null ? ModelConverter.readEnsembleText(options.out) : null;
+        checkSame(tree, forest, exported, exportedForest, all);
+        log.printf(Locale.ROOT, "已写入 %s（模型指纹 %016x）%n", options.out.getAbsolutePath(), exported.getFingerprint());
+        return new Report(exported, exportedForest, trainCount, validationCount, treeAccuracy, forestAccuracy);
+    }
+
+    private static int[] shuffled(int n, Random random) {
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int t = order[i];
+            order[i] = order[j];
+            order[j] = t;
+        }
+        return order;
+    }
+
+    // 对原始特征预测的准确率，样本为空时为 NaN
+    static float accuracy(TreeModel tree, EnsembleModel forest, FeatureTable table) {
+        int n = table.size();
+        if (n == 0) {
+            return Float.NaN;
+        }
+        int[] predicted = predict(tree, forest, table);
+        int correct = 0;
+        for (int i = 0; i < n; i++) {
+            if (predicted[i] == table.getLabel(i)) {
+                correct++;
+            }
+        }
+        return (float) correct / n;
+    }
+
+    private static int[] predict(TreeModel tree, EnsembleModel forest, FeatureTable table) {
+        int n = table.size();
+        int[] labels = new int[n];
+        if (forest != null) {
+            forest.predictProbaBatch(table.getFeatures(), n, new float[n * forest.getClassCount()], labels);
+        } else {
+            tree.predictBatch(table.getFeatures(), n, labels);
+        }
+        return labels;
+    }
+
+    private static void checkSame(TreeModel tree, EnsembleModel forest, TreeModel exported,
+                                  EnsembleModel exportedForest, FeatureTable table) throws IOException {
+        if (!Arrays.equals(predict(tree, null, table), predict(exported, null, table))
+                || (forest != null && !Arrays.equals(predict(null, forest, table),
+                predict(null, exportedForest, table)))) {
+            throw new IOException("导出的模型与训练结果的预测不一致");
+        }
+    }
+
+    private static String formatAccuracy(float accuracy) {
+        return Float.isNaN(accuracy) ? "-" : String.format(Locale.ROOT, "%.3f", accuracy);
+    }
+}
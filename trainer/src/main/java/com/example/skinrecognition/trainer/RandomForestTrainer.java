@@ -0,0 +1,66 @@
+package com.example.skinrecognition.trainer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 随机森林：每棵树用 bootstrap 抽样的样本和每个节点随机挑选的特征训练，导出为
+ * {@code ensemble:forest}，推理时的概率为各树投票比例。
+ * <p>
+ * 各树在线程池中并行训练，第 t 棵树的随机数只由种子和 t 决定，结果与线程数无关。
+ */
+public final class RandomForestTrainer {
+
+    private final CartTrainer cart;
+    private final int threads;
+
+    public RandomForestTrainer(CartTrainer cart, int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("线程数必须大于 0: " + threads);
+        }
+        this.cart = cart;
+        this.threads = threads;
+    }
+
+    public List<TrainedTree> fit(FeatureTable normalized, int treeCount, long seed) throws InterruptedException {
+        AtomicInteger index = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "forest-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Callable<TrainedTree>> tasks = new ArrayList<>(treeCount);
+            for (int t = 0; t < treeCount; t++) {
+                long treeSeed = seed * 31 + t;
+                tasks.add(() -> {
+                    Random random = new Random(treeSeed);
+                    int n = normalized.size();
+                    int[] rows = new int[n];
+                    for (int i = 0; i < n; i++) {
+                        rows[i] = random.nextInt(n);
+                    }
+                    return cart.fit(normalized, rows, random);
+                });
+            }
+            List<TrainedTree> trees = new ArrayList<>(treeCount);
+            for (Future<TrainedTree> future : pool.invokeAll(tasks)) {
+                try {
+                    trees.add(future.get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("训练失败", e.getCause());
+                }
+            }
+            return trees;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.skinrecognition.trainer;
+
+import com.example.skinrecognition.core.feature.FeatureLayout;
+
+/**
+ * 按特征的均值和总体标准差归一化（与 scikit-learn 的 StandardScaler 相同），
+ * 结果写成 scaler_mean.txt 和 scaler_std.txt。
+ * <p>
+ * 统计量用 double 累加后取 float，归一化的算式与 {@code TreeModel} 中完全相同，
+ * 训练时看到的特征值就是推理时的值，阈值两侧的样本不会因为舍入换边。
+ */
+public final class StandardScaler {
+
+    private final FeatureLayout layout;
+    private final float[] mean;
+    private final float[] std;
+
+    StandardScaler(FeatureLayout layout, float[] mean, float[] std) {
+        this.layout = layout;
+        this.mean = mean;
+        this.std = std;
+    }
+
+    /**
+     * 方差为 0 的特征标准差记为 1，归一化后全为 0。
+     * <p>
+     * 色调几乎不变的图片上，{@code FeatureExtractor} 的标准差会因舍入得到 NaN（app 中同样如此），
+     * 统计时跳过非有限值；推理时 NaN 与任何阈值比较都走右子树，训练时的划分方式相同。
+     */
+    public static StandardScaler fit(FeatureTable table) {
+        int m = table.getFeatureCount();
+        int n = table.size();
+        if (n == 0) {
+            throw new IllegalArgumentException("没有样本");
+        }
+        double[] sum = new double[m];
+        int[] count = new int[m];
+        for (int i = 0; i < n; i++) {
+            for (int f = 0; f < m; f++) {
+                float v = table.get(i, f);
+                if (Float.isFinite(v)) {
+                    sum[f] += v;
+                    count[f]++;
+                }
+            }
+        }
+        float[] mean = new float[m];
+        double[] meanD = new double[m];
+        for (int f = 0; f < m; f++) {
+            meanD[f] = count[f] > 0 ? sum[f] / count[f] : 0;
+            mean[f] = (float) meanD[f];
+        }
+        // 第二遍计算平方差，避免大均值时的抵消误差
+        double[] sq = new double[m];
+        for (int i = 0; i < n; i++) {
+            for (int f = 0; f < m; f++) {
+                float v = table.get(i, f);
+                if (Float.isFinite(v)) {
+                    double d = v - meanD[f];
+                    sq[f] += d * d;
+                }
+            }
+        }
+        float[] std = new float[m];
+        for (int f = 0; f < m; f++) {
+            float s = count[f] > 0 ? (float) Math.sqrt(sq[f] / count[f]) : 0f;
+            std[f] = s > 0f ? s : 1f;
+        }
+        return new StandardScaler(table.getLayout(), mean, std);
+    }
+
+    // 拟合时样本的特征布局，导出的模型文件据此声明
+    public FeatureLayout getLayout() {
+        return layout;
+    }
+
+    public float[] getMean() {
+        return mean.clone();
+    }
+
+    public float[] getStd() {
+        return std.clone();
+    }
+
+    // 原地归一化 count 行特征
+    public void transform(float[] features, int count) {
+        int m = mean.length;
+        for (int i = 0; i < count; i++) {
+            for (int f = 0; f < m; f++) {
+                features[i * m + f] = (features[i * m + f] - mean[f]) / std[f];
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.skinrecognition.trainer;
+
+import com.example.skinrecognition.core.model.ModelFormatException;
+import com.example.skinrecognition.core.model.TreeModel;
+
+import java.util.Arrays;
+
+/**
+ * 训练得到的一棵树，各列与 tree_model.txt 相同：type 为 0 的叶子只有 label，
+ * type 为 1 的内部节点在归一化特征 {@code <= threshold} 时走左子树。节点按层序编号，根为 0。
+ */
+public final class TrainedTree {
+
+    int count;
+    int[] type;
+    int[] feature;
+    float[] threshold;
+    int[] left;
+    int[] right;
+    int[] label;
+
+    TrainedTree(int capacity) {
+        type = new int[capacity];
+        feature = new int[capacity];
+        threshold = new float[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        label = new int[capacity];
+    }
+
+    // 追加一个尚未确定的节点，返回编号
+    int add() {
+        if (count == type.length) {
+            int capacity = count * 2;
+            type = Arrays.copyOf(type, capacity);
+            feature = Arrays.copyOf(feature, capacity);
+            threshold = Arrays.copyOf(threshold, capacity);
+            left = Arrays.copyOf(left, capacity);
+            right = Arrays.copyOf(right, capacity);
+            label = Arrays.copyOf(label, capacity);
+        }
+        return count++;
+    }
+
+    void setLeaf(int node, int leafLabel) {
+        type[node] = 0;
+        feature[node] = -1;
+        threshold[node] = -1f;
+        left[node] = -1;
+        right[node] = -1;
+        label[node] = leafLabel;
+    }
+
+    void setSplit(int node, int splitFeature, float splitThreshold, int leftChild, int rightChild) {
+        type[node] = 1;
+        feature[node] = splitFeature;
+        threshold[node] = splitThreshold;
+        left[node] = leftChild;
+        right[node] = rightChild;
+        label[node] = -1;
+    }
+
+    public int getNodeCount() {
+        return count;
+    }
+
+    // 编译成推理用的模型，与从导出的文本读回的模型相同
+    public TreeModel toModel(StandardScaler scaler, int classCount) throws ModelFormatException {
+        return TreeModel.compile(Arrays.copyOf(type, count), Arrays.copyOf(feature, count),
+                Arrays.copyOf(threshold, count), Arrays.copyOf(left, count), Arrays.copyOf(right, count),
+                Arrays.copyOf(label, count), scaler.getMean(), scaler.getStd(), classCount,
+                scaler.getLayout());
+    }
+}
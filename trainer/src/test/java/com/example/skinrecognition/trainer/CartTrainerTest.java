@@ -0,0 +1,113 @@
+package com.example.skinrecognition.trainer;
+
+import com.example.skinrecognition.core.feature.FeatureLayout;
+import com.example.skinrecognition.core.model.EnsembleModel;
+import com.example.skinrecognition.core.model.TextModelReader;
+import com.example.skinrecognition.core.model.TreeModel;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CartTrainerTest {
+
+    private static final int M = FeatureLayout.BASIC.getFeatureCount();
+
+    // 类别由特征 2 和特征 5 的两个阈值决定，其余特征是噪声
+    private static FeatureTable synthetic(Random random, int n) {
+        float[] features = new float[n * M];
+        int[] labels = new int[n];
+        for (int i = 0; i < n; i++) {
+            for (int f = 0; f < M; f++) {
+                features[i * M + f] = random.nextFloat() * 100 + f * 1000;
+            }
+            float a = features[i * M + 2] - 2000;
+            float b = features[i * M + 5] - 5000;
+            labels[i] = a < 30 ? 0 : b < 60 ? 1 : 2;
+        }
+        return new FeatureTable(features, labels, 3);
+    }
+
+    private static int[] allRows(int n) {
+        int[] rows = new int[n];
+        for (int i = 0; i < n; i++) {
+            rows[i] = i;
+        }
+        return rows;
+    }
+
+    @Test
+    public void fitsSeparableDataAndRoundTripsThroughText() throws IOException {
+        FeatureTable table = synthetic(new Random(1), 600);
+        StandardScaler scaler = StandardScaler.fit(table);
+        TrainedTree trained = new CartTrainer(10, 1, 0).fit(table.normalize(scaler), allRows(600), new Random(0));
+        TreeModel model = trained.toModel(scaler, 3);
+        for (int i = 0; i < table.size(); i++) {
+            assertEquals(table.getLabel(i), model.predict(table.getFeatures(), i * M));
+        }
+        // 根节点按层序编号，子节点依次为 1、2
+        assertEquals(1, trained.left[0]);
+        assertEquals(2, trained.right[0]);
+
+        StringBuilder text = new StringBuilder();
+        ModelExporter.appendTree(text, trained);
+        StringBuilder mean = new StringBuilder();
+        StringBuilder std = new StringBuilder();
+        for (int f = 0; f < M; f++) {
+            mean.append(ModelExporter.format(scaler.getMean()[f])).append('\n');
+            std.append(ModelExporter.format(scaler.getStd()[f])).append('\n');
+        }
+        TreeModel reloaded = TextModelReader.read(stream(text), stream(mean), stream(std), 3);
+        assertEquals(model.getFingerprint(), reloaded.getFingerprint());
+    }
+
+    @Test
+    public void forestIsIndependentOfThreadCount() throws Exception {
+        FeatureTable table = synthetic(new Random(2), 300);
+        StandardScaler scaler = StandardScaler.fit(table);
+        FeatureTable normalized = table.normalize(scaler);
+        CartTrainer cart = new CartTrainer(6, 2, 3);
+        List<TrainedTree> one = new RandomForestTrainer(cart, 1).fit(normalized, 8, 7);
+        List<TrainedTree> four = new RandomForestTrainer(cart, 4).fit(normalized, 8, 7);
+        EnsembleModel a = ModelExporter.toEnsemble(one, scaler, 3);
+        EnsembleModel b = ModelExporter.toEnsemble(four, scaler, 3);
+        assertEquals(a.getFingerprint(), b.getFingerprint());
+
+        float[] proba = new float[300 * 3];
+        int[] labels = new int[300];
+        a.predictProbaBatch(table.getFeatures(), 300, proba, labels);
+        int correct = 0;
+        for (int i = 0; i < 300; i++) {
+            correct += labels[i] == table.getLabel(i) ? 1 : 0;
+        }
+        assertTrue("准确率 " + correct, correct > 270);
+    }
+
+    @Test
+    public void thresholdSeparatesAdjacentFloats() {
+        float a = 1f;
+        float b = Math.nextUp(a);
+        float t = CartTrainer.midpoint(a, b);
+        assertTrue(a <= t && t < b);
+        assertEquals(t, Float.parseFloat(ModelExporter.format(t)), 0f);
+        float small = 1.2345678e-7f;
+        assertEquals(small, Float.parseFloat(ModelExporter.format(small)), 0f);
+        // 方差为 0 的特征标准差取 1
+        float[] ones = new float[M];
+        Arrays.fill(ones, 1f);
+        assertArrayEquals(ones, StandardScaler.fit(new FeatureTable(new float[M * 2], new int[2], 1)).getStd(), 0f);
+    }
+
+    private static ByteArrayInputStream stream(CharSequence text) {
+        return new ByteArrayInputStream(text.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.skinrecognition.trainer;
+
+import com.example.skinrecognition.core.feature.DescriptorExtractor;
+import com.example.skinrecognition.core.feature.FeatureExtractor;
+import com.example.skinrecognition.core.feature.FeatureLayout;
+import com.example.skinrecognition.core.image.ArgbImage;
+import com.example.skinrecognition.core.model.BinaryModelFormat;
+import com.example.skinrecognition.core.model.ModelConverter;
+import com.example.skinrecognition.core.model.TreeModel;
+import com.example.skinrecognition.imageio.ImageIoDecoder;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 在临时目录中生成三类颜色不同的小图片，完整运行一次训练和导出。
+ */
+public class ModelTrainerTest {
+
+    private static final int[] BASE_COLORS = {0xE0A080, 0xC08060, 0x704838};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File createDataset() throws IOException {
+        File root = folder.newFolder("data");
+        String[] classes = {"oily", "dry", "normal"};
+        Random random = new Random(3);
+        for (int c = 0; c < classes.length; c++) {
+            File dir = new File(root, classes[c]);
+            assertTrue(dir.mkdirs());
+            for (int i = 0; i < 8; i++) {
+                BufferedImage image = new BufferedImage(48, 48, BufferedImage.TYPE_INT_RGB);
+                for (int y = 0; y < 48; y++) {
+                    for (int x = 0; x < 48; x++) {
+                        int noise = random.nextInt(16 + 24 * c);
+                        image.setRGB(x, y, BASE_COLORS[c] + (noise << 16) + (noise << 8) + noise);
+                    }
+                }
+                ImageIO.write(image, "png", new File(dir, "img" + i + ".png"));
+            }
+        }
+        // 无法解码的文件被跳过
+        Files.write(new File(root, "dry/broken.jpg").toPath(), new byte[]{1, 2, 3});
+        return root;
+    }
+
+    @Test
+    public void trainsAndExportsAssetsTheAppCanLoad() throws Exception {
+        File data = createDataset();
+        File out = new File(folder.getRoot(), "assets");
+        // 旧的集成模型和新的归一化参数不匹配，训练单棵树时应当删除
+        assertTrue(out.mkdirs());
+        Files.write(new File(out, ModelConverter.ENSEMBLE_FILE).toPath(), new byte[]{1});
+
+        ModelTrainer.Options options = ModelTrainer.Options.parse(new String[]{
+                "--data", data.getPath(), "--out", out.getPath(), "--size", "48", "--threads", "3",
+                "--validation", "0.25"});
+        ModelTrainer.Report report = ModelTrainer.run(options, new PrintStream(new ByteArrayOutputStream()));
+        assertEquals(18, report.trainCount);
+        assertEquals(6, report.validationCount);
+        assertFalse(new File(out, ModelConverter.ENSEMBLE_FILE).exists());
+
+        TreeModel model = ModelConverter.readText(out, 3);
+        assertEquals(report.tree.getFingerprint(), model.getFingerprint());
+        assertEquals(FeatureLayout.BASIC, model.getLayout());
+        assertArrayEquals(BinaryModelFormat.toBytes(model),
+                Files.readAllBytes(new File(out, ModelConverter.BINARY_FILE).toPath()));
+
+        // 用与训练相同的解码和提取流程，训练集内的图片应当全部分对
+        ImageIoDecoder decoder = new ImageIoDecoder(48);
+        FeatureExtractor extractor = new FeatureExtractor();
+        File[] oily = new File(data, "oily").listFiles();
+        File[] normal = new File(data, "normal").listFiles();
+        int oilyCorrect = 0;
+        int normalCorrect = 0;
+        for (int i = 0; i < 8; i++) {
+            oilyCorrect += predict(model, decoder, extractor, oily[i]) == 0 ? 1 : 0;
+            normalCorrect += predict(model, decoder, extractor, normal[i]) == 2 ? 1 : 0;
+        }
+        assertTrue(oilyCorrect >= 6 && normalCorrect >= 6);
+    }
+
+    @Test
+    public void exportsForestWhenRequested() throws Exception {
+        File data = createDataset();
+        File out = new File(folder.getRoot(), "assets");
+        ModelTrainer.Options options = ModelTrainer.Options.parse(new String[]{
+                "--data", data.getPath(), "--out", out.getPath(), "--size", "48", "--trees", "5",
+                "--validation", "0"});
+        ModelTrainer.Report report = ModelTrainer.run(options, new PrintStream(new ByteArrayOutputStream()));
+        assertEquals(24, report.trainCount);
+        assertEquals(5, ModelConverter.readEnsembleText(out).getTreeCount());
+        assertEquals(FeatureLayout.BASIC, ModelConverter.readEnsembleText(out).getLayout());
+        assertEquals(report.forest.getFingerprint(), ModelConverter.readEnsembleText(out).getFingerprint());
+    }
+
+    @Test
+    public void exportsExtendedLayoutWhenRequested() throws Exception {
+        File data = createDataset();
+        File out = new File(folder.getRoot(), "assets");
+        ModelTrainer.Options options = ModelTrainer.Options.parse(new String[]{
+                "--data", data.getPath(), "--out", out.getPath(), "--size", "48", "--layout", "hsv-lbp59-hist",
+                "--trees", "3", "--validation", "0"});
+        ModelTrainer.Report report = ModelTrainer.run(options, new PrintStream(new ByteArrayOutputStream()));
+
+        TreeModel model = ModelConverter.readText(out, 3);
+        assertEquals(report.tree.getFingerprint(), model.getFingerprint());
+        assertEquals(FeatureLayout.EXTENDED, model.getLayout());
+        assertEquals(FeatureLayout.EXTENDED, ModelConverter.readEnsembleText(out).getLayout());
+        assertArrayEquals(BinaryModelFormat.toBytes(model),
+                Files.readAllBytes(new File(out, ModelConverter.BINARY_FILE).toPath()));
+
+        // 与 app 相同，扩展布局从完整描述子投影
+        ImageIoDecoder decoder = new ImageIoDecoder(48);
+        File[] oily = new File(data, "oily").listFiles();
+        int correct = 0;
+        for (File file : oily) {
+            ArgbImage image = decoder.decode(Files.readAllBytes(file.toPath()));
+            float[] features = new DescriptorExtractor().extract(image.getPixels(), image.getWidth(),
+                    image.getHeight()).project(FeatureLayout.EXTENDED);
+            correct += model.predict(features) == 0 ? 1 : 0;
+        }
+        assertTrue(correct >= 6);
+
+        try {
+            ModelTrainer.Options.parse(new String[]{"--data", data.getPath(), "--layout", "rgb"});
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void extractionOrderDoesNotDependOnThreads() throws Exception {
+        Dataset dataset = Dataset.scan(createDataset(), Arrays.asList("oily", "dry", "normal"));
+        assertEquals(25, dataset.size());
+        DatasetFeatureExtractor.Result one = new DatasetFeatureExtractor(new ImageIoDecoder(48), 1, 1)
+                .extract(dataset, null);
+        DatasetFeatureExtractor.Result four = new DatasetFeatureExtractor(new ImageIoDecoder(48), 4, 8)
+                .extract(dataset, null);
+        assertEquals(1, one.getFailedCount());
+        assertArrayEquals(one.getTable().getFeatures(), four.getTable().getFeatures(), 0f);
+        assertArrayEquals(one.getTable().getLabels(), four.getTable().getLabels());
+    }
+
+    private static int predict(TreeModel model, ImageIoDecoder decoder, FeatureExtractor extractor, File file)
+            throws IOException {
+        ArgbImage image = decoder.decode(Files.readAllBytes(file.toPath()));
+        return model.predict(extractor.extract(image.getPixels(), image.getWidth(), image.getHeight()));
+    }
+}
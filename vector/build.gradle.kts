@@ -0,0 +1,22 @@
+plugins {
+    `java-library`
+}
+
+// Vector API 需要 JDK 17 的 jdk.incubator.vector 模块；core 仍是 Java 11，Android 上不使用本模块
+java {
+    sourceCompatibility = JavaVersion.VERSION_17
+    targetCompatibility = JavaVersion.VERSION_17
+}
+
+dependencies {
+    implementation(project(":core"))
+    testImplementation(libs.junit)
+}
+
+tasks.withType<JavaCompile>().configureEach {
+    options.compilerArgs.addAll(listOf("--add-modules", "jdk.incubator.vector"))
+}
+
+tasks.test {
+    jvmArgs("--add-modules", "jdk.incubator.vector")
+}
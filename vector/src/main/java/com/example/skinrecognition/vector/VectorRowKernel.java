@@ -0,0 +1,142 @@
+package com.example.skinrecognition.vector;
+
+import com.example.skinrecognition.core.feature.RowKernel;
+import com.example.skinrecognition.core.feature.RowKernels;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * 用 JDK Vector API 一次处理一组像素的 {@link RowKernel}，通过 ServiceLoader 注册，
+ * 运行时需要 {@code --add-modules jdk.incubator.vector}。
+ * <p>
+ * 灰度按 int 通道计算，除以 3 改为乘 683 再右移 11 位（和不超过 765 时结果相同）；
+ * HSV 用掩码代替扇区分支，按通道做 float 除法（IEEE 除法逐通道正确舍入，与标量公式逐位相同）；
+ * LBP 把灰度字节扩展成 int 后与中心比较，8 个邻居的比较结果按掩码累加成编码。
+ * 每行末尾不足一组的像素交给标量实现，结果与标量实现完全相同。
+ */
+public final class VectorRowKernel implements RowKernel {
+
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    // 与 INTS 通道数相同的字节向量，扩展后正好填满一个 int 向量
+    private static final VectorSpecies<Byte> BYTES =
+            VectorSpecies.of(byte.class, VectorShape.forBitSize(INTS.vectorBitSize() / 4));
+    private static final VectorSpecies<Float> FLOATS = VectorSpecies.of(float.class, INTS.vectorShape());
+    // 少于 4 个通道时没有收益
+    private static final int MIN_LANES = 4;
+
+    private final RowKernel scalar = RowKernels.scalar();
+
+    public VectorRowKernel() {
+        if (INTS.length() < MIN_LANES) {
+            throw new UnsupportedOperationException("SIMD 通道数不足: " + INTS);
+        }
+    }
+
+    @Override
+    public void gray(int[] argb, byte[] gray, int from, int to) {
+        int k = from;
+        for (int bound = from + INTS.loopBound(to - from); k < bound; k += INTS.length()) {
+            IntVector p = IntVector.fromArray(INTS, argb, k);
+            IntVector sum = p.lanewise(VectorOperators.LSHR, 16).and(0xFF)
+                    .add(p.lanewise(VectorOperators.LSHR, 8).and(0xFF))
+                    .add(p.and(0xFF));
+            sum.mul(683).lanewise(VectorOperators.LSHR, 11)
+                    .convertShape(VectorOperators.I2B, BYTES, 0)
+                    .reinterpretAsBytes()
+                    .intoArray(gray, k);
+        }
+        scalar.gray(argb, gray, k, to);
+    }
+
+    @Override
+    public void hsv(int[] argb, int from, int to, float[] h, float[] s, float[] v) {
+        for (int k = from; k < to; k += INTS.length()) {
+            // 最后一组不足时只处理范围内的通道
+            VectorMask<Integer> lanes = INTS.indexInRange(k, to);
+            IntVector p = IntVector.fromArray(INTS, argb, k, lanes);
+            IntVector r = p.lanewise(VectorOperators.LSHR, 16).and(0xFF);
+            IntVector g = p.lanewise(VectorOperators.LSHR, 8).and(0xFF);
+            IntVector b = p.and(0xFF);
+            IntVector max = r.max(g).max(b);
+            IntVector delta = max.sub(r.min(g).min(b));
+            VectorMask<Integer> rMax = r.eq(max);
+            VectorMask<Integer> gMax = g.eq(max).andNot(rMax);
+            VectorMask<Float> gray = delta.eq(0).cast(FLOATS);
+
+            // 扇区：r 最大 (g-b)/Δ，g 最大 2+(b-r)/Δ，否则 4+(r-g)/Δ；灰色像素的 h、s 为 0
+            IntVector numerator = r.sub(g).blend(b.sub(r), gMax).blend(g.sub(b), rMax);
+            FloatVector offset = FloatVector.broadcast(FLOATS, 4f)
+                    .blend(2f, gMax.cast(FLOATS)).blend(0f, rMax.cast(FLOATS));
+            FloatVector fMax = (FloatVector) max.convert(VectorOperators.I2F, 0);
+            FloatVector fDelta = (FloatVector) delta.convert(VectorOperators.I2F, 0);
+            FloatVector hue = offset.add(((FloatVector) numerator.convert(VectorOperators.I2F, 0)).div(fDelta))
+                    .mul(60f);
+            hue = hue.add(360f, hue.lt(0f)).blend(0f, gray);
+
+            VectorMask<Float> store = lanes.cast(FLOATS);
+            int at = k - from;
+            hue.intoArray(h, at, store);
+            fDelta.div(fMax).blend(0f, gray).intoArray(s, at, store);
+            fMax.div(255f).intoArray(v, at, store);
+        }
+    }
+
+    @Override
+    public long lbpRow(byte[] gray, int width, int row, int colStart, int colEnd) {
+        int center0 = row * width;
+        IntVector acc = IntVector.zero(INTS);
+        int j = colStart;
+        for (int bound = colStart + INTS.loopBound(colEnd - colStart); j < bound; j += INTS.length()) {
+            acc = acc.add(codes(gray, width, center0 + j));
+        }
+        return acc.reduceLanesToLong(VectorOperators.ADD) + scalar.lbpRow(gray, width, row, j, colEnd);
+    }
+
+    @Override
+    public void lbpCodes(byte[] gray, int width, int row, int colStart, int colEnd, int[] codes) {
+        int lanes = INTS.length();
+        if (colEnd - colStart < lanes) {
+            scalar.lbpCodes(gray, width, row, colStart, colEnd, codes);
+            return;
+        }
+        int center0 = row * width;
+        for (int j = colStart; j < colEnd; j += lanes) {
+            // 最后一组不足时向左对齐到行尾，重叠部分写入相同的值
+            int at = Math.min(j, colEnd - lanes);
+            codes(gray, width, center0 + at).intoArray(codes, at - colStart);
+        }
+    }
+
+    // 从 k 开始一组像素的 LBP 编码
+    private static IntVector codes(byte[] gray, int width, int k) {
+        int up = k - width;
+        int down = k + width;
+        IntVector center = load(gray, k);
+        IntVector code = IntVector.zero(INTS);
+        code = code.add(1 << 7, load(gray, up - 1).compare(VectorOperators.GE, center));
+        code = code.add(1 << 6, load(gray, up).compare(VectorOperators.GE, center));
+        code = code.add(1 << 5, load(gray, up + 1).compare(VectorOperators.GE, center));
+        code = code.add(1 << 4, load(gray, k + 1).compare(VectorOperators.GE, center));
+        code = code.add(1 << 3, load(gray, down + 1).compare(VectorOperators.GE, center));
+        code = code.add(1 << 2, load(gray, down).compare(VectorOperators.GE, center));
+        code = code.add(1 << 1, load(gray, down - 1).compare(VectorOperators.GE, center));
+        return code.add(1, load(gray, k - 1).compare(VectorOperators.GE, center));
+    }
+
+    // 读取一组灰度字节，按无符号扩展成 int
+    private static IntVector load(byte[] gray, int offset) {
+        return ((IntVector) ByteVector.fromArray(BYTES, gray, offset)
+                .convertShape(VectorOperators.B2I, INTS, 0)).and(0xFF);
+    }
+
+    @Override
+    public String getName() {
+        return "vector-" + INTS.length() + "x32";
+    }
+}
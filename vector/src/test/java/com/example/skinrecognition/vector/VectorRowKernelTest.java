@@ -0,0 +1,105 @@
+package com.example.skinrecognition.vector;
+
+import com.example.skinrecognition.core.feature.FeatureExtractor;
+import com.example.skinrecognition.core.feature.RowKernel;
+import com.example.skinrecognition.core.feature.RowKernels;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class VectorRowKernelTest {
+
+    private final RowKernel vector = new VectorRowKernel();
+    private final RowKernel scalar = RowKernels.scalar();
+
+    @Test
+    public void grayMatchesScalarForEveryChannelSum() {
+        // r+g+b 取遍 0..765，覆盖乘法代替除法的全部情况
+        int[] pixels = new int[766];
+        for (int s = 0; s < pixels.length; s++) {
+            int r = Math.min(s, 255);
+            int g = Math.min(s - r, 255);
+            int b = s - r - g;
+            pixels[s] = 0xFF000000 | r << 16 | g << 8 | b;
+        }
+        byte[] expected = new byte[pixels.length];
+        byte[] actual = new byte[pixels.length];
+        scalar.gray(pixels, expected, 0, pixels.length);
+        vector.gray(pixels, actual, 0, pixels.length);
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    public void hsvMatchesScalarForEveryColor() {
+        // 逐块覆盖全部 2^24 种颜色，长度不是通道数的整数倍，末尾走掩码
+        int chunk = 4099;
+        int[] pixels = new int[chunk];
+        float[][] expected = {new float[chunk], new float[chunk], new float[chunk]};
+        float[][] actual = {new float[chunk], new float[chunk], new float[chunk]};
+        for (int start = 0; start < 1 << 24; start += chunk) {
+            int n = Math.min(chunk, (1 << 24) - start);
+            for (int k = 0; k < n; k++) {
+                pixels[k] = 0xFF000000 | (start + k);
+            }
+            scalar.hsv(pixels, 0, n, expected[0], expected[1], expected[2]);
+            vector.hsv(pixels, 0, n, actual[0], actual[1], actual[2]);
+            for (int c = 0; c < 3; c++) {
+                assertArrayEquals("rgb 0x" + Integer.toHexString(start), expected[c], actual[c], 0f);
+            }
+        }
+    }
+
+    @Test
+    public void lbpRowMatchesScalarForOddWidths() {
+        Random random = new Random(21);
+        for (int width : new int[]{3, 4, 17, 33, 64, 101}) {
+            int height = 5;
+            int[] pixels = random.ints(width * height).toArray();
+            byte[] gray = new byte[pixels.length];
+            vector.gray(pixels, gray, 0, pixels.length);
+            for (int i = 1; i < height - 1; i++) {
+                assertEquals("width " + width, scalar.lbpRow(gray, width, i, 1, width - 1),
+                        vector.lbpRow(gray, width, i, 1, width - 1));
+            }
+            // 只处理部分列（分块提取时的用法）
+            assertEquals(scalar.lbpRow(gray, width, 2, 1, width / 2 + 1),
+                    vector.lbpRow(gray, width, 2, 1, width / 2 + 1));
+        }
+    }
+
+    @Test
+    public void lbpCodesMatchScalarForOddRanges() {
+        Random random = new Random(22);
+        int width = 101;
+        int[] pixels = random.ints(width * 4).toArray();
+        byte[] gray = new byte[pixels.length];
+        vector.gray(pixels, gray, 0, pixels.length);
+        int[] expected = new int[width];
+        int[] actual = new int[width];
+        for (int[] range : new int[][]{{1, width - 1}, {1, 4}, {5, 38}, {17, 99}, {50, 50}}) {
+            scalar.lbpCodes(gray, width, 2, range[0], range[1], expected);
+            vector.lbpCodes(gray, width, 2, range[0], range[1], actual);
+            assertArrayEquals("columns " + range[0] + ".." + range[1], expected, actual);
+        }
+    }
+
+    @Test
+    public void featuresMatchScalarBitForBit() {
+        Random random = new Random(5);
+        int width = 131;
+        int height = 77;
+        int[] pixels = new int[width * height];
+        for (int k = 0; k < pixels.length; k++) {
+            int r = 150 + random.nextInt(100);
+            int g = 90 + random.nextInt(80);
+            int b = 70 + random.nextInt(70);
+            pixels[k] = 0xFF000000 | r << 16 | g << 8 | b;
+        }
+        assertArrayEquals(new FeatureExtractor(scalar).extract(pixels, width, height),
+                new FeatureExtractor(vector).extract(pixels, width, height), 0f);
+    }
+}